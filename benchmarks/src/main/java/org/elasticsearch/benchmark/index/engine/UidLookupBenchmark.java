@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.index.engine;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.logging.ESLoggerFactory;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.index.codec.CodecService;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.UidFieldMapper;
+import org.elasticsearch.index.mapper.VersionFieldMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the _uid lookup that every update, and every index operation with an explicit id, does before it can write the
+ * document, depending on the number of segments and on whether the _uid postings are bloom filtered (see
+ * {@link CodecService#UID_BLOOM_CODEC}). Random UUIDs are used as ids, so the terms index can not rule out segments on its own.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class UidLookupBenchmark {
+    private static final int NUM_LOOKUPS = 1 << 14;
+
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+    @Param({"1", "10", "50"})
+    public int numSegments = 10;
+
+    @Param({"10000"})
+    public int docsPerSegment = 10000;
+
+    @Param({CodecService.DEFAULT_CODEC, CodecService.UID_BLOOM_CODEC})
+    public String codec = CodecService.DEFAULT_CODEC;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private Term[] existingUids;
+    private Term[] missingUids;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = new RAMDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setCodec(new CodecService(null, ESLoggerFactory.getLogger(UidLookupBenchmark.class)).codec(codec));
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        existingUids = new Term[NUM_LOOKUPS];
+        missingUids = new Term[NUM_LOOKUPS];
+        // look up every n-th document so that the looked up uids are spread over all segments
+        final int stride = Math.max(1, numSegments * docsPerSegment / NUM_LOOKUPS);
+        int numExisting = 0;
+        try (IndexWriter writer = new IndexWriter(directory, iwc)) {
+            for (int segment = 0; segment < numSegments; segment++) {
+                for (int i = 0; i < docsPerSegment; i++) {
+                    Term uid = newUid();
+                    Document document = new Document();
+                    document.add(new StringField(UidFieldMapper.NAME, uid.bytes(), Field.Store.YES));
+                    document.add(new NumericDocValuesField(VersionFieldMapper.NAME, 1));
+                    writer.addDocument(document);
+                    if (i % stride == 0 && numExisting < NUM_LOOKUPS) {
+                        existingUids[numExisting++] = uid;
+                    }
+                }
+                writer.commit();
+            }
+        }
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            if (i >= numExisting) {
+                existingUids[i] = existingUids[i % numExisting];
+            }
+            missingUids[i] = newUid();
+        }
+        reader = DirectoryReader.open(directory);
+    }
+
+    private static Term newUid() {
+        return new Term(UidFieldMapper.NAME, Uid.createUidAsBytes("type", UUIDs.randomBase64UUID()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public long updateExistingDocument() throws IOException {
+        return Versions.loadVersion(reader, existingUids[next++ & (NUM_LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public long indexNewDocument() throws IOException {
+        return Versions.loadVersion(reader, missingUids[next++ & (NUM_LOOKUPS - 1)]);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.index.mapper;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.analysis.IndexAnalyzers;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.indices.IndicesModule;
+import org.elasticsearch.indices.analysis.AnalysisModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of a log-like document into Lucene documents. Run with <code>-prof gc</code> to see the
+ * allocation rate per parsed document, e.g.:
+ *
+ * <pre>
+ * java -jar benchmarks/build/distributions/elasticsearch-benchmarks-*.jar DocumentParserBenchmark -prof gc
+ * </pre>
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class DocumentParserBenchmark {
+    private static final String MAPPING = "{\"doc\":{\"properties\":{" +
+        "\"@timestamp\":{\"type\":\"date\"}," +
+        "\"message\":{\"type\":\"text\"}," +
+        "\"host\":{\"type\":\"keyword\"}," +
+        "\"status\":{\"type\":\"short\"}," +
+        "\"bytes\":{\"type\":\"long\"}," +
+        "\"response_time\":{\"type\":\"float\"}," +
+        "\"client\":{\"properties\":{" +
+            "\"ip\":{\"type\":\"ip\"}," +
+            "\"agent\":{\"type\":\"keyword\"}}}" +
+        "}}}";
+
+    private static final String DOCUMENT = "{" +
+        "\"@timestamp\":\"2017-03-01T12:34:56.789Z\"," +
+        "\"message\":\"GET /search?q=elasticsearch HTTP/1.1\"," +
+        "\"host\":\"web-042\"," +
+        "\"status\":200," +
+        "\"bytes\":51234," +
+        "\"response_time\":12.5," +
+        "\"client\":{\"ip\":\"10.12.34.56\",\"agent\":\"Mozilla/5.0 (X11; Linux x86_64)\"}" +
+        "}";
+
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+    @Param({"_all_enabled", "_all_disabled"})
+    public String allField = "_all_enabled";
+
+    private DocumentMapper documentMapper;
+    private BytesReference source;
+
+    @Setup
+    public void setUp() throws Exception {
+        Settings settings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), Files.createTempDirectory("document-parser-benchmark"))
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+            .build();
+        IndexSettings indexSettings = new IndexSettings(IndexMetaData.builder("benchmark").settings(settings).build(), settings);
+        IndexAnalyzers indexAnalyzers = new AnalysisModule(new Environment(settings), Collections.emptyList())
+            .getAnalysisRegistry().build(indexSettings);
+        MapperService mapperService = new MapperService(indexSettings, indexAnalyzers, NamedXContentRegistry.EMPTY,
+            new SimilarityService(indexSettings, Collections.emptyMap()),
+            new IndicesModule(Collections.emptyList()).getMapperRegistry(), () -> null);
+        String mapping = MAPPING;
+        if ("_all_disabled".equals(allField)) {
+            mapping = mapping.replace("{\"doc\":{", "{\"doc\":{\"_all\":{\"enabled\":false},");
+        }
+        documentMapper = mapperService.merge("doc", new CompressedXContent(mapping), MapperService.MergeReason.MAPPING_UPDATE, false);
+        source = new BytesArray(DOCUMENT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public ParsedDocument parseDocument() {
+        return documentMapper.parse(SourceToParse.source("benchmark", "doc", "1", source, XContentType.JSON));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.ingest;
+
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.ingest.IngestDocument;
+import org.elasticsearch.ingest.Processor;
+import org.elasticsearch.ingest.geoip.IngestGeoIpPlugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the geoip processor on a stream of ip addresses whose frequencies follow a Zipf distribution, like the client
+ * addresses of web access logs, with and without the result cache (<code>ingest.geoip.result_cache_size</code>). The higher
+ * the exponent, the more skewed the stream and the higher the hit rate of a cache of a given size.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class GeoIpProcessorBenchmark {
+    private static final int STREAM_LENGTH = 1 << 16;
+
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+    @Param({"0", "10000"})
+    public long resultCacheSize = 10000;
+
+    @Param({"100000"})
+    public int numDistinctIps = 100000;
+
+    @Param({"0.8", "1.2"})
+    public double zipfExponent = 1.2;
+
+    private Path home;
+    private IngestGeoIpPlugin plugin;
+    private Processor processor;
+    private String[] ips;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        home = Files.createTempDirectory("geoip-benchmark");
+        Path geoIpConfigDirectory = Files.createDirectories(home.resolve("config").resolve("ingest-geoip"));
+        try (InputStream database = GeoIpProcessorBenchmark.class.getResourceAsStream("/GeoLite2-City.mmdb.gz")) {
+            Files.copy(database, geoIpConfigDirectory.resolve("GeoLite2-City.mmdb.gz"));
+        }
+        Settings settings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), home.toString())
+            .put(IngestGeoIpPlugin.RESULT_CACHE_SIZE.getKey(), resultCacheSize)
+            .build();
+        plugin = new IngestGeoIpPlugin();
+        Map<String, Processor.Factory> factories =
+            plugin.getProcessors(new Processor.Parameters(new Environment(settings), null, null, null, null));
+        Map<String, Object> config = new HashMap<>();
+        config.put("field", "ip");
+        processor = factories.get("geoip").create(factories, "geoip", config);
+
+        Random random = new Random(42);
+        String[] distinctIps = new String[numDistinctIps];
+        for (int i = 0; i < distinctIps.length; i++) {
+            distinctIps[i] = (1 + random.nextInt(223)) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+        }
+        // the probability of the ip of rank k is proportional to 1 / k^s, sample the stream by inverting the cumulative distribution
+        double[] cumulative = new double[numDistinctIps];
+        double sum = 0;
+        for (int k = 0; k < numDistinctIps; k++) {
+            sum += 1 / Math.pow(k + 1, zipfExponent);
+            cumulative[k] = sum;
+        }
+        ips = new String[STREAM_LENGTH];
+        for (int i = 0; i < ips.length; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            ips[i] = distinctIps[rank >= 0 ? rank : Math.min(-rank - 1, numDistinctIps - 1)];
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        plugin.close();
+        IOUtils.rm(home);
+    }
+
+    @Benchmark
+    public IngestDocument lookup() throws Exception {
+        IngestDocument document = new IngestDocument("index", "type", "id", null, null, null, null,
+            Collections.singletonMap("ip", ips[next++ & (STREAM_LENGTH - 1)]));
+        processor.execute(document);
+        return document;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.ingest;
+
+import org.elasticsearch.ingest.IngestDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what the verbose simulate pipeline API does per document: the document is copied after every processor, here the
+ * field operations that the set, rename and remove processors do, so that the intermediate results can be returned. The
+ * document is about 50KB as JSON, spread over a hundred nested objects. Run with <code>-prof gc</code> to see the allocation
+ * rate per document.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class IngestDocumentCopyBenchmark {
+    private static final int NUM_OBJECTS = 100;
+    private static final int FIELDS_PER_OBJECT = 10;
+
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+    @Param({"1", "5", "20"})
+    public int numProcessors = 5;
+
+    private IngestDocument original;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> source = new HashMap<>();
+        List<Object> objects = new ArrayList<>(NUM_OBJECTS);
+        for (int i = 0; i < NUM_OBJECTS; i++) {
+            Map<String, Object> object = new HashMap<>();
+            for (int j = 0; j < FIELDS_PER_OBJECT; j++) {
+                object.put("field_" + j, "value of field " + j + " of object " + i + " padded to about fifty bytes");
+            }
+            objects.add(object);
+        }
+        source.put("objects", objects);
+        source.put("message", "GET /search?q=elasticsearch HTTP/1.1");
+        original = new IngestDocument("index", "type", "id", null, null, null, null, source);
+    }
+
+    @Benchmark
+    public List<IngestDocument> copyAfterEachProcessor() {
+        // the original document is never modified, the copy copies what it modifies
+        IngestDocument document = new IngestDocument(original);
+        List<IngestDocument> results = new ArrayList<>(numProcessors);
+        for (int i = 0; i < numProcessors; i++) {
+            switch (i % 3) {
+                case 0:
+                    document.setFieldValue("objects." + i + ".field_0", "changed");
+                    break;
+                case 1:
+                    document.setFieldValue("renamed_" + i, document.getFieldValue("message", String.class));
+                    document.removeField("message");
+                    document.setFieldValue("message", document.getFieldValue("renamed_" + i, String.class));
+                    break;
+                default:
+                    document.removeField("objects." + i + ".field_1");
+                    break;
+            }
+            results.add(new IngestDocument(document));
+        }
+        return results;
+    }
+}
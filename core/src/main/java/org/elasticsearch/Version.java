@@ -130,7 +130,7 @@ public class Version {
     public static final Version V_5_3_3 = new Version(V_5_3_3_ID, org.apache.lucene.util.Version.LUCENE_6_4_2);
     public static final int V_5_3_4_ID_UNRELEASED = 5030499;
     public static final Version V_5_3_4_UNRELEASED = new Version(V_5_3_4_ID_UNRELEASED, org.apache.lucene.util.Version.LUCENE_6_4_2);
-    public static final Version CURRENT = V_5_3_1;
+    public static final Version CURRENT = V_5_3_4_UNRELEASED;
 
     // unreleased versions must be added to the above list with the suffix _UNRELEASED (with the exception of CURRENT)
 
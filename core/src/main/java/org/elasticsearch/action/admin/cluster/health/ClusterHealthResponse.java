@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.cluster.health;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.health.ClusterHealthStatus;
@@ -30,6 +31,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.StatusToXContentObject;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.gateway.ShardFetchStats;
 import org.elasticsearch.rest.RestStatus;
 
 import java.io.IOException;
@@ -42,6 +44,7 @@ public class ClusterHealthResponse extends ActionResponse implements StatusToXCo
     private int numberOfInFlightFetch = 0;
     private int delayedUnassignedShards = 0;
     private TimeValue taskMaxWaitingTime = TimeValue.timeValueMillis(0);
+    private ShardFetchStats shardFetchStats = ShardFetchStats.EMPTY;
     private boolean timedOut = false;
     private ClusterStateHealth clusterStateHealth;
     private ClusterHealthStatus clusterHealthStatus;
@@ -56,6 +59,13 @@ public class ClusterHealthResponse extends ActionResponse implements StatusToXCo
 
     public ClusterHealthResponse(String clusterName, String[] concreteIndices, ClusterState clusterState, int numberOfPendingTasks,
                                  int numberOfInFlightFetch, int delayedUnassignedShards, TimeValue taskMaxWaitingTime) {
+        this(clusterName, concreteIndices, clusterState, numberOfPendingTasks, numberOfInFlightFetch, delayedUnassignedShards,
+            taskMaxWaitingTime, ShardFetchStats.EMPTY);
+    }
+
+    public ClusterHealthResponse(String clusterName, String[] concreteIndices, ClusterState clusterState, int numberOfPendingTasks,
+                                 int numberOfInFlightFetch, int delayedUnassignedShards, TimeValue taskMaxWaitingTime,
+                                 ShardFetchStats shardFetchStats) {
         this.clusterName = clusterName;
         this.numberOfPendingTasks = numberOfPendingTasks;
         this.numberOfInFlightFetch = numberOfInFlightFetch;
@@ -64,6 +74,7 @@ public class ClusterHealthResponse extends ActionResponse implements StatusToXCo
         this.numberOfPendingTasks = numberOfPendingTasks;
         this.numberOfInFlightFetch = numberOfInFlightFetch;
         this.taskMaxWaitingTime = taskMaxWaitingTime;
+        this.shardFetchStats = shardFetchStats;
         this.clusterStateHealth = new ClusterStateHealth(clusterState, concreteIndices);
         this.clusterHealthStatus = clusterStateHealth.getStatus();
     }
@@ -122,6 +133,13 @@ public class ClusterHealthResponse extends ActionResponse implements StatusToXCo
         return this.delayedUnassignedShards;
     }
 
+    /**
+     * The statistics of the batched requests that the master sent to fetch shard data from nodes for allocation.
+     */
+    public ShardFetchStats getShardFetchStats() {
+        return shardFetchStats;
+    }
+
     /**
      * <tt>true</tt> if the waitForXXX has timeout out and did not match.
      */
@@ -185,6 +203,9 @@ public class ClusterHealthResponse extends ActionResponse implements StatusToXCo
         numberOfInFlightFetch = in.readInt();
         delayedUnassignedShards= in.readInt();
         taskMaxWaitingTime = new TimeValue(in);
+        if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            shardFetchStats = new ShardFetchStats(in);
+        }
     }
 
     @Override
@@ -198,6 +219,9 @@ public class ClusterHealthResponse extends ActionResponse implements StatusToXCo
         out.writeInt(numberOfInFlightFetch);
         out.writeInt(delayedUnassignedShards);
         taskMaxWaitingTime.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            shardFetchStats.writeTo(out);
+        }
     }
 
     @Override
@@ -247,6 +271,7 @@ public class ClusterHealthResponse extends ActionResponse implements StatusToXCo
         builder.field(NUMBER_OF_IN_FLIGHT_FETCH, getNumberOfInFlightFetch());
         builder.timeValueField(TASK_MAX_WAIT_TIME_IN_QUEUE_IN_MILLIS, TASK_MAX_WAIT_TIME_IN_QUEUE, getTaskMaxWaitingTime());
         builder.percentageField(ACTIVE_SHARDS_PERCENT_AS_NUMBER, ACTIVE_SHARDS_PERCENT, getActiveShardsPercent());
+        shardFetchStats.toXContent(builder, params);
 
         String level = params.param("level", "cluster");
         boolean outputIndices = "indices".equals(level) || "shards".equals(level);
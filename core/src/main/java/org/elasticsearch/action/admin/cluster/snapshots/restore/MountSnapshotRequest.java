@@ -0,0 +1,294 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.snapshots.restore;
+
+import org.elasticsearch.ElasticsearchGenerationException;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.master.MasterNodeRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+import static org.elasticsearch.common.settings.Settings.readSettingsFromStream;
+import static org.elasticsearch.common.settings.Settings.writeSettingsToStream;
+import static org.elasticsearch.common.settings.Settings.Builder.EMPTY_SETTINGS;
+
+/**
+ * Mounts an index of a snapshot, so that it can be searched without restoring its files first
+ */
+public class MountSnapshotRequest extends MasterNodeRequest<MountSnapshotRequest> {
+
+    private String snapshot;
+    private String repository;
+    private String index;
+    private String renamedIndex;
+    private boolean waitForCompletion;
+    private Settings indexSettings = EMPTY_SETTINGS;
+
+    public MountSnapshotRequest() {
+    }
+
+    /**
+     * Constructs a new mount snapshot request with the provided repository and snapshot names.
+     *
+     * @param repository repository name
+     * @param snapshot   snapshot name
+     */
+    public MountSnapshotRequest(String repository, String snapshot) {
+        this.snapshot = snapshot;
+        this.repository = repository;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (snapshot == null) {
+            validationException = addValidationError("name is missing", validationException);
+        }
+        if (repository == null) {
+            validationException = addValidationError("repository is missing", validationException);
+        }
+        if (index == null) {
+            validationException = addValidationError("index is missing", validationException);
+        }
+        if (indexSettings == null) {
+            validationException = addValidationError("indexSettings are missing", validationException);
+        }
+        return validationException;
+    }
+
+    /**
+     * Sets the name of the snapshot.
+     *
+     * @param snapshot snapshot name
+     * @return this request
+     */
+    public MountSnapshotRequest snapshot(String snapshot) {
+        this.snapshot = snapshot;
+        return this;
+    }
+
+    /**
+     * Returns the name of the snapshot.
+     *
+     * @return snapshot name
+     */
+    public String snapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Sets repository name
+     *
+     * @param repository repository name
+     * @return this request
+     */
+    public MountSnapshotRequest repository(String repository) {
+        this.repository = repository;
+        return this;
+    }
+
+    /**
+     * Returns repository name
+     *
+     * @return repository name
+     */
+    public String repository() {
+        return this.repository;
+    }
+
+    /**
+     * Sets the name of the index in the snapshot that should be mounted
+     *
+     * @param index index name
+     * @return this request
+     */
+    public MountSnapshotRequest index(String index) {
+        this.index = index;
+        return this;
+    }
+
+    /**
+     * Returns the name of the index in the snapshot that should be mounted
+     *
+     * @return index name
+     */
+    public String index() {
+        return index;
+    }
+
+    /**
+     * Sets the name of the mounted index. By default the index is mounted under its name in the snapshot.
+     *
+     * @param renamedIndex name of the mounted index
+     * @return this request
+     */
+    public MountSnapshotRequest renamedIndex(@Nullable String renamedIndex) {
+        this.renamedIndex = renamedIndex;
+        return this;
+    }
+
+    /**
+     * Returns the name of the mounted index, or null if the index is mounted under its name in the snapshot
+     *
+     * @return name of the mounted index
+     */
+    @Nullable
+    public String renamedIndex() {
+        return renamedIndex;
+    }
+
+    /**
+     * If this parameter is set to true the operation will wait for completion of the mount process before returning.
+     *
+     * @param waitForCompletion if true the operation will wait for completion
+     * @return this request
+     */
+    public MountSnapshotRequest waitForCompletion(boolean waitForCompletion) {
+        this.waitForCompletion = waitForCompletion;
+        return this;
+    }
+
+    /**
+     * Returns wait for completion setting
+     *
+     * @return true if the operation will wait for completion
+     */
+    public boolean waitForCompletion() {
+        return waitForCompletion;
+    }
+
+    /**
+     * Sets settings that should be added or changed in the mounted index
+     *
+     * @param settings index settings
+     * @return this request
+     */
+    public MountSnapshotRequest indexSettings(Settings settings) {
+        this.indexSettings = settings;
+        return this;
+    }
+
+    /**
+     * Sets settings that should be added or changed in the mounted index
+     *
+     * @param settings index settings
+     * @return this request
+     */
+    public MountSnapshotRequest indexSettings(Settings.Builder settings) {
+        this.indexSettings = settings.build();
+        return this;
+    }
+
+    /**
+     * Sets settings that should be added or changed in the mounted index
+     *
+     * @param source index settings
+     * @return this request
+     */
+    public MountSnapshotRequest indexSettings(Map<String, Object> source) {
+        try {
+            XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON);
+            builder.map(source);
+            this.indexSettings = Settings.builder().loadFromSource(builder.string(), builder.contentType()).build();
+        } catch (IOException e) {
+            throw new ElasticsearchGenerationException("Failed to generate [" + source + "]", e);
+        }
+        return this;
+    }
+
+    /**
+     * Returns settings that should be added or changed in the mounted index
+     *
+     * @return index settings
+     */
+    public Settings indexSettings() {
+        return this.indexSettings;
+    }
+
+    /**
+     * Parses mount definition
+     *
+     * @param source mount definition
+     * @return this request
+     */
+    @SuppressWarnings("unchecked")
+    public MountSnapshotRequest source(Map<String, Object> source) {
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            String name = entry.getKey();
+            if (name.equals("index")) {
+                if (entry.getValue() instanceof String) {
+                    index((String) entry.getValue());
+                } else {
+                    throw new IllegalArgumentException("malformed index, should be a string");
+                }
+            } else if (name.equals("renamed_index")) {
+                if (entry.getValue() instanceof String) {
+                    renamedIndex((String) entry.getValue());
+                } else {
+                    throw new IllegalArgumentException("malformed renamed_index, should be a string");
+                }
+            } else if (name.equals("index_settings")) {
+                if (!(entry.getValue() instanceof Map)) {
+                    throw new IllegalArgumentException("malformed index_settings section");
+                }
+                indexSettings((Map<String, Object>) entry.getValue());
+            } else {
+                throw new IllegalArgumentException("Unknown parameter " + name);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        snapshot = in.readString();
+        repository = in.readString();
+        index = in.readString();
+        renamedIndex = in.readOptionalString();
+        waitForCompletion = in.readBoolean();
+        indexSettings = readSettingsFromStream(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(snapshot);
+        out.writeString(repository);
+        out.writeString(index);
+        out.writeOptionalString(renamedIndex);
+        out.writeBoolean(waitForCompletion);
+        writeSettingsToStream(indexSettings, out);
+    }
+
+    @Override
+    public String getDescription() {
+        return "snapshot [" + repository + ":" + snapshot + "], index [" + index + "]";
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.snapshots.restore;
+
+import org.elasticsearch.action.support.master.MasterNodeOperationRequestBuilder;
+import org.elasticsearch.client.ElasticsearchClient;
+import org.elasticsearch.common.settings.Settings;
+
+/**
+ * Mount snapshot request builder
+ */
+public class MountSnapshotRequestBuilder
+    extends MasterNodeOperationRequestBuilder<MountSnapshotRequest, RestoreSnapshotResponse, MountSnapshotRequestBuilder> {
+
+    /**
+     * Constructs new mount snapshot request builder
+     */
+    public MountSnapshotRequestBuilder(ElasticsearchClient client, MountSnapshotAction action) {
+        super(client, action, new MountSnapshotRequest());
+    }
+
+    /**
+     * Constructs new mount snapshot request builder with specified repository and snapshot names
+     */
+    public MountSnapshotRequestBuilder(ElasticsearchClient client, MountSnapshotAction action, String repository, String name) {
+        super(client, action, new MountSnapshotRequest(repository, name));
+    }
+
+    /**
+     * Sets the name of the index in the snapshot that should be mounted
+     *
+     * @param index index name
+     * @return this builder
+     */
+    public MountSnapshotRequestBuilder setIndex(String index) {
+        request.index(index);
+        return this;
+    }
+
+    /**
+     * Sets the name of the mounted index
+     *
+     * @param renamedIndex name of the mounted index
+     * @return this builder
+     */
+    public MountSnapshotRequestBuilder setRenamedIndex(String renamedIndex) {
+        request.renamedIndex(renamedIndex);
+        return this;
+    }
+
+    /**
+     * If this parameter is set to true the operation will wait for completion of the mount process before returning.
+     *
+     * @param waitForCompletion if true the operation will wait for completion
+     * @return this builder
+     */
+    public MountSnapshotRequestBuilder setWaitForCompletion(boolean waitForCompletion) {
+        request.waitForCompletion(waitForCompletion);
+        return this;
+    }
+
+    /**
+     * Sets index settings that should be added or changed in the mounted index
+     *
+     * @param settings index settings
+     * @return this builder
+     */
+    public MountSnapshotRequestBuilder setIndexSettings(Settings settings) {
+        request.indexSettings(settings);
+        return this;
+    }
+
+    /**
+     * Sets index settings that should be added or changed in the mounted index
+     *
+     * @param settings index settings
+     * @return this builder
+     */
+    public MountSnapshotRequestBuilder setIndexSettings(Settings.Builder settings) {
+        request.indexSettings(settings);
+        return this;
+    }
+}
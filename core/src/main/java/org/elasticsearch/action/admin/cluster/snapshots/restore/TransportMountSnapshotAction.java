@@ -0,0 +1,131 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.snapshots.restore;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.master.TransportMasterNodeAction;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexModule;
+import org.elasticsearch.index.store.snapshot.SearchableSnapshotIndexStore;
+import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.repositories.RepositoriesService;
+import org.elasticsearch.repositories.Repository;
+import org.elasticsearch.repositories.RepositoryData;
+import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
+import org.elasticsearch.snapshots.Snapshot;
+import org.elasticsearch.snapshots.SnapshotId;
+import org.elasticsearch.snapshots.SnapshotMissingException;
+import org.elasticsearch.snapshots.SnapshotRestoreException;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Transport action for mount snapshot operation. The index is restored with the snapshot store type, whose shards expose the
+ * snapshotted files without copying them, so the restore only has to open the shards.
+ */
+public class TransportMountSnapshotAction extends TransportMasterNodeAction<MountSnapshotRequest, RestoreSnapshotResponse> {
+
+    private final RepositoriesService repositoriesService;
+    private final TransportRestoreSnapshotAction restoreSnapshotAction;
+
+    @Inject
+    public TransportMountSnapshotAction(Settings settings, TransportService transportService, ClusterService clusterService,
+                                        ThreadPool threadPool, RepositoriesService repositoriesService,
+                                        TransportRestoreSnapshotAction restoreSnapshotAction, ActionFilters actionFilters,
+                                        IndexNameExpressionResolver indexNameExpressionResolver) {
+        super(settings, MountSnapshotAction.NAME, transportService, clusterService, threadPool, actionFilters,
+            indexNameExpressionResolver, MountSnapshotRequest::new);
+        this.repositoriesService = repositoriesService;
+        this.restoreSnapshotAction = restoreSnapshotAction;
+    }
+
+    @Override
+    protected String executor() {
+        return ThreadPool.Names.SNAPSHOT;
+    }
+
+    @Override
+    protected RestoreSnapshotResponse newResponse() {
+        return new RestoreSnapshotResponse();
+    }
+
+    @Override
+    protected ClusterBlockException checkBlock(MountSnapshotRequest request, ClusterState state) {
+        // Mounting a snapshot creates an index, so we need to check for METADATA_WRITE and WRITE blocks
+        ClusterBlockException blockException = state.blocks().globalBlockedException(ClusterBlockLevel.METADATA_WRITE);
+        if (blockException != null) {
+            return blockException;
+        }
+        return state.blocks().globalBlockedException(ClusterBlockLevel.WRITE);
+    }
+
+    @Override
+    protected void masterOperation(final MountSnapshotRequest request, final ClusterState state,
+                                   final ActionListener<RestoreSnapshotResponse> listener) {
+        final Repository repository = repositoriesService.repository(request.repository());
+        if (repository instanceof BlobStoreRepository == false) {
+            throw new IllegalArgumentException("repository [" + request.repository() + "] of type [" + repository.getMetadata().type()
+                + "] doesn't support mounting snapshots");
+        }
+        final RepositoryData repositoryData = repository.getRepositoryData();
+        final SnapshotId snapshotId = repositoryData.getSnapshotIds().stream()
+            .filter(s -> s.getName().equals(request.snapshot())).findFirst()
+            .orElseThrow(() -> new SnapshotMissingException(request.repository(), request.snapshot()));
+        final IndexId indexId = repositoryData.getIndices().get(request.index());
+        if (indexId == null || repositoryData.getSnapshots(indexId).contains(snapshotId) == false) {
+            throw new SnapshotRestoreException(new Snapshot(request.repository(), snapshotId),
+                "index [" + request.index() + "] wasn't found in the snapshot");
+        }
+
+        final Settings indexSettings = Settings.builder()
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(request.indexSettings())
+            .put(IndexModule.INDEX_STORE_TYPE_SETTING.getKey(), SearchableSnapshotIndexStore.TYPE)
+            .put(SearchableSnapshotIndexStore.REPOSITORY_SETTING.getKey(), request.repository())
+            .put(SearchableSnapshotIndexStore.SNAPSHOT_NAME_SETTING.getKey(), snapshotId.getName())
+            .put(SearchableSnapshotIndexStore.SNAPSHOT_UUID_SETTING.getKey(), snapshotId.getUUID())
+            .put(SearchableSnapshotIndexStore.INDEX_NAME_SETTING.getKey(), indexId.getName())
+            .put(SearchableSnapshotIndexStore.INDEX_ID_SETTING.getKey(), indexId.getId())
+            .put(IndexMetaData.INDEX_BLOCKS_WRITE_SETTING.getKey(), true)
+            .build();
+        final RestoreSnapshotRequest restoreRequest = new RestoreSnapshotRequest(request.repository(), request.snapshot())
+            .indices(request.index())
+            .indexSettings(indexSettings)
+            .includeGlobalState(false)
+            .waitForCompletion(request.waitForCompletion())
+            .masterNodeTimeout(request.masterNodeTimeout());
+        if (request.renamedIndex() != null) {
+            restoreRequest.renamePattern("^" + Pattern.quote(request.index()) + "$");
+            restoreRequest.renameReplacement(Matcher.quoteReplacement(request.renamedIndex()));
+        }
+        restoreSnapshotAction.execute(restoreRequest, listener);
+    }
+}
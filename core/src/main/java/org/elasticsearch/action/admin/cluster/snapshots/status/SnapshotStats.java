@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.cluster.snapshots.status;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -43,6 +44,8 @@ public class SnapshotStats implements Streamable, ToXContent {
 
     private long processedSize;
 
+    private long deduplicatedSize;
+
     SnapshotStats() {
     }
 
@@ -53,6 +56,7 @@ public class SnapshotStats implements Streamable, ToXContent {
         processedFiles = indexShardStatus.processedFiles();
         totalSize = indexShardStatus.totalSize();
         processedSize = indexShardStatus.processedSize();
+        deduplicatedSize = indexShardStatus.deduplicatedSize();
     }
 
     /**
@@ -97,6 +101,21 @@ public class SnapshotStats implements Streamable, ToXContent {
         return processedSize;
     }
 
+    /**
+     * Returns the size of the processed files that didn't have to be uploaded as the repository already contained their content
+     */
+    public long getDeduplicatedSize() {
+        return deduplicatedSize;
+    }
+
+    /**
+     * Returns the fraction of the size of the processed files that didn't have to be uploaded as the repository already contained
+     * their content
+     */
+    public double getDeduplicationRatio() {
+        return processedSize == 0 ? 0 : (double) deduplicatedSize / processedSize;
+    }
+
 
     public static SnapshotStats readSnapshotStats(StreamInput in) throws IOException {
         SnapshotStats stats = new SnapshotStats();
@@ -114,6 +133,9 @@ public class SnapshotStats implements Streamable, ToXContent {
 
         out.writeVLong(totalSize);
         out.writeVLong(processedSize);
+        if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            out.writeVLong(deduplicatedSize);
+        }
     }
 
     @Override
@@ -126,6 +148,9 @@ public class SnapshotStats implements Streamable, ToXContent {
 
         totalSize = in.readVLong();
         processedSize = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            deduplicatedSize = in.readVLong();
+        }
     }
 
     static final class Fields {
@@ -136,6 +161,9 @@ public class SnapshotStats implements Streamable, ToXContent {
         static final String TOTAL_SIZE = "total_size";
         static final String PROCESSED_SIZE_IN_BYTES = "processed_size_in_bytes";
         static final String PROCESSED_SIZE = "processed_size";
+        static final String DEDUPLICATED_SIZE_IN_BYTES = "deduplicated_size_in_bytes";
+        static final String DEDUPLICATED_SIZE = "deduplicated_size";
+        static final String DEDUPLICATION_RATIO = "deduplication_ratio";
         static final String START_TIME_IN_MILLIS = "start_time_in_millis";
         static final String TIME_IN_MILLIS = "time_in_millis";
         static final String TIME = "time";
@@ -148,6 +176,8 @@ public class SnapshotStats implements Streamable, ToXContent {
         builder.field(Fields.PROCESSED_FILES, getProcessedFiles());
         builder.byteSizeField(Fields.TOTAL_SIZE_IN_BYTES, Fields.TOTAL_SIZE, getTotalSize());
         builder.byteSizeField(Fields.PROCESSED_SIZE_IN_BYTES, Fields.PROCESSED_SIZE, getProcessedSize());
+        builder.byteSizeField(Fields.DEDUPLICATED_SIZE_IN_BYTES, Fields.DEDUPLICATED_SIZE, getDeduplicatedSize());
+        builder.field(Fields.DEDUPLICATION_RATIO, getDeduplicationRatio());
         builder.field(Fields.START_TIME_IN_MILLIS, getStartTime());
         builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, getTime());
         builder.endObject();
@@ -160,6 +190,7 @@ public class SnapshotStats implements Streamable, ToXContent {
 
         totalSize += stats.totalSize;
         processedSize += stats.processedSize;
+        deduplicatedSize += stats.deduplicatedSize;
 
 
         if (startTime == 0) {
@@ -140,6 +140,13 @@ public class IndicesSegmentResponse extends BroadcastResponse implements ToXCont
                         if (segment.getMergeId() != null) {
                             builder.field(Fields.MERGE_ID, segment.getMergeId());
                         }
+                        if (segment.getTimestampField() != null) {
+                            builder.startObject(Fields.TIME_RANGE);
+                            builder.field(Fields.FIELD, segment.getTimestampField());
+                            builder.dateField(Fields.MIN_IN_MILLIS, Fields.MIN, segment.getMinTimestamp());
+                            builder.dateField(Fields.MAX_IN_MILLIS, Fields.MAX, segment.getMaxTimestamp());
+                            builder.endObject();
+                        }
                         if (segment.ramTree != null) {
                             builder.startArray(Fields.RAM_TREE);
                             for (Accountable child : segment.ramTree.getChildResources()) {
@@ -201,6 +208,12 @@ public class IndicesSegmentResponse extends BroadcastResponse implements ToXCont
         static final String VERSION = "version";
         static final String COMPOUND = "compound";
         static final String MERGE_ID = "merge_id";
+        static final String TIME_RANGE = "time_range";
+        static final String FIELD = "field";
+        static final String MIN = "min";
+        static final String MIN_IN_MILLIS = "min_in_millis";
+        static final String MAX = "max";
+        static final String MAX_IN_MILLIS = "max_in_millis";
         static final String MEMORY = "memory";
         static final String MEMORY_IN_BYTES = "memory_in_bytes";
         static final String RAM_TREE = "ram_tree";
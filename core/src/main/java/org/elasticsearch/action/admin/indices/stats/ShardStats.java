@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.indices.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -40,17 +41,24 @@ public class ShardStats implements Streamable, Writeable, ToXContent {
     private String dataPath;
     private String statePath;
     private boolean isCustomDataPath;
+    private boolean isSearchIdle;
 
     ShardStats() {
     }
 
     public ShardStats(ShardRouting routing, ShardPath shardPath, CommonStats commonStats, CommitStats commitStats) {
+        this(routing, shardPath, commonStats, commitStats, false);
+    }
+
+    public ShardStats(ShardRouting routing, ShardPath shardPath, CommonStats commonStats, CommitStats commitStats,
+                      boolean isSearchIdle) {
         this.shardRouting = routing;
         this.dataPath = shardPath.getRootDataPath().toString();
         this.statePath = shardPath.getRootStatePath().toString();
         this.isCustomDataPath = shardPath.isCustomDataPath();
         this.commitStats = commitStats;
         this.commonStats = commonStats;
+        this.isSearchIdle = isSearchIdle;
     }
 
     /**
@@ -80,6 +88,13 @@ public class ShardStats implements Streamable, Writeable, ToXContent {
         return isCustomDataPath;
     }
 
+    /**
+     * Returns <code>true</code> if the shard wasn't searched recently enough to be refreshed on schedule.
+     */
+    public boolean isSearchIdle() {
+        return isSearchIdle;
+    }
+
     public static ShardStats readShardStats(StreamInput in) throws IOException {
         ShardStats stats = new ShardStats();
         stats.readFrom(in);
@@ -94,6 +109,9 @@ public class ShardStats implements Streamable, Writeable, ToXContent {
         statePath = in.readString();
         dataPath = in.readString();
         isCustomDataPath = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            isSearchIdle = in.readBoolean();
+        }
     }
 
     @Override
@@ -104,6 +122,9 @@ public class ShardStats implements Streamable, Writeable, ToXContent {
         out.writeString(statePath);
         out.writeString(dataPath);
         out.writeBoolean(isCustomDataPath);
+        if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            out.writeBoolean(isSearchIdle);
+        }
     }
 
     @Override
@@ -124,6 +145,7 @@ public class ShardStats implements Streamable, Writeable, ToXContent {
         builder.field(Fields.DATA_PATH, dataPath);
         builder.field(Fields.IS_CUSTOM_DATA_PATH, isCustomDataPath);
         builder.endObject();
+        builder.field(Fields.SEARCH_IDLE, isSearchIdle);
         return builder;
     }
 
@@ -137,5 +159,6 @@ public class ShardStats implements Streamable, Writeable, ToXContent {
         static final String PRIMARY = "primary";
         static final String NODE = "node";
         static final String RELOCATING_NODE = "relocating_node";
+        static final String SEARCH_IDLE = "search_idle";
     }
 }
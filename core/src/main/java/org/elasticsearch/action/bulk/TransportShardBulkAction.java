@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.bulk;
 
+import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.logging.log4j.util.Supplier;
 import org.elasticsearch.ExceptionsHelper;
@@ -65,6 +66,8 @@ import org.elasticsearch.transport.TransportService;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /** Performs shard-level bulk (index, delete or update) operations */
 public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequest, BulkShardRequest, BulkShardResponse> {
@@ -110,9 +113,12 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
 
         long[] preVersions = new long[request.items().length];
         VersionType[] preVersionTypes = new VersionType[request.items().length];
+        // the items that were already parsed to merge their dynamic mapping updates into the update of a previous item
+        boolean[] parsedForMappingMerge = new boolean[request.items().length];
         Translog.Location location = null;
         for (int requestIndex = 0; requestIndex < request.items().length; requestIndex++) {
-            location = executeBulkItemRequest(metaData, primary, request, preVersions, preVersionTypes, location, requestIndex);
+            location = executeBulkItemRequest(metaData, primary, request, preVersions, preVersionTypes, parsedForMappingMerge, location,
+                requestIndex);
         }
 
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
@@ -129,6 +135,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
     private Translog.Location executeBulkItemRequest(IndexMetaData metaData, IndexShard primary,
                                                      BulkShardRequest request,
                                                      long[] preVersions, VersionType[] preVersionTypes,
+                                                     boolean[] parsedForMappingMerge,
                                                      Translog.Location location, int requestIndex) throws Exception {
         System.out.println(LocalDateTime.now() + " TransportShardBulkAction -> executeBulkItemRequest n132 " + this.getClass());
         final DocWriteRequest itemRequest = request.items()[requestIndex].request();
@@ -144,7 +151,9 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                 case CREATE:
                 case INDEX:
                     final IndexRequest indexRequest = (IndexRequest) itemRequest;
-                    Engine.IndexResult indexResult = executeIndexRequestOnPrimary(indexRequest, primary, mappingUpdatedAction);
+                    Engine.IndexResult indexResult = executeIndexRequestOnPrimary(indexRequest, primary, mappingUpdatedAction,
+                        update -> mergeDynamicMappingUpdates(update, request, requestIndex, parsedForMappingMerge,
+                            item -> prepareIndexOperationOnPrimary(item, primary).parsedDoc().dynamicMappingsUpdate(), logger));
                     if (indexResult.hasFailure()) {
                         response = null;
                     } else {
@@ -152,6 +161,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                         final long version = indexResult.getVersion();
                         indexRequest.version(version);
                         indexRequest.versionType(indexRequest.versionType().versionTypeForReplicationAndRecovery());
+                        indexRequest.seqNo(indexResult.getSeqNo());
                         assert indexRequest.versionType().validateVersionForWrites(indexRequest.version());
                         response = new IndexResponse(primary.shardId(), indexRequest.type(), indexRequest.id(),
                                 indexResult.getVersion(), indexResult.isCreated());
@@ -175,6 +185,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                         // update the request with the version so it will go to the replicas
                         deleteRequest.versionType(deleteRequest.versionType().versionTypeForReplicationAndRecovery());
                         deleteRequest.version(deleteResult.getVersion());
+                        deleteRequest.seqNo(deleteResult.getSeqNo());
                         assert deleteRequest.versionType().validateVersionForWrites(deleteRequest.version());
                         response = new DeleteResponse(request.shardId(), deleteRequest.type(), deleteRequest.id(),
                                 deleteResult.getVersion(), deleteResult.isFound());
@@ -291,6 +302,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                         final long version = updateOperationResult.getVersion();
                         indexRequest.version(version);
                         indexRequest.versionType(indexRequest.versionType().versionTypeForReplicationAndRecovery());
+                        indexRequest.seqNo(updateOperationResult.getSeqNo());
                         assert indexRequest.versionType().validateVersionForWrites(indexRequest.version());
                     }
                     break;
@@ -301,6 +313,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                         // update the request with the version so it will go to the replicas
                         deleteRequest.versionType(deleteRequest.versionType().versionTypeForReplicationAndRecovery());
                         deleteRequest.version(updateOperationResult.getVersion());
+                        deleteRequest.seqNo(updateOperationResult.getSeqNo());
                         assert deleteRequest.versionType().validateVersionForWrites(deleteRequest.version());
                     }
                     break;
@@ -428,11 +441,12 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         SourceToParse sourceToParse =
             SourceToParse.source(SourceToParse.Origin.REPLICA, shardId.getIndexName(), request.type(), request.id(), request.source(),
                 request.getContentType()).routing(request.routing()).parent(request.parent())
-                .timestamp(request.timestamp()).ttl(request.ttl());
+                .timestamp(request.timestamp()).ttl(request.ttl()).inPlace(request.inPlace());
 
         final Engine.Index operation;
         try {
-            operation = replica.prepareIndexOnReplica(sourceToParse, request.version(), request.versionType(), request.getAutoGeneratedTimestamp(), request.isRetry());
+            operation = replica.prepareIndexOnReplica(sourceToParse, request.seqNo(), request.version(), request.versionType(),
+                request.getAutoGeneratedTimestamp(), request.isRetry());
         } catch (MapperParsingException e) {
             return new Engine.IndexResult(e, request.version());
         }
@@ -449,13 +463,60 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         SourceToParse sourceToParse =
             SourceToParse.source(SourceToParse.Origin.PRIMARY, request.index(), request.type(), request.id(), request.source(),
                 request.getContentType()).routing(request.routing()).parent(request.parent())
-                .timestamp(request.timestamp()).ttl(request.ttl());
+                .timestamp(request.timestamp()).ttl(request.ttl()).inPlace(request.inPlace());
         return primary.prepareIndexOnPrimary(sourceToParse, request.version(), request.versionType(), request.getAutoGeneratedTimestamp(), request.isRetry());
     }
 
+    /**
+     * Merges the dynamic mapping updates that the remaining index requests of the bulk for the same type would introduce into
+     * the given update, so that a bulk that introduces new fields only waits for a single mapping update on the master instead
+     * of one per item. Items that fail to parse or whose update conflicts with the merged one are left out and will be handled
+     * when they are executed. Every item is parsed for merging at most once per bulk, as tracked by {@code parsedForMerge}, so
+     * that items that conflict with each other don't cause the remaining items to be parsed over and over again.
+     */
+    static Mapping mergeDynamicMappingUpdates(Mapping update, BulkShardRequest request, int requestIndex, boolean[] parsedForMerge,
+                                              Function<IndexRequest, Mapping> dynamicMappingsUpdate, Logger logger) {
+        final String type = request.items()[requestIndex].request().type();
+        Mapping merged = update;
+        for (int i = requestIndex + 1; i < request.items().length; i++) {
+            final DocWriteRequest itemRequest = request.items()[i].request();
+            if ((itemRequest.opType() == DocWriteRequest.OpType.INDEX || itemRequest.opType() == DocWriteRequest.OpType.CREATE) == false
+                    || type.equals(itemRequest.type()) == false || parsedForMerge[i]) {
+                continue;
+            }
+            parsedForMerge[i] = true;
+            final Mapping itemUpdate;
+            try {
+                itemUpdate = dynamicMappingsUpdate.apply((IndexRequest) itemRequest);
+            } catch (Exception e) {
+                // the failure is reported when the item is executed
+                continue;
+            }
+            if (itemUpdate != null) {
+                try {
+                    merged = merged.merge(itemUpdate, false);
+                } catch (IllegalArgumentException e) {
+                    logger.trace((Supplier<?>) () -> new ParameterizedMessage("{} not merging conflicting dynamic mapping update of bulk item",
+                            request.shardId()), e);
+                }
+            }
+        }
+        return merged;
+    }
+
     /** Executes index operation on primary shard after updates mapping if dynamic mappings are found */
     public static Engine.IndexResult executeIndexRequestOnPrimary(IndexRequest request, IndexShard primary,
                                                                   MappingUpdatedAction mappingUpdatedAction) throws Exception {
+        return executeIndexRequestOnPrimary(request, primary, mappingUpdatedAction, UnaryOperator.identity());
+    }
+
+    /**
+     * Executes index operation on primary shard after updates mapping if dynamic mappings are found. The dynamic mapping update
+     * is passed through {@code updateBatcher} before it is sent to the master, which allows to piggyback further updates on it.
+     */
+    static Engine.IndexResult executeIndexRequestOnPrimary(IndexRequest request, IndexShard primary,
+                                                           MappingUpdatedAction mappingUpdatedAction,
+                                                           UnaryOperator<Mapping> updateBatcher) throws Exception {
         Engine.Index operation;
         try {
             operation = prepareIndexOperationOnPrimary(request, primary);
@@ -467,11 +528,23 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         if (update != null) {
             // can throw timeout exception when updating mappings or ISE for attempting to update default mappings
             // which are bubbled up
+            final long startTime = System.nanoTime();
             try {
-                mappingUpdatedAction.updateMappingOnMaster(shardId.getIndex(), request.type(), update);
+                final Mapping batchedUpdate = updateBatcher.apply(update);
+                try {
+                    mappingUpdatedAction.updateMappingOnMaster(shardId.getIndex(), request.type(), batchedUpdate);
+                } catch (IllegalArgumentException e) {
+                    if (batchedUpdate == update) {
+                        throw e;
+                    }
+                    // the batched update may have been rejected because of another item, retry with our own update only
+                    mappingUpdatedAction.updateMappingOnMaster(shardId.getIndex(), request.type(), update);
+                }
             } catch (IllegalArgumentException e) {
                 // throws IAE on conflicts merging dynamic mappings
                 return new Engine.IndexResult(e, request.version());
+            } finally {
+                primary.mappingUpdate(request.type(), System.nanoTime() - startTime);
             }
             try {
                 operation = prepareIndexOperationOnPrimary(request, primary);
@@ -494,7 +567,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
 
     public static Engine.DeleteResult executeDeleteRequestOnReplica(DeleteRequest request, IndexShard replica) throws IOException {
         final Engine.Delete delete = replica.prepareDeleteOnReplica(request.type(), request.id(),
-                request.version(), request.versionType());
+                request.seqNo(), request.version(), request.versionType());
         return replica.delete(delete);
     }
 }
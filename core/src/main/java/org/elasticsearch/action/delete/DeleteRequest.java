@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.delete;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.CompositeIndicesRequest;
 import org.elasticsearch.action.DocWriteRequest;
@@ -30,6 +31,7 @@ import org.elasticsearch.common.logging.DeprecationLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 
 import java.io.IOException;
 
@@ -56,6 +58,7 @@ public class DeleteRequest extends ReplicatedWriteRequest<DeleteRequest> impleme
     private String parent;
     private long version = Versions.MATCH_ANY;
     private VersionType versionType = VersionType.INTERNAL;
+    private long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
     private static DeprecationLogger deprecationLogger = new DeprecationLogger(Loggers.getLogger(DeleteRequest.class));
 
     public DeleteRequest() {
@@ -193,6 +196,23 @@ public class DeleteRequest extends ReplicatedWriteRequest<DeleteRequest> impleme
         return this.versionType;
     }
 
+    /**
+     * Sets the sequence number that the primary assigned to the operation, so that replicas process it under the same sequence
+     * number.
+     */
+    public DeleteRequest seqNo(long seqNo) {
+        this.seqNo = seqNo;
+        return this;
+    }
+
+    /**
+     * Returns the sequence number that the primary assigned to the operation, or {@link SequenceNumbers#UNASSIGNED_SEQ_NO} before
+     * the operation was executed on the primary.
+     */
+    public long seqNo() {
+        return seqNo;
+    }
+
     @Override
     public OpType opType() {
         return OpType.DELETE;
@@ -207,6 +227,9 @@ public class DeleteRequest extends ReplicatedWriteRequest<DeleteRequest> impleme
         parent = in.readOptionalString();
         version = in.readLong();
         versionType = VersionType.fromValue(in.readByte());
+        if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            seqNo = in.readZLong();
+        }
     }
 
     @Override
@@ -218,6 +241,9 @@ public class DeleteRequest extends ReplicatedWriteRequest<DeleteRequest> impleme
         out.writeOptionalString(parent());
         out.writeLong(version);
         out.writeByte(versionType.getValue());
+        if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            out.writeZLong(seqNo);
+        }
     }
 
     @Override
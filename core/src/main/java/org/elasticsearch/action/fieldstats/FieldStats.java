@@ -517,7 +517,7 @@ public abstract class FieldStats<T> implements Writeable, ToXContent {
             if (fmt != null) {
                 f = Joda.forPattern(fmt);
             }
-            return f.parser().parseDateTime(value).getMillis();
+            return f.parseMillis(value);
         }
 
         @Override
@@ -46,6 +46,7 @@ import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.mapper.TimestampFieldMapper;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -105,6 +106,10 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
     private long autoGeneratedTimestamp = UNSET_AUTO_GENERATED_TIMESTAMP;
 
     private boolean isRetry = false;
+
+    private boolean inPlace = false;
+
+    private long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
     private static DeprecationLogger deprecationLogger = new DeprecationLogger(Loggers.getLogger(IndexRequest.class));
 
 
@@ -188,6 +193,9 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
         if (id == null && (versionType == VersionType.INTERNAL && resolvedVersion == Versions.MATCH_ANY) == false) {
             validationException = addValidationError("an id must be provided if version type or value are set", validationException);
         }
+        if (inPlace && (id == null || opType() != OpType.INDEX)) {
+            validationException = addValidationError("in_place updates require an id and the index op type", validationException);
+        }
         if (versionType == VersionType.FORCE) {
             deprecationLogger.deprecated("version type FORCE is deprecated and will be removed in the next major version");
         }
@@ -335,6 +343,23 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
         return this.pipeline;
     }
 
+    /**
+     * Sets whether the numeric doc values of the existing document should be updated in place rather than reindexing the document.
+     * The source must only contain fields that are mapped with {@code in_place_updates}. This is set by the update API and is not
+     * meant to be used directly.
+     */
+    public IndexRequest inPlace(boolean inPlace) {
+        this.inPlace = inPlace;
+        return this;
+    }
+
+    /**
+     * Returns <code>true</code> if the numeric doc values of the existing document should be updated in place.
+     */
+    public boolean inPlace() {
+        return inPlace;
+    }
+
     /**
      * The source of the document to index, recopied to a new array if it is unsafe.
      */
@@ -579,6 +604,23 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
         return this.versionType;
     }
 
+    /**
+     * Sets the sequence number that the primary assigned to the operation, so that replicas process it under the same sequence
+     * number.
+     */
+    public IndexRequest seqNo(long seqNo) {
+        this.seqNo = seqNo;
+        return this;
+    }
+
+    /**
+     * Returns the sequence number that the primary assigned to the operation, or {@link SequenceNumbers#UNASSIGNED_SEQ_NO} before
+     * the operation was executed on the primary.
+     */
+    public long seqNo() {
+        return seqNo;
+    }
+
 
     public void process(@Nullable MappingMetaData mappingMd, boolean allowIdGeneration, String concreteIndex) {
         // resolve timestamp if provided externally
@@ -663,6 +705,10 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
         } else {
             contentType = XContentFactory.xContentType(source);
         }
+        if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            inPlace = in.readBoolean();
+            seqNo = in.readZLong();
+        }
     }
 
     @Override
@@ -689,6 +735,13 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
         if (out.getVersion().onOrAfter(Version.V_5_3_0)) {
             out.writeOptionalWriteable(contentType);
         }
+        if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            out.writeBoolean(inPlace);
+            out.writeZLong(seqNo);
+        } else if (inPlace) {
+            throw new IllegalArgumentException("in_place updates are not supported by nodes before version [" + Version.V_5_3_4_UNRELEASED
+                + "] but node has version [" + out.getVersion() + "]");
+        }
     }
 
     @Override
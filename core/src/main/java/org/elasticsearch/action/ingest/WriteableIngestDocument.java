@@ -47,8 +47,8 @@ final class WriteableIngestDocument implements Writeable, ToXContent {
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
-        out.writeMap(ingestDocument.getSourceAndMetadata());
-        out.writeMap(ingestDocument.getIngestMetadata());
+        out.writeMap(ingestDocument.getSourceAndMetadataForReading());
+        out.writeMap(ingestDocument.getIngestMetadataForReading());
     }
 
     IngestDocument getIngestDocument() {
@@ -64,8 +64,8 @@ final class WriteableIngestDocument implements Writeable, ToXContent {
                 builder.field(metadata.getKey().getFieldName(), metadata.getValue());
             }
         }
-        builder.field("_source", ingestDocument.getSourceAndMetadata());
-        builder.field("_ingest", ingestDocument.getIngestMetadata());
+        builder.field("_source", ingestDocument.getSourceAndMetadataForReading());
+        builder.field("_ingest", ingestDocument.getIngestMetadataForReading());
         builder.endObject();
         return builder;
     }
@@ -21,11 +21,13 @@ package org.elasticsearch.action.support.replication;
 
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionListenerResponseHandler;
 import org.elasticsearch.action.UnavailableShardsException;
 import org.elasticsearch.action.support.ActionFilters;
 import org.elasticsearch.action.support.ActiveShardCount;
+import org.elasticsearch.action.support.ContextPreservingActionListener;
 import org.elasticsearch.action.support.TransportAction;
 import org.elasticsearch.action.support.TransportActions;
 import org.elasticsearch.client.transport.NoNodeAvailableException;
@@ -43,13 +45,19 @@ import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.IndexShard;
@@ -67,8 +75,13 @@ import org.elasticsearch.transport.TransportResponse.Empty;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -86,6 +99,19 @@ public abstract class TransportReplicationAction<
             Response extends ReplicationResponse
         > extends TransportAction<Request, Response> {
 
+    /**
+     * How long the primary collects the requests of actions that {@link #supportsReplicaBatching() support it} for the same replica
+     * before it sends them to the replica in a single batch. Batching is disabled by default.
+     */
+    public static final Setting<TimeValue> REPLICA_BATCH_WINDOW_SETTING =
+        Setting.timeSetting("action.replication.replica_batch_window", TimeValue.ZERO, TimeValue.ZERO, Property.NodeScope);
+
+    /**
+     * The maximum number of requests in a replica batch, a batch is sent as soon as it is full.
+     */
+    public static final Setting<Integer> REPLICA_BATCH_MAX_REQUESTS_SETTING =
+        Setting.intSetting("action.replication.replica_batch_max_requests", 128, 1, Property.NodeScope);
+
     private final TransportService transportService;
     protected final ClusterService clusterService;
     private final IndicesService indicesService;
@@ -96,7 +122,10 @@ public abstract class TransportReplicationAction<
     // package private for testing
     private final String transportReplicaAction;
     private final String transportPrimaryAction;
+    private final String transportReplicaBatchAction;
     private final ReplicasProxy replicasProxy;
+    @Nullable
+    private final ReplicaBatcher replicaBatcher;
 
     protected TransportReplicationAction(Settings settings, String actionName, TransportService transportService,
                                          ClusterService clusterService, IndicesService indicesService,
@@ -121,6 +150,19 @@ public abstract class TransportReplicationAction<
             () -> new ConcreteShardRequest<>(replicaRequest),
             executor, true, true,
             new ReplicaOperationTransportHandler());
+        this.transportReplicaBatchAction = transportReplicaAction + "[batch]";
+        final TimeValue replicaBatchWindow = REPLICA_BATCH_WINDOW_SETTING.get(settings);
+        if (supportsReplicaBatching()) {
+            // replicas accept batches even if they don't send any, because batching is configured on the primary
+            transportService.registerRequestHandler(transportReplicaBatchAction,
+                () -> new ReplicaBatchRequest<>(replicaRequest),
+                executor, true, true,
+                new ReplicaBatchTransportHandler());
+            this.replicaBatcher = replicaBatchWindow.nanos() > 0
+                ? new ReplicaBatcher(replicaBatchWindow, REPLICA_BATCH_MAX_REQUESTS_SETTING.get(settings)) : null;
+        } else {
+            this.replicaBatcher = null;
+        }
 
         this.transportOptions = transportOptions();
 
@@ -175,6 +217,24 @@ public abstract class TransportReplicationAction<
      */
     protected abstract ReplicaResult shardOperationOnReplica(ReplicaRequest shardRequest, IndexShard replica) throws Exception;
 
+    /**
+     * Responds to the requests of a replica batch that were applied to the replica, once all requests of the batch were either
+     * applied or failed. Actions may override this to do work that each request would otherwise do on its own once for the whole
+     * batch. Every listener must be notified exactly once.
+     *
+     * @param replica the replica shard that the requests were applied to
+     * @param results the results of the applied requests, together with the listener that each of them has to be answered with
+     */
+    protected void respondToReplicaBatch(IndexShard replica, List<Tuple<ReplicaResult, ActionListener<TransportResponse.Empty>>> results) {
+        for (Tuple<ReplicaResult, ActionListener<TransportResponse.Empty>> result : results) {
+            try {
+                result.v1().respond(result.v2());
+            } catch (Exception e) {
+                result.v2().onFailure(e);
+            }
+        }
+    }
+
     /**
      * Cluster level block to check before request execution. Returning null means that no blocks need to be checked.
      */
@@ -202,6 +262,15 @@ public abstract class TransportReplicationAction<
         return TransportRequestOptions.EMPTY;
     }
 
+    /**
+     * True if the primary may combine concurrent replica requests for the same replica into a single request, see
+     * {@link #REPLICA_BATCH_WINDOW_SETTING}. The requests of a batch are still executed one by one on the replica, in any order, and
+     * are answered together once all of them were executed, see {@link #respondToReplicaBatch(IndexShard, List)}.
+     */
+    protected boolean supportsReplicaBatching() {
+        return false;
+    }
+
     protected boolean retryPrimaryException(final Throwable e) {
         return e.getClass() == ReplicationOperation.RetryOnPrimaryException.class
                 || TransportActions.isShardNotAvailableException(e);
@@ -444,6 +513,151 @@ public abstract class TransportReplicationAction<
         }
     }
 
+    class ReplicaBatchTransportHandler implements TransportRequestHandler<ReplicaBatchRequest<ReplicaRequest>> {
+        @Override
+        public void messageReceived(ReplicaBatchRequest<ReplicaRequest> batchRequest, TransportChannel channel) throws Exception {
+            final List<ReplicaRequest> requests = batchRequest.getRequests();
+            if (requests.isEmpty()) {
+                channel.sendResponse(new ReplicaBatchResponse(new ArrayList<>()));
+                return;
+            }
+            try {
+                getIndexShard(requests.get(0).shardId()).replicaBatch(requests.size());
+            } catch (Exception e) {
+                // the requests of the batch fail one by one below
+            }
+            final AtomicReferenceArray<Exception> failures = new AtomicReferenceArray<>(requests.size());
+            final CountDown countDown = new CountDown(requests.size());
+            final ReplicaBatchResults batchResults = new ReplicaBatchResults(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                final TransportChannel requestChannel = new ReplicaBatchRequestChannel(channel, i, failures, countDown);
+                final AsyncReplicaAction replicaAction;
+                try {
+                    replicaAction = new AsyncReplicaAction(requests.get(i), batchRequest.getTargetAllocationID(), requestChannel, null,
+                        batchResults);
+                } catch (Exception e) {
+                    batchResults.onNotApplied();
+                    requestChannel.sendResponse(e);
+                    continue;
+                }
+                replicaAction.run();
+            }
+        }
+    }
+
+    /**
+     * Collects the results of the requests of a replica batch that were applied to the replica, and answers them together once
+     * every request of the batch was either applied or failed, see {@link #respondToReplicaBatch(IndexShard, List)}.
+     */
+    private final class ReplicaBatchResults {
+        private final CountDown countDown;
+        // guarded by this
+        private final List<Tuple<ReplicaResult, ActionListener<TransportResponse.Empty>>> results = new ArrayList<>();
+        private IndexShard replica;
+
+        ReplicaBatchResults(int numRequests) {
+            this.countDown = new CountDown(numRequests);
+        }
+
+        void onApplied(IndexShard replica, ReplicaResult result, ActionListener<TransportResponse.Empty> listener) {
+            synchronized (this) {
+                this.replica = replica;
+                results.add(new Tuple<>(result, listener));
+            }
+            onRequestDone();
+        }
+
+        void onNotApplied() {
+            onRequestDone();
+        }
+
+        private void onRequestDone() {
+            if (countDown.countDown()) {
+                final IndexShard replica;
+                final List<Tuple<ReplicaResult, ActionListener<TransportResponse.Empty>>> applied;
+                synchronized (this) {
+                    replica = this.replica;
+                    applied = new ArrayList<>(results);
+                }
+                if (applied.isEmpty()) {
+                    return;
+                }
+                try {
+                    respondToReplicaBatch(replica, applied);
+                } catch (Exception e) {
+                    for (Tuple<ReplicaResult, ActionListener<TransportResponse.Empty>> result : applied) {
+                        result.v2().onFailure(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The channel of a single request of a replica batch, which records the outcome of the request and sends the response of the batch
+     * once all of its requests completed.
+     */
+    private static final class ReplicaBatchRequestChannel implements TransportChannel {
+        private final TransportChannel batchChannel;
+        private final int slot;
+        private final AtomicReferenceArray<Exception> failures;
+        private final CountDown countDown;
+
+        ReplicaBatchRequestChannel(TransportChannel batchChannel, int slot, AtomicReferenceArray<Exception> failures,
+                                   CountDown countDown) {
+            this.batchChannel = batchChannel;
+            this.slot = slot;
+            this.failures = failures;
+            this.countDown = countDown;
+        }
+
+        @Override
+        public String action() {
+            return batchChannel.action();
+        }
+
+        @Override
+        public String getProfileName() {
+            return batchChannel.getProfileName();
+        }
+
+        @Override
+        public long getRequestId() {
+            return batchChannel.getRequestId();
+        }
+
+        @Override
+        public String getChannelType() {
+            return batchChannel.getChannelType();
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response) throws IOException {
+            onRequestCompleted();
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response, TransportResponseOptions options) throws IOException {
+            onRequestCompleted();
+        }
+
+        @Override
+        public void sendResponse(Exception exception) throws IOException {
+            failures.set(slot, exception);
+            onRequestCompleted();
+        }
+
+        private void onRequestCompleted() throws IOException {
+            if (countDown.countDown()) {
+                final List<Exception> batchFailures = new ArrayList<>(failures.length());
+                for (int i = 0; i < failures.length(); i++) {
+                    batchFailures.add(failures.get(i));
+                }
+                batchChannel.sendResponse(new ReplicaBatchResponse(batchFailures));
+            }
+        }
+    }
+
     public static class RetryOnReplicaException extends ElasticsearchException {
 
         public RetryOnReplicaException(ShardId shardId, String msg) {
@@ -466,15 +680,24 @@ public abstract class TransportReplicationAction<
          * The task on the node with the replica shard.
          */
         private final ReplicationTask task;
+        // the batch that the request is part of, if any
+        @Nullable
+        private final ReplicaBatchResults batchResults;
         // important: we pass null as a timeout as failing a replica is
         // something we want to avoid at all costs
         private final ClusterStateObserver observer = new ClusterStateObserver(clusterService, null, logger, threadPool.getThreadContext());
 
         AsyncReplicaAction(ReplicaRequest request, String targetAllocationID, TransportChannel channel, ReplicationTask task) {
+            this(request, targetAllocationID, channel, task, null);
+        }
+
+        AsyncReplicaAction(ReplicaRequest request, String targetAllocationID, TransportChannel channel, ReplicationTask task,
+                           @Nullable ReplicaBatchResults batchResults) {
             this.request = request;
             this.channel = channel;
             this.task = task;
             this.targetAllocationID = targetAllocationID;
+            this.batchResults = batchResults;
             final ShardId shardId = request.shardId();
             assert shardId != null : "request shardId must be set";
             this.replica = getIndexShard(shardId);
@@ -485,7 +708,12 @@ public abstract class TransportReplicationAction<
             try {
                 ReplicaResult replicaResult = shardOperationOnReplica(request, replica);
                 releasable.close(); // release shard operation lock before responding to caller
-                replicaResult.respond(new ResponseListener());
+                if (batchResults == null) {
+                    replicaResult.respond(new ResponseListener());
+                } else {
+                    // the batch responds once all of its requests were applied
+                    batchResults.onApplied(replica, replicaResult, new ResponseListener());
+                }
             } catch (Exception e) {
                 Releasables.closeWhileHandlingException(releasable); // release shard operation lock before responding to caller
                 AsyncReplicaAction.this.onFailure(e);
@@ -494,6 +722,10 @@ public abstract class TransportReplicationAction<
 
         @Override
         public void onFailure(Exception e) {
+            if (batchResults != null) {
+                // if the request is retried, it is retried on its own
+                batchResults.onNotApplied();
+            }
             if (e instanceof RetryOnReplicaException) {
                 logger.trace(
                     (org.apache.logging.log4j.util.Supplier<?>)
@@ -954,9 +1186,11 @@ public abstract class TransportReplicationAction<
                 listener.onFailure(new NoNodeAvailableException("unknown node [" + nodeId + "]"));
                 return;
             }
-            transportService.sendRequest(node, transportReplicaAction,
-                new ConcreteShardRequest<>(request, replica.allocationId().getId()), transportOptions,
-                new ActionListenerResponseHandler<>(listener, () -> TransportResponse.Empty.INSTANCE));
+            if (replicaBatcher == null) {
+                sendReplicaRequest(node, replica.allocationId().getId(), request, listener);
+            } else {
+                replicaBatcher.add(node, replica.allocationId().getId(), request, listener);
+            }
         }
 
         @Override
@@ -997,6 +1231,250 @@ public abstract class TransportReplicationAction<
         }
     }
 
+    private void sendReplicaRequest(DiscoveryNode node, String allocationId, ReplicaRequest request,
+                                    ActionListener<TransportResponse.Empty> listener) {
+        transportService.sendRequest(node, transportReplicaAction, new ConcreteShardRequest<>(request, allocationId), transportOptions,
+            new ActionListenerResponseHandler<>(listener, () -> TransportResponse.Empty.INSTANCE));
+    }
+
+    /**
+     * Collects the requests that the primary sends to a replica within {@link #REPLICA_BATCH_WINDOW_SETTING} and sends them to the
+     * replica in a single request, so that replicas of shards that receive many small writes don't pay the overhead of a request per
+     * write. The responses of the batch are passed on to the listeners of the individual requests. Only requests with the same
+     * request headers are batched, since the batch is sent with the headers of the requests.
+     */
+    final class ReplicaBatcher {
+        private final TimeValue window;
+        private final int maxRequests;
+        /** the batches that are being collected, by allocation id of the replica and request headers */
+        private final Map<Tuple<String, Map<String, String>>, PendingReplicaBatch> pendingBatches = new HashMap<>();
+
+        ReplicaBatcher(TimeValue window, int maxRequests) {
+            this.window = window;
+            this.maxRequests = maxRequests;
+        }
+
+        void add(DiscoveryNode node, String allocationId, ReplicaRequest request, ActionListener<TransportResponse.Empty> listener) {
+            final ThreadContext threadContext = threadPool.getThreadContext();
+            final ActionListener<TransportResponse.Empty> contextPreservingListener =
+                ContextPreservingActionListener.wrapPreservingContext(listener, threadContext);
+            final Tuple<String, Map<String, String>> key = new Tuple<>(allocationId, threadContext.getHeaders());
+            final PendingReplicaBatch batch;
+            final boolean opened;
+            final boolean full;
+            synchronized (pendingBatches) {
+                PendingReplicaBatch pending = pendingBatches.get(key);
+                opened = pending == null;
+                if (opened) {
+                    pending = new PendingReplicaBatch(key, node, threadContext.newStoredContext(false));
+                    pendingBatches.put(key, pending);
+                }
+                pending.requests.add(request);
+                pending.listeners.add(contextPreservingListener);
+                full = pending.requests.size() >= maxRequests;
+                if (full) {
+                    pendingBatches.remove(key);
+                }
+                batch = pending;
+            }
+            if (full) {
+                send(batch);
+            } else if (opened) {
+                try {
+                    threadPool.schedule(window, ThreadPool.Names.GENERIC, () -> flush(batch));
+                } catch (EsRejectedExecutionException e) {
+                    // the node is shutting down, the requests fail on the transport
+                    flush(batch);
+                }
+            }
+        }
+
+        private void flush(PendingReplicaBatch batch) {
+            synchronized (pendingBatches) {
+                if (pendingBatches.remove(batch.key, batch) == false) {
+                    return; // the batch filled up and was sent already
+                }
+            }
+            send(batch);
+        }
+
+        private void send(PendingReplicaBatch batch) {
+            final ThreadContext threadContext = threadPool.getThreadContext();
+            try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+                // all requests of the batch have the headers of the context that the batch was opened in
+                batch.context.restore();
+                transportService.sendRequest(batch.node, transportReplicaBatchAction,
+                    new ReplicaBatchRequest<>(batch.allocationId(), batch.requests), transportOptions,
+                    new TransportResponseHandler<ReplicaBatchResponse>() {
+                        @Override
+                        public ReplicaBatchResponse newInstance() {
+                            return new ReplicaBatchResponse();
+                        }
+
+                        @Override
+                        public void handleResponse(ReplicaBatchResponse response) {
+                            final List<Exception> failures = response.getFailures();
+                            if (failures.size() != batch.listeners.size()) {
+                                handleException(new TransportException("expected [" + batch.listeners.size()
+                                    + "] responses to replica batch but got [" + failures.size() + "]"));
+                                return;
+                            }
+                            for (int i = 0; i < failures.size(); i++) {
+                                if (failures.get(i) == null) {
+                                    batch.listeners.get(i).onResponse(TransportResponse.Empty.INSTANCE);
+                                } else {
+                                    batch.listeners.get(i).onFailure(failures.get(i));
+                                }
+                            }
+                        }
+
+                        @Override
+                        public void handleException(TransportException exp) {
+                            if (ExceptionsHelper.unwrapCause(exp) instanceof ActionNotFoundTransportException) {
+                                // the replica is on a node that doesn't support batches yet
+                                try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+                                    batch.context.restore();
+                                    for (int i = 0; i < batch.requests.size(); i++) {
+                                        sendReplicaRequest(batch.node, batch.allocationId(), batch.requests.get(i),
+                                            batch.listeners.get(i));
+                                    }
+                                }
+                            } else {
+                                for (ActionListener<TransportResponse.Empty> listener : batch.listeners) {
+                                    listener.onFailure(exp);
+                                }
+                            }
+                        }
+
+                        @Override
+                        public String executor() {
+                            return ThreadPool.Names.SAME;
+                        }
+                    });
+            }
+        }
+    }
+
+    private final class PendingReplicaBatch {
+        private final Tuple<String, Map<String, String>> key;
+        private final DiscoveryNode node;
+        private final ThreadContext.StoredContext context;
+        private final List<ReplicaRequest> requests = new ArrayList<>();
+        private final List<ActionListener<TransportResponse.Empty>> listeners = new ArrayList<>();
+
+        PendingReplicaBatch(Tuple<String, Map<String, String>> key, DiscoveryNode node, ThreadContext.StoredContext context) {
+            this.key = key;
+            this.node = node;
+            this.context = context;
+        }
+
+        String allocationId() {
+            return key.v1();
+        }
+    }
+
+    /** a batch of requests that are sent to the same replica, identified by its allocation id **/
+    public static final class ReplicaBatchRequest<R extends TransportRequest> extends TransportRequest {
+
+        private final Supplier<R> requestSupplier;
+
+        private String targetAllocationID;
+
+        private List<R> requests;
+
+        ReplicaBatchRequest(Supplier<R> requestSupplier) {
+            this.requestSupplier = requestSupplier;
+        }
+
+        ReplicaBatchRequest(String targetAllocationID, List<R> requests) {
+            this.requestSupplier = null;
+            this.targetAllocationID = Objects.requireNonNull(targetAllocationID);
+            this.requests = Objects.requireNonNull(requests);
+        }
+
+        @Override
+        public String getDescription() {
+            return "[" + requests.size() + "] requests for aID [" + targetAllocationID + "]";
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            targetAllocationID = in.readString();
+            final int size = in.readVInt();
+            requests = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final R request = requestSupplier.get();
+                request.readFrom(in);
+                requests.add(request);
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeString(targetAllocationID);
+            out.writeVInt(requests.size());
+            for (R request : requests) {
+                request.writeTo(out);
+            }
+        }
+
+        public List<R> getRequests() {
+            return requests;
+        }
+
+        public String getTargetAllocationID() {
+            return targetAllocationID;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + requests.size() + "] requests, target allocation id: " + targetAllocationID;
+        }
+    }
+
+    /** the outcome of the requests of a replica batch, which holds a failure or null for each request in the order of the batch **/
+    public static final class ReplicaBatchResponse extends TransportResponse {
+
+        private List<Exception> failures;
+
+        ReplicaBatchResponse() {
+        }
+
+        ReplicaBatchResponse(List<Exception> failures) {
+            this.failures = failures;
+        }
+
+        public List<Exception> getFailures() {
+            return failures;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            final int size = in.readVInt();
+            failures = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                failures.add(in.readBoolean() ? in.readException() : null);
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(failures.size());
+            for (Exception failure : failures) {
+                if (failure == null) {
+                    out.writeBoolean(false);
+                } else {
+                    out.writeBoolean(true);
+                    out.writeException(failure);
+                }
+            }
+        }
+    }
+
     /** a wrapper class to encapsulate a request when being sent to a specific allocation id **/
     public static final class ConcreteShardRequest<R extends TransportRequest> extends TransportRequest {
 
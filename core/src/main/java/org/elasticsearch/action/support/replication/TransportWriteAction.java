@@ -31,6 +31,7 @@ import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.translog.Translog;
@@ -40,6 +41,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -152,22 +154,38 @@ public abstract class TransportWriteAction<
         public final Location location;
         boolean finishedAsyncActions;
         private ActionListener<TransportResponse.Empty> listener;
+        private final ReplicaRequest request;
+        private final IndexShard replica;
+        private final Logger logger;
 
         public WriteReplicaResult(ReplicaRequest request, @Nullable Location location,
                                   @Nullable Exception operationFailure, IndexShard replica, Logger logger) {
             super(operationFailure);
             this.location = location;
+            this.request = request;
+            this.replica = replica;
+            this.logger = logger;
             if (operationFailure != null) {
                 this.finishedAsyncActions = true;
-            } else {
-                new AsyncAfterWriteAction(replica, request, location, this, logger).run();
             }
         }
 
         @Override
         public void respond(ActionListener<TransportResponse.Empty> listener) {
+            respond(listener, true);
+        }
+
+        /**
+         * Runs the post write actions and responds once they are done. The translog isn't synced if the caller synced it already,
+         * like for the requests of a replica batch.
+         */
+        void respond(ActionListener<TransportResponse.Empty> listener, boolean syncTranslog) {
             this.listener = listener;
-            respondIfPossible(null);
+            if (finishedAsyncActions) {
+                respondIfPossible(null);
+            } else {
+                new AsyncAfterWriteAction(replica, request, location, syncTranslog, this, logger).run();
+            }
         }
 
         /**
@@ -196,6 +214,43 @@ public abstract class TransportWriteAction<
         }
     }
 
+    @Override
+    protected boolean supportsReplicaBatching() {
+        return true;
+    }
+
+    /**
+     * Syncs the translog once up to the highest location that the requests of the batch wrote to, rather than once per request,
+     * before the post write actions of the requests run.
+     */
+    @Override
+    protected void respondToReplicaBatch(IndexShard replica, List<Tuple<ReplicaResult, ActionListener<TransportResponse.Empty>>> results) {
+        Location maxLocation = null;
+        for (Tuple<ReplicaResult, ActionListener<TransportResponse.Empty>> result : results) {
+            final Location location = ((WriteReplicaResult<?>) result.v1()).location;
+            if (location != null && (maxLocation == null || location.compareTo(maxLocation) > 0)) {
+                maxLocation = location;
+            }
+        }
+        if (maxLocation == null || replica.getTranslogDurability() != Translog.Durability.REQUEST) {
+            super.respondToReplicaBatch(replica, results);
+            return;
+        }
+        replica.sync(maxLocation, syncFailure -> {
+            for (Tuple<ReplicaResult, ActionListener<TransportResponse.Empty>> result : results) {
+                if (syncFailure != null) {
+                    result.v2().onFailure(syncFailure);
+                    continue;
+                }
+                try {
+                    ((WriteReplicaResult<?>) result.v1()).respond(result.v2(), false);
+                } catch (Exception e) {
+                    result.v2().onFailure(e);
+                }
+            }
+        });
+    }
+
     @Override
     protected ClusterBlockLevel globalBlockLevel() {
         return ClusterBlockLevel.WRITE;
@@ -245,6 +300,15 @@ public abstract class TransportWriteAction<
                              @Nullable final Translog.Location location,
                              final RespondingWriteResult respond,
                              final Logger logger) {
+            this(indexShard, request, location, true, respond, logger);
+        }
+
+        AsyncAfterWriteAction(final IndexShard indexShard,
+                             final WriteRequest<?> request,
+                             @Nullable final Translog.Location location,
+                             final boolean syncTranslog,
+                             final RespondingWriteResult respond,
+                             final Logger logger) {
             this.indexShard = indexShard;
             this.request = request;
             boolean waitUntilRefresh = false;
@@ -267,7 +331,7 @@ public abstract class TransportWriteAction<
             this.waitUntilRefresh = waitUntilRefresh;
             this.respond = respond;
             this.location = location;
-            if ((sync = indexShard.getTranslogDurability() == Translog.Durability.REQUEST && location != null)) {
+            if ((sync = syncTranslog && indexShard.getTranslogDurability() == Translog.Durability.REQUEST && location != null)) {
                 pendingOps.incrementAndGet();
             }
             this.logger = logger;
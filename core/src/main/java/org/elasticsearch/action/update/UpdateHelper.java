@@ -19,6 +19,10 @@
 
 package org.elasticsearch.action.update;
 
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.Bits;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
@@ -30,20 +34,28 @@ import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.DocumentMissingException;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.DocumentSourceMissingException;
+import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
 import org.elasticsearch.index.get.GetField;
 import org.elasticsearch.index.get.GetResult;
+import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.ParentFieldMapper;
 import org.elasticsearch.index.mapper.RoutingFieldMapper;
 import org.elasticsearch.index.mapper.TTLFieldMapper;
+import org.elasticsearch.index.mapper.SourceFieldMapper;
 import org.elasticsearch.index.mapper.TimestampFieldMapper;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.UidFieldMapper;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.script.ExecutableScript;
@@ -57,7 +69,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.LongSupplier;
 
 /**
@@ -75,6 +89,9 @@ public class UpdateHelper extends AbstractComponent {
      * Prepares an update request by converting it into an index or delete request or an update response (no action).
      */
     public Result prepare(UpdateRequest request, IndexShard indexShard, LongSupplier nowInMillis) {
+        if (request.inPlace()) {
+            return prepareInPlace(request, indexShard, nowInMillis);
+        }
         final GetResult getResult = indexShard.getService().get(request.type(), request.id(),
                 new String[]{RoutingFieldMapper.NAME, ParentFieldMapper.NAME, TTLFieldMapper.NAME, TimestampFieldMapper.NAME},
                 true, request.version(), request.versionType(), FetchSourceContext.FETCH_SOURCE);
@@ -251,6 +268,150 @@ public class UpdateHelper extends AbstractComponent {
         }
     }
 
+    /**
+     * Prepares an in place update. Instead of the _source, the update sees and changes the doc values of the fields that are mapped
+     * with {@code in_place_updates}. The resulting index request carries the whole resolved document, i.e. the stored _source
+     * with the new values of these fields, so that the primary can update the doc values of the existing document in place while
+     * replicas and recoveries, which may see the operation out of order, index the document as a whole.
+     */
+    @SuppressWarnings("unchecked")
+    Result prepareInPlace(UpdateRequest request, IndexShard indexShard, LongSupplier nowInMillis) {
+        final ShardId shardId = indexShard.shardId();
+        final DocumentMapper docMapper = indexShard.mapperService().documentMapper(request.type());
+        if (docMapper == null) {
+            throw new DocumentMissingException(shardId, request.type(), request.id());
+        }
+        if (docMapper.hasNestedObjects()) {
+            throw new IllegalArgumentException("in_place updates are not supported for type [" + request.type()
+                + "] because it has nested fields");
+        }
+        final Set<String> inPlaceFields = new HashSet<>(docMapper.inPlaceFields());
+        final Map<String, Object> currentValues = new HashMap<>();
+        final Map<String, Object> updatedValues = new HashMap<>();
+        final long currentVersion;
+        final BytesReference storedSource;
+        final Term uid = new Term(UidFieldMapper.NAME, Uid.createUidAsBytes(request.type(), request.id()));
+        try (Engine.GetResult get = indexShard.get(new Engine.Get(true, uid).version(request.version()).versionType(request.versionType()))) {
+            if (get.exists() == false) {
+                throw new DocumentMissingException(shardId, request.type(), request.id());
+            }
+            final Versions.DocIdAndVersion docIdAndVersion = get.docIdAndVersion();
+            final LeafReader reader = docIdAndVersion.context.reader();
+            for (String field : inPlaceFields) {
+                final NumericDocValues values = reader.getNumericDocValues(field);
+                final Bits docsWithField = reader.getDocsWithField(field);
+                if (values != null && docsWithField != null && docsWithField.get(docIdAndVersion.docId)) {
+                    putValue(currentValues, field, values.get(docIdAndVersion.docId));
+                    putValue(updatedValues, field, values.get(docIdAndVersion.docId));
+                }
+            }
+            currentVersion = docIdAndVersion.version;
+            final FieldsVisitor fieldsVisitor = new FieldsVisitor(true);
+            reader.document(docIdAndVersion.docId, fieldsVisitor);
+            storedSource = fieldsVisitor.source();
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to read the doc values of [{}][{}]", e, request.type(), request.id());
+        }
+
+        String operation = null;
+        if (request.script() == null && request.doc() != null) {
+            XContentHelper.update(updatedValues, request.doc().sourceAsMap(), false);
+        } else {
+            Map<String, Object> ctx = new HashMap<>(8);
+            ctx.put("_index", request.index());
+            ctx.put("_type", request.type());
+            ctx.put("_id", request.id());
+            ctx.put("_version", currentVersion);
+            ctx.put("_source", updatedValues);
+            ctx.put("_now", nowInMillis.getAsLong());
+            ctx = executeScript(request.script, ctx);
+            operation = (String) ctx.get("op");
+            if (ctx.get("_source") != updatedValues) {
+                updatedValues.clear();
+                updatedValues.putAll((Map<String, Object>) ctx.get("_source"));
+            }
+        }
+
+        final long updateVersion = request.versionType() == VersionType.INTERNAL ? currentVersion : request.version();
+        if (operation == null || "index".equals(operation)) {
+            final Map<String, Object> updatedFlatValues = new HashMap<>();
+            flattenValues(updatedValues, null, updatedFlatValues);
+            for (String field : updatedFlatValues.keySet()) {
+                if (inPlaceFields.contains(field) == false) {
+                    throw new IllegalArgumentException("field [" + field + "] of type [" + request.type()
+                        + "] doesn't support in_place updates");
+                }
+            }
+            if (request.detectNoop() && updatedValues.equals(currentValues)) {
+                UpdateResponse update = new UpdateResponse(shardId, request.type(), request.id(), currentVersion,
+                    DocWriteResponse.Result.NOOP);
+                return new Result(update, DocWriteResponse.Result.NOOP, updatedValues, XContentType.JSON);
+            }
+            final SourceFieldMapper sourceMapper = docMapper.sourceMapper();
+            if (sourceMapper.enabled()) {
+                for (String field : updatedFlatValues.keySet()) {
+                    final Map<String, Object> fieldOnly = new HashMap<>();
+                    putValue(fieldOnly, field, 0);
+                    if (XContentMapValues.filter(fieldOnly, sourceMapper.includes(), sourceMapper.excludes()).isEmpty() == false) {
+                        throw new IllegalArgumentException("field [" + field + "] of type [" + request.type()
+                            + "] must be excluded from _source to be updated in place");
+                    }
+                }
+            }
+            if (storedSource == null) {
+                throw new DocumentSourceMissingException(shardId, request.type(), request.id());
+            }
+            final Tuple<XContentType, Map<String, Object>> resolvedSource = XContentHelper.convertToMap(storedSource, true);
+            XContentHelper.update(resolvedSource.v2(), updatedValues, false);
+            final IndexRequest indexRequest = Requests.indexRequest(request.index()).type(request.type()).id(request.id())
+                    .routing(request.routing()).parent(request.parent())
+                    .source(resolvedSource.v2(), resolvedSource.v1())
+                    .inPlace(true)
+                    .version(updateVersion).versionType(request.versionType())
+                    .waitForActiveShards(request.waitForActiveShards())
+                    .timeout(request.timeout())
+                    .setRefreshPolicy(request.getRefreshPolicy());
+            return new Result(indexRequest, DocWriteResponse.Result.UPDATED, resolvedSource.v2(), resolvedSource.v1());
+        } else if ("delete".equals(operation)) {
+            DeleteRequest deleteRequest = Requests.deleteRequest(request.index()).type(request.type()).id(request.id())
+                    .routing(request.routing()).parent(request.parent())
+                    .version(updateVersion).versionType(request.versionType())
+                    .waitForActiveShards(request.waitForActiveShards())
+                    .timeout(request.timeout())
+                    .setRefreshPolicy(request.getRefreshPolicy());
+            return new Result(deleteRequest, DocWriteResponse.Result.DELETED, updatedValues, XContentType.JSON);
+        } else {
+            if ("none".equals(operation) == false) {
+                logger.warn("Used update operation [{}] for script [{}], doing nothing...", operation, request.script.getIdOrCode());
+            }
+            UpdateResponse update = new UpdateResponse(shardId, request.type(), request.id(), currentVersion, DocWriteResponse.Result.NOOP);
+            return new Result(update, DocWriteResponse.Result.NOOP, updatedValues, XContentType.JSON);
+        }
+    }
+
+    /** Puts a value into a map of maps, creating an object for every part of the dotted path. */
+    @SuppressWarnings("unchecked")
+    private static void putValue(Map<String, Object> map, String path, Object value) {
+        final String[] parts = path.split("\\.");
+        Map<String, Object> current = map;
+        for (int i = 0; i < parts.length - 1; i++) {
+            current = (Map<String, Object>) current.computeIfAbsent(parts[i], k -> new HashMap<String, Object>());
+        }
+        current.put(parts[parts.length - 1], value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void flattenValues(Map<String, Object> map, @Nullable String prefix, Map<String, Object> flat) {
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            final String path = prefix == null ? entry.getKey() : prefix + "." + entry.getKey();
+            if (entry.getValue() instanceof Map) {
+                flattenValues((Map<String, Object>) entry.getValue(), path, flat);
+            } else {
+                flat.put(path, entry.getValue());
+            }
+        }
+    }
+
     private Map<String, Object> executeScript(Script script, Map<String, Object> ctx) {
         try {
             if (scriptService != null) {
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.update;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.index.IndexRequest;
@@ -82,6 +83,7 @@ public class UpdateRequest extends InstanceShardOperationRequest<UpdateRequest>
     private boolean scriptedUpsert = false;
     private boolean docAsUpsert = false;
     private boolean detectNoop = true;
+    private boolean inPlace = false;
     private static DeprecationLogger deprecationLogger = new DeprecationLogger(Loggers.getLogger(UpdateRequest.class));
 
     @Nullable
@@ -129,6 +131,14 @@ public class UpdateRequest extends InstanceShardOperationRequest<UpdateRequest>
         if (doc == null && docAsUpsert) {
             validationException = addValidationError("doc must be specified if doc_as_upsert is enabled", validationException);
         }
+        if (inPlace) {
+            if (upsertRequest != null || docAsUpsert) {
+                validationException = addValidationError("can't upsert documents with in_place updates", validationException);
+            }
+            if ((fields != null && fields.length > 0) || (fetchSourceContext != null && fetchSourceContext.fetchSource())) {
+                validationException = addValidationError("can't return fields or _source with in_place updates", validationException);
+            }
+        }
         if (versionType == VersionType.FORCE) {
             deprecationLogger.deprecated("version type FORCE is deprecated and will be removed in the next major version");
         }
@@ -775,6 +785,23 @@ public class UpdateRequest extends InstanceShardOperationRequest<UpdateRequest>
         return detectNoop;
     }
 
+    /**
+     * Should this update be applied in place, without reindexing the document? This is only supported if all fields that the update
+     * changes are mapped with {@code in_place_updates} and excluded from {@code _source}. The script, or the partial document, only
+     * sees the values of these fields. Defaults to false.
+     */
+    public UpdateRequest inPlace(boolean inPlace) {
+        this.inPlace = inPlace;
+        return this;
+    }
+
+    /**
+     * Should this update be applied in place, without reindexing the document? Defaults to false.
+     */
+    public boolean inPlace() {
+        return inPlace;
+    }
+
     public UpdateRequest fromXContent(XContentParser parser) throws IOException {
         Script script = null;
         XContentParser.Token token = parser.nextToken();
@@ -801,6 +828,8 @@ public class UpdateRequest extends InstanceShardOperationRequest<UpdateRequest>
                 docAsUpsert(parser.booleanValue());
             } else if ("detect_noop".equals(currentFieldName)) {
                 detectNoop(parser.booleanValue());
+            } else if ("in_place".equals(currentFieldName)) {
+                inPlace(parser.booleanValue());
             } else if ("fields".equals(currentFieldName)) {
                 List<Object> fields = null;
                 if (token == XContentParser.Token.START_ARRAY) {
@@ -867,6 +896,9 @@ public class UpdateRequest extends InstanceShardOperationRequest<UpdateRequest>
         versionType = VersionType.fromValue(in.readByte());
         detectNoop = in.readBoolean();
         scriptedUpsert = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            inPlace = in.readBoolean();
+        }
     }
 
     @Override
@@ -911,6 +943,12 @@ public class UpdateRequest extends InstanceShardOperationRequest<UpdateRequest>
         out.writeByte(versionType.getValue());
         out.writeBoolean(detectNoop);
         out.writeBoolean(scriptedUpsert);
+        if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            out.writeBoolean(inPlace);
+        } else if (inPlace) {
+            throw new IllegalArgumentException("in_place updates are not supported by nodes before version [" + Version.V_5_3_4_UNRELEASED
+                + "] but node has version [" + out.getVersion() + "]");
+        }
     }
 
 }
@@ -416,6 +416,14 @@ public class UpdateRequestBuilder extends InstanceShardOperationRequestBuilder<U
         return this;
     }
 
+    /**
+     * Sets whether the update should be applied in place, without reindexing the document.
+     */
+    public UpdateRequestBuilder setInPlace(boolean inPlace) {
+        request.inPlace(inPlace);
+        return this;
+    }
+
 
     /**
      * Sets whether the script should be run in the case of an insert
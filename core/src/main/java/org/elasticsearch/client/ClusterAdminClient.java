@@ -75,6 +75,8 @@ import org.elasticsearch.action.admin.cluster.snapshots.delete.DeleteSnapshotRes
 import org.elasticsearch.action.admin.cluster.snapshots.get.GetSnapshotsRequest;
 import org.elasticsearch.action.admin.cluster.snapshots.get.GetSnapshotsRequestBuilder;
 import org.elasticsearch.action.admin.cluster.snapshots.get.GetSnapshotsResponse;
+import org.elasticsearch.action.admin.cluster.snapshots.restore.MountSnapshotRequest;
+import org.elasticsearch.action.admin.cluster.snapshots.restore.MountSnapshotRequestBuilder;
 import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotRequest;
 import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotRequestBuilder;
 import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotResponse;
@@ -496,6 +498,21 @@ public interface ClusterAdminClient extends ElasticsearchClient {
      */
     RestoreSnapshotRequestBuilder prepareRestoreSnapshot(String repository, String snapshot);
 
+    /**
+     * Mounts an index of a snapshot.
+     */
+    ActionFuture<RestoreSnapshotResponse> mountSnapshot(MountSnapshotRequest request);
+
+    /**
+     * Mounts an index of a snapshot.
+     */
+    void mountSnapshot(MountSnapshotRequest request, ActionListener<RestoreSnapshotResponse> listener);
+
+    /**
+     * Mounts an index of a snapshot.
+     */
+    MountSnapshotRequestBuilder prepareMountSnapshot(String repository, String snapshot);
+
     /**
      * Returns a list of the pending cluster tasks, that are scheduled to be executed. This includes operations
      * that update the cluster state (for example, a create index operation)
@@ -35,6 +35,7 @@ import org.elasticsearch.action.admin.cluster.shards.ClusterSearchShardsRequest;
 import org.elasticsearch.action.admin.cluster.snapshots.create.CreateSnapshotRequest;
 import org.elasticsearch.action.admin.cluster.snapshots.delete.DeleteSnapshotRequest;
 import org.elasticsearch.action.admin.cluster.snapshots.get.GetSnapshotsRequest;
+import org.elasticsearch.action.admin.cluster.snapshots.restore.MountSnapshotRequest;
 import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotRequest;
 import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotsStatusRequest;
 import org.elasticsearch.action.admin.cluster.state.ClusterStateRequest;
@@ -500,6 +501,17 @@ public class Requests {
         return new RestoreSnapshotRequest(repository, snapshot);
     }
 
+    /**
+     * Mounts an index of a snapshot
+     *
+     * @param repository repository name
+     * @param snapshot   snapshot name
+     * @return mount snapshot request
+     */
+    public static MountSnapshotRequest mountSnapshotRequest(String repository, String snapshot) {
+        return new MountSnapshotRequest(repository, snapshot);
+    }
+
     /**
      * Deletes a snapshot
      *
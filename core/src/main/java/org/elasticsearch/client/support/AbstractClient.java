@@ -97,6 +97,9 @@ import org.elasticsearch.action.admin.cluster.snapshots.get.GetSnapshotsAction;
 import org.elasticsearch.action.admin.cluster.snapshots.get.GetSnapshotsRequest;
 import org.elasticsearch.action.admin.cluster.snapshots.get.GetSnapshotsRequestBuilder;
 import org.elasticsearch.action.admin.cluster.snapshots.get.GetSnapshotsResponse;
+import org.elasticsearch.action.admin.cluster.snapshots.restore.MountSnapshotAction;
+import org.elasticsearch.action.admin.cluster.snapshots.restore.MountSnapshotRequest;
+import org.elasticsearch.action.admin.cluster.snapshots.restore.MountSnapshotRequestBuilder;
 import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotAction;
 import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotRequest;
 import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotRequestBuilder;
@@ -1052,6 +1055,21 @@ public abstract class AbstractClient extends AbstractComponent implements Client
             return new RestoreSnapshotRequestBuilder(this, RestoreSnapshotAction.INSTANCE, repository, snapshot);
         }
 
+        @Override
+        public ActionFuture<RestoreSnapshotResponse> mountSnapshot(MountSnapshotRequest request) {
+            return execute(MountSnapshotAction.INSTANCE, request);
+        }
+
+        @Override
+        public void mountSnapshot(MountSnapshotRequest request, ActionListener<RestoreSnapshotResponse> listener) {
+            execute(MountSnapshotAction.INSTANCE, request, listener);
+        }
+
+        @Override
+        public MountSnapshotRequestBuilder prepareMountSnapshot(String repository, String snapshot) {
+            return new MountSnapshotRequestBuilder(this, MountSnapshotAction.INSTANCE, repository, snapshot);
+        }
+
 
         @Override
         public ActionFuture<SnapshotsStatusResponse> snapshotsStatus(SnapshotsStatusRequest request) {
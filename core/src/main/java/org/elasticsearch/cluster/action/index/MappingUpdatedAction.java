@@ -19,7 +19,10 @@
 
 package org.elasticsearch.cluster.action.index;
 
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequestBuilder;
+import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -29,15 +32,20 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.Mapping;
 
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeoutException;
 
 /**
  * Called by shards in the cluster when their mapping was dynamically updated and it needs to be updated
  * in the cluster state meta data (and broadcast to all members).
+ * Identical updates that are sent concurrently for the same index and type, for example by several bulk
+ * requests introducing the same new fields, are coalesced into a single put mapping request.
  */
 public class MappingUpdatedAction extends AbstractComponent {
 
@@ -47,6 +55,8 @@ public class MappingUpdatedAction extends AbstractComponent {
 
     private IndicesAdminClient client;
     private volatile TimeValue dynamicMappingUpdateTimeout;
+    private final ConcurrentMap<PendingUpdate, PlainActionFuture<PutMappingResponse>> pendingUpdates =
+        ConcurrentCollections.newConcurrentMap();
 
     @Inject
     public MappingUpdatedAction(Settings settings, ClusterSettings clusterSettings) {
@@ -64,11 +74,8 @@ public class MappingUpdatedAction extends AbstractComponent {
         this.client = client.admin().indices();
     }
 
-    private PutMappingRequestBuilder updateMappingRequest(Index index, String type, Mapping mappingUpdate, final TimeValue timeout) {
-        if (type.equals(MapperService.DEFAULT_MAPPING)) {
-            throw new IllegalArgumentException("_default_ mapping should not be updated");
-        }
-        return client.preparePutMapping().setConcreteIndex(index).setType(type).setSource(mappingUpdate.toString())
+    private PutMappingRequestBuilder updateMappingRequest(Index index, String type, String mappingSource, final TimeValue timeout) {
+        return client.preparePutMapping().setConcreteIndex(index).setType(type).setSource(mappingSource)
                 .setMasterNodeTimeout(timeout).setTimeout(timeout);
     }
 
@@ -83,11 +90,73 @@ public class MappingUpdatedAction extends AbstractComponent {
     /**
      * Update mappings synchronously on the master node, waiting for at most
      * {@code timeout}. When this method returns successfully mappings have
-     * been applied to the master node and propagated to data nodes.
+     * been applied to the master node and propagated to data nodes. If the same
+     * update is already in flight, this waits for the pending update instead of
+     * sending another request.
      */
     public void updateMappingOnMaster(Index index, String type, Mapping mappingUpdate, TimeValue timeout) throws Exception {
-        if (updateMappingRequest(index, type, mappingUpdate, timeout).get().isAcknowledged() == false) {
+        if (type.equals(MapperService.DEFAULT_MAPPING)) {
+            throw new IllegalArgumentException("_default_ mapping should not be updated");
+        }
+        final String mappingSource = mappingUpdate.toString();
+        final PendingUpdate key = new PendingUpdate(index, type, mappingSource);
+        final PlainActionFuture<PutMappingResponse> future = PlainActionFuture.newFuture();
+        PlainActionFuture<PutMappingResponse> pending = pendingUpdates.putIfAbsent(key, future);
+        if (pending == null) {
+            pending = future;
+            try {
+                updateMappingRequest(index, type, mappingSource, timeout).execute(new ActionListener<PutMappingResponse>() {
+                    @Override
+                    public void onResponse(PutMappingResponse response) {
+                        pendingUpdates.remove(key, future);
+                        future.onResponse(response);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        pendingUpdates.remove(key, future);
+                        future.onFailure(e);
+                    }
+                });
+            } catch (Exception e) {
+                pendingUpdates.remove(key, future);
+                throw e;
+            }
+        } else {
+            logger.trace("waiting for pending mapping update on index [{}], type [{}]", index, type);
+        }
+        if (pending.actionGet().isAcknowledged() == false) {
             throw new TimeoutException("Failed to acknowledge mapping update within [" + timeout + "]");
         }
     }
+
+    /** Identifies an in-flight mapping update, updates are coalesced if they target the same index and type with the same mapping */
+    private static final class PendingUpdate {
+        private final Index index;
+        private final String type;
+        private final String mappingSource;
+
+        PendingUpdate(Index index, String type, String mappingSource) {
+            this.index = index;
+            this.type = type;
+            this.mappingSource = mappingSource;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PendingUpdate that = (PendingUpdate) o;
+            return index.equals(that.index) && type.equals(that.type) && mappingSource.equals(that.mappingSource);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(index, type, mappingSource);
+        }
+    }
 }
@@ -49,6 +49,7 @@ import org.elasticsearch.indices.InvalidTypeNameException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -214,9 +215,23 @@ public class MetaDataMappingService extends AbstractComponent {
         public ClusterTasksResult<PutMappingClusterStateUpdateRequest> execute(ClusterState currentState,
                                                                                List<PutMappingClusterStateUpdateRequest> tasks) throws Exception {
             Map<Index, MapperService> indexMapperServices = new HashMap<>();
+            // outcome of the requests applied so far, keyed by target indices, type, source and updateAllTypes, so that identical
+            // requests (typically dynamic mapping updates sent concurrently by several shards) are only applied once per batch
+            Map<List<Object>, Exception> appliedRequests = new HashMap<>();
             ClusterTasksResult.Builder<PutMappingClusterStateUpdateRequest> builder = ClusterTasksResult.builder();
             try {
                 for (PutMappingClusterStateUpdateRequest request : tasks) {
+                    final List<Object> requestKey = Arrays.asList(request.indices() == null ? null : Arrays.asList(request.indices()),
+                        request.type(), request.source(), request.updateAllTypes());
+                    if (appliedRequests.containsKey(requestKey)) {
+                        Exception failure = appliedRequests.get(requestKey);
+                        if (failure == null) {
+                            builder.success(request);
+                        } else {
+                            builder.failure(request, failure);
+                        }
+                        continue;
+                    }
                     try {
                         for (Index index : request.indices()) {
                             final IndexMetaData indexMetaData = currentState.metaData().getIndexSafe(index);
@@ -229,8 +244,10 @@ public class MetaDataMappingService extends AbstractComponent {
                         }
                         currentState = applyRequest(currentState, request, indexMapperServices);
                         builder.success(request);
+                        appliedRequests.put(requestKey, null);
                     } catch (Exception e) {
                         builder.failure(request, e);
+                        appliedRequests.put(requestKey, e);
                     }
                 }
                 return builder.build(currentState);
@@ -19,6 +19,9 @@
 
 package org.elasticsearch.common.blobstore;
 
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.io.Streams;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.FileAlreadyExistsException;
@@ -57,6 +60,31 @@ public interface BlobContainer {
      */
     InputStream readBlob(String blobName) throws IOException;
 
+    /**
+     * Creates a new {@link InputStream} that reads the given range of the blob with the given name. The default implementation
+     * reads and discards the bytes before the range, implementations that can seek to the start of the range should override it.
+     *
+     * @param   blobName
+     *          The name of the blob to get an {@link InputStream} for.
+     * @param   position
+     *          The position in the blob of the first byte to read.
+     * @param   length
+     *          The number of bytes to read.
+     * @return  The {@code InputStream} to read the range of the blob.
+     * @throws  NoSuchFileException if the blob does not exist
+     * @throws  IOException if the blob can not be read.
+     */
+    default InputStream readBlob(String blobName, long position, long length) throws IOException {
+        final InputStream inputStream = readBlob(blobName);
+        try {
+            Streams.skipFully(inputStream, position);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeWhileHandlingException(inputStream);
+            throw e;
+        }
+        return Streams.limitStream(inputStream, length);
+    }
+
     /**
      * Reads blob content from the input stream and writes it to the container in a new blob with the given name.
      * This method assumes the container does not already contain a blob of the same blobName.  If a blob by the
@@ -31,6 +31,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileVisitResult;
@@ -121,6 +123,19 @@ public class FsBlobContainer extends AbstractBlobContainer {
         }
     }
 
+    @Override
+    public InputStream readBlob(String name, long position, long length) throws IOException {
+        final SeekableByteChannel channel = Files.newByteChannel(path.resolve(name));
+        try {
+            channel.position(position);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeWhileHandlingException(channel);
+            throw e;
+        }
+        final InputStream inputStream = Streams.limitStream(Channels.newInputStream(channel), length);
+        return new BufferedInputStream(inputStream, (int) Math.min(blobStore.bufferSizeInBytes(), Math.max(1, length)));
+    }
+
     @Override
     public void writeBlob(String blobName, InputStream inputStream, long blobSize) throws IOException {
         if (blobExists(blobName)) {
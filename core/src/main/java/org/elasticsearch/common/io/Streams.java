@@ -23,6 +23,8 @@ import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.common.util.Callback;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -217,6 +219,33 @@ public abstract class Streams {
         return read;
     }
 
+    /**
+     * Skips exactly the given number of bytes of the given stream.
+     *
+     * @throws EOFException if the stream ends before the given number of bytes were skipped
+     */
+    public static void skipFully(InputStream in, long bytesToSkip) throws IOException {
+        long remaining = bytesToSkip;
+        while (remaining > 0) {
+            final long skipped = in.skip(remaining);
+            if (skipped > 0) {
+                remaining -= skipped;
+            } else if (in.read() == -1) {
+                throw new EOFException("stream ended with [" + remaining + "] of [" + bytesToSkip + "] bytes left to skip");
+            } else {
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * Wraps the given stream so that at most the given number of bytes can be read from it. Closing the returned stream closes
+     * the given stream.
+     */
+    public static InputStream limitStream(InputStream in, long limit) {
+        return new LimitedInputStream(in, limit);
+    }
+
     public static List<String> readAllLines(InputStream input) throws IOException {
         final List<String> lines = new ArrayList<>();
         readAllLines(input, new Callback<String>() {
@@ -236,4 +265,68 @@ public abstract class Streams {
             }
         }
     }
+
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        private long markedRemaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            if (limit < 0) {
+                throw new IllegalArgumentException("limit must be non-negative but was [" + limit + "]");
+            }
+            this.remaining = limit;
+            this.markedRemaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            final int b = in.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                return len == 0 ? 0 : -1;
+            }
+            final int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            in.mark(readlimit);
+            markedRemaining = remaining;
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            in.reset();
+            remaining = markedRemaining;
+        }
+    }
 }
@@ -188,6 +188,13 @@ public class DateMathParser {
     }
 
     private long parseDateTime(String value, DateTimeZone timeZone, boolean roundUpIfNoTime) {
+        FastDateParser fastParser = dateTimeFormatter.fastParser();
+        if (fastParser != null) {
+            long millis = fastParser.parseMillis(value, timeZone == null ? DateTimeZone.UTC : timeZone, roundUpIfNoTime);
+            if (millis != FastDateParser.UNSUPPORTED) {
+                return millis;
+            }
+        }
         DateTimeFormatter parser = dateTimeFormatter.parser();
         if (timeZone != null) {
             parser = parser.withZone(timeZone);
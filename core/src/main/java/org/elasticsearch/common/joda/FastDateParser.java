@@ -0,0 +1,351 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.joda;
+
+import org.elasticsearch.common.Strings;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Parses dates in the most common formats, <code>strict_date_optional_time</code>, <code>date_optional_time</code>,
+ * <code>epoch_millis</code> and <code>epoch_second</code> and combinations of them, without going through Joda and without
+ * allocating.
+ * <p>
+ * Only the common shapes of dates are handled, like <code>2016-05-24</code>, <code>2016-05-24T17:06:51.123Z</code> or
+ * <code>1464109611123</code>, and they are parsed to the same instant as Joda would. For any other input, including input
+ * that is invalid, {@link #parseMillis(String, DateTimeZone, boolean)} returns {@link #UNSUPPORTED} and callers fall back
+ * to the Joda parser of the format, which either parses the input or fails with the usual error.
+ */
+public final class FastDateParser {
+
+    /**
+     * Returned by {@link #parseMillis(String, DateTimeZone, boolean)} for input that must be parsed by Joda.
+     */
+    public static final long UNSUPPORTED = Long.MIN_VALUE;
+
+    // the input can't be parsed by a format, the next format of the combination may still parse it
+    private static final long NO_MATCH = Long.MIN_VALUE + 1;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private enum Format {
+        STRICT_DATE_OPTIONAL_TIME,
+        DATE_OPTIONAL_TIME,
+        EPOCH_MILLIS,
+        EPOCH_SECOND
+    }
+
+    private final Format[] formats;
+
+    private FastDateParser(Format[] formats) {
+        this.formats = formats;
+    }
+
+    /**
+     * Returns a parser for the given format, which may combine several formats with <code>||</code>, or <code>null</code> if
+     * any of them isn't supported.
+     */
+    public static FastDateParser forFormat(String format) {
+        if (Strings.hasLength(format) == false) {
+            return null;
+        }
+        String[] names = Strings.delimitedListToStringArray(format.trim(), "||");
+        Format[] formats = new Format[names.length];
+        for (int i = 0; i < names.length; i++) {
+            switch (names[i]) {
+                case "strictDateOptionalTime":
+                case "strict_date_optional_time":
+                    formats[i] = Format.STRICT_DATE_OPTIONAL_TIME;
+                    break;
+                case "dateOptionalTime":
+                case "date_optional_time":
+                    formats[i] = Format.DATE_OPTIONAL_TIME;
+                    break;
+                case "epoch_millis":
+                    formats[i] = Format.EPOCH_MILLIS;
+                    break;
+                case "epoch_second":
+                    formats[i] = Format.EPOCH_SECOND;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return new FastDateParser(formats);
+    }
+
+    /**
+     * Parses the given text into milliseconds since the epoch.
+     *
+     * @param text      the text to parse
+     * @param zone      the time zone of dates that don't specify an offset
+     * @param roundUp   whether time fields that are missing default to the end of the day rather than to its start,
+     *                  like {@link DateMathParser} does when rounding up
+     * @return the parsed milliseconds, or {@link #UNSUPPORTED} if the text must be parsed by Joda
+     */
+    public long parseMillis(String text, DateTimeZone zone, boolean roundUp) {
+        // like Joda, the first format that parses the whole text wins
+        for (Format format : formats) {
+            long millis;
+            switch (format) {
+                case STRICT_DATE_OPTIONAL_TIME:
+                    millis = parseDateOptionalTime(text, true, zone, roundUp);
+                    break;
+                case DATE_OPTIONAL_TIME:
+                    millis = parseDateOptionalTime(text, false, zone, roundUp);
+                    break;
+                case EPOCH_MILLIS:
+                    millis = parseEpoch(text, true, zone);
+                    break;
+                case EPOCH_SECOND:
+                    millis = parseEpoch(text, false, zone);
+                    break;
+                default:
+                    throw new AssertionError("unexpected format [" + format + "]");
+            }
+            if (millis != NO_MATCH) {
+                return millis;
+            }
+        }
+        // let Joda report the error
+        return UNSUPPORTED;
+    }
+
+    /**
+     * Parses <code>yyyy[-MM[-dd]][T[HH[:mm[:ss[.SSSSSSSSS]]]][Z|+HH:mm|-HH:mm]]</code>. Joda also accepts week dates, ordinal
+     * dates, fractions of hours and minutes, other offset notations and, if not strict, more or fewer digits, which are all
+     * left to it.
+     */
+    private static long parseDateOptionalTime(String text, boolean strict, DateTimeZone zone, boolean roundUp) {
+        final int length = text.length();
+        if (strict && length != 4 && isNumber(text, 0)) {
+            // years have exactly four digits, so this can only be an epoch, negative years are left to Joda
+            return NO_MATCH;
+        }
+        int year = parseDigits(text, 0, 4);
+        if (year < 0) {
+            return UNSUPPORTED;
+        }
+        int month = 1;
+        int day = 1;
+        int pos = 4;
+        if (pos < length && text.charAt(pos) == '-') {
+            month = parseDigits(text, pos + 1, 2);
+            pos += 3;
+            if (pos < length && text.charAt(pos) == '-') {
+                day = parseDigits(text, pos + 1, 2);
+                pos += 3;
+            }
+        }
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return UNSUPPORTED;
+        }
+
+        int hour = roundUp ? 23 : 0;
+        int minute = roundUp ? 59 : 0;
+        int second = roundUp ? 59 : 0;
+        int millis = roundUp ? 999 : 0;
+        boolean hasOffset = false;
+        int offsetMillis = 0;
+        if (pos < length) {
+            if (text.charAt(pos) != 'T' || pos + 1 == length) {
+                return UNSUPPORTED;
+            }
+            pos++;
+            if (text.charAt(pos) == '+' || text.charAt(pos) == '-') {
+                // Joda reads a sign right after the 'T' as the sign of the hour rather than of an offset
+                return UNSUPPORTED;
+            }
+            if (isDigit(text.charAt(pos))) {
+                hour = parseDigits(text, pos, 2);
+                pos += 2;
+                if (pos < length && text.charAt(pos) == ':') {
+                    minute = parseDigits(text, pos + 1, 2);
+                    pos += 3;
+                    if (pos < length && text.charAt(pos) == ':') {
+                        second = parseDigits(text, pos + 1, 2);
+                        pos += 3;
+                        if (pos < length && (text.charAt(pos) == '.' || text.charAt(pos) == ',')) {
+                            pos++;
+                            // Joda parses up to nine digits and drops the ones after the milliseconds
+                            final int start = pos;
+                            millis = 0;
+                            while (pos < length && pos - start < 9 && isDigit(text.charAt(pos))) {
+                                if (pos - start < 3) {
+                                    millis = millis * 10 + text.charAt(pos) - '0';
+                                }
+                                pos++;
+                            }
+                            if (pos == start) {
+                                return UNSUPPORTED;
+                            }
+                            for (int digits = pos - start; digits < 3; digits++) {
+                                millis *= 10;
+                            }
+                        }
+                    }
+                }
+                if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+                    return UNSUPPORTED;
+                }
+            }
+            if (pos < length) {
+                final char c = text.charAt(pos);
+                if (c == 'Z') {
+                    pos++;
+                } else if ((c == '+' || c == '-') && pos + 6 == length && text.charAt(pos + 3) == ':') {
+                    int offsetHours = parseDigits(text, pos + 1, 2);
+                    int offsetMinutes = parseDigits(text, pos + 4, 2);
+                    if (offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59) {
+                        return UNSUPPORTED;
+                    }
+                    offsetMillis = (offsetHours * 60 + offsetMinutes) * 60 * 1000;
+                    if (c == '-') {
+                        offsetMillis = -offsetMillis;
+                    }
+                    pos += 6;
+                } else {
+                    return UNSUPPORTED;
+                }
+                hasOffset = true;
+            }
+            if (pos != length) {
+                return UNSUPPORTED;
+            }
+        }
+
+        long localMillis = daysSinceEpoch(year, month, day) * MILLIS_PER_DAY
+            + ((hour * 60 + minute) * 60 + second) * 1000L + millis;
+        if (hasOffset) {
+            return localMillis - offsetMillis;
+        }
+        if (zone == DateTimeZone.UTC) {
+            return localMillis;
+        }
+        if (zone != null && zone.isFixed()) {
+            return localMillis - zone.getOffset(0L);
+        }
+        // zones with transitions have gaps and overlaps that Joda resolves
+        return UNSUPPORTED;
+    }
+
+    /**
+     * Parses an optional minus sign followed by digits, like Joda's {@link Joda.EpochTimeParser}.
+     */
+    private static long parseEpoch(String text, boolean millisecondPrecision, DateTimeZone zone) {
+        final int length = text.length();
+        final boolean negative = length > 0 && text.charAt(0) == '-';
+        final int start = negative ? 1 : 0;
+        if (isNumber(text, start) == false) {
+            // a sign other than '-' is left to Joda, anything else isn't a number and can't be parsed as one
+            return length > 0 && text.charAt(0) == '+' ? UNSUPPORTED : NO_MATCH;
+        }
+        if (zone != DateTimeZone.UTC) {
+            // Joda only parses epochs in UTC
+            return UNSUPPORTED;
+        }
+        final int digits = length - start;
+        if (negative == false && length > (millisecondPrecision ? 19 : 16)) {
+            // Joda rejects positive epochs that are that long
+            return NO_MATCH;
+        }
+        if (digits > (millisecondPrecision ? 18 : 15)) {
+            // may overflow
+            return UNSUPPORTED;
+        }
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            value = value * 10 + text.charAt(i) - '0';
+        }
+        if (millisecondPrecision == false) {
+            value *= 1000;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Returns whether the text consists of at least one digit and nothing else, from the given position on.
+     */
+    private static boolean isNumber(String text, int from) {
+        if (from >= text.length()) {
+            return false;
+        }
+        for (int i = from; i < text.length(); i++) {
+            if (isDigit(text.charAt(i)) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Parses exactly <code>count</code> digits at the given position, or returns <code>-1</code>.
+     */
+    private static int parseDigits(String text, int pos, int count) {
+        if (pos + count > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            char c = text.charAt(i);
+            if (isDigit(c) == false) {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns the number of days between 1970-01-01 and the given date of the proleptic Gregorian calendar, like Joda's
+     * ISO chronology. The year must not be negative.
+     */
+    static long daysSinceEpoch(int year, int month, int day) {
+        // shift the year to start in March, so that the leap day is the last day of the year
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = (y >= 0 ? y : y - 399) / 400;
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        // 719468 is the number of days from 0000-03-01 to 1970-01-01
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
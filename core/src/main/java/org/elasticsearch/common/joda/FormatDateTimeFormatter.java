@@ -19,6 +19,7 @@
 
 package org.elasticsearch.common.joda;
 
+import org.joda.time.DateTimeZone;
 import org.joda.time.format.DateTimeFormatter;
 
 import java.util.Locale;
@@ -38,6 +39,8 @@ public class FormatDateTimeFormatter {
 
     private final Locale locale;
 
+    private final FastDateParser fastParser;
+
     public FormatDateTimeFormatter(String format, DateTimeFormatter parser, Locale locale) {
         this(format, parser, parser, locale);
     }
@@ -47,6 +50,11 @@ public class FormatDateTimeFormatter {
         this.locale = Objects.requireNonNull(locale, "A locale is required as JODA otherwise uses the default locale");
         this.printer = printer.withLocale(locale).withDefaultYear(1970);
         this.parser = parser.withLocale(locale).withDefaultYear(1970);
+        if (this.parser.getZone() == DateTimeZone.UTC && this.parser.getChronology() == null) {
+            this.fastParser = FastDateParser.forFormat(format);
+        } else {
+            this.fastParser = null;
+        }
     }
 
     public String format() {
@@ -57,6 +65,27 @@ public class FormatDateTimeFormatter {
         return parser;
     }
 
+    /**
+     * Parses the given text into milliseconds since the epoch, like {@code parser().parseMillis(text)} does, but without
+     * going through Joda for the common shapes of the most common formats (see {@link FastDateParser}).
+     */
+    public long parseMillis(String text) {
+        if (fastParser != null) {
+            long millis = fastParser.parseMillis(text, DateTimeZone.UTC, false);
+            if (millis != FastDateParser.UNSUPPORTED) {
+                return millis;
+            }
+        }
+        return parser.parseMillis(text);
+    }
+
+    /**
+     * Returns the parser that handles the common shapes of this format without Joda, or <code>null</code> if there is none.
+     */
+    FastDateParser fastParser() {
+        return fastParser;
+    }
+
     public DateTimeFormatter printer() {
         return this.printer;
     }
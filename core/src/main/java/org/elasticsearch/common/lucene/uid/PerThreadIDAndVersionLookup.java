@@ -50,7 +50,9 @@ final class PerThreadIDAndVersionLookup {
     /** terms enum for uid field */
     private final TermsEnum termsEnum;
     /** _version data */
-    private final NumericDocValues versions;
+    private NumericDocValues versions;
+    /** the reader that {@link #versions} were pulled from */
+    private LeafReader versionsReader;
     /** Reused for iteration (when the term exists) */
     private PostingsEnum docsEnum;
 
@@ -73,6 +75,7 @@ final class PerThreadIDAndVersionLookup {
         }
 
         this.versions = versions;
+        this.versionsReader = reader;
         this.termsEnum = termsEnum;
     }
 
@@ -90,6 +93,11 @@ final class PerThreadIDAndVersionLookup {
             }
 
             if (docID != DocIdSetIterator.NO_MORE_DOCS) {
+                if (context.reader() != versionsReader) {
+                    // in place updates change the _version doc values of a segment without changing its core
+                    versions = context.reader().getNumericDocValues(VersionFieldMapper.NAME);
+                    versionsReader = context.reader();
+                }
                 return new DocIdAndVersion(docID, versions.get(docID), context);
             }
         }
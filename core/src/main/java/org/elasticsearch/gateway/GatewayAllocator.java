@@ -49,6 +49,9 @@ public class GatewayAllocator extends AbstractComponent {
 
     private RoutingService routingService;
 
+    private final TransportNodesListGatewayStartedShards startedAction;
+    private final TransportNodesListShardStoreMetaData storeAction;
+
     private final PrimaryShardAllocator primaryShardAllocator;
     private final ReplicaShardAllocator replicaShardAllocator;
 
@@ -58,6 +61,8 @@ public class GatewayAllocator extends AbstractComponent {
     @Inject
     public GatewayAllocator(Settings settings, final TransportNodesListGatewayStartedShards startedAction, final TransportNodesListShardStoreMetaData storeAction) {
         super(settings);
+        this.startedAction = startedAction;
+        this.storeAction = storeAction;
         this.primaryShardAllocator = new InternalPrimaryShardAllocator(settings, startedAction);
         this.replicaShardAllocator = new InternalReplicaShardAllocator(settings, storeAction);
     }
@@ -94,6 +99,32 @@ public class GatewayAllocator extends AbstractComponent {
         return count;
     }
 
+    /**
+     * Returns the statistics of the batched requests that fetched shard data from nodes.
+     */
+    public ShardFetchStats getShardFetchStats() {
+        ShardFetchStats stats = ShardFetchStats.EMPTY;
+        if (startedAction != null) {
+            stats = stats.add(startedAction.batcher().stats());
+        }
+        if (storeAction != null) {
+            stats = stats.add(storeAction.batcher().stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Sends the shard fetches that were requested while making allocation decisions, batched per node.
+     */
+    private void flushShardFetches() {
+        if (startedAction != null) {
+            startedAction.batcher().flush();
+        }
+        if (storeAction != null) {
+            storeAction.batcher().flush();
+        }
+    }
+
     public void applyStartedShards(final RoutingAllocation allocation, final List<ShardRouting> startedShards) {
         for (ShardRouting startedShard : startedShards) {
             Releasables.close(asyncFetchStarted.remove(startedShard.shardId()));
@@ -109,7 +140,11 @@ public class GatewayAllocator extends AbstractComponent {
     }
 
     public void allocateUnassigned(final RoutingAllocation allocation) {
-        innerAllocatedUnassigned(allocation, primaryShardAllocator, replicaShardAllocator);
+        try {
+            innerAllocatedUnassigned(allocation, primaryShardAllocator, replicaShardAllocator);
+        } finally {
+            flushShardFetches();
+        }
     }
 
     // allow for testing infra to change shard allocators implementation
@@ -137,10 +172,14 @@ public class GatewayAllocator extends AbstractComponent {
      * {@link AllocateUnassignedDecision#NOT_TAKEN} is returned.
      */
     public AllocateUnassignedDecision decideUnassignedShardAllocation(ShardRouting unassignedShard, RoutingAllocation routingAllocation) {
-        if (unassignedShard.primary()) {
-            return primaryShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
-        } else {
-            return replicaShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
+        try {
+            if (unassignedShard.primary()) {
+                return primaryShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
+            } else {
+                return replicaShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
+            }
+        } finally {
+            flushShardFetches();
         }
     }
 
@@ -171,7 +210,7 @@ public class GatewayAllocator extends AbstractComponent {
         protected AsyncShardFetch.FetchResult<TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> fetchData(ShardRouting shard, RoutingAllocation allocation) {
             System.out.println(LocalDateTime.now() + " GatewayAllocator -> fetchData n163 " + this.getClass());
             AsyncShardFetch<TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> fetch =
-                asyncFetchStarted.computeIfAbsent(shard.shardId(), shardId -> new InternalAsyncFetch<>(logger, "shard_started", shardId, startedAction));
+                asyncFetchStarted.computeIfAbsent(shard.shardId(), shardId -> new InternalAsyncFetch<>(logger, "shard_started", shardId, startedAction.batcher()));
             AsyncShardFetch.FetchResult<TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> shardState =
                     fetch.fetchData(allocation.nodes(), allocation.getIgnoreNodes(shard.shardId()));
 
@@ -194,7 +233,7 @@ public class GatewayAllocator extends AbstractComponent {
         @Override
         protected AsyncShardFetch.FetchResult<TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> fetchData(ShardRouting shard, RoutingAllocation allocation) {
             AsyncShardFetch<TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> fetch =
-                asyncFetchStore.computeIfAbsent(shard.shardId(), shardId -> new InternalAsyncFetch<>(logger, "shard_store", shard.shardId(), storeAction));
+                asyncFetchStore.computeIfAbsent(shard.shardId(), shardId -> new InternalAsyncFetch<>(logger, "shard_store", shard.shardId(), storeAction.batcher()));
             AsyncShardFetch.FetchResult<TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> shardStores =
                     fetch.fetchData(allocation.nodes(), allocation.getIgnoreNodes(shard.shardId()));
             if (shardStores.hasData()) {
@@ -0,0 +1,422 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.ActionNotFoundTransportException;
+import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportException;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportRequestHandler;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportResponseHandler;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Batches the per shard fetches of {@link AsyncShardFetch} by node. Instead of sending one request per shard to every node,
+ * the fetches that are requested during an allocation round are collected and sent with a single request per node once the
+ * round {@link #flush() flushes} them. Every shard still gets its own response or failure per node, so the caching and retry
+ * logic of {@link AsyncShardFetch} is unaffected. Nodes that don't know the batched action are asked shard by shard.
+ */
+public class ShardFetchBatcher<T extends BaseNodeResponse> implements AsyncShardFetch.Lister<BaseNodesResponse<T>, T> {
+
+    /**
+     * The maximum number of shards that are fetched from a node with a single request.
+     */
+    public static final Setting<Integer> BATCH_SIZE_SETTING =
+        Setting.intSetting("gateway.shard_fetch.batch_size", 1000, 1, Property.NodeScope);
+
+    private final Logger logger;
+    private final TransportService transportService;
+    private final String batchActionName;
+    private final Supplier<T> nodeResponseSupplier;
+    private final BiFunction<List<T>, List<FailedNodeException>, BaseNodesResponse<T>> responseFactory;
+    private final AsyncShardFetch.Lister<BaseNodesResponse<T>, T> perShardLister;
+    private final int batchSize;
+
+    private final Map<String, NodeFetches> pendingFetches = new LinkedHashMap<>(); // guarded by this
+
+    private final CounterMetric rounds = new CounterMetric();
+    private final CounterMetric requests = new CounterMetric();
+    private final CounterMetric shardFetches = new CounterMetric();
+    private final CounterMetric failedShardFetches = new CounterMetric();
+    private final CounterMetric requestTimeInNanos = new CounterMetric();
+
+    @SuppressWarnings("unchecked")
+    public ShardFetchBatcher(Logger logger, TransportService transportService, String batchActionName,
+                             Supplier<T> nodeResponseSupplier,
+                             BiFunction<List<T>, List<FailedNodeException>, BaseNodesResponse<T>> responseFactory,
+                             AsyncShardFetch.Lister<? extends BaseNodesResponse<T>, T> perShardLister, int batchSize) {
+        this.logger = logger;
+        this.transportService = transportService;
+        this.batchActionName = batchActionName;
+        this.nodeResponseSupplier = nodeResponseSupplier;
+        this.responseFactory = responseFactory;
+        this.perShardLister = (AsyncShardFetch.Lister<BaseNodesResponse<T>, T>) perShardLister;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void list(ShardId shardId, DiscoveryNode[] nodes, ActionListener<BaseNodesResponse<T>> listener) {
+        if (nodes.length == 0) {
+            listener.onResponse(responseFactory.apply(Collections.emptyList(), Collections.emptyList()));
+            return;
+        }
+        final ShardFetch shardFetch = new ShardFetch(shardId, nodes.length, listener);
+        synchronized (this) {
+            for (DiscoveryNode node : nodes) {
+                pendingFetches.computeIfAbsent(node.getId(), nodeId -> new NodeFetches(node)).fetches.add(shardFetch);
+            }
+        }
+    }
+
+    /**
+     * Sends the fetches that were requested since the last flush, one request per node and at most
+     * {@link #BATCH_SIZE_SETTING} shards per request.
+     */
+    public void flush() {
+        final List<NodeFetches> toSend;
+        synchronized (this) {
+            if (pendingFetches.isEmpty()) {
+                return;
+            }
+            toSend = new ArrayList<>(pendingFetches.values());
+            pendingFetches.clear();
+        }
+        rounds.inc();
+        for (NodeFetches nodeFetches : toSend) {
+            final List<ShardFetch> fetches = nodeFetches.fetches;
+            for (int from = 0; from < fetches.size(); from += batchSize) {
+                sendBatch(nodeFetches.node, fetches.subList(from, Math.min(fetches.size(), from + batchSize)));
+            }
+        }
+    }
+
+    private void sendBatch(DiscoveryNode node, List<ShardFetch> fetches) {
+        final List<ShardId> shardIds = new ArrayList<>(fetches.size());
+        for (ShardFetch fetch : fetches) {
+            shardIds.add(fetch.shardId);
+        }
+        logger.trace("fetching [{}] shards from {} with [{}]", shardIds.size(), node, batchActionName);
+        requests.inc();
+        shardFetches.inc(shardIds.size());
+        final long startTimeNanos = System.nanoTime();
+        final TransportResponseHandler<BatchResponse<T>> handler = new TransportResponseHandler<BatchResponse<T>>() {
+            @Override
+            public BatchResponse<T> newInstance() {
+                return new BatchResponse<>(nodeResponseSupplier);
+            }
+
+            @Override
+            public void handleResponse(BatchResponse<T> response) {
+                requestTimeInNanos.inc(System.nanoTime() - startTimeNanos);
+                if (response.results.size() != fetches.size()) {
+                    // the results can't be matched with the shards anymore
+                    onBatchFailure(node, fetches, new IllegalStateException("expected [" + fetches.size() + "] results but got ["
+                        + response.results.size() + "]"));
+                    return;
+                }
+                for (int i = 0; i < fetches.size(); i++) {
+                    final Object result = response.results.get(i);
+                    if (result instanceof Exception) {
+                        failedShardFetches.inc();
+                        fetches.get(i).onFailure(new FailedNodeException(node.getId(), "Failed node [" + node.getId() + "]",
+                            (Exception) result));
+                    } else {
+                        @SuppressWarnings("unchecked")
+                        final T nodeResponse = (T) result;
+                        fetches.get(i).onResponse(nodeResponse);
+                    }
+                }
+            }
+
+            @Override
+            public void handleException(TransportException exp) {
+                requestTimeInNanos.inc(System.nanoTime() - startTimeNanos);
+                onBatchFailure(node, fetches, exp);
+            }
+
+            @Override
+            public String executor() {
+                return ThreadPool.Names.SAME;
+            }
+        };
+        try {
+            transportService.sendRequest(node, batchActionName, new BatchRequest(shardIds),
+                TransportRequestOptions.builder().withCompress(true).build(), handler);
+        } catch (Exception e) {
+            onBatchFailure(node, fetches, e);
+        }
+    }
+
+    private void onBatchFailure(DiscoveryNode node, List<ShardFetch> fetches, Exception e) {
+        if (ExceptionsHelper.unwrapCause(e) instanceof ActionNotFoundTransportException) {
+            // the node doesn't support batches yet, fall back to a request per shard
+            logger.debug("{} doesn't support [{}], fetching [{}] shards one by one", node, batchActionName, fetches.size());
+            for (ShardFetch fetch : fetches) {
+                perShardLister.list(fetch.shardId, new DiscoveryNode[] { node }, new ActionListener<BaseNodesResponse<T>>() {
+                    @Override
+                    public void onResponse(BaseNodesResponse<T> response) {
+                        for (T nodeResponse : response.getNodes()) {
+                            fetch.onResponse(nodeResponse);
+                        }
+                        for (FailedNodeException failure : response.failures()) {
+                            failedShardFetches.inc();
+                            fetch.onFailure(failure);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        failedShardFetches.inc();
+                        fetch.onFailure(new FailedNodeException(node.getId(), "total failure in fetching", e));
+                    }
+                });
+            }
+        } else {
+            logger.debug((org.apache.logging.log4j.util.Supplier<?>) () -> new ParameterizedMessage(
+                "failed to fetch [{}] shards from {} with [{}]", fetches.size(), node, batchActionName), e);
+            failedShardFetches.inc(fetches.size());
+            for (ShardFetch fetch : fetches) {
+                fetch.onFailure(new FailedNodeException(node.getId(), "Failed node [" + node.getId() + "]", e));
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics of the batches that were sent so far.
+     */
+    public ShardFetchStats stats() {
+        return new ShardFetchStats(rounds.count(), requests.count(), shardFetches.count(), failedShardFetches.count(),
+            requestTimeInNanos.count());
+    }
+
+    /**
+     * Registers the handler that answers batches of shard fetches on the node. The shards of a batch are processed in parallel
+     * on the given executor, by at most as many threads as the executor may use.
+     */
+    public static <T extends BaseNodeResponse> void registerBatchHandler(TransportService transportService, ThreadPool threadPool,
+                                                                         String batchActionName, String executor,
+                                                                         CheckedFunction<ShardId, T, Exception> shardOperation) {
+        transportService.registerRequestHandler(batchActionName, BatchRequest::new, executor, new TransportRequestHandler<BatchRequest>() {
+            @Override
+            public void messageReceived(BatchRequest request, TransportChannel channel) throws Exception {
+                final int maxConcurrency = Math.max(1, threadPool.info(executor).getMax());
+                channel.sendResponse(new BatchResponse<T>(processShards(request.shardIds, shardOperation,
+                    threadPool.executor(executor), maxConcurrency)));
+            }
+        });
+    }
+
+    /**
+     * Runs the operation for all shards, using up to the given number of threads including the calling one. The calling thread
+     * processes shards until none are left, so the batch completes even if the helpers don't get a thread of the executor.
+     */
+    static List<Object> processShards(List<ShardId> shardIds, CheckedFunction<ShardId, ?, Exception> shardOperation,
+                                      Executor executor, int maxConcurrency) throws InterruptedException {
+        final int numShards = shardIds.size();
+        final AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(numShards);
+        final AtomicInteger nextShard = new AtomicInteger();
+        final CountDownLatch processed = new CountDownLatch(numShards);
+        final Runnable worker = () -> {
+            for (int i = nextShard.getAndIncrement(); i < numShards; i = nextShard.getAndIncrement()) {
+                try {
+                    results.set(i, shardOperation.apply(shardIds.get(i)));
+                } catch (Exception e) {
+                    results.set(i, e);
+                } finally {
+                    processed.countDown();
+                }
+            }
+        };
+        final int helpers = Math.min(numShards, maxConcurrency) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(worker);
+            } catch (EsRejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+        processed.await();
+        final List<Object> resultList = new ArrayList<>(numShards);
+        for (int i = 0; i < numShards; i++) {
+            resultList.add(results.get(i));
+        }
+        return resultList;
+    }
+
+    private final class NodeFetches {
+        private final DiscoveryNode node;
+        private final List<ShardFetch> fetches = new ArrayList<>();
+
+        private NodeFetches(DiscoveryNode node) {
+            this.node = node;
+        }
+    }
+
+    /**
+     * Collects the results of a single shard from all nodes it is fetched from and notifies the listener once all nodes answered.
+     */
+    private final class ShardFetch {
+        private final ShardId shardId;
+        private final ActionListener<BaseNodesResponse<T>> listener;
+        private final List<T> responses = new ArrayList<>();
+        private final List<FailedNodeException> failures = new ArrayList<>();
+        private int pendingNodes;
+
+        private ShardFetch(ShardId shardId, int numberOfNodes, ActionListener<BaseNodesResponse<T>> listener) {
+            this.shardId = shardId;
+            this.pendingNodes = numberOfNodes;
+            this.listener = listener;
+        }
+
+        void onResponse(T response) {
+            synchronized (this) {
+                responses.add(response);
+            }
+            onNodeDone();
+        }
+
+        void onFailure(FailedNodeException failure) {
+            synchronized (this) {
+                failures.add(failure);
+            }
+            onNodeDone();
+        }
+
+        private void onNodeDone() {
+            final BaseNodesResponse<T> response;
+            synchronized (this) {
+                assert pendingNodes > 0 : "more results than nodes for " + shardId;
+                if (--pendingNodes > 0) {
+                    return;
+                }
+                response = responseFactory.apply(responses, failures);
+            }
+            listener.onResponse(response);
+        }
+    }
+
+    static final class BatchRequest extends TransportRequest {
+        private List<ShardId> shardIds;
+
+        BatchRequest() {
+        }
+
+        BatchRequest(List<ShardId> shardIds) {
+            this.shardIds = shardIds;
+        }
+
+        List<ShardId> shardIds() {
+            return shardIds;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            shardIds = in.readList(ShardId::readShardId);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeStreamableList(shardIds);
+        }
+    }
+
+    /**
+     * The result of every shard of a batch in the order of the request, either a node response or the exception it failed with.
+     */
+    static final class BatchResponse<T extends BaseNodeResponse> extends TransportResponse {
+        private final Supplier<T> nodeResponseSupplier;
+        private List<Object> results;
+
+        BatchResponse(Supplier<T> nodeResponseSupplier) {
+            this.nodeResponseSupplier = nodeResponseSupplier;
+        }
+
+        BatchResponse(List<Object> results) {
+            this.nodeResponseSupplier = null;
+            this.results = results;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            final int size = in.readVInt();
+            results = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                if (in.readBoolean()) {
+                    final T response = nodeResponseSupplier.get();
+                    response.readFrom(in);
+                    results.add(response);
+                } else {
+                    results.add(in.readException());
+                }
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(results.size());
+            for (Object result : results) {
+                if (result instanceof Exception) {
+                    out.writeBoolean(false);
+                    out.writeException((Exception) result);
+                } else {
+                    out.writeBoolean(true);
+                    ((BaseNodeResponse) result).writeTo(out);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * Statistics of the batched requests the master sent to fetch the shard state and store metadata of unassigned shards.
+ */
+public class ShardFetchStats implements Writeable, ToXContent {
+
+    public static final ShardFetchStats EMPTY = new ShardFetchStats(0, 0, 0, 0, 0);
+
+    private final long rounds;
+    private final long requests;
+    private final long shards;
+    private final long failures;
+    private final long timeInNanos;
+
+    public ShardFetchStats(long rounds, long requests, long shards, long failures, long timeInNanos) {
+        this.rounds = rounds;
+        this.requests = requests;
+        this.shards = shards;
+        this.failures = failures;
+        this.timeInNanos = timeInNanos;
+    }
+
+    public ShardFetchStats(StreamInput in) throws IOException {
+        rounds = in.readVLong();
+        requests = in.readVLong();
+        shards = in.readVLong();
+        failures = in.readVLong();
+        timeInNanos = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(rounds);
+        out.writeVLong(requests);
+        out.writeVLong(shards);
+        out.writeVLong(failures);
+        out.writeVLong(timeInNanos);
+    }
+
+    /**
+     * Returns the sum of both statistics.
+     */
+    public ShardFetchStats add(ShardFetchStats other) {
+        return new ShardFetchStats(rounds + other.rounds, requests + other.requests, shards + other.shards,
+            failures + other.failures, timeInNanos + other.timeInNanos);
+    }
+
+    /**
+     * Returns the number of allocation rounds that fetched data from nodes.
+     */
+    public long getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Returns the number of batched requests that were sent to nodes.
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Returns the number of shards that were fetched, counted once per node they were fetched from.
+     */
+    public long getShards() {
+        return shards;
+    }
+
+    /**
+     * Returns the number of shards that failed to be fetched from a node.
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Returns the total time the batched requests took until their response arrived.
+     */
+    public TimeValue getTime() {
+        return TimeValue.timeValueNanos(timeInNanos);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.SHARD_FETCH);
+        builder.field(Fields.ROUNDS, rounds);
+        builder.field(Fields.REQUESTS, requests);
+        builder.field(Fields.SHARDS, shards);
+        builder.field(Fields.FAILURES, failures);
+        builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, getTime());
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final String SHARD_FETCH = "shard_fetch";
+        static final String ROUNDS = "rounds";
+        static final String REQUESTS = "requests";
+        static final String SHARDS = "shards";
+        static final String FAILURES = "failures";
+        static final String TIME = "time";
+        static final String TIME_IN_MILLIS = "time_in_millis";
+    }
+}
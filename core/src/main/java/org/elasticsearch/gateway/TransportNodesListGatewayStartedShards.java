@@ -41,17 +41,21 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.env.ShardLock;
+import org.elasticsearch.index.IndexModule;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardPath;
 import org.elasticsearch.index.shard.ShardStateMetaData;
 import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.snapshot.SearchableSnapshotIndexStore;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This transport action is used to fetch the shard version from each node during primary allocation in {@link GatewayAllocator}.
@@ -68,8 +72,10 @@ public class TransportNodesListGatewayStartedShards extends
         TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> {
 
     public static final String ACTION_NAME = "internal:gateway/local/started_shards";
+    public static final String BATCH_ACTION_NAME = "internal:gateway/local/started_shards_batch";
     private final NodeEnvironment nodeEnv;
     private final IndicesService indicesService;
+    private final ShardFetchBatcher<NodeGatewayStartedShards> batcher;
 
     @Inject
     public TransportNodesListGatewayStartedShards(Settings settings, ThreadPool threadPool,
@@ -82,6 +88,18 @@ public class TransportNodesListGatewayStartedShards extends
               NodeGatewayStartedShards.class);
         this.nodeEnv = env;
         this.indicesService = indicesService;
+        this.batcher = new ShardFetchBatcher<>(logger, transportService, BATCH_ACTION_NAME, NodeGatewayStartedShards::new,
+            (responses, failures) -> new NodesGatewayStartedShards(clusterService.getClusterName(), responses, failures), this,
+            ShardFetchBatcher.BATCH_SIZE_SETTING.get(settings));
+        ShardFetchBatcher.registerBatchHandler(transportService, threadPool, BATCH_ACTION_NAME, ThreadPool.Names.FETCH_SHARD_STARTED,
+            this::listStartedShard);
+    }
+
+    /**
+     * Returns the lister that fetches the shard state of many shards from a node with a single request.
+     */
+    public ShardFetchBatcher<NodeGatewayStartedShards> batcher() {
+        return batcher;
     }
 
     @Override
@@ -113,11 +131,14 @@ public class TransportNodesListGatewayStartedShards extends
 
     @Override
     protected NodeGatewayStartedShards nodeOperation(NodeRequest request) {
+        return listStartedShard(request.getShardId());
+    }
+
+    private NodeGatewayStartedShards listStartedShard(ShardId shardId) {
         try {
-            final ShardId shardId = request.getShardId();
             logger.trace("{} loading local shard state info", shardId);
             ShardStateMetaData shardStateMetaData = ShardStateMetaData.FORMAT.loadLatestState(logger, NamedXContentRegistry.EMPTY,
-                nodeEnv.availableShardPaths(request.shardId));
+                nodeEnv.availableShardPaths(shardId));
             if (shardStateMetaData != null) {
                 IndexMetaData metaData = clusterService.state().metaData().index(shardId.getIndex());
                 if (metaData == null) {
@@ -129,7 +150,7 @@ public class TransportNodesListGatewayStartedShards extends
                 }
                 if (metaData == null) {
                     ElasticsearchException e = new ElasticsearchException("failed to find local IndexMetaData");
-                    e.setShard(request.shardId);
+                    e.setShard(shardId);
                     throw e;
                 }
 
@@ -142,7 +163,14 @@ public class TransportNodesListGatewayStartedShards extends
                         if (shardPath == null) {
                             throw new IllegalStateException(shardId + " no shard path found");
                         }
-                        Store.tryOpenIndex(shardPath.resolveIndex(), shardId, nodeEnv::shardLock, logger);
+                        if (SearchableSnapshotIndexStore.TYPE.equals(IndexModule.INDEX_STORE_TYPE_SETTING.get(metaData.getSettings()))) {
+                            // shards mounted from a snapshot keep most files in the repository, so only the lock is checked
+                            try (ShardLock ignored = nodeEnv.shardLock(shardId, TimeUnit.SECONDS.toMillis(5))) {
+                                logger.trace("{} skipping index check of shard mounted from a snapshot", shardId);
+                            }
+                        } else {
+                            Store.tryOpenIndex(shardPath.resolveIndex(), shardId, nodeEnv::shardLock, logger);
+                        }
                     } catch (Exception exception) {
                         final ShardPath finalShardPath = shardPath;
                         logger.trace(
@@ -688,9 +688,7 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
                     case STARTED:
                     case RELOCATED:
                         try {
-                            if (shard.isRefreshNeeded()) {
-                                shard.refresh("schedule");
-                            }
+                            shard.scheduledRefresh();
                         } catch (IndexShardClosedException | AlreadyClosedException ex) {
                             // fine - continue;
                         }
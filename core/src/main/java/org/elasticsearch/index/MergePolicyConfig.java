@@ -23,11 +23,14 @@ import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.TieredMergePolicy;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 
+import java.util.function.Function;
+
 /**
  * A shard in elasticsearch is a Lucene index, and a Lucene index is broken
  * down into segments. Segments are internal storage elements in the index
@@ -90,6 +93,15 @@ import org.elasticsearch.common.unit.ByteSizeValue;
  * </ul>
  *
  * <p>
+ * Indices of append-only time series data can instead use the <code>time_series</code> merge policy, by setting
+ * <code>index.merge.policy.type</code> when the index is created. It orders segments by the range of values of the date field
+ * <code>index.merge.policy.time_series.field</code> (default <code>@timestamp</code>) and only merges segments that are adjacent
+ * in time, so that segments keep covering distinct ranges of time. It merges up to <code>max_merge_at_once</code> segments of
+ * similar size at a time, treats segments smaller than <code>floor_segment</code> as equal, and never merges segments larger than
+ * <code>max_merged_segment</code> divided by <code>max_merge_at_once</code> again, except on force merge, so that large old
+ * segments are not rewritten over and over. The other settings only apply to the <code>tiered</code> merge policy.
+ *
+ * <p>
  * For normal merging, the policy first computes a "budget" of how many
  * segments are allowed to be in the index. If the index is over-budget,
  * then the policy sorts segments by decreasing size (proportionally considering percent
@@ -116,6 +128,8 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 
 public final class MergePolicyConfig {
     private final TieredMergePolicy mergePolicy = new TieredMergePolicy();
+    @Nullable
+    private final TimeSeriesMergePolicy timeSeriesMergePolicy;
     private final Logger logger;
     private final boolean mergesEnabled;
 
@@ -151,6 +165,10 @@ public final class MergePolicyConfig {
     public static final Setting<Double> INDEX_MERGE_POLICY_RECLAIM_DELETES_WEIGHT_SETTING =
         Setting.doubleSetting("index.merge.policy.reclaim_deletes_weight", DEFAULT_RECLAIM_DELETES_WEIGHT, 0.0d,
             Property.Dynamic, Property.IndexScope);
+    public static final Setting<String> INDEX_MERGE_POLICY_TYPE_SETTING =
+        new Setting<>("index.merge.policy.type", "tiered", MergePolicyConfig::parseMergePolicyType, Property.IndexScope);
+    public static final Setting<String> INDEX_MERGE_POLICY_TIME_SERIES_FIELD_SETTING =
+        new Setting<>("index.merge.policy.time_series.field", "@timestamp", Function.identity(), Property.IndexScope);
     public static final String INDEX_MERGE_ENABLED = "index.merge.enabled"; // don't convert to Setting<> and register... we only set this in tests and register via a plugin
 
 
@@ -177,6 +195,16 @@ public final class MergePolicyConfig {
         mergePolicy.setMaxMergedSegmentMB(maxMergedSegment.getMbFrac());
         mergePolicy.setSegmentsPerTier(segmentsPerTier);
         mergePolicy.setReclaimDeletesWeight(reclaimDeletesWeight);
+        if ("time_series".equals(indexSettings.getValue(INDEX_MERGE_POLICY_TYPE_SETTING))) {
+            timeSeriesMergePolicy = new TimeSeriesMergePolicy(indexSettings.getValue(INDEX_MERGE_POLICY_TIME_SERIES_FIELD_SETTING));
+            timeSeriesMergePolicy.setNoCFSRatio(indexSettings.getValue(INDEX_COMPOUND_FORMAT_SETTING));
+            timeSeriesMergePolicy.setMinMergeMB(floorSegment.getMbFrac());
+            timeSeriesMergePolicy.setMergeFactor(maxMergeAtOnce);
+            setTimeSeriesMaxMergeMB(maxMergedSegment.getMbFrac(), maxMergeAtOnce);
+            logger.debug("using [time_series] merge policy on field [{}]", timeSeriesMergePolicy.getField());
+        } else {
+            timeSeriesMergePolicy = null;
+        }
         if (logger.isTraceEnabled()) {
             logger.trace("using [tiered] merge mergePolicy with expunge_deletes_allowed[{}], floor_segment[{}], max_merge_at_once[{}], max_merge_at_once_explicit[{}], max_merged_segment[{}], segments_per_tier[{}], reclaim_deletes_weight[{}]",
                 forceMergeDeletesPctAllowed, floorSegment, maxMergeAtOnce, maxMergeAtOnceExplicit, maxMergedSegment, segmentsPerTier, reclaimDeletesWeight);
@@ -193,6 +221,9 @@ public final class MergePolicyConfig {
 
     void setMaxMergedSegment(ByteSizeValue maxMergedSegment) {
         mergePolicy.setMaxMergedSegmentMB(maxMergedSegment.getMbFrac());
+        if (timeSeriesMergePolicy != null) {
+            setTimeSeriesMaxMergeMB(maxMergedSegment.getMbFrac(), timeSeriesMergePolicy.getMergeFactor());
+        }
     }
 
     void setMaxMergesAtOnceExplicit(Integer maxMergeAtOnceExplicit) {
@@ -201,10 +232,17 @@ public final class MergePolicyConfig {
 
     void setMaxMergesAtOnce(Integer maxMergeAtOnce) {
         mergePolicy.setMaxMergeAtOnce(maxMergeAtOnce);
+        if (timeSeriesMergePolicy != null) {
+            timeSeriesMergePolicy.setMergeFactor(maxMergeAtOnce);
+            setTimeSeriesMaxMergeMB(mergePolicy.getMaxMergedSegmentMB(), maxMergeAtOnce);
+        }
     }
 
     void setFloorSegmentSetting(ByteSizeValue floorSegementSetting) {
         mergePolicy.setFloorSegmentMB(floorSegementSetting.getMbFrac());
+        if (timeSeriesMergePolicy != null) {
+            timeSeriesMergePolicy.setMinMergeMB(floorSegementSetting.getMbFrac());
+        }
     }
 
     void setExpungeDeletesAllowed(Double value) {
@@ -213,6 +251,17 @@ public final class MergePolicyConfig {
 
     void setNoCFSRatio(Double noCFSRatio) {
         mergePolicy.setNoCFSRatio(noCFSRatio);
+        if (timeSeriesMergePolicy != null) {
+            timeSeriesMergePolicy.setNoCFSRatio(noCFSRatio);
+        }
+    }
+
+    /**
+     * Segments that are larger than the maximum merged segment divided by the merge factor are not merged anymore, so that merges
+     * of adjacent segments of this size produce segments of about the maximum size.
+     */
+    private void setTimeSeriesMaxMergeMB(double maxMergedSegmentMB, int mergeFactor) {
+        timeSeriesMergePolicy.setMaxMergeMB(maxMergedSegmentMB / mergeFactor);
     }
 
     private int adjustMaxMergeAtOnceIfNeeded(int maxMergeAtOnce, double segmentsPerTier) {
@@ -230,7 +279,25 @@ public final class MergePolicyConfig {
     }
 
     MergePolicy getMergePolicy() {
-        return mergesEnabled ? mergePolicy : NoMergePolicy.INSTANCE;
+        if (mergesEnabled == false) {
+            return NoMergePolicy.INSTANCE;
+        }
+        return timeSeriesMergePolicy != null ? timeSeriesMergePolicy : mergePolicy;
+    }
+
+    /**
+     * Returns the date field that orders the segments if the <code>time_series</code> merge policy is used, <code>null</code> otherwise.
+     */
+    @Nullable
+    String getTimeSeriesField() {
+        return timeSeriesMergePolicy == null ? null : timeSeriesMergePolicy.getField();
+    }
+
+    private static String parseMergePolicyType(String type) {
+        if ("tiered".equals(type) || "time_series".equals(type)) {
+            return type;
+        }
+        throw new IllegalArgumentException("unknown merge policy type [" + type + "], must be one of [tiered, time_series]");
     }
 
     private static double parseNoCFSRatio(String noCFSRatio) {
@@ -0,0 +1,174 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PointsReader;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.index.MergeTrigger;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A merge policy for append-only time series data, like logs, that only merges segments that are adjacent in time. Segments are
+ * ordered by the range of values of a date field, as recorded in the field's points, and are then merged like
+ * {@link LogByteSizeMergePolicy} merges segments that are adjacent in the index: segments of about the same size that are next to
+ * each other in time are merged together. Merged segments therefore cover a contiguous range of time, so that range queries on the
+ * date field can skip most of them, and segments that are larger than {@link #getMaxMergeMB()} are never merged again by natural
+ * merges.
+ * <p>
+ * Segments that have no points for the date field are ordered after all others.
+ */
+final class TimeSeriesMergePolicy extends LogByteSizeMergePolicy {
+
+    /**
+     * The time range of a segment, in milliseconds since the epoch.
+     */
+    static final class TimeRange {
+        static final TimeRange UNKNOWN = new TimeRange(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        final long min;
+        final long max;
+
+        TimeRange(long min, long max) {
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private static final Comparator<TimeRange> TIME_ORDER = Comparator.<TimeRange>comparingLong(range -> range.min)
+        .thenComparingLong(range -> range.max);
+
+    private final String field;
+
+    /**
+     * The time ranges of the segments that we saw. Segments are immutable, so their ranges only need to be read once. The policy is
+     * shared by all shards of an index, so the cache is keyed by the identity of the segment infos, which are dropped with the
+     * segments.
+     */
+    private final Map<SegmentInfo, TimeRange> timeRanges = Collections.synchronizedMap(new WeakHashMap<>());
+
+    TimeSeriesMergePolicy(String field) {
+        this.field = field;
+    }
+
+    /**
+     * Returns the date field whose values order the segments.
+     */
+    String getField() {
+        return field;
+    }
+
+    @Override
+    public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos infos, IndexWriter writer) throws IOException {
+        return super.findMerges(mergeTrigger, inTimeOrder(infos), writer);
+    }
+
+    @Override
+    public MergeSpecification findForcedMerges(SegmentInfos infos, int maxSegmentCount, Map<SegmentCommitInfo, Boolean> segmentsToMerge,
+                                               IndexWriter writer) throws IOException {
+        return super.findForcedMerges(inTimeOrder(infos), maxSegmentCount, segmentsToMerge, writer);
+    }
+
+    @Override
+    public MergeSpecification findForcedDeletesMerges(SegmentInfos infos, IndexWriter writer) throws IOException {
+        return super.findForcedDeletesMerges(inTimeOrder(infos), writer);
+    }
+
+    /**
+     * Returns the same segments, ordered by their time range. The merges that are selected on the returned infos reference the
+     * segments of the given infos, so they can be executed by the writer as usual.
+     */
+    SegmentInfos inTimeOrder(SegmentInfos infos) throws IOException {
+        List<SegmentCommitInfo> segments = new ArrayList<>(infos.asList());
+        Map<SegmentCommitInfo, TimeRange> ranges = new IdentityHashMap<>();
+        for (SegmentCommitInfo segment : segments) {
+            ranges.put(segment, timeRange(segment));
+        }
+        // the sort is stable, so segments with the same range, including those without a range, keep their order in the index
+        segments.sort(Comparator.comparing(ranges::get, TIME_ORDER));
+        SegmentInfos sorted = new SegmentInfos();
+        sorted.addAll(segments);
+        return sorted;
+    }
+
+    /**
+     * Returns the time range of the given segment, reading it from the segment's points on first access.
+     */
+    TimeRange timeRange(SegmentCommitInfo segment) throws IOException {
+        TimeRange range = timeRanges.get(segment.info);
+        if (range == null) {
+            range = readTimeRange(segment.info, field);
+            timeRanges.put(segment.info, range);
+        }
+        return range;
+    }
+
+    /**
+     * Reads the minimum and maximum value of the given field from the points of the segment. Only the field infos and the points
+     * are opened, rather than a full segment reader.
+     */
+    static TimeRange readTimeRange(SegmentInfo segmentInfo, String field) throws IOException {
+        final Codec codec = segmentInfo.getCodec();
+        Directory directory = segmentInfo.dir;
+        Closeable compoundReader = null;
+        try {
+            if (segmentInfo.getUseCompoundFile()) {
+                directory = codec.compoundFormat().getCompoundReader(segmentInfo.dir, segmentInfo, IOContext.READONCE);
+                compoundReader = directory;
+            }
+            FieldInfos fieldInfos = codec.fieldInfosFormat().read(directory, segmentInfo, "", IOContext.READONCE);
+            FieldInfo fieldInfo = fieldInfos.fieldInfo(field);
+            if (fieldInfo == null || fieldInfo.getPointDimensionCount() != 1 || fieldInfo.getPointNumBytes() != Long.BYTES) {
+                return TimeRange.UNKNOWN;
+            }
+            try (PointsReader points = codec.pointsFormat().fieldsReader(
+                    new SegmentReadState(directory, segmentInfo, fieldInfos, IOContext.READONCE))) {
+                byte[] min = points.getMinPackedValue(field);
+                byte[] max = points.getMaxPackedValue(field);
+                if (min == null || max == null) {
+                    return TimeRange.UNKNOWN;
+                }
+                return new TimeRange(LongPoint.decodeDimension(min, 0), LongPoint.decodeDimension(max, 0));
+            }
+        } finally {
+            IOUtils.close(compoundReader);
+        }
+    }
+}
@@ -21,11 +21,13 @@ package org.elasticsearch.index.codec;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat.Mode;
 import org.apache.lucene.codecs.lucene62.Lucene62Codec;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.UidFieldMapper;
 
 import java.util.Map;
 
@@ -41,6 +43,8 @@ public class CodecService {
 
     public static final String DEFAULT_CODEC = "default";
     public static final String BEST_COMPRESSION_CODEC = "best_compression";
+    /** the default codec with a per-segment bloom filter on the _uid postings to speed up version lookups */
+    public static final String UID_BLOOM_CODEC = "uid_bloom";
     /** the raw unfiltered lucene default. useful for testing */
     public static final String LUCENE_DEFAULT_CODEC = "lucene_default";
 
@@ -49,11 +53,20 @@ public class CodecService {
         if (mapperService == null) {
             codecs.put(DEFAULT_CODEC, new Lucene62Codec());
             codecs.put(BEST_COMPRESSION_CODEC, new Lucene62Codec(Mode.BEST_COMPRESSION));
+            final PostingsFormat uidPostingsFormat = new UidBloomFilterPostingsFormat(PostingsFormat.forName("Lucene50"));
+            codecs.put(UID_BLOOM_CODEC, new Lucene62Codec() {
+                @Override
+                public PostingsFormat getPostingsFormatForField(String field) {
+                    return UidFieldMapper.NAME.equals(field) ? uidPostingsFormat : super.getPostingsFormatForField(field);
+                }
+            });
         } else {
             codecs.put(DEFAULT_CODEC,
                     new PerFieldMappingPostingFormatCodec(Mode.BEST_SPEED, mapperService, logger));
             codecs.put(BEST_COMPRESSION_CODEC,
                     new PerFieldMappingPostingFormatCodec(Mode.BEST_COMPRESSION, mapperService, logger));
+            codecs.put(UID_BLOOM_CODEC,
+                    new PerFieldMappingPostingFormatCodec(Mode.BEST_SPEED, mapperService, logger, true));
         }
         codecs.put(LUCENE_DEFAULT_CODEC, Codec.getDefault());
         for (String codec : Codec.availableCodecs()) {
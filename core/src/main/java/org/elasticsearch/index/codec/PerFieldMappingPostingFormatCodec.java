@@ -29,6 +29,7 @@ import org.elasticsearch.index.mapper.CompletionFieldMapper;
 import org.elasticsearch.index.mapper.CompletionFieldMapper2x;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.UidFieldMapper;
 
 /**
  * {@link PerFieldMappingPostingFormatCodec This postings format} is the default
@@ -37,24 +38,42 @@ import org.elasticsearch.index.mapper.MapperService;
  * allows users to change the low level postings format for individual fields
  * per index in real time via the mapping API. If no specific postings format is
  * configured for a specific field the default postings format is used.
+ * Optionally the postings of the {@code _uid} field are wrapped with a
+ * per-segment bloom filter, see {@link CodecService#UID_BLOOM_CODEC}.
  */
 // LUCENE UPGRADE: make sure to move to a new codec depending on the lucene version
 public class PerFieldMappingPostingFormatCodec extends Lucene62Codec {
     private final Logger logger;
     private final MapperService mapperService;
+    private final PostingsFormat uidPostingsFormat;
 
     static {
         assert Codec.forName(Lucene.LATEST_CODEC).getClass().isAssignableFrom(PerFieldMappingPostingFormatCodec.class) : "PerFieldMappingPostingFormatCodec must subclass the latest lucene codec: " + Lucene.LATEST_CODEC;
     }
 
     public PerFieldMappingPostingFormatCodec(Lucene50StoredFieldsFormat.Mode compressionMode, MapperService mapperService, Logger logger) {
+        this(compressionMode, mapperService, logger, false);
+    }
+
+    /**
+     * @param bloomFilterUid whether to wrap the postings of the {@code _uid} field with a bloom filter that is sized from
+     *                       the number of documents in each segment, so that uid lookups can skip segments that don't
+     *                       contain the uid without seeking the terms index
+     */
+    public PerFieldMappingPostingFormatCodec(Lucene50StoredFieldsFormat.Mode compressionMode, MapperService mapperService, Logger logger,
+                                             boolean bloomFilterUid) {
         super(compressionMode);
         this.mapperService = mapperService;
         this.logger = logger;
+        this.uidPostingsFormat = bloomFilterUid ? new UidBloomFilterPostingsFormat(super.getPostingsFormatForField(UidFieldMapper.NAME))
+            : null;
     }
 
     @Override
     public PostingsFormat getPostingsFormatForField(String field) {
+        if (uidPostingsFormat != null && UidFieldMapper.NAME.equals(field)) {
+            return uidPostingsFormat;
+        }
         final MappedFieldType fieldType = mapperService.fullName(field);
         if (fieldType == null) {
             logger.warn("no index mapper found for field: [{}] returning default postings format", field);
@@ -0,0 +1,293 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.FieldsConsumer;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.bloom.FuzzySet;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.FilterLeafReader.FilterTerms;
+import org.apache.lucene.index.FilterLeafReader.FilterTermsEnum;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link PostingsFormat} that writes the postings with a delegate postings format and additionally keeps a
+ * bloom filter of the terms of each field per segment. Seeking a term that the bloom filter rules out returns
+ * without touching the terms index of the delegate, which makes lookups of uids that are not in a segment cheap.
+ * The filters are held on heap, their memory is exposed through {@link BloomFilteredTerms}.
+ */
+public final class UidBloomFilterPostingsFormat extends PostingsFormat {
+
+    public static final String CODEC_NAME = "uidbloom";
+    public static final int VERSION_START = 0;
+    public static final int VERSION_CURRENT = VERSION_START;
+    public static final String EXTENSION = "blm";
+
+    /** the fraction of bits of a filter that may be set, we size the filters such that it has about 10% false positives */
+    private static final float TARGET_SATURATION = 0.1f;
+    /** filters with more bits set than this filter too little to be worth their memory and are not written */
+    private static final float MAX_SATURATION = 0.9f;
+
+    private final PostingsFormat delegatePostingsFormat;
+
+    public UidBloomFilterPostingsFormat(PostingsFormat delegatePostingsFormat) {
+        super(CODEC_NAME);
+        this.delegatePostingsFormat = delegatePostingsFormat;
+    }
+
+    /*
+     * Used only by core Lucene at read-time via Service Provider instantiation
+     * do not use at Write-time in application code.
+     */
+    public UidBloomFilterPostingsFormat() {
+        this(null);
+    }
+
+    @Override
+    public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        if (delegatePostingsFormat == null) {
+            throw new UnsupportedOperationException("Error - " + getClass().getName()
+                    + " has been constructed without a choice of PostingsFormat");
+        }
+        return new BloomFilteredFieldsConsumer(delegatePostingsFormat, state);
+    }
+
+    @Override
+    public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+        return new BloomFilteredFieldsProducer(state);
+    }
+
+    private static final class BloomFilteredFieldsConsumer extends FieldsConsumer {
+        private final String delegateName;
+        private final FieldsConsumer delegateFieldsConsumer;
+        private final SegmentWriteState state;
+
+        BloomFilteredFieldsConsumer(PostingsFormat delegatePostingsFormat, SegmentWriteState state) throws IOException {
+            this.delegateName = delegatePostingsFormat.getName();
+            this.delegateFieldsConsumer = delegatePostingsFormat.fieldsConsumer(state);
+            this.state = state;
+        }
+
+        @Override
+        public void write(Fields fields) throws IOException {
+            delegateFieldsConsumer.write(fields);
+            final Map<String, FuzzySet> blooms = new HashMap<>();
+            PostingsEnum postings = null;
+            for (String field : fields) {
+                final Terms terms = fields.terms(field);
+                if (terms == null) {
+                    continue;
+                }
+                // we assume that every document has a unique term, like the _uid
+                FuzzySet bloom = FuzzySet.createSetBasedOnQuality(state.segmentInfo.maxDoc(), TARGET_SATURATION);
+                final TermsEnum termsEnum = terms.iterator();
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    // merged fields may still return terms whose documents are all deleted
+                    postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                    if (postings.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                        bloom.addValue(term);
+                    }
+                }
+                // downsize returns null if the filter can't get any smaller
+                final FuzzySet downsized = bloom.downsize(TARGET_SATURATION);
+                if (downsized != null) {
+                    bloom = downsized;
+                }
+                if (bloom.getSaturation() <= MAX_SATURATION) {
+                    blooms.put(field, bloom);
+                }
+            }
+            final String bloomFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, EXTENSION);
+            try (IndexOutput output = state.directory.createOutput(bloomFileName, state.context)) {
+                CodecUtil.writeIndexHeader(output, CODEC_NAME, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+                // we write the delegate postings format name so we can load it without getting an instance in the ctor
+                output.writeString(delegateName);
+                output.writeVInt(blooms.size());
+                for (Map.Entry<String, FuzzySet> entry : blooms.entrySet()) {
+                    output.writeString(entry.getKey());
+                    entry.getValue().serialize(output);
+                }
+                CodecUtil.writeFooter(output);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegateFieldsConsumer.close();
+        }
+    }
+
+    private static final class BloomFilteredFieldsProducer extends FieldsProducer {
+        private final FieldsProducer delegateProducer;
+        private final Map<String, FuzzySet> blooms;
+
+        BloomFilteredFieldsProducer(SegmentReadState state) throws IOException {
+            final String bloomFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, EXTENSION);
+            final Map<String, FuzzySet> blooms = new HashMap<>();
+            final PostingsFormat delegatePostingsFormat;
+            try (ChecksumIndexInput input = state.directory.openChecksumInput(bloomFileName, state.context)) {
+                CodecUtil.checkIndexHeader(input, CODEC_NAME, VERSION_START, VERSION_CURRENT, state.segmentInfo.getId(),
+                    state.segmentSuffix);
+                delegatePostingsFormat = PostingsFormat.forName(input.readString());
+                final int numBlooms = input.readVInt();
+                for (int i = 0; i < numBlooms; i++) {
+                    final String field = input.readString();
+                    blooms.put(field, FuzzySet.deserialize(input));
+                }
+                CodecUtil.checkFooter(input);
+            }
+            this.blooms = Collections.unmodifiableMap(blooms);
+            this.delegateProducer = delegatePostingsFormat.fieldsProducer(state);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOUtils.close(delegateProducer);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return delegateProducer.iterator();
+        }
+
+        @Override
+        public Terms terms(String field) throws IOException {
+            final Terms terms = delegateProducer.terms(field);
+            final FuzzySet bloom = blooms.get(field);
+            if (terms == null || bloom == null) {
+                return terms;
+            }
+            return new BloomFilteredTerms(terms, bloom);
+        }
+
+        @Override
+        public int size() {
+            return delegateProducer.size();
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            long bytes = delegateProducer.ramBytesUsed();
+            for (FuzzySet bloom : blooms.values()) {
+                bytes += bloom.ramBytesUsed();
+            }
+            return bytes;
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            List<Accountable> resources = new ArrayList<>(Accountables.namedAccountables("field", blooms));
+            resources.add(Accountables.namedAccountable("delegate", delegateProducer));
+            return Collections.unmodifiableList(resources);
+        }
+
+        @Override
+        public void checkIntegrity() throws IOException {
+            delegateProducer.checkIntegrity();
+        }
+
+        @Override
+        public FieldsProducer getMergeInstance() throws IOException {
+            // merges read every term, the bloom filters are rebuilt by the consumer of the merged segment
+            return delegateProducer.getMergeInstance();
+        }
+    }
+
+    /**
+     * The terms of a field that has a bloom filter. Exact seeks consult the bloom filter before the delegate terms.
+     */
+    public static final class BloomFilteredTerms extends FilterTerms {
+        private final FuzzySet bloom;
+
+        BloomFilteredTerms(Terms delegate, FuzzySet bloom) {
+            super(delegate);
+            this.bloom = bloom;
+        }
+
+        /**
+         * Returns the heap used by the bloom filter of this field.
+         */
+        public long bloomFilterRamBytesUsed() {
+            return bloom.ramBytesUsed();
+        }
+
+        @Override
+        public TermsEnum iterator() throws IOException {
+            return new BloomFilteredTermsEnum(in.iterator(), bloom);
+        }
+
+        @Override
+        public TermsEnum intersect(CompiledAutomaton compiled, BytesRef startTerm) throws IOException {
+            return in.intersect(compiled, startTerm);
+        }
+    }
+
+    private static final class BloomFilteredTermsEnum extends FilterTermsEnum {
+        private final FuzzySet bloom;
+
+        BloomFilteredTermsEnum(TermsEnum delegate, FuzzySet bloom) {
+            super(delegate);
+            this.bloom = bloom;
+        }
+
+        @Override
+        public boolean seekExact(BytesRef text) throws IOException {
+            if (bloom.contains(text) == FuzzySet.ContainsResult.NO) {
+                return false;
+            }
+            return in.seekExact(text);
+        }
+
+        @Override
+        public void seekExact(BytesRef term, TermState state) throws IOException {
+            in.seekExact(term, state);
+        }
+
+        @Override
+        public TermState termState() throws IOException {
+            return in.termState();
+        }
+    }
+}
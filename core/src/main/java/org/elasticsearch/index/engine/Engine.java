@@ -22,7 +22,10 @@ package org.elasticsearch.index.engine;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.logging.log4j.util.Supplier;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.FilterLeafReader;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexFileNames;
@@ -30,11 +33,13 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.SegmentCommitInfo;
 import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.AlreadyClosedException;
@@ -59,10 +64,15 @@ import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.codec.CodecService;
+import org.elasticsearch.index.codec.UidBloomFilterPostingsFormat;
 import org.elasticsearch.index.mapper.ParseContext.Document;
 import org.elasticsearch.index.mapper.ParsedDocument;
 import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.UidFieldMapper;
 import org.elasticsearch.index.merge.MergeStats;
+import org.elasticsearch.index.seqno.LocalCheckpointTracker;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.translog.Translog;
@@ -90,6 +100,7 @@ import java.util.function.Function;
 public abstract class Engine implements Closeable {
 
     public static final String SYNC_COMMIT_ID = "sync_id";
+    public static final String HISTORY_UUID_KEY = "history_uuid";
 
     protected final ShardId shardId;
     protected final Logger logger;
@@ -137,6 +148,24 @@ public abstract class Engine implements Closeable {
         return a.ramBytesUsed();
     }
 
+    /**
+     * Returns the heap used by the bloom filter of the {@code _uid} postings of a segment, see {@link CodecService#UID_BLOOM_CODEC}.
+     */
+    private long bloomFilterRamBytesUsed(SegmentReader segmentReader) {
+        final FieldsProducer postingsReader = segmentReader.getPostingsReader();
+        if (postingsReader != null) {
+            try {
+                final Terms terms = postingsReader.terms(UidFieldMapper.NAME);
+                if (terms instanceof UidBloomFilterPostingsFormat.BloomFilteredTerms) {
+                    return ((UidBloomFilterPostingsFormat.BloomFilteredTerms) terms).bloomFilterRamBytesUsed();
+                }
+            } catch (IOException e) {
+                logger.trace((Supplier<?>) () -> new ParameterizedMessage("failed to get the bloom filter of [{}]", segmentReader), e);
+            }
+        }
+        return 0;
+    }
+
     /**
      * Tries to extract a segment reader from the given index reader.
      * If no SegmentReader can be extracted an {@link IllegalStateException} is thrown.
@@ -242,6 +271,18 @@ public abstract class Engine implements Closeable {
      */
     public abstract boolean isThrottled();
 
+    /**
+     * Returns the number of nanoseconds that flushes of this engine blocked writes to the translog, while they rolled the translog over
+     * to a new generation and removed the generations that are no longer needed.
+     */
+    public abstract long getFlushBlockedTimeInNanos();
+
+    /**
+     * Returns the number of nanoseconds that flushes of this engine spent on committing the index writer. Writes are not blocked by the
+     * commit, they go to the new translog generation.
+     */
+    public abstract long getFlushCommitTimeInNanos();
+
     /** A Lock implementation that always allows the lock to be acquired */
     protected static final class NoOpLock implements Lock {
 
@@ -304,6 +345,7 @@ public abstract class Engine implements Closeable {
         private final Exception failure;
         private final SetOnce<Boolean> freeze = new SetOnce<>();
         private Translog.Location translogLocation;
+        private long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
         private long took;
 
         protected Result(Operation.TYPE operationType, Exception failure, long version) {
@@ -326,6 +368,11 @@ public abstract class Engine implements Closeable {
             return version;
         }
 
+        /** get the sequence number of the operation, or {@link SequenceNumbers#UNASSIGNED_SEQ_NO} if it wasn't executed */
+        public long getSeqNo() {
+            return seqNo;
+        }
+
         /** get the translog location after executing the operation */
         public Translog.Location getTranslogLocation() {
             return translogLocation;
@@ -354,6 +401,14 @@ public abstract class Engine implements Closeable {
             }
         }
 
+        void setSeqNo(long seqNo) {
+            if (freeze.get() == null) {
+                this.seqNo = seqNo;
+            } else {
+                throw new IllegalStateException("result is already frozen");
+            }
+        }
+
         void setTook(long took) {
             if (freeze.get() == null) {
                 this.took = took;
@@ -541,6 +596,7 @@ public abstract class Engine implements Closeable {
                 final SegmentReader segmentReader = segmentReader(reader.reader());
                 stats.add(1, segmentReader.ramBytesUsed());
                 stats.addTermsMemoryInBytes(guardedRamBytesUsed(segmentReader.getPostingsReader()));
+                stats.addBloomFilterMemoryInBytes(bloomFilterRamBytesUsed(segmentReader));
                 stats.addStoredFieldsMemoryInBytes(guardedRamBytesUsed(segmentReader.getFieldsReader()));
                 stats.addTermVectorsMemoryInBytes(guardedRamBytesUsed(segmentReader.getTermVectorsReader()));
                 stats.addNormsMemoryInBytes(guardedRamBytesUsed(segmentReader.getNormsReader()));
@@ -639,6 +695,24 @@ public abstract class Engine implements Closeable {
     /** How much heap is used that would be freed by a refresh.  Note that this may throw {@link AlreadyClosedException}. */
     public abstract  long getIndexBufferRAMBytesUsed();
 
+    /**
+     * Adds the range of values of the given date field to the segment, if the segment has points for the field.
+     */
+    private void addTimestampRange(Segment segment, SegmentReader segmentReader, String timestampField) {
+        try {
+            final PointValues points = segmentReader.getPointValues();
+            final FieldInfo fieldInfo = segmentReader.getFieldInfos().fieldInfo(timestampField);
+            if (points != null && fieldInfo != null && fieldInfo.getPointDimensionCount() == 1
+                    && fieldInfo.getPointNumBytes() == Long.BYTES) {
+                segment.timestampField = timestampField;
+                segment.minTimestamp = LongPoint.decodeDimension(points.getMinPackedValue(timestampField), 0);
+                segment.maxTimestamp = LongPoint.decodeDimension(points.getMaxPackedValue(timestampField), 0);
+            }
+        } catch (IOException e) {
+            logger.trace((Supplier<?>) () -> new ParameterizedMessage("failed to get time range for [{}]", segment.getName()), e);
+        }
+    }
+
     protected Segment[] getSegmentInfo(SegmentInfos lastCommittedSegmentInfos, boolean verbose) {
         ensureOpen();
         Map<String, Segment> segments = new HashMap<>();
@@ -662,6 +736,10 @@ public abstract class Engine implements Closeable {
                 }
                 final SegmentReader segmentReader = segmentReader(reader.reader());
                 segment.memoryInBytes = segmentReader.ramBytesUsed();
+                final String timestampField = engineConfig.getIndexSettings().getTimeSeriesMergeField();
+                if (timestampField != null) {
+                    addTimestampRange(segment, segmentReader, timestampField);
+                }
                 if (verbose) {
                     segment.ramTree = Accountables.namedAccountable("root", segmentReader);
                 }
@@ -906,13 +984,20 @@ public abstract class Engine implements Closeable {
         }
 
         private final Term uid;
+        private final long seqNo;
         private final long version;
         private final VersionType versionType;
         private final Origin origin;
         private final long startTime;
 
         public Operation(Term uid, long version, VersionType versionType, Origin origin, long startTime) {
+            this(uid, SequenceNumbers.UNASSIGNED_SEQ_NO, version, versionType, origin, startTime);
+        }
+
+        public Operation(Term uid, long seqNo, long version, VersionType versionType, Origin origin, long startTime) {
+            assert origin != Origin.PRIMARY || seqNo == SequenceNumbers.UNASSIGNED_SEQ_NO : "primaries assign sequence numbers";
             this.uid = uid;
+            this.seqNo = seqNo;
             this.version = version;
             this.versionType = versionType;
             this.origin = origin;
@@ -938,6 +1023,14 @@ public abstract class Engine implements Closeable {
             return this.uid;
         }
 
+        /**
+         * Returns the sequence number that the primary assigned to this operation, or {@link SequenceNumbers#UNASSIGNED_SEQ_NO} on
+         * the primary and for operations that were replicated or recovered from older nodes.
+         */
+        public long seqNo() {
+            return this.seqNo;
+        }
+
         public long version() {
             return this.version;
         }
@@ -967,14 +1060,28 @@ public abstract class Engine implements Closeable {
         private final ParsedDocument doc;
         private final long autoGeneratedIdTimestamp;
         private final boolean isRetry;
+        private final boolean inPlace;
 
         public Index(Term uid, ParsedDocument doc, long version, VersionType versionType, Origin origin, long startTime,
                      long autoGeneratedIdTimestamp, boolean isRetry) {
-            super(uid, version, versionType, origin, startTime);
+            this(uid, doc, version, versionType, origin, startTime, autoGeneratedIdTimestamp, isRetry, false);
+        }
+
+        public Index(Term uid, ParsedDocument doc, long version, VersionType versionType, Origin origin, long startTime,
+                     long autoGeneratedIdTimestamp, boolean isRetry, boolean inPlace) {
+            this(uid, doc, SequenceNumbers.UNASSIGNED_SEQ_NO, version, versionType, origin, startTime, autoGeneratedIdTimestamp, isRetry,
+                inPlace);
+        }
+
+        public Index(Term uid, ParsedDocument doc, long seqNo, long version, VersionType versionType, Origin origin, long startTime,
+                     long autoGeneratedIdTimestamp, boolean isRetry, boolean inPlace) {
+            super(uid, seqNo, version, versionType, origin, startTime);
             assert uid.bytes().equals(doc.uid()) : "term uid " + uid + " doesn't match doc uid " + doc.uid();
+            assert inPlace == false || doc.docs().size() == 1 : "in place updates don't support nested documents";
             this.doc = doc;
             this.isRetry = isRetry;
             this.autoGeneratedIdTimestamp = autoGeneratedIdTimestamp;
+            this.inPlace = inPlace;
         }
 
         public Index(Term uid, ParsedDocument doc) {
@@ -1050,6 +1157,14 @@ public abstract class Engine implements Closeable {
             return isRetry;
         }
 
+        /**
+         * Returns <code>true</code> if this operation only updates the numeric doc values of an existing document instead of replacing
+         * the document. Fails if the document doesn't exist.
+         */
+        public boolean isInPlace() {
+            return inPlace;
+        }
+
     }
 
     public static class Delete extends Operation {
@@ -1058,7 +1173,12 @@ public abstract class Engine implements Closeable {
         private final String id;
 
         public Delete(String type, String id, Term uid, long version, VersionType versionType, Origin origin, long startTime) {
-            super(uid, version, versionType, origin, startTime);
+            this(type, id, uid, SequenceNumbers.UNASSIGNED_SEQ_NO, version, versionType, origin, startTime);
+        }
+
+        public Delete(String type, String id, Term uid, long seqNo, long version, VersionType versionType, Origin origin,
+                      long startTime) {
+            super(uid, seqNo, version, versionType, origin, startTime);
             this.type = type;
             this.id = id;
         }
@@ -1068,7 +1188,8 @@ public abstract class Engine implements Closeable {
         }
 
         public Delete(Delete template, VersionType versionType) {
-            this(template.type(), template.id(), template.uid(), template.version(), versionType, template.origin(), template.startTime());
+            this(template.type(), template.id(), template.uid(), template.seqNo(), template.version(), versionType, template.origin(),
+                template.startTime());
         }
 
         @Override
@@ -1315,6 +1436,31 @@ public abstract class Engine implements Closeable {
      */
     public abstract Engine recoverFromTranslog() throws IOException;
 
+    /**
+     * Returns the tracker of the sequence numbers that this engine processed.
+     */
+    public abstract LocalCheckpointTracker getLocalCheckpointTracker();
+
+    /**
+     * Returns the UUID of the history of operations of this shard copy. Shard copies with the same history UUID received the same
+     * operations under the same sequence numbers, so one can catch up with the other by replaying the operations that it missed.
+     */
+    public abstract String getHistoryUUID();
+
+    /**
+     * Starts a new history of operations with a fresh history UUID. This is called when a shard copy becomes the primary after a
+     * recovery from the store or a promotion, when it may have processed operations that other copies never saw or missed
+     * operations that they did see. Gaps in the sequence numbers of the old history are filled, since they can't be
+     * delivered anymore.
+     */
+    public abstract void startNewHistory();
+
+    /**
+     * Returns <code>true</code> if the translog of this engine still has all operations of the current history from the given
+     * sequence number on, so that a shard copy which processed all operations before it can catch up by replaying them.
+     */
+    public abstract boolean hasCompleteOperationHistory(long startingSeqNo);
+
     /**
      * Returns <code>true</code> iff this engine is currently recovering from translog.
      */
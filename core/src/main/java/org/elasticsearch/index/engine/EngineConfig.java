@@ -80,12 +80,13 @@ public final class EngineConfig {
         switch (s) {
             case "default":
             case "best_compression":
+            case "uid_bloom":
             case "lucene_default":
                 return s;
             default:
                 if (Codec.availableCodecs().contains(s) == false) { // we don't error message the not officially supported ones
                     throw new IllegalArgumentException(
-                        "unknown value for [index.codec] must be one of [default, best_compression] but was: " + s);
+                        "unknown value for [index.codec] must be one of [default, best_compression, uid_bloom] but was: " + s);
                 }
                 return s;
         }
@@ -101,6 +102,16 @@ public final class EngineConfig {
     public static final Setting<Boolean> INDEX_OPTIMIZE_AUTO_GENERATED_IDS = Setting.boolSetting("index.optimize_auto_generated_id", true,
         Property.IndexScope, Property.Dynamic);
 
+    /**
+     * Configures an index whose documents are created once and rarely, if ever, updated or deleted, for instance event data with
+     * client-supplied unique ids. New documents are then not tracked in the version map until the next refresh, instead only a hash
+     * of their id is kept and conflicts are detected by looking the id up in the index. Operations on ids that were added since the
+     * last refresh have to refresh the index first, which makes this setting expensive for indices with frequent updates.
+     * The default is <code>false</code>
+     */
+    public static final Setting<Boolean> INDEX_OPTIMIZE_APPEND_ONLY_IDS = Setting.boolSetting("index.optimize_append_only_ids", false,
+        Property.IndexScope);
+
     private final TranslogConfig translogConfig;
     private final OpenMode openMode;
 
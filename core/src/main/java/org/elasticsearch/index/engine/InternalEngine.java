@@ -20,12 +20,15 @@
 package org.elasticsearch.index.engine;
 
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LiveIndexWriterConfig;
 import org.apache.lucene.index.MergePolicy;
@@ -46,6 +49,7 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.LoggerInfoStream;
 import org.elasticsearch.common.lucene.Lucene;
@@ -62,6 +66,8 @@ import org.elasticsearch.index.mapper.ParseContext;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.merge.OnGoingMerge;
+import org.elasticsearch.index.seqno.LocalCheckpointTracker;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.ElasticsearchMergePolicy;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.TranslogRecoveryPerformer;
@@ -72,6 +78,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -106,6 +113,10 @@ public class InternalEngine extends Engine {
     // we use the hashed variant since we iterate over it and check removal and additions on existing keys
     private final LiveVersionMap versionMap;
 
+    // the uids of new documents that are not tracked in the version map if the index is optimized for append only ids
+    private final LiveUidSet liveUidSet;
+    private final boolean optimizeAppendOnlyIds;
+
     private final KeyedLock<BytesRef> keyedLock = new KeyedLock<>();
 
     private final AtomicBoolean versionMapRefreshPending = new AtomicBoolean();
@@ -123,6 +134,13 @@ public class InternalEngine extends Engine {
     private final AtomicLong maxUnsafeAutoIdTimestamp = new AtomicLong(-1);
     private final CounterMetric numVersionLookups = new CounterMetric();
     private final CounterMetric numIndexVersionsLookups = new CounterMetric();
+    // the time that flushes blocked writes to the translog and the time they spent on the lucene commit
+    private final CounterMetric flushBlockedTimeInNanos = new CounterMetric();
+    private final CounterMetric flushCommitTimeInNanos = new CounterMetric();
+    private final LocalCheckpointTracker localCheckpointTracker;
+    private volatile String historyUUID;
+    // all operations of the current history with a higher sequence number were added to the translog of this engine
+    private volatile long historyStartSeqNo;
 
     public InternalEngine(EngineConfig engineConfig) throws EngineException {
         super(engineConfig);
@@ -134,6 +152,8 @@ public class InternalEngine extends Engine {
             maxUnsafeAutoIdTimestamp.set(engineConfig.getMaxUnsafeAutoIdTimestamp());
         }
         this.versionMap = new LiveVersionMap();
+        this.liveUidSet = new LiveUidSet();
+        this.optimizeAppendOnlyIds = engineConfig.getIndexSettings().getValue(EngineConfig.INDEX_OPTIMIZE_APPEND_ONLY_IDS);
         store.incRef();
         IndexWriter writer = null;
         Translog translog = null;
@@ -148,6 +168,14 @@ public class InternalEngine extends Engine {
             try {
                 writer = createWriter(openMode == EngineConfig.OpenMode.CREATE_INDEX_AND_TRANSLOG);
                 indexWriter = writer;
+                // the sequence numbers and history have to be known before the translog is opened, which may commit
+                final Map<String, String> commitUserData = writer.getCommitData();
+                final long maxSeqNo = SequenceNumbers.loadMaxSeqNo(commitUserData);
+                localCheckpointTracker = new LocalCheckpointTracker(maxSeqNo, SequenceNumbers.loadLocalCheckpoint(commitUserData));
+                historyStartSeqNo = openMode == EngineConfig.OpenMode.CREATE_INDEX_AND_TRANSLOG
+                    ? SequenceNumbers.NO_OPS_PERFORMED : maxSeqNo;
+                final String committedHistoryUUID = commitUserData.get(HISTORY_UUID_KEY);
+                historyUUID = committedHistoryUUID == null ? UUIDs.randomBase64UUID() : committedHistoryUUID;
                 translog = openTranslog(engineConfig, writer);
                 assert translog.getGeneration() != null;
             } catch (IOException | TranslogCorruptedException e) {
@@ -166,6 +194,7 @@ public class InternalEngine extends Engine {
             manager = createSearcherManager();
             this.searcherManager = manager;
             this.versionMap.setManager(searcherManager);
+            this.liveUidSet.setManager(searcherManager);
             assert pendingTranslogRecovery.get() == false : "translog recovery can't be pending before we set it";
             // don't allow commits until we are done with recovering
             pendingTranslogRecovery.set(openMode == EngineConfig.OpenMode.OPEN_INDEX_AND_TRANSLOG);
@@ -177,6 +206,7 @@ public class InternalEngine extends Engine {
             if (success == false) {
                 IOUtils.closeWhileHandlingException(writer, translog, manager, scheduler);
                 versionMap.clear();
+                liveUidSet.clear();
                 if (isClosed.get() == false) {
                     // failure we need to dec the store reference
                     store.decRef();
@@ -226,6 +256,8 @@ public class InternalEngine extends Engine {
         // flush if we recovered something or if we have references to older translogs
         // note: if opsRecovered == 0 and we have older translogs it means they are corrupted or 0 length.
         assert pendingTranslogRecovery.get(): "translogRecovery is not pending but should be";
+        // the translog files that we recovered from aren't tracked by sequence number, so the history only starts after them
+        historyStartSeqNo = Math.max(historyStartSeqNo, localCheckpointTracker.getMaxSeqNo());
         pendingTranslogRecovery.set(false); // we are good - now we can commit
         if (opsRecovered > 0) {
             logger.trace("flushing post recovery from translog. ops recovered [{}]. committed translog id [{}]. current id [{}]",
@@ -343,6 +375,8 @@ public class InternalEngine extends Engine {
                                 get.versionType().explainConflictForReads(versionValue.version(), get.version()));
                     }
                     refresh("realtime_get");
+                } else if (liveUidSet.mightContain(get.uid().bytes())) {
+                    refresh("realtime_get");
                 }
             }
 
@@ -445,7 +479,9 @@ public class InternalEngine extends Engine {
     private IndexResult innerIndex(Index index) throws IOException {
         // TODO we gotta split this method up it's too big!
         final Translog.Location location;
-        try (Releasable ignored = acquireLock(index.uid())) {
+        final boolean canOptimizeAddDocument = canOptimizeAddDocument(index);
+        // appends with an auto generated id never look up the version, so they don't need to check the live uids
+        try (Releasable ignored = canOptimizeAddDocument ? acquireLock(index.uid()) : acquireLockForVersionLookup(index.uid())) {
             lastWriteNanos = index.startTime();
             /* if we have an autoGeneratedID that comes into the engine we can potentially optimize
              * and just use addDocument instead of updateDocument and skip the entire version and index lookup across the board.
@@ -476,7 +512,8 @@ public class InternalEngine extends Engine {
             // if anything is fishy here ie. there is a retry we go and force updateDocument below so we are updating the document in the
             // lucene index without checking the version map but we still do the version check
             final boolean forceUpdateDocument;
-            final boolean canOptimizeAddDocument = canOptimizeAddDocument(index);
+            // new documents of indices optimized for append only ids are only tracked by uid until the next refresh
+            final boolean trackInLiveUidSet;
             if (canOptimizeAddDocument) {
                 long deOptimizeTimestamp = maxUnsafeAutoIdTimestamp.get();
                 if (index.isRetry()) {
@@ -495,6 +532,7 @@ public class InternalEngine extends Engine {
                 }
                 currentVersion = Versions.NOT_FOUND;
                 deleted = true;
+                trackInLiveUidSet = false;
             } else {
                 // update the document
                 forceUpdateDocument = false; // we don't force it - it depends on the version
@@ -503,9 +541,11 @@ public class InternalEngine extends Engine {
                 if (versionValue == null) {
                     currentVersion = loadCurrentVersionFromIndex(index.uid());
                     deleted = currentVersion == Versions.NOT_FOUND;
+                    trackInLiveUidSet = optimizeAppendOnlyIds && deleted;
                 } else {
                     currentVersion = checkDeletedAndGCed(versionValue);
                     deleted = versionValue.delete();
+                    trackInLiveUidSet = false;
                 }
             }
             final long expectedVersion = index.version();
@@ -528,14 +568,28 @@ public class InternalEngine extends Engine {
                 index.parsedDoc().version().setLongValue(updatedVersion);
                 IndexResult innerIndexResult;
                 try {
-                    if (currentVersion == Versions.NOT_FOUND && forceUpdateDocument == false) {
+                    if (index.isInPlace() && index.origin() == Operation.Origin.PRIMARY) {
+                        /*
+                         * Only the primary updates the doc values in place. In place operations carry the whole resolved document,
+                         * so replicas and recoveries, which may apply them out of order or before the document they update exists,
+                         * index the document as a whole like any other operation.
+                         */
+                        if (deleted) {
+                            throw new DocumentMissingException(shardId, index.type(), index.id());
+                        }
+                        updateDocValues(index.uid(), index.docs().get(0), indexWriter);
+                    } else if (currentVersion == Versions.NOT_FOUND && forceUpdateDocument == false) {
                         // document does not exists, we can optimize for create, but double check if assertions are running
                         assert assertDocDoesNotExist(index, canOptimizeAddDocument == false);
                         index(index.docs(), indexWriter);
                     } else {
                         update(index.uid(), index.docs(), indexWriter);
                     }
-                    versionMap.putUnderLock(index.uid().bytes(), new VersionValue(updatedVersion));
+                    if (trackInLiveUidSet) {
+                        liveUidSet.addUnderLock(index.uid().bytes());
+                    } else {
+                        versionMap.putUnderLock(index.uid().bytes(), new VersionValue(updatedVersion));
+                    }
                     innerIndexResult = new IndexResult(updatedVersion, deleted);
                 } catch (Exception ex) {
                     if (indexWriter.getTragicException() == null) {
@@ -558,10 +612,13 @@ public class InternalEngine extends Engine {
                 indexResult = innerIndexResult;
             }
             if (indexResult.hasFailure() == false) {
+                final long seqNo = index.origin() == Operation.Origin.PRIMARY ? localCheckpointTracker.generateSeqNo() : index.seqNo();
+                indexResult.setSeqNo(seqNo);
                 location = index.origin() != Operation.Origin.LOCAL_TRANSLOG_RECOVERY
                         ? translog.add(new Translog.Index(index, indexResult))
                         : null;
                 indexResult.setTranslogLocation(location);
+                markSeqNoAsCompleted(seqNo);
             }
             indexResult.setTook(System.nanoTime() - index.startTime());
             indexResult.freeze();
@@ -569,6 +626,20 @@ public class InternalEngine extends Engine {
         }
     }
 
+    /**
+     * Updates the numeric doc values, including the _version, of an existing document to the values of the given document. All other
+     * fields of the existing document are left untouched.
+     */
+    private static void updateDocValues(final Term uid, final ParseContext.Document doc, final IndexWriter indexWriter) throws IOException {
+        final List<Field> updates = new ArrayList<>();
+        for (IndexableField field : doc) {
+            if (field.fieldType().docValuesType() == DocValuesType.NUMERIC) {
+                updates.add((Field) field);
+            }
+        }
+        indexWriter.updateDocValues(uid, updates.toArray(new Field[updates.size()]));
+    }
+
     private static void index(final List<ParseContext.Document> docs, final IndexWriter indexWriter) throws IOException {
         if (docs.size() > 1) {
             indexWriter.addDocuments(docs);
@@ -636,7 +707,7 @@ public class InternalEngine extends Engine {
         final Translog.Location location;
         final long updatedVersion;
         final boolean found;
-        try (Releasable ignored = acquireLock(delete.uid())) {
+        try (Releasable ignored = acquireLockForVersionLookup(delete.uid())) {
             lastWriteNanos = delete.startTime();
             final long currentVersion;
             final boolean deleted;
@@ -670,10 +741,13 @@ public class InternalEngine extends Engine {
                     new DeleteVersionValue(updatedVersion, engineConfig.getThreadPool().relativeTimeInMillis()));
             }
             if (deleteResult.hasFailure() == false) {
+                final long seqNo = delete.origin() == Operation.Origin.PRIMARY ? localCheckpointTracker.generateSeqNo() : delete.seqNo();
+                deleteResult.setSeqNo(seqNo);
                 location = delete.origin() != Operation.Origin.LOCAL_TRANSLOG_RECOVERY
                         ? translog.add(new Translog.Delete(delete, deleteResult))
                         : null;
                 deleteResult.setTranslogLocation(location);
+                markSeqNoAsCompleted(seqNo);
             }
             deleteResult.setTook(System.nanoTime() - delete.startTime());
             deleteResult.freeze();
@@ -681,6 +755,16 @@ public class InternalEngine extends Engine {
         }
     }
 
+    /**
+     * Marks the operation as processed once it is in lucene and in the translog. Operations that were replicated or recovered from
+     * older nodes don't have sequence numbers.
+     */
+    private void markSeqNoAsCompleted(long seqNo) {
+        if (seqNo != SequenceNumbers.UNASSIGNED_SEQ_NO) {
+            localCheckpointTracker.markSeqNoAsCompleted(seqNo);
+        }
+    }
+
     private boolean deleteIfFound(Term uid, long currentVersion, boolean deleted, VersionValue versionValue) throws IOException {
         assert uid != null : "uid must not be null";
         final boolean found;
@@ -738,7 +822,7 @@ public class InternalEngine extends Engine {
             // TODO: it's not great that we secretly tie searcher visibility to "freeing up heap" here... really we should keep two
             // searcher managers, one for searching which is only refreshed by the schedule the user requested (refresh_interval, or invoking
             // refresh API), and another for version map interactions.  See #15768.
-            final long versionMapBytes = versionMap.ramBytesUsedForRefresh();
+            final long versionMapBytes = versionMap.ramBytesUsedForRefresh() + liveUidSet.ramBytesUsed();
             final long indexingBufferBytes = indexWriter.ramBytesUsed();
 
             final boolean useRefresh = versionMapRefreshPending.get() || (indexingBufferBytes/4 < versionMapBytes);
@@ -857,14 +941,24 @@ public class InternalEngine extends Engine {
                 if (indexWriter.hasUncommittedChanges() || force) {
                     ensureCanFlush();
                     try {
+                        // sync the translog before rolling it over, since the roll over blocks writes to the translog until
+                        // the current generation is synced. This way it only has to sync the operations that come in meanwhile
+                        translog.sync();
+                        long startTime = System.nanoTime();
                         translog.prepareCommit();
+                        flushBlockedTimeInNanos.inc(System.nanoTime() - startTime);
+                        // writes go to the new translog generation while the index writer commits
                         logger.trace("starting commit for flush; commitTranslog=true");
+                        startTime = System.nanoTime();
                         commitIndexWriter(indexWriter, translog, null);
+                        flushCommitTimeInNanos.inc(System.nanoTime() - startTime);
                         logger.trace("finished commit for flush");
                         // we need to refresh in order to clear older version values
                         refresh("version_table_flush");
                         // after refresh documents can be retrieved from the index so we can now commit the translog
+                        startTime = System.nanoTime();
                         translog.commit();
+                        flushBlockedTimeInNanos.inc(System.nanoTime() - startTime);
                     } catch (Exception e) {
                         throw new FlushFailedEngineException(shardId, e);
                     }
@@ -1078,7 +1172,7 @@ public class InternalEngine extends Engine {
 
     @Override
     protected final void writerSegmentStats(SegmentsStats stats) {
-        stats.addVersionMapMemoryInBytes(versionMap.ramBytesUsed());
+        stats.addVersionMapMemoryInBytes(versionMap.ramBytesUsed() + liveUidSet.ramBytesUsed());
         stats.addIndexWriterMemoryInBytes(indexWriter.ramBytesUsed());
         stats.updateMaxUnsafeAutoIdTimestamp(maxUnsafeAutoIdTimestamp.get());
     }
@@ -1086,7 +1180,7 @@ public class InternalEngine extends Engine {
     @Override
     public long getIndexBufferRAMBytesUsed() {
         // We don't guard w/ readLock here, so we could throw AlreadyClosedException
-        return indexWriter.ramBytesUsed() + versionMap.ramBytesUsedForRefresh();
+        return indexWriter.ramBytesUsed() + versionMap.ramBytesUsedForRefresh() + liveUidSet.ramBytesUsed();
     }
 
     @Override
@@ -1121,6 +1215,7 @@ public class InternalEngine extends Engine {
             assert rwl.isWriteLockedByCurrentThread() || failEngineLock.isHeldByCurrentThread() : "Either the write lock must be held or the engine must be currently be failing itself";
             try {
                 this.versionMap.clear();
+                this.liveUidSet.clear();
                 try {
                     IOUtils.close(searcherManager);
                 } catch (Exception e) {
@@ -1162,8 +1257,32 @@ public class InternalEngine extends Engine {
         return acquireLock(uid.bytes());
     }
 
+    /**
+     * Acquires the lock for this uid such that the version of a document with this uid can be loaded from the searcher if it is not
+     * tracked in the version map. If the document may have been added without being tracked in the version map, a refresh is needed
+     * first. It has to happen before the lock for the uid is acquired since a refresh prunes delete tombstones, which acquires the
+     * locks of other uids, so if the document was added concurrently after the refresh, the lock is released and we refresh again.
+     */
+    private Releasable acquireLockForVersionLookup(Term uid) {
+        if (optimizeAppendOnlyIds == false) {
+            return acquireLock(uid);
+        }
+        while (true) {
+            if (liveUidSet.mightContain(uid.bytes())) {
+                refresh("load_version");
+            }
+            final Releasable lock = acquireLock(uid);
+            if (liveUidSet.mightContain(uid.bytes()) == false) {
+                return lock;
+            }
+            lock.close();
+        }
+    }
+
     private long loadCurrentVersionFromIndex(Term uid) throws IOException {
         assert incrementIndexVersionLookup();
+        assert optimizeAppendOnlyIds == false || liveUidSet.mightContain(uid.bytes()) == false
+            : "uid may have been added after the last refresh";
         try (Searcher searcher = acquireSearcher("load_version")) {
             return Versions.loadVersion(searcher.reader(), uid);
         }
@@ -1264,6 +1383,16 @@ public class InternalEngine extends Engine {
         return throttle.getThrottleTimeInMillis();
     }
 
+    @Override
+    public long getFlushBlockedTimeInNanos() {
+        return flushBlockedTimeInNanos.count();
+    }
+
+    @Override
+    public long getFlushCommitTimeInNanos() {
+        return flushCommitTimeInNanos.count();
+    }
+
     long getGcDeletesInMillis() {
         return engineConfig.getIndexSettings().getGcDeletesInMillis();
     }
@@ -1272,6 +1401,34 @@ public class InternalEngine extends Engine {
         return indexWriter.getConfig();
     }
 
+    @Override
+    public LocalCheckpointTracker getLocalCheckpointTracker() {
+        return localCheckpointTracker;
+    }
+
+    @Override
+    public String getHistoryUUID() {
+        return historyUUID;
+    }
+
+    @Override
+    public void startNewHistory() {
+        // block operations so that no operation of the old history gets processed after the new history started
+        try (ReleasableLock lock = writeLock.acquire()) {
+            ensureOpen();
+            localCheckpointTracker.fillGaps();
+            historyStartSeqNo = Math.max(historyStartSeqNo, localCheckpointTracker.getMaxSeqNo());
+            historyUUID = UUIDs.randomBase64UUID();
+            logger.debug("started new history [{}] after seq no [{}]", historyUUID, historyStartSeqNo);
+        }
+    }
+
+    @Override
+    public boolean hasCompleteOperationHistory(long startingSeqNo) {
+        ensureOpen();
+        return startingSeqNo > historyStartSeqNo && startingSeqNo > translog.getMaxTrimmedSeqNo();
+    }
+
     private final class EngineMergeScheduler extends ElasticsearchConcurrentMergeScheduler {
         private final AtomicInteger numMergesInFlight = new AtomicInteger(0);
         private final AtomicBoolean isThrottling = new AtomicBoolean();
@@ -1350,10 +1507,17 @@ public class InternalEngine extends Engine {
         ensureCanFlush();
         try {
             Translog.TranslogGeneration translogGeneration = translog.getGeneration();
-            logger.trace("committing writer with translog id [{}]  and sync id [{}] ", translogGeneration.translogFileGeneration, syncId);
-            Map<String, String> commitData = new HashMap<>(2);
+            // read the checkpoint before the max seq no, so that the max seq no is never below it
+            final long localCheckpoint = localCheckpointTracker.getCheckpoint();
+            final long maxSeqNo = localCheckpointTracker.getMaxSeqNo();
+            logger.trace("committing writer with translog id [{}], local checkpoint [{}] and sync id [{}] ",
+                translogGeneration.translogFileGeneration, localCheckpoint, syncId);
+            Map<String, String> commitData = new HashMap<>(6);
             commitData.put(Translog.TRANSLOG_GENERATION_KEY, Long.toString(translogGeneration.translogFileGeneration));
             commitData.put(Translog.TRANSLOG_UUID_KEY, translogGeneration.translogUUID);
+            commitData.put(SequenceNumbers.LOCAL_CHECKPOINT_KEY, Long.toString(localCheckpoint));
+            commitData.put(SequenceNumbers.MAX_SEQ_NO, Long.toString(maxSeqNo));
+            commitData.put(HISTORY_UUID_KEY, historyUUID);
             if (syncId != null) {
                 commitData.put(Engine.SYNC_COMMIT_ID, syncId);
             }
@@ -0,0 +1,167 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import com.carrotsearch.hppc.LongHashSet;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.hash.MurmurHash3;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the _uid of new documents that were added to the index writer but may not be visible to the searcher yet. This is a
+ * lightweight alternative to the {@link LiveVersionMap} for indices whose documents are only ever created: only a 64 bit hash
+ * of each uid is kept, so a hit only means that the uid <i>may</i> have been added since the last refresh and has to be confirmed
+ * by refreshing and looking the uid up in the index.
+ */
+final class LiveUidSet implements ReferenceManager.RefreshListener, Accountable {
+
+    /** Number of independently locked hash sets, must be a power of two */
+    private static final int NUM_STRIPES = 16;
+
+    /**
+     * Approximate heap used per uid: a long per slot of an open addressing hash set that is resized at a load factor of 75%, so
+     * between 10.7 and 21.3 bytes per entry depending on how recently the set was resized.
+     */
+    static final long BYTES_PER_UID = 16;
+
+    private static final class Stripes {
+        private final LongHashSet[] sets = new LongHashSet[NUM_STRIPES];
+
+        Stripes() {
+            for (int i = 0; i < sets.length; i++) {
+                sets[i] = new LongHashSet();
+            }
+        }
+
+        private LongHashSet stripe(long hash) {
+            return sets[(int) (hash >>> 60) & (NUM_STRIPES - 1)];
+        }
+
+        boolean add(long hash) {
+            final LongHashSet set = stripe(hash);
+            synchronized (set) {
+                return set.add(hash);
+            }
+        }
+
+        boolean contains(long hash) {
+            final LongHashSet set = stripe(hash);
+            synchronized (set) {
+                return set.contains(hash);
+            }
+        }
+    }
+
+    private static class Sets {
+
+        // All adds go into here:
+        final Stripes current;
+
+        // Used while refresh is running, and to hold adds until refresh finishes. We read from both current and old on lookup:
+        final Stripes old;
+
+        Sets(Stripes current, Stripes old) {
+            this.current = current;
+            this.old = old;
+        }
+
+        Sets() {
+            this(new Stripes(), new Stripes());
+        }
+    }
+
+    private volatile Sets sets = new Sets();
+
+    private ReferenceManager<?> mgr;
+
+    /** Tracks bytes used by the current set, i.e. what is freed on refresh. */
+    private final AtomicLong ramBytesUsedCurrent = new AtomicLong();
+
+    /** Sync'd because we replace old mgr. */
+    synchronized void setManager(ReferenceManager<?> newMgr) {
+        if (mgr != null) {
+            mgr.removeListener(this);
+        }
+        mgr = newMgr;
+        // all adds are visible to a newly opened manager, see LiveVersionMap#setManager
+        sets = new Sets();
+        mgr.addListener(this);
+    }
+
+    @Override
+    public void beforeRefresh() throws IOException {
+        // same as LiveVersionMap: adds from now on go to a new set, lookups check both sets until the refresh finished
+        sets = new Sets(new Stripes(), sets.current);
+        ramBytesUsedCurrent.set(0);
+    }
+
+    @Override
+    public void afterRefresh(boolean didRefresh) throws IOException {
+        // everything in old is now visible through the newly opened searcher
+        sets = new Sets(sets.current, new Stripes());
+    }
+
+    /** Records that a document with this uid was added. The caller must hold the lock for this uid. */
+    void addUnderLock(BytesRef uid) {
+        if (sets.current.add(hash(uid))) {
+            ramBytesUsedCurrent.addAndGet(BYTES_PER_UID);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if a document with this uid may have been added since the last refresh. Unless the caller holds the
+     * lock for this uid, the document may be added concurrently right after this returned <code>false</code>.
+     */
+    boolean mightContain(BytesRef uid) {
+        final Sets currentSets = sets;
+        final long hash = hash(uid);
+        return currentSets.current.contains(hash) || currentSets.old.contains(hash);
+    }
+
+    private static long hash(BytesRef uid) {
+        return MurmurHash3.hash128(uid.bytes, uid.offset, uid.length, 0, new MurmurHash3.Hash128()).h1;
+    }
+
+    /** Called when this index is closed. */
+    synchronized void clear() {
+        sets = new Sets();
+        ramBytesUsedCurrent.set(0);
+        if (mgr != null) {
+            mgr.removeListener(this);
+            mgr = null;
+        }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsedCurrent.get();
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+}
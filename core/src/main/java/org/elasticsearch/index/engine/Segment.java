@@ -21,6 +21,7 @@ package org.elasticsearch.index.engine;
 
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -47,6 +48,9 @@ public class Segment implements Streamable {
     public String mergeId;
     public long memoryInBytes;
     public Accountable ramTree = null;
+    public String timestampField;
+    public long minTimestamp;
+    public long maxTimestamp;
 
     Segment() {
     }
@@ -113,6 +117,29 @@ public class Segment implements Streamable {
         return this.memoryInBytes;
     }
 
+    /**
+     * If set, the date field whose range of values in this segment is reported by {@link #getMinTimestamp()} and
+     * {@link #getMaxTimestamp()}. Only set for indices that use the <code>time_series</code> merge policy.
+     */
+    @Nullable
+    public String getTimestampField() {
+        return this.timestampField;
+    }
+
+    /**
+     * The minimum value of {@link #getTimestampField()} in this segment, in milliseconds since the epoch.
+     */
+    public long getMinTimestamp() {
+        return this.minTimestamp;
+    }
+
+    /**
+     * The maximum value of {@link #getTimestampField()} in this segment, in milliseconds since the epoch.
+     */
+    public long getMaxTimestamp() {
+        return this.maxTimestamp;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -153,6 +180,13 @@ public class Segment implements Streamable {
             // verbose mode
             ramTree = readRamTree(in);
         }
+        if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            timestampField = in.readOptionalString();
+            if (timestampField != null) {
+                minTimestamp = in.readLong();
+                maxTimestamp = in.readLong();
+            }
+        }
     }
 
     @Override
@@ -173,6 +207,13 @@ public class Segment implements Streamable {
         if (verbose) {
             writeRamTree(out, ramTree);
         }
+        if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            out.writeOptionalString(timestampField);
+            if (timestampField != null) {
+                out.writeLong(minTimestamp);
+                out.writeLong(maxTimestamp);
+            }
+        }
     }
 
     Accountable readRamTree(StreamInput in) throws IOException {
@@ -30,11 +30,14 @@ import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
+import org.elasticsearch.index.seqno.LocalCheckpointTracker;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.translog.Translog;
 
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 /**
@@ -258,6 +261,16 @@ public class ShadowEngine extends Engine {
         return false;
     }
 
+    @Override
+    public long getFlushBlockedTimeInNanos() {
+        return 0L;
+    }
+
+    @Override
+    public long getFlushCommitTimeInNanos() {
+        return 0L;
+    }
+
     @Override
     public long getIndexThrottleTimeInMillis() {
         return 0L;
@@ -267,4 +280,26 @@ public class ShadowEngine extends Engine {
     public Engine recoverFromTranslog() throws IOException {
         throw new UnsupportedOperationException("can't recover on a shadow engine");
     }
+
+    @Override
+    public LocalCheckpointTracker getLocalCheckpointTracker() {
+        // shadow engines don't process operations, they see what the primary committed to the shared filesystem
+        final Map<String, String> userData = lastCommittedSegmentInfos.getUserData();
+        return new LocalCheckpointTracker(SequenceNumbers.loadMaxSeqNo(userData), SequenceNumbers.loadLocalCheckpoint(userData));
+    }
+
+    @Override
+    public String getHistoryUUID() {
+        return lastCommittedSegmentInfos.getUserData().get(HISTORY_UUID_KEY);
+    }
+
+    @Override
+    public void startNewHistory() {
+        // the history is owned by the engine of the primary, which commits it to the shared filesystem
+    }
+
+    @Override
+    public boolean hasCompleteOperationHistory(long startingSeqNo) {
+        return false;
+    }
 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.flush;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -34,13 +35,23 @@ public class FlushStats implements Streamable, ToXContent {
 
     private long totalTimeInMillis;
 
+    private long blockedTimeInMillis;
+
+    private long commitTimeInMillis;
+
     public FlushStats() {
 
     }
 
     public FlushStats(long total, long totalTimeInMillis) {
+        this(total, totalTimeInMillis, 0, 0);
+    }
+
+    public FlushStats(long total, long totalTimeInMillis, long blockedTimeInMillis, long commitTimeInMillis) {
         this.total = total;
         this.totalTimeInMillis = totalTimeInMillis;
+        this.blockedTimeInMillis = blockedTimeInMillis;
+        this.commitTimeInMillis = commitTimeInMillis;
     }
 
     public void add(long total, long totalTimeInMillis) {
@@ -58,6 +69,8 @@ public class FlushStats implements Streamable, ToXContent {
         }
         this.total += flushStats.total;
         this.totalTimeInMillis += flushStats.totalTimeInMillis;
+        this.blockedTimeInMillis += flushStats.blockedTimeInMillis;
+        this.commitTimeInMillis += flushStats.commitTimeInMillis;
     }
 
     /**
@@ -81,11 +94,27 @@ public class FlushStats implements Streamable, ToXContent {
         return new TimeValue(totalTimeInMillis);
     }
 
+    /**
+     * The total time flushes blocked writes to the translog, while rolling it over to a new generation.
+     */
+    public TimeValue getBlockedTime() {
+        return new TimeValue(blockedTimeInMillis);
+    }
+
+    /**
+     * The total time flushes spent on committing the index, during which writes were not blocked.
+     */
+    public TimeValue getCommitTime() {
+        return new TimeValue(commitTimeInMillis);
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.FLUSH);
         builder.field(Fields.TOTAL, total);
         builder.timeValueField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, totalTimeInMillis);
+        builder.timeValueField(Fields.BLOCKED_TIME_IN_MILLIS, Fields.BLOCKED_TIME, blockedTimeInMillis);
+        builder.timeValueField(Fields.COMMIT_TIME_IN_MILLIS, Fields.COMMIT_TIME, commitTimeInMillis);
         builder.endObject();
         return builder;
     }
@@ -95,17 +124,29 @@ public class FlushStats implements Streamable, ToXContent {
         static final String TOTAL = "total";
         static final String TOTAL_TIME = "total_time";
         static final String TOTAL_TIME_IN_MILLIS = "total_time_in_millis";
+        static final String BLOCKED_TIME = "blocked_time";
+        static final String BLOCKED_TIME_IN_MILLIS = "blocked_time_in_millis";
+        static final String COMMIT_TIME = "commit_time";
+        static final String COMMIT_TIME_IN_MILLIS = "commit_time_in_millis";
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         total = in.readVLong();
         totalTimeInMillis = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            blockedTimeInMillis = in.readVLong();
+            commitTimeInMillis = in.readVLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(total);
         out.writeVLong(totalTimeInMillis);
+        if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            out.writeVLong(blockedTimeInMillis);
+            out.writeVLong(commitTimeInMillis);
+        }
     }
 }
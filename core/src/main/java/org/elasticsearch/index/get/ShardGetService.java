@@ -182,14 +182,16 @@ public final class ShardGetService extends AbstractIndexShardComponent {
         Map<String, GetField> fields = null;
         BytesReference source = null;
         Versions.DocIdAndVersion docIdAndVersion = get.docIdAndVersion();
+        DocumentMapper docMapper = mapperService.documentMapper(type);
         FieldsVisitor fieldVisitor = buildFieldsVisitors(gFields, fetchSourceContext);
         if (fieldVisitor != null) {
             try {
                 docIdAndVersion.context.reader().document(docIdAndVersion.docId, fieldVisitor);
+                source = docMapper.sourceWithInPlaceValues(docIdAndVersion.context.reader(), docIdAndVersion.docId,
+                    fieldVisitor.source());
             } catch (IOException e) {
                 throw new ElasticsearchException("Failed to get type [" + type + "] and id [" + id + "]", e);
             }
-            source = fieldVisitor.source();
 
             if (!fieldVisitor.fields().isEmpty()) {
                 fieldVisitor.postProcess(mapperService);
@@ -200,7 +202,6 @@ public final class ShardGetService extends AbstractIndexShardComponent {
             }
         }
 
-        DocumentMapper docMapper = mapperService.documentMapper(type);
         if (docMapper.parentFieldMapper().active()) {
             String parentId = ParentFieldSubFetchPhase.getParentId(docMapper.parentFieldMapper(), docIdAndVersion.context.reader(), docIdAndVersion.docId);
             if (fields == null) {
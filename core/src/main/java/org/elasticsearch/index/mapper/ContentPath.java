@@ -58,6 +58,23 @@ public final class ContentPath {
         path[index--] = null;
     }
 
+    /**
+     * Clears all path elements so that this instance can be reused for another document.
+     */
+    public void reset() {
+        for (int i = 0; i < index; i++) {
+            path[i] = null;
+        }
+        index = 0;
+    }
+
+    /**
+     * Return the number of path elements that would be included in {@link #pathAsText(String)}.
+     */
+    public int length() {
+        return index - offset;
+    }
+
     public String pathAsText(String name) {
         sb.setLength(0);
         for (int i = offset; i < index; i++) {
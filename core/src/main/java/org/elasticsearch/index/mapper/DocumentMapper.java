@@ -19,18 +19,23 @@
 
 package org.elasticsearch.index.mapper;
 
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
 import org.elasticsearch.ElasticsearchGenerationException;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.analysis.IndexAnalyzers;
@@ -126,6 +131,8 @@ public class DocumentMapper implements ToXContent {
 
     private final boolean hasNestedObjects;
 
+    private final List<String> inPlaceFields;
+
     public DocumentMapper(MapperService mapperService, Mapping mapping) {
         this.mapperService = mapperService;
         this.type = mapping.root().name();
@@ -172,6 +179,15 @@ public class DocumentMapper implements ToXContent {
         }
         this.hasNestedObjects = hasNestedObjects;
 
+        List<String> inPlaceFields = new ArrayList<>();
+        for (FieldMapper fieldMapper : newFieldMappers) {
+            if (fieldMapper.fieldType() instanceof NumberFieldMapper.NumberFieldType
+                    && ((NumberFieldMapper.NumberFieldType) fieldMapper.fieldType()).inPlaceUpdates()) {
+                inPlaceFields.add(fieldMapper.name());
+            }
+        }
+        this.inPlaceFields = Collections.unmodifiableList(inPlaceFields);
+
         try {
             mappingSource = new CompressedXContent(this, XContentType.JSON, ToXContent.EMPTY_PARAMS);
         } catch (Exception e) {
@@ -260,6 +276,49 @@ public class DocumentMapper implements ToXContent {
         return hasNestedObjects;
     }
 
+    /**
+     * Returns the names of the fields that are mapped with {@code in_place_updates}.
+     */
+    public List<String> inPlaceFields() {
+        return inPlaceFields;
+    }
+
+    /**
+     * Adds the current doc values of the fields that are mapped with {@code in_place_updates} to the given _source of a
+     * document of this type. These fields are excluded from the stored _source because in place updates only change their doc
+     * values, so without this a GET or a search hit would lose them. Returns the given source if there is nothing to add.
+     */
+    @SuppressWarnings("unchecked")
+    public BytesReference sourceWithInPlaceValues(LeafReader reader, int docId, BytesReference source) throws IOException {
+        if (inPlaceFields.isEmpty() || source == null) {
+            return source;
+        }
+        Tuple<XContentType, Map<String, Object>> typeAndSource = null;
+        for (String field : inPlaceFields) {
+            final NumericDocValues values = reader.getNumericDocValues(field);
+            final Bits docsWithField = reader.getDocsWithField(field);
+            if (values == null || docsWithField == null || docsWithField.get(docId) == false) {
+                continue;
+            }
+            if (typeAndSource == null) {
+                typeAndSource = XContentHelper.convertToMap(source, true);
+            }
+            final String[] parts = field.split("\\.");
+            Map<String, Object> current = typeAndSource.v2();
+            for (int i = 0; i < parts.length - 1 && current != null; i++) {
+                final Object child = current.computeIfAbsent(parts[i], k -> new LinkedHashMap<String, Object>());
+                current = child instanceof Map ? (Map<String, Object>) child : null;
+            }
+            if (current != null) {
+                current.put(parts[parts.length - 1], values.get(docId));
+            }
+        }
+        if (typeAndSource == null) {
+            return source;
+        }
+        return XContentFactory.contentBuilder(typeAndSource.v1()).map(typeAndSource.v2()).bytes();
+    }
+
     public DocumentFieldMappers mappers() {
         return this.fieldMappers;
     }
@@ -21,6 +21,7 @@ package org.elasticsearch.index.mapper;
 
 import org.apache.lucene.document.Field;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.util.CloseableThreadLocal;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.Tuple;
@@ -47,6 +48,8 @@ final class DocumentParser {
     private final IndexSettings indexSettings;
     private final DocumentMapperParser docMapperParser;
     private final DocumentMapper docMapper;
+    /** Per-thread parse context, recycled between documents to reduce allocations on the indexing path */
+    private final CloseableThreadLocal<ParseContext.InternalParseContext> cache = new CloseableThreadLocal<>();
 
     DocumentParser(IndexSettings indexSettings, DocumentMapperParser docMapperParser, DocumentMapper docMapper) {
         this.indexSettings = indexSettings;
@@ -58,25 +61,47 @@ final class DocumentParser {
         validateType(source);
 
         final Mapping mapping = docMapper.mapping();
-        final ParseContext.InternalParseContext context;
-        try (XContentParser parser = XContentHelper.createParser(docMapperParser.getXContentRegistry(), source.source())) {
-            context = new ParseContext.InternalParseContext(indexSettings.getSettings(),
-                    docMapperParser, docMapper, source, parser);
-            validateStart(parser);
-            internalParseDocument(mapping, context, parser);
-            validateEnd(parser);
-        } catch (Exception e) {
-            throw wrapInMapperParsingException(source, e);
-        }
-        String remainingPath = context.path().pathAsText("");
-        if (remainingPath.isEmpty() == false) {
-            throw new IllegalStateException("found leftover path elements: " + remainingPath);
-        }
+        ParseContext.InternalParseContext context = null;
+        try {
+            try (XContentParser parser = XContentHelper.createParser(docMapperParser.getXContentRegistry(), source.source())) {
+                context = acquireContext(source, parser);
+                validateStart(parser);
+                internalParseDocument(mapping, context, parser);
+                validateEnd(parser);
+            } catch (Exception e) {
+                throw wrapInMapperParsingException(source, e);
+            }
+            String remainingPath = context.path().pathAsText("");
+            if (remainingPath.isEmpty() == false) {
+                throw new IllegalStateException("found leftover path elements: " + remainingPath);
+            }
 
-        reverseOrder(context);
+            reverseOrder(context);
 
-        ParsedDocument doc = parsedDocument(source, context, createDynamicUpdate(mapping, docMapper, context.getDynamicMappers()));
-        return doc;
+            ParsedDocument doc = parsedDocument(source, context, createDynamicUpdate(mapping, docMapper, context.getDynamicMappers()));
+            return doc;
+        } finally {
+            if (context != null) {
+                context.reset(null, null);
+            }
+        }
+    }
+
+    /**
+     * Returns the parse context of the current thread, reset for parsing the given source. A fresh context is
+     * returned if the cached one is already in use further up the stack.
+     */
+    private ParseContext.InternalParseContext acquireContext(SourceToParse source, XContentParser parser) {
+        ParseContext.InternalParseContext context = cache.get();
+        if (context == null) {
+            context = new ParseContext.InternalParseContext(indexSettings.getSettings(), docMapperParser, docMapper, source, parser);
+            cache.set(context);
+        } else if (context.sourceToParse() != null) {
+            context = new ParseContext.InternalParseContext(indexSettings.getSettings(), docMapperParser, docMapper, source, parser);
+        } else {
+            context.reset(source, parser);
+        }
+        return context;
     }
 
     private static void internalParseDocument(Mapping mapping, ParseContext.InternalParseContext context, XContentParser parser) throws IOException {
@@ -385,7 +410,9 @@ final class DocumentParser {
                 parseArray(context, mapper, currentFieldName);
             } else if (token == XContentParser.Token.FIELD_NAME) {
                 currentFieldName = parser.currentName();
-                if (MapperService.isMetadataField(context.path().pathAsText(currentFieldName))) {
+                // metadata field names never contain dots, so only fields at the root can clash with them,
+                // which saves building the full path for every field
+                if (context.path().length() == 0 && MapperService.isMetadataField(currentFieldName)) {
                     throw new MapperParsingException("Field [" + currentFieldName + "] is a metadata field and cannot be added inside a document. Use the index API request parameters.");
                 }
             } else if (token == XContentParser.Token.VALUE_NULL) {
@@ -686,7 +713,7 @@ final class DocumentParser {
                 if (Strings.countOccurrencesOf(text, ":") > 1 || Strings.countOccurrencesOf(text, "-") > 1 || Strings.countOccurrencesOf(text, "/") > 1) {
                     for (FormatDateTimeFormatter dateTimeFormatter : context.root().dynamicDateTimeFormatters()) {
                         try {
-                            dateTimeFormatter.parser().parseMillis(text);
+                            dateTimeFormatter.parseMillis(text);
                             Mapper.Builder builder = context.root().findTemplateBuilder(context, currentFieldName, XContentFieldType.DATE);
                             if (builder == null) {
                                 builder = newDateBuilder(currentFieldName, dateTimeFormatter, Version.indexCreated(context.indexSettings()));
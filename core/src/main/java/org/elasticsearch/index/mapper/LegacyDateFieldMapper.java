@@ -262,13 +262,13 @@ public class LegacyDateFieldMapper extends LegacyNumberFieldMapper {
                 return ((Number) value).longValue();
             }
             if (value instanceof BytesRef) {
-                return dateTimeFormatter().parser().parseMillis(((BytesRef) value).utf8ToString());
+                return dateTimeFormatter().parseMillis(((BytesRef) value).utf8ToString());
             }
-            return dateTimeFormatter().parser().parseMillis(value.toString());
+            return dateTimeFormatter().parseMillis(value.toString());
         }
 
         protected long parseStringValue(String value) {
-            return dateTimeFormatter().parser().parseMillis(value);
+            return dateTimeFormatter().parseMillis(value);
         }
 
         @Override
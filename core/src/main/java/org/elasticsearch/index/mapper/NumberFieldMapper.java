@@ -25,6 +25,7 @@ import org.apache.lucene.document.FloatPoint;
 import org.apache.lucene.document.HalfFloatPoint;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.index.FieldInfo;
@@ -100,6 +101,16 @@ public class NumberFieldMapper extends FieldMapper {
             return builder;
         }
 
+        public Builder inPlaceUpdates(boolean inPlaceUpdates) {
+            fieldType().setInPlaceUpdates(inPlaceUpdates);
+            return builder;
+        }
+
+        @Override
+        public NumberFieldType fieldType() {
+            return (NumberFieldType) super.fieldType();
+        }
+
         protected Explicit<Boolean> coerce(BuilderContext context) {
             if (coerce != null) {
                 return new Explicit<>(coerce, true);
@@ -170,12 +181,37 @@ public class NumberFieldMapper extends FieldMapper {
                 } else if (propName.equals("coerce")) {
                     builder.coerce(TypeParsers.nodeBooleanValue(name, "coerce", propNode));
                     iterator.remove();
+                } else if (propName.equals("in_place_updates")) {
+                    builder.inPlaceUpdates(TypeParsers.nodeBooleanValue(name, "in_place_updates", propNode));
+                    iterator.remove();
                 }
             }
+            if (builder.fieldType().inPlaceUpdates()) {
+                validateInPlaceUpdates(name, builder);
+            }
             return builder;
         }
     }
 
+    private static void validateInPlaceUpdates(String name, Builder builder) {
+        final NumberType type = builder.fieldType().type;
+        if (type != NumberType.BYTE && type != NumberType.SHORT && type != NumberType.INTEGER && type != NumberType.LONG) {
+            throw new MapperParsingException("[in_place_updates] is only supported on fields of type [byte], [short], [integer] or "
+                + "[long], but field [" + name + "] is of type [" + type.typeName() + "]");
+        }
+        final MappedFieldType fieldType = builder.fieldType();
+        if (fieldType.indexOptions() != IndexOptions.NONE || fieldType.stored() || fieldType.hasDocValues() == false) {
+            throw new MapperParsingException("[in_place_updates] requires [index] and [store] to be false and [doc_values] to be "
+                + "true on field [" + name + "]");
+        }
+        if (builder.copyTo != null && builder.copyTo.copyToFields().isEmpty() == false) {
+            throw new MapperParsingException("[in_place_updates] can't be combined with [copy_to] on field [" + name + "]");
+        }
+        if (Boolean.TRUE.equals(builder.includeInAll)) {
+            throw new MapperParsingException("[in_place_updates] can't be combined with [include_in_all] on field [" + name + "]");
+        }
+    }
+
     public enum NumberType {
         HALF_FLOAT("half_float", NumericType.HALF_FLOAT) {
             @Override
@@ -874,6 +910,7 @@ public class NumberFieldMapper extends FieldMapper {
     public static final class NumberFieldType extends MappedFieldType {
 
         NumberType type;
+        private boolean inPlaceUpdates;
 
         public NumberFieldType(NumberType type) {
             super();
@@ -886,6 +923,7 @@ public class NumberFieldMapper extends FieldMapper {
         NumberFieldType(NumberFieldType other) {
             super(other);
             this.type = other.type;
+            this.inPlaceUpdates = other.inPlaceUpdates;
         }
 
         @Override
@@ -898,6 +936,41 @@ public class NumberFieldMapper extends FieldMapper {
             return type.name;
         }
 
+        /**
+         * Whether values of this field are indexed as single-valued numeric doc values, which can be updated without
+         * reindexing the document.
+         */
+        public boolean inPlaceUpdates() {
+            return inPlaceUpdates;
+        }
+
+        public void setInPlaceUpdates(boolean inPlaceUpdates) {
+            checkIfFrozen();
+            this.inPlaceUpdates = inPlaceUpdates;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (super.equals(o) == false) {
+                return false;
+            }
+            NumberFieldType that = (NumberFieldType) o;
+            return inPlaceUpdates == that.inPlaceUpdates;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), inPlaceUpdates);
+        }
+
+        @Override
+        public void checkCompatibility(MappedFieldType other, List<String> conflicts, boolean strict) {
+            super.checkCompatibility(other, conflicts, strict);
+            if (inPlaceUpdates != ((NumberFieldType) other).inPlaceUpdates) {
+                conflicts.add("mapper [" + name() + "] has different [in_place_updates] values");
+            }
+        }
+
         @Override
         public Query termQuery(Object value, QueryShardContext context) {
             failIfNotIndexed();
@@ -1046,6 +1119,11 @@ public class NumberFieldMapper extends FieldMapper {
             context.allEntries().addText(fieldType().name(), value.toString(), fieldType().boost());
         }
 
+        if (fieldType().inPlaceUpdates()) {
+            // unlike sorted numeric doc values, numeric doc values can be updated in place
+            fields.add(new NumericDocValuesField(fieldType().name(), numericValue.longValue()));
+            return;
+        }
         boolean indexed = fieldType().indexOptions() != IndexOptions.NONE;
         boolean docValued = fieldType().hasDocValues();
         boolean stored = fieldType().stored();
@@ -1075,6 +1153,9 @@ public class NumberFieldMapper extends FieldMapper {
         if (includeDefaults || coerce.explicit()) {
             builder.field("coerce", coerce.value());
         }
+        if (includeDefaults || fieldType().inPlaceUpdates()) {
+            builder.field("in_place_updates", fieldType().inPlaceUpdates());
+        }
 
         if (includeDefaults || fieldType().nullValue() != null) {
             builder.field("null_value", fieldType().nullValue());
@@ -287,20 +287,20 @@ public abstract class ParseContext {
 
         private final ContentPath path;
 
-        private final XContentParser parser;
+        private XContentParser parser;
 
         private Document document;
 
-        private final List<Document> documents;
+        private List<Document> documents;
 
         @Nullable
         private final Settings indexSettings;
 
-        private final SourceToParse sourceToParse;
+        private SourceToParse sourceToParse;
 
         private Field version;
 
-        private final AllEntries allEntries;
+        private AllEntries allEntries;
 
         private final List<Mapper> dynamicMappers;
 
@@ -310,14 +310,32 @@ public abstract class ParseContext {
             this.docMapper = docMapper;
             this.docMapperParser = docMapperParser;
             this.path = new ContentPath(0);
+            this.dynamicMappers = new ArrayList<>();
+            reset(source, parser);
+        }
+
+        /**
+         * Prepares this context for parsing another document. The path and the list of dynamic mappers are
+         * only needed while parsing and are recycled, while everything that ends up in the
+         * {@link ParsedDocument} (documents, _all entries) is created fresh for every document.
+         */
+        void reset(SourceToParse source, XContentParser parser) {
             this.parser = parser;
-            this.document = new Document();
-            this.documents = new ArrayList<>();
-            this.documents.add(document);
-            this.version = null;
             this.sourceToParse = source;
-            this.allEntries = new AllEntries();
-            this.dynamicMappers = new ArrayList<>();
+            this.path.reset();
+            this.dynamicMappers.clear();
+            this.version = null;
+            if (source == null) {
+                // release references to the previous document so that they can be garbage collected
+                this.document = null;
+                this.documents = null;
+                this.allEntries = null;
+            } else {
+                this.document = new Document();
+                this.documents = new ArrayList<>();
+                this.documents.add(document);
+                this.allEntries = new AllEntries();
+            }
         }
 
         @Override
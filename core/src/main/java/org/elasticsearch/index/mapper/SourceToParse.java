@@ -60,6 +60,8 @@ public class SourceToParse {
 
     private XContentType xContentType;
 
+    private boolean inPlace;
+
     private SourceToParse(Origin origin, String index, String type, String id, BytesReference source, XContentType xContentType) {
         this.origin = Objects.requireNonNull(origin);
         this.index = Objects.requireNonNull(index);
@@ -113,6 +115,19 @@ public class SourceToParse {
         return this;
     }
 
+    /**
+     * Whether the source only holds new values for fields that support in place updates, which should be applied to the existing
+     * document instead of replacing it.
+     */
+    public boolean inPlace() {
+        return this.inPlace;
+    }
+
+    public SourceToParse inPlace(boolean inPlace) {
+        this.inPlace = inPlace;
+        return this;
+    }
+
     public long timestamp() {
         return this.timestamp;
     }
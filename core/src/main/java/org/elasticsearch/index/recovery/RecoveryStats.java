@@ -18,12 +18,15 @@
  */
 package org.elasticsearch.index.recovery;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.indices.recovery.RecoveryThrottleStats;
 
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -38,6 +41,9 @@ public class RecoveryStats implements ToXContent, Streamable {
     private final AtomicInteger currentAsSource = new AtomicInteger();
     private final AtomicInteger currentAsTarget = new AtomicInteger();
     private final AtomicLong throttleTimeInNanos = new AtomicLong();
+    // only set on the node level, as the throughput that adaptive throttling chose applies to all recoveries of a node
+    @Nullable
+    private volatile RecoveryThrottleStats adaptiveThrottleStats;
 
     public RecoveryStats() {
     }
@@ -97,12 +103,28 @@ public class RecoveryStats implements ToXContent, Streamable {
         throttleTimeInNanos.addAndGet(nanos);
     }
 
+    /**
+     * Statistics of the adaptive throttling of recoveries of the node, or <code>null</code> if these are not node level statistics
+     * or adaptive throttling is disabled
+     */
+    @Nullable
+    public RecoveryThrottleStats getAdaptiveThrottleStats() {
+        return adaptiveThrottleStats;
+    }
+
+    public void setAdaptiveThrottleStats(@Nullable RecoveryThrottleStats adaptiveThrottleStats) {
+        this.adaptiveThrottleStats = adaptiveThrottleStats;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.RECOVERY);
         builder.field(Fields.CURRENT_AS_SOURCE, currentAsSource());
         builder.field(Fields.CURRENT_AS_TARGET, currentAsTarget());
         builder.timeValueField(Fields.THROTTLE_TIME_IN_MILLIS, Fields.THROTTLE_TIME, throttleTime());
+        if (adaptiveThrottleStats != null) {
+            adaptiveThrottleStats.toXContent(builder, params);
+        }
         builder.endObject();
         return builder;
     }
@@ -126,6 +148,9 @@ public class RecoveryStats implements ToXContent, Streamable {
         currentAsSource.set(in.readVInt());
         currentAsTarget.set(in.readVInt());
         throttleTimeInNanos.set(in.readLong());
+        if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            adaptiveThrottleStats = in.readOptionalWriteable(RecoveryThrottleStats::new);
+        }
     }
 
     @Override
@@ -133,6 +158,9 @@ public class RecoveryStats implements ToXContent, Streamable {
         out.writeVInt(currentAsSource.get());
         out.writeVInt(currentAsTarget.get());
         out.writeLong(throttleTimeInNanos.get());
+        if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            out.writeOptionalWriteable(adaptiveThrottleStats);
+        }
     }
 
     @Override
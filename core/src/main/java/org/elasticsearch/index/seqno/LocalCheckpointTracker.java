@@ -0,0 +1,138 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.seqno;
+
+import com.carrotsearch.hppc.LongObjectHashMap;
+import org.apache.lucene.util.FixedBitSet;
+
+/**
+ * Generates sequence numbers on primaries and tracks the local checkpoint of a shard copy, which is the highest sequence number
+ * up to which all operations have been processed. Operations are processed concurrently and may complete out of order, so the
+ * completed sequence numbers above the checkpoint are kept in bit sets of {@link #BIT_SET_SIZE} sequence numbers each, which are
+ * dropped as the checkpoint moves past them.
+ */
+public class LocalCheckpointTracker {
+
+    /**
+     * The number of sequence numbers per bit set.
+     */
+    static final int BIT_SET_SIZE = 1024;
+
+    /**
+     * The completed sequence numbers above the checkpoint, keyed by sequence number divided by {@link #BIT_SET_SIZE}.
+     */
+    final LongObjectHashMap<FixedBitSet> processedSeqNo = new LongObjectHashMap<>();
+
+    private volatile long checkpoint;
+
+    private volatile long nextSeqNo;
+
+    /**
+     * Creates a tracker that continues from the given maximum sequence number and local checkpoint, typically those of the last
+     * commit. Use {@link SequenceNumbers#NO_OPS_PERFORMED} for both if no operations were processed yet.
+     */
+    public LocalCheckpointTracker(long maxSeqNo, long localCheckpoint) {
+        if (localCheckpoint < SequenceNumbers.NO_OPS_PERFORMED) {
+            throw new IllegalArgumentException("local checkpoint must be non-negative or [" + SequenceNumbers.NO_OPS_PERFORMED + "] "
+                + "but was [" + localCheckpoint + "]");
+        }
+        if (maxSeqNo < localCheckpoint) {
+            throw new IllegalArgumentException("max seq no [" + maxSeqNo + "] must be at least the local checkpoint ["
+                + localCheckpoint + "]");
+        }
+        this.checkpoint = localCheckpoint;
+        this.nextSeqNo = maxSeqNo + 1;
+    }
+
+    /**
+     * Issues the next sequence number. Only primaries generate sequence numbers.
+     */
+    public synchronized long generateSeqNo() {
+        return nextSeqNo++;
+    }
+
+    /**
+     * Marks the operation with the given sequence number as processed, and advances the checkpoint if all operations up to it
+     * are processed now. Operations at or below the checkpoint, that are replayed during recovery, are ignored.
+     */
+    public synchronized void markSeqNoAsCompleted(long seqNo) {
+        if (seqNo < 0) {
+            throw new IllegalArgumentException("can't mark unassigned seq no [" + seqNo + "] as completed");
+        }
+        // replicas don't generate sequence numbers but have to keep track of the highest one so they can take over as primaries
+        if (seqNo >= nextSeqNo) {
+            nextSeqNo = seqNo + 1;
+        }
+        if (seqNo <= checkpoint) {
+            return;
+        }
+        final long bitSetKey = seqNo / BIT_SET_SIZE;
+        FixedBitSet bitSet = processedSeqNo.get(bitSetKey);
+        if (bitSet == null) {
+            bitSet = new FixedBitSet(BIT_SET_SIZE);
+            processedSeqNo.put(bitSetKey, bitSet);
+        }
+        bitSet.set((int) (seqNo % BIT_SET_SIZE));
+        if (seqNo == checkpoint + 1) {
+            updateCheckpoint();
+        }
+    }
+
+    /**
+     * Moves the checkpoint past all contiguous completed sequence numbers and drops the bit sets that it moved past.
+     */
+    private void updateCheckpoint() {
+        assert Thread.holdsLock(this);
+        long next = checkpoint + 1;
+        FixedBitSet bitSet = processedSeqNo.get(next / BIT_SET_SIZE);
+        while (bitSet != null && bitSet.get((int) (next % BIT_SET_SIZE))) {
+            checkpoint = next;
+            if (next % BIT_SET_SIZE == BIT_SET_SIZE - 1) {
+                processedSeqNo.remove(next / BIT_SET_SIZE);
+            }
+            next++;
+            bitSet = processedSeqNo.get(next / BIT_SET_SIZE);
+        }
+    }
+
+    /**
+     * Considers all sequence numbers that were issued or seen so far as processed, which leaves no gaps below the maximum
+     * sequence number. This is only correct when the operations that were never processed can't be delivered anymore, for instance
+     * when a shard copy starts a new history of operations.
+     */
+    public synchronized void fillGaps() {
+        checkpoint = nextSeqNo - 1;
+        processedSeqNo.clear();
+    }
+
+    /**
+     * Returns the highest sequence number up to which all operations have been processed.
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Returns the highest sequence number that was issued or seen.
+     */
+    public long getMaxSeqNo() {
+        return nextSeqNo - 1;
+    }
+}
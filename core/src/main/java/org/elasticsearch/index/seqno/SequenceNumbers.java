@@ -0,0 +1,74 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.seqno;
+
+import java.util.Map;
+
+/**
+ * Constants and helpers for the sequence numbers that primaries assign to every index and delete operation. Sequence numbers
+ * increase by one with every operation of a shard and are recorded in the translog, so that a shard copy that knows up to which
+ * sequence number it has processed all operations can catch up by replaying only the operations that follow.
+ */
+public final class SequenceNumbers {
+
+    /**
+     * The sequence number of operations that were not assigned one, like operations of older translogs and nodes.
+     */
+    public static final long UNASSIGNED_SEQ_NO = -2L;
+
+    /**
+     * The local checkpoint and maximum sequence number of a shard that hasn't processed any operations yet.
+     */
+    public static final long NO_OPS_PERFORMED = -1L;
+
+    /**
+     * The key of the local checkpoint in the user data of a Lucene commit.
+     */
+    public static final String LOCAL_CHECKPOINT_KEY = "local_checkpoint";
+
+    /**
+     * The key of the maximum sequence number in the user data of a Lucene commit.
+     */
+    public static final String MAX_SEQ_NO = "max_seq_no";
+
+    private SequenceNumbers() {
+    }
+
+    /**
+     * Reads the local checkpoint from the user data of a Lucene commit, or returns {@link #NO_OPS_PERFORMED} for commits that
+     * don't have one.
+     */
+    public static long loadLocalCheckpoint(Map<String, String> commitUserData) {
+        return load(commitUserData, LOCAL_CHECKPOINT_KEY);
+    }
+
+    /**
+     * Reads the maximum sequence number from the user data of a Lucene commit, or returns {@link #NO_OPS_PERFORMED} for commits
+     * that don't have one.
+     */
+    public static long loadMaxSeqNo(Map<String, String> commitUserData) {
+        return load(commitUserData, MAX_SEQ_NO);
+    }
+
+    private static long load(Map<String, String> commitUserData, String key) {
+        final String value = commitUserData.get(key);
+        return value == null ? NO_OPS_PERFORMED : Long.parseLong(value);
+    }
+}
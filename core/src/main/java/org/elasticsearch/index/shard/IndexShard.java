@@ -101,11 +101,13 @@ import org.elasticsearch.index.recovery.RecoveryStats;
 import org.elasticsearch.index.refresh.RefreshStats;
 import org.elasticsearch.index.search.stats.SearchStats;
 import org.elasticsearch.index.search.stats.ShardSearchStats;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.Store.MetadataSnapshot;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.store.StoreStats;
+import org.elasticsearch.index.store.snapshot.SearchableSnapshotDirectory;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogConfig;
 import org.elasticsearch.index.translog.TranslogStats;
@@ -178,6 +180,12 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
      * being indexed/deleted.
      */
     private final AtomicLong writingBytes = new AtomicLong();
+    /**
+     * The write load of this shard in bytes per second and its share of the node's indexing buffer, as last computed by
+     * {@link IndexingMemoryController}.
+     */
+    private volatile long writeLoadBytesPerSecond;
+    private volatile double indexBufferShare;
     private final SearchOperationListener searchOperationListener;
 
     protected volatile ShardRouting shardRouting;
@@ -223,6 +231,14 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
      */
     @Nullable
     private final RefreshListeners refreshListeners;
+    /**
+     * The relative time in millis at which this shard was last searched, see {@link #isSearchIdle()}.
+     */
+    private final AtomicLong lastSearcherAccess = new AtomicLong();
+    /**
+     * True if a scheduled refresh was skipped because this shard is search idle, so that the next search refreshes it first.
+     */
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
 
     public IndexShard(ShardRouting shardRouting, IndexSettings indexSettings, ShardPath path, Store store, IndexCache indexCache,
                       MapperService mapperService, SimilarityService similarityService, IndexFieldDataService indexFieldDataService,
@@ -242,6 +258,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         this.store = store;
         this.indexEventListener = indexEventListener;
         this.threadPool = threadPool;
+        this.lastSearcherAccess.set(threadPool.relativeTimeInMillis());
         this.mapperService = mapperService;
         this.indexCache = indexCache;
         this.internalIndexingStats = new InternalIndexingStats();
@@ -287,6 +304,13 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return this.store;
     }
 
+    /**
+     * Returns the thread pool of the node that holds this shard.
+     */
+    public ThreadPool getThreadPool() {
+        return this.threadPool;
+    }
+
     /**
      * returns true if this shard supports indexing (i.e., write) operations.
      */
@@ -417,6 +441,13 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             this.shardRouting = newRouting;
             persistMetadata(newRouting, currentRouting);
         }
+        if (currentRouting != null && currentRouting.primary() == false && newRouting.primary()) {
+            // the promoted replica may have missed operations that other replicas processed, so they can't catch up with it
+            final Engine engine = getEngineOrNull();
+            if (engine != null) {
+                engine.startNewHistory();
+            }
+        }
         if (currentRouting != null && currentRouting.active() == false && newRouting.active()) {
             indexEventListener.afterIndexShardStarted(this);
         }
@@ -507,28 +538,29 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                                               boolean isRetry) {
         try {
             verifyPrimary();
-            return prepareIndex(docMapper(source.type()), source, version, versionType, Engine.Operation.Origin.PRIMARY,
-                autoGeneratedIdTimestamp, isRetry);
+            return prepareIndex(docMapper(source.type()), source, SequenceNumbers.UNASSIGNED_SEQ_NO, version, versionType,
+                Engine.Operation.Origin.PRIMARY, autoGeneratedIdTimestamp, isRetry);
         } catch (Exception e) {
             verifyNotClosed(e);
             throw e;
         }
     }
 
-    public Engine.Index prepareIndexOnReplica(SourceToParse source, long version, VersionType versionType, long autoGeneratedIdTimestamp,
-                                              boolean isRetry) {
+    public Engine.Index prepareIndexOnReplica(SourceToParse source, long seqNo, long version, VersionType versionType,
+                                              long autoGeneratedIdTimestamp, boolean isRetry) {
         try {
             verifyReplicationTarget();
-            return prepareIndex(docMapper(source.type()), source, version, versionType, Engine.Operation.Origin.REPLICA, autoGeneratedIdTimestamp,
-                isRetry);
+            return prepareIndex(docMapper(source.type()), source, seqNo, version, versionType, Engine.Operation.Origin.REPLICA,
+                autoGeneratedIdTimestamp, isRetry);
         } catch (Exception e) {
             verifyNotClosed(e);
             throw e;
         }
     }
 
-    static Engine.Index prepareIndex(DocumentMapperForType docMapper, SourceToParse source, long version, VersionType versionType,
-                                     Engine.Operation.Origin origin, long autoGeneratedIdTimestamp, boolean isRetry) {
+    static Engine.Index prepareIndex(DocumentMapperForType docMapper, SourceToParse source, long seqNo, long version,
+                                     VersionType versionType, Engine.Operation.Origin origin, long autoGeneratedIdTimestamp,
+                                     boolean isRetry) {
         System.out.println(LocalDateTime.now() + " IndexShard -> prepareIndex n532 ");
         long startTime = System.nanoTime();
         ParsedDocument doc = docMapper.getDocumentMapper().parse(source);
@@ -538,7 +570,20 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         MappedFieldType uidFieldType = docMapper.getDocumentMapper().uidMapper().fieldType();
         Query uidQuery = uidFieldType.termQuery(doc.uid(), null);
         Term uid = MappedFieldType.extractTerm(uidQuery);
-        return new Engine.Index(uid, doc, version, versionType, origin, startTime, autoGeneratedIdTimestamp, isRetry);
+        if (source.inPlace()) {
+            // replicas and recoveries wait for the mapping of the primary instead
+            if (origin == Engine.Operation.Origin.PRIMARY && doc.dynamicMappingsUpdate() != null) {
+                throw new IllegalArgumentException("in_place updates can't introduce new fields, mapping update: "
+                    + doc.dynamicMappingsUpdate());
+            }
+            // nested documents share the _uid of their root document, so updating the doc values by _uid would update them too
+            if (docMapper.getDocumentMapper().hasNestedObjects()) {
+                throw new IllegalArgumentException("in_place updates are not supported for type [" + source.type()
+                    + "] because it has nested fields");
+            }
+        }
+        return new Engine.Index(uid, doc, seqNo, version, versionType, origin, startTime, autoGeneratedIdTimestamp, isRetry,
+            source.inPlace());
     }
 
     public Engine.IndexResult index(Engine.Index index) throws IOException {
@@ -573,20 +618,21 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         final MappedFieldType uidFieldType = documentMapper.uidMapper().fieldType();
         final Query uidQuery = uidFieldType.termQuery(Uid.createUid(type, id), null);
         final Term uid = MappedFieldType.extractTerm(uidQuery);
-        return prepareDelete(type, id, uid, version, versionType, Engine.Operation.Origin.PRIMARY);
+        return prepareDelete(type, id, uid, SequenceNumbers.UNASSIGNED_SEQ_NO, version, versionType, Engine.Operation.Origin.PRIMARY);
     }
 
-    public Engine.Delete prepareDeleteOnReplica(String type, String id, long version, VersionType versionType) {
+    public Engine.Delete prepareDeleteOnReplica(String type, String id, long seqNo, long version, VersionType versionType) {
         final DocumentMapper documentMapper = docMapper(type).getDocumentMapper();
         final MappedFieldType uidFieldType = documentMapper.uidMapper().fieldType();
         final Query uidQuery = uidFieldType.termQuery(Uid.createUid(type, id), null);
         final Term uid = MappedFieldType.extractTerm(uidQuery);
-        return prepareDelete(type, id, uid, version, versionType, Engine.Operation.Origin.REPLICA);
+        return prepareDelete(type, id, uid, seqNo, version, versionType, Engine.Operation.Origin.REPLICA);
     }
 
-    static Engine.Delete prepareDelete(String type, String id, Term uid, long version, VersionType versionType, Engine.Operation.Origin origin) {
+    static Engine.Delete prepareDelete(String type, String id, Term uid, long seqNo, long version, VersionType versionType,
+                                       Engine.Operation.Origin origin) {
         long startTime = System.nanoTime();
-        return new Engine.Delete(type, id, uid, version, versionType, origin, startTime);
+        return new Engine.Delete(type, id, uid, seqNo, version, versionType, origin, startTime);
     }
 
     public Engine.DeleteResult delete(Engine.Delete delete) throws IOException {
@@ -662,7 +708,11 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     }
 
     public FlushStats flushStats() {
-        return new FlushStats(flushMetric.count(), TimeUnit.NANOSECONDS.toMillis(flushMetric.sum()));
+        Engine engine = getEngineOrNull();
+        final long blockedTimeInNanos = engine == null ? 0 : engine.getFlushBlockedTimeInNanos();
+        final long commitTimeInNanos = engine == null ? 0 : engine.getFlushCommitTimeInNanos();
+        return new FlushStats(flushMetric.count(), TimeUnit.NANOSECONDS.toMillis(flushMetric.sum()),
+            TimeUnit.NANOSECONDS.toMillis(blockedTimeInNanos), TimeUnit.NANOSECONDS.toMillis(commitTimeInNanos));
     }
 
     public DocsStats docStats() {
@@ -691,7 +741,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             throttled = engine.isThrottled();
             throttleTimeInMillis = engine.getIndexThrottleTimeInMillis();
         }
-        return internalIndexingStats.stats(throttled, throttleTimeInMillis, types);
+        return internalIndexingStats.stats(throttled, throttleTimeInMillis, writeLoadBytesPerSecond, indexBufferShare, types);
     }
 
     public SearchStats searchStats(String... groups) {
@@ -1090,6 +1140,10 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     public void finalizeRecovery() {
         recoveryState().setStage(RecoveryState.Stage.FINALIZE);
         Engine engine = getEngine();
+        if (recoveryState().getRecoverySource().getType() != RecoverySource.Type.PEER) {
+            // the operations that the store, snapshot or source shards were recovered with aren't known to the translog
+            engine.startNewHistory();
+        }
         engine.refresh("recovery_finalization");
         engine.config().setEnableGcDeletes(true);
     }
@@ -1278,6 +1332,49 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return engine.getTranslog().newView();
     }
 
+    /**
+     * Acquires a view of the translog that, unlike {@link #acquireTranslogView()}, also includes the committed operations that
+     * are retained for operation based recoveries.
+     */
+    public Translog.View acquireRetainedTranslogView() {
+        Engine engine = getEngine();
+        assert engine.getTranslog() != null : "translog must not be null";
+        return engine.getTranslog().newRetainedView();
+    }
+
+    /**
+     * Returns the UUID of the history of operations of this shard copy.
+     *
+     * @see Engine#getHistoryUUID()
+     */
+    public String getHistoryUUID() {
+        return getEngine().getHistoryUUID();
+    }
+
+    /**
+     * Returns the highest sequence number up to which this shard copy processed all operations.
+     */
+    public long getLocalCheckpoint() {
+        return getEngine().getLocalCheckpointTracker().getCheckpoint();
+    }
+
+    /**
+     * Returns the highest sequence number of the operations that this shard copy processed.
+     */
+    public long getMaxSeqNo() {
+        return getEngine().getLocalCheckpointTracker().getMaxSeqNo();
+    }
+
+    /**
+     * Returns <code>true</code> if the translog of this shard copy still has all operations of the current history from the given
+     * sequence number on.
+     *
+     * @see Engine#hasCompleteOperationHistory(long)
+     */
+    public boolean hasCompleteOperationHistory(long startingSeqNo) {
+        return getEngine().hasCompleteOperationHistory(startingSeqNo);
+    }
+
     public List<Segment> segments(boolean verbose) {
         return getEngine().segments(verbose);
     }
@@ -1302,6 +1399,15 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         }
     }
 
+    /**
+     * Called by {@link IndexingMemoryController} to record the write load of this shard in bytes per second and the share of the
+     * node's indexing buffer that this load entitles the shard to, so that both are reported in the indexing stats.
+     */
+    public void updateWriteLoad(long writeLoadBytesPerSecond, double indexBufferShare) {
+        this.writeLoadBytesPerSecond = writeLoadBytesPerSecond;
+        this.indexBufferShare = indexBufferShare;
+    }
+
     public void deactivateThrottling() {
         try {
             getEngine().deactivateThrottling();
@@ -1369,6 +1475,25 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         internalIndexingStats.noopUpdate(type);
     }
 
+    /**
+     * Should be called after waiting for a dynamic mapping update to be applied by the master to increment relevant statistics.
+     *
+     * @param type        the doc type that was updated
+     * @param tookInNanos the time spent waiting for the update
+     */
+    public void mappingUpdate(String type, long tookInNanos) {
+        internalIndexingStats.mappingUpdate(type, tookInNanos);
+    }
+
+    /**
+     * Should be called when this shard copy receives a batch of replica requests to increment relevant statistics.
+     *
+     * @param size the number of requests in the batch
+     */
+    public void replicaBatch(int size) {
+        internalIndexingStats.replicaBatch(size);
+    }
+
 
     private void checkIndex() throws IOException {
         if (store.tryIncRef()) {
@@ -1480,6 +1605,11 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         //     }}
         // }
         assert recoveryState.getRecoverySource().equals(shardRouting.recoverySource());
+        final SearchableSnapshotDirectory snapshotDirectory = SearchableSnapshotDirectory.unwrap(store.directory());
+        if (snapshotDirectory != null) {
+            // shards of indices that are mounted from a snapshot read it from the repository whatever they recover from
+            snapshotDirectory.bindRepository(repositoriesService.repository(snapshotDirectory.repositoryName()));
+        }
         switch (recoveryState.getRecoverySource().getType()) {
             case EMPTY_STORE:
             case EXISTING_STORE:
@@ -1704,7 +1834,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
      * NOTE: if the syncListener throws an exception when it's processed the exception will only be logged. Users should make sure that the
      * listener handles all exception cases internally.
      */
-    public final void sync(Translog.Location location, Consumer<Exception> syncListener) {
+    public void sync(Translog.Location location, Consumer<Exception> syncListener) {
         verifyNotClosed();
         translogSyncProcessor.put(location, syncListener);
     }
@@ -1806,6 +1936,55 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return getEngine().refreshNeeded() || (refreshListeners != null && refreshListeners.refreshNeeded());
     }
 
+    /**
+     * Refreshes the shard if a refresh is needed, as scheduled by the refresh interval of its index. Shards that are search idle
+     * skip the refresh unless refresh listeners wait for it or the refresh interval is set explicitly, and are refreshed by
+     * their next search instead, see {@link #awaitShardSearchActive()}.
+     *
+     * @return <code>true</code> if the shard was refreshed
+     * @throws AlreadyClosedException if the engine or internal indexwriter in the engine is already closed
+     */
+    public boolean scheduledRefresh() {
+        final boolean listenerNeedsRefresh = refreshListeners != null && refreshListeners.refreshNeeded();
+        if (listenerNeedsRefresh || getEngine().refreshNeeded()) {
+            if (listenerNeedsRefresh == false && indexSettings.isExplicitRefresh() == false && isSearchIdle()) {
+                // nobody searches this shard, so there is no point in making changes visible until somebody does
+                refreshPending.set(true);
+                return false;
+            }
+            refresh("schedule");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns <code>true</code> if this shard hasn't been searched for at least {@link IndexSettings#getSearchIdleAfter()}.
+     */
+    public boolean isSearchIdle() {
+        return (threadPool.relativeTimeInMillis() - lastSearcherAccess.get()) >= indexSettings.getSearchIdleAfter().millis();
+    }
+
+    /**
+     * Returns <code>true</code> if scheduled refreshes were skipped because this shard is search idle and it wasn't searched since.
+     */
+    public boolean isRefreshPending() {
+        return refreshPending.get();
+    }
+
+    /**
+     * Marks this shard as searched, which makes it search active again. If scheduled refreshes were skipped while the shard was
+     * search idle, it is refreshed before returning, so that the search sees the changes that these refreshes would have made
+     * visible.
+     */
+    public void awaitShardSearchActive() {
+        lastSearcherAccess.set(threadPool.relativeTimeInMillis());
+        // clear the flag before refreshing, so that a refresh that is skipped concurrently is not lost
+        if (refreshPending.compareAndSet(true, false)) {
+            refresh("search_idle");
+        }
+    }
+
     /**
      * Add a listener for refreshes.
      *
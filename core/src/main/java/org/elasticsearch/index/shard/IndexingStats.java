@@ -24,6 +24,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -36,6 +37,11 @@ import java.util.Map;
  */
 public class IndexingStats implements Streamable, ToXContent {
 
+    /**
+     * The upper bounds of the buckets of the replica batch size histogram, which has an additional bucket for larger batches.
+     */
+    static final int[] REPLICA_BATCH_SIZE_BUCKETS = new int[] { 1, 2, 4, 8, 16, 32, 64, 128, 256 };
+
     public static class Stats implements Streamable, ToXContent {
 
         private long indexCount;
@@ -48,10 +54,16 @@ public class IndexingStats implements Streamable, ToXContent {
         private long noopUpdateCount;
         private long throttleTimeInMillis;
         private boolean isThrottled;
+        private long mappingUpdateCount;
+        private long mappingUpdateTimeInMillis;
+        private long writeLoadBytesPerSecond;
+        private double indexBufferShare;
+        private long[] replicaBatchSizes = new long[REPLICA_BATCH_SIZE_BUCKETS.length + 1];
 
         Stats() {}
 
-        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long indexFailedCount, long deleteCount, long deleteTimeInMillis, long deleteCurrent, long noopUpdateCount, boolean isThrottled, long throttleTimeInMillis) {
+        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long indexFailedCount, long deleteCount, long deleteTimeInMillis, long deleteCurrent, long noopUpdateCount, boolean isThrottled, long throttleTimeInMillis,
+                     long mappingUpdateCount, long mappingUpdateTimeInMillis, long writeLoadBytesPerSecond, double indexBufferShare) {
             this.indexCount = indexCount;
             this.indexTimeInMillis = indexTimeInMillis;
             this.indexCurrent = indexCurrent;
@@ -62,6 +74,10 @@ public class IndexingStats implements Streamable, ToXContent {
             this.noopUpdateCount = noopUpdateCount;
             this.isThrottled = isThrottled;
             this.throttleTimeInMillis = throttleTimeInMillis;
+            this.mappingUpdateCount = mappingUpdateCount;
+            this.mappingUpdateTimeInMillis = mappingUpdateTimeInMillis;
+            this.writeLoadBytesPerSecond = writeLoadBytesPerSecond;
+            this.indexBufferShare = indexBufferShare;
         }
 
         public void add(Stats stats) {
@@ -79,6 +95,18 @@ public class IndexingStats implements Streamable, ToXContent {
             if (isThrottled != stats.isThrottled) {
                 isThrottled = true; //When combining if one is throttled set result to throttled.
             }
+            mappingUpdateCount += stats.mappingUpdateCount;
+            mappingUpdateTimeInMillis += stats.mappingUpdateTimeInMillis;
+            writeLoadBytesPerSecond += stats.writeLoadBytesPerSecond;
+            indexBufferShare += stats.indexBufferShare;
+            for (int i = 0; i < replicaBatchSizes.length; i++) {
+                replicaBatchSizes[i] += stats.replicaBatchSizes[i];
+            }
+        }
+
+        void setReplicaBatchSizes(long[] replicaBatchSizes) {
+            assert replicaBatchSizes.length == REPLICA_BATCH_SIZE_BUCKETS.length + 1;
+            this.replicaBatchSizes = replicaBatchSizes;
         }
 
         /**
@@ -134,6 +162,61 @@ public class IndexingStats implements Streamable, ToXContent {
             return noopUpdateCount;
         }
 
+        /**
+         * Returns the number of times indexing waited for a dynamic mapping update to be applied by the master
+         */
+        public long getMappingUpdateCount() {
+            return mappingUpdateCount;
+        }
+
+        /**
+         * The total amount of time indexing spent waiting for dynamic mapping updates to be applied by the master
+         */
+        public TimeValue getMappingUpdateTime() {
+            return new TimeValue(mappingUpdateTimeInMillis);
+        }
+
+        /**
+         * The recent write load in bytes per second, as an exponentially weighted moving average of the bytes indexed and deleted
+         */
+        public ByteSizeValue getWriteLoadPerSecond() {
+            return new ByteSizeValue(writeLoadBytesPerSecond);
+        }
+
+        /**
+         * The share of the indexing buffer of their node that the shards are entitled to by their write load, summed over the shards
+         */
+        public double getIndexBufferShare() {
+            return indexBufferShare;
+        }
+
+        /**
+         * The number of batches of replica requests that the shards received
+         */
+        public long getReplicaBatchCount() {
+            long count = 0;
+            for (long bucket : replicaBatchSizes) {
+                count += bucket;
+            }
+            return count;
+        }
+
+        /**
+         * The number of replica batches per batch size bucket. The bucket at index {@code i} counts the batches of up to
+         * {@code getReplicaBatchSizeBucket(i)} requests that are larger than the bounds of the previous buckets, and the last bucket
+         * counts the batches that are larger than all bounds.
+         */
+        public long[] getReplicaBatchSizes() {
+            return replicaBatchSizes;
+        }
+
+        /**
+         * The upper bound of the replica batch size bucket with the given index, or {@link Integer#MAX_VALUE} for the last bucket
+         */
+        public static int getReplicaBatchSizeBucket(int index) {
+            return index < REPLICA_BATCH_SIZE_BUCKETS.length ? REPLICA_BATCH_SIZE_BUCKETS[index] : Integer.MAX_VALUE;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -152,6 +235,17 @@ public class IndexingStats implements Streamable, ToXContent {
             noopUpdateCount = in.readVLong();
             isThrottled = in.readBoolean();
             throttleTimeInMillis = in.readLong();
+            if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+                mappingUpdateCount = in.readVLong();
+                mappingUpdateTimeInMillis = in.readVLong();
+                writeLoadBytesPerSecond = in.readVLong();
+                indexBufferShare = in.readDouble();
+                final int buckets = in.readVInt();
+                for (int i = 0; i < buckets; i++) {
+                    final long count = in.readVLong();
+                    replicaBatchSizes[Math.min(i, replicaBatchSizes.length - 1)] += count;
+                }
+            }
         }
 
         @Override
@@ -166,7 +260,16 @@ public class IndexingStats implements Streamable, ToXContent {
             out.writeVLong(noopUpdateCount);
             out.writeBoolean(isThrottled);
             out.writeLong(throttleTimeInMillis);
-
+            if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+                out.writeVLong(mappingUpdateCount);
+                out.writeVLong(mappingUpdateTimeInMillis);
+                out.writeVLong(writeLoadBytesPerSecond);
+                out.writeDouble(indexBufferShare);
+                out.writeVInt(replicaBatchSizes.length);
+                for (long count : replicaBatchSizes) {
+                    out.writeVLong(count);
+                }
+            }
         }
 
         @Override
@@ -184,6 +287,23 @@ public class IndexingStats implements Streamable, ToXContent {
 
             builder.field(Fields.IS_THROTTLED, isThrottled);
             builder.timeValueField(Fields.THROTTLED_TIME_IN_MILLIS, Fields.THROTTLED_TIME, throttleTimeInMillis);
+
+            builder.field(Fields.MAPPING_UPDATE_TOTAL, mappingUpdateCount);
+            builder.timeValueField(Fields.MAPPING_UPDATE_TIME_IN_MILLIS, Fields.MAPPING_UPDATE_TIME, mappingUpdateTimeInMillis);
+
+            builder.byteSizeField(Fields.WRITE_LOAD_IN_BYTES_PER_SEC, Fields.WRITE_LOAD_PER_SEC, writeLoadBytesPerSecond);
+            builder.field(Fields.INDEX_BUFFER_SHARE, indexBufferShare);
+
+            builder.startObject(Fields.REPLICA_BATCHES);
+            builder.field(Fields.TOTAL, getReplicaBatchCount());
+            builder.startObject(Fields.SIZES);
+            for (int i = 0; i < REPLICA_BATCH_SIZE_BUCKETS.length; i++) {
+                builder.field(Integer.toString(REPLICA_BATCH_SIZE_BUCKETS[i]), replicaBatchSizes[i]);
+            }
+            builder.field(">" + REPLICA_BATCH_SIZE_BUCKETS[REPLICA_BATCH_SIZE_BUCKETS.length - 1],
+                replicaBatchSizes[REPLICA_BATCH_SIZE_BUCKETS.length]);
+            builder.endObject();
+            builder.endObject();
             return builder;
         }
     }
@@ -275,6 +395,15 @@ public class IndexingStats implements Streamable, ToXContent {
         static final String IS_THROTTLED = "is_throttled";
         static final String THROTTLED_TIME_IN_MILLIS = "throttle_time_in_millis";
         static final String THROTTLED_TIME = "throttle_time";
+        static final String MAPPING_UPDATE_TOTAL = "mapping_update_total";
+        static final String MAPPING_UPDATE_TIME_IN_MILLIS = "mapping_update_time_in_millis";
+        static final String MAPPING_UPDATE_TIME = "mapping_update_time";
+        static final String WRITE_LOAD_PER_SEC = "write_load_per_sec";
+        static final String WRITE_LOAD_IN_BYTES_PER_SEC = "write_load_in_bytes_per_sec";
+        static final String INDEX_BUFFER_SHARE = "index_buffer_share";
+        static final String REPLICA_BATCHES = "replica_batches";
+        static final String TOTAL = "total";
+        static final String SIZES = "sizes";
     }
 
     @Override
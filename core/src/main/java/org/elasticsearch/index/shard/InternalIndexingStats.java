@@ -38,25 +38,38 @@ import static java.util.Collections.emptyMap;
 final class InternalIndexingStats implements IndexingOperationListener {
     private final StatsHolder totalStats = new StatsHolder();
     private volatile Map<String, StatsHolder> typesStats = emptyMap();
+    private final CounterMetric[] replicaBatchSizes = new CounterMetric[IndexingStats.REPLICA_BATCH_SIZE_BUCKETS.length + 1];
+
+    InternalIndexingStats() {
+        for (int i = 0; i < replicaBatchSizes.length; i++) {
+            replicaBatchSizes[i] = new CounterMetric();
+        }
+    }
 
     /**
      * Returns the stats, including type specific stats. If the types are null/0 length, then nothing
      * is returned for them. If they are set, then only types provided will be returned, or
      * <tt>_all</tt> for all types.
      */
-    IndexingStats stats(boolean isThrottled, long currentThrottleInMillis, String... types) {
-        IndexingStats.Stats total = totalStats.stats(isThrottled, currentThrottleInMillis);
+    IndexingStats stats(boolean isThrottled, long currentThrottleInMillis, long writeLoadBytesPerSecond, double indexBufferShare,
+                        String... types) {
+        IndexingStats.Stats total = totalStats.stats(isThrottled, currentThrottleInMillis, writeLoadBytesPerSecond, indexBufferShare);
+        final long[] batchSizes = new long[replicaBatchSizes.length];
+        for (int i = 0; i < batchSizes.length; i++) {
+            batchSizes[i] = replicaBatchSizes[i].count();
+        }
+        total.setReplicaBatchSizes(batchSizes);
         Map<String, IndexingStats.Stats> typesSt = null;
         if (types != null && types.length > 0) {
             typesSt = new HashMap<>(typesStats.size());
             if (types.length == 1 && types[0].equals("_all")) {
                 for (Map.Entry<String, StatsHolder> entry : typesStats.entrySet()) {
-                    typesSt.put(entry.getKey(), entry.getValue().stats(isThrottled, currentThrottleInMillis));
+                    typesSt.put(entry.getKey(), entry.getValue().stats(isThrottled, currentThrottleInMillis, 0, 0));
                 }
             } else {
                 for (Map.Entry<String, StatsHolder> entry : typesStats.entrySet()) {
                     if (Regex.simpleMatch(types, entry.getKey())) {
-                        typesSt.put(entry.getKey(), entry.getValue().stats(isThrottled, currentThrottleInMillis));
+                        typesSt.put(entry.getKey(), entry.getValue().stats(isThrottled, currentThrottleInMillis, 0, 0));
                     }
                 }
             }
@@ -138,6 +151,19 @@ final class InternalIndexingStats implements IndexingOperationListener {
         typeStats(type).noopUpdates.inc();
     }
 
+    void mappingUpdate(String type, long tookInNanos) {
+        totalStats.mappingUpdateMetric.inc(tookInNanos);
+        typeStats(type).mappingUpdateMetric.inc(tookInNanos);
+    }
+
+    void replicaBatch(int size) {
+        int bucket = 0;
+        while (bucket < IndexingStats.REPLICA_BATCH_SIZE_BUCKETS.length && size > IndexingStats.REPLICA_BATCH_SIZE_BUCKETS[bucket]) {
+            bucket++;
+        }
+        replicaBatchSizes[bucket].inc();
+    }
+
     private StatsHolder typeStats(String type) {
         StatsHolder stats = typesStats.get(type);
         if (stats == null) {
@@ -159,17 +185,21 @@ final class InternalIndexingStats implements IndexingOperationListener {
         private final CounterMetric indexFailed = new CounterMetric();
         private final CounterMetric deleteCurrent = new CounterMetric();
         private final CounterMetric noopUpdates = new CounterMetric();
+        private final MeanMetric mappingUpdateMetric = new MeanMetric();
 
-        IndexingStats.Stats stats(boolean isThrottled, long currentThrottleMillis) {
+        IndexingStats.Stats stats(boolean isThrottled, long currentThrottleMillis, long writeLoadBytesPerSecond, double indexBufferShare) {
             return new IndexingStats.Stats(
                 indexMetric.count(), TimeUnit.NANOSECONDS.toMillis(indexMetric.sum()), indexCurrent.count(), indexFailed.count(),
                 deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count(),
-                noopUpdates.count(), isThrottled, TimeUnit.MILLISECONDS.toMillis(currentThrottleMillis));
+                noopUpdates.count(), isThrottled, TimeUnit.MILLISECONDS.toMillis(currentThrottleMillis),
+                mappingUpdateMetric.count(), TimeUnit.NANOSECONDS.toMillis(mappingUpdateMetric.sum()), writeLoadBytesPerSecond,
+                indexBufferShare);
         }
 
         void clear() {
             indexMetric.clear();
             deleteMetric.clear();
+            mappingUpdateMetric.clear();
         }
     }
 }
@@ -64,6 +64,8 @@ public class IndexShardSnapshotStatus {
 
     private volatile long processedSize;
 
+    private volatile long deduplicatedSize;
+
     private long indexVersion;
 
     private volatile boolean aborted;
@@ -170,6 +172,20 @@ public class IndexShardSnapshotStatus {
         processedSize += size;
     }
 
+    /**
+     * Adds to the size of the files that didn't have to be uploaded as the repository already contained their content
+     */
+    public synchronized void addDeduplicatedSize(long size) {
+        deduplicatedSize += size;
+    }
+
+    /**
+     * Sets the size of the files that didn't have to be uploaded as the repository already contained their content
+     */
+    public synchronized void deduplicatedSize(long size) {
+        deduplicatedSize = size;
+    }
+
     /**
      * Number of files
      *
@@ -206,6 +222,15 @@ public class IndexShardSnapshotStatus {
         return processedSize;
     }
 
+    /**
+     * Size of the processed files that didn't have to be uploaded as the repository already contained their content
+     *
+     * @return deduplicated size of processed files
+     */
+    public long deduplicatedSize() {
+        return deduplicatedSize;
+    }
+
 
     /**
      * Sets index version
@@ -35,12 +35,84 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Shard snapshot metadata
  */
 public class BlobStoreIndexShardSnapshot implements ToXContent {
 
+    /**
+     * A content defined chunk of a snapshotted file. Chunks are stored as blobs named after the SHA-256 hash of their content, so
+     * that all files of a shard that contain the same chunk share its blob.
+     *
+     * @see ContentDefinedChunker
+     */
+    public static class ChunkInfo {
+
+        /**
+         * The prefix of the names of chunk blobs
+         */
+        public static final String BLOB_PREFIX = "chunk-";
+
+        private final String hash;
+        private final long length;
+
+        /**
+         * Constructs a new chunk info
+         *
+         * @param hash   the hex encoded SHA-256 hash of the content of the chunk
+         * @param length the length of the chunk in bytes
+         */
+        public ChunkInfo(String hash, long length) {
+            this.hash = hash;
+            this.length = length;
+        }
+
+        /**
+         * Returns the hex encoded SHA-256 hash of the content of the chunk
+         */
+        public String hash() {
+            return hash;
+        }
+
+        /**
+         * Returns the length of the chunk in bytes
+         */
+        public long length() {
+            return length;
+        }
+
+        /**
+         * Returns the name of the blob that holds the content of the chunk
+         */
+        public String blobName() {
+            return BLOB_PREFIX + hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ChunkInfo chunkInfo = (ChunkInfo) o;
+            return length == chunkInfo.length && hash.equals(chunkInfo.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * hash.hashCode() + Long.hashCode(length);
+        }
+
+        @Override
+        public String toString() {
+            return "[hash: " + hash + ", length: " + length + "]";
+        }
+    }
+
     /**
      * Information about snapshotted file
      */
@@ -52,6 +124,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
         private final long partBytes;
         private final long numberOfParts;
         private final StoreFileMetaData metadata;
+        private final List<ChunkInfo> chunks;
 
         /**
          * Constructs a new instance of file info
@@ -80,6 +153,23 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
             this.numberOfParts = numberOfParts;
             this.partSize = partSize;
             this.partBytes = partBytes;
+            this.chunks = null;
+        }
+
+        /**
+         * Constructs a new instance of file info for a file that is stored as content defined chunks
+         *
+         * @param name     file name as used in the shard snapshots, no blob is stored under this name
+         * @param metaData the files meta data
+         * @param chunks   the chunks of the file in order
+         */
+        public FileInfo(String name, StoreFileMetaData metaData, List<ChunkInfo> chunks) {
+            this.name = name;
+            this.metadata = metaData;
+            this.chunks = Collections.unmodifiableList(new ArrayList<>(chunks));
+            this.numberOfParts = 1;
+            this.partSize = null;
+            this.partBytes = Long.MAX_VALUE;
         }
 
         /**
@@ -171,6 +261,22 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
             return numberOfParts;
         }
 
+        /**
+         * Returns true if the file is stored as content defined chunks rather than in parts
+         */
+        public boolean storedInChunks() {
+            return chunks != null;
+        }
+
+        /**
+         * Returns the chunks of the file in order, or null if the file is stored in parts
+         *
+         * @return the chunks of the file
+         */
+        public List<ChunkInfo> chunks() {
+            return chunks;
+        }
+
         /**
          * Returns file md5 checksum provided by {@link org.elasticsearch.index.store.Store}
          *
@@ -222,6 +328,9 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
                     return false;
                 }
             }
+            if (Objects.equals(chunks, fileInfo.chunks) == false) {
+                return false;
+            }
             return metadata.isSame(fileInfo.metadata);
         }
 
@@ -240,6 +349,8 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
         static final String PART_SIZE = "part_size";
         static final String WRITTEN_BY = "written_by";
         static final String META_HASH = "meta_hash";
+        static final String CHUNKS = "chunks";
+        static final String CHUNK_HASH = "hash";
 
         /**
          * Serializes file info into JSON
@@ -267,6 +378,16 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
             if (file.metadata.hash() != null && file.metadata().hash().length > 0) {
                 builder.field(META_HASH, file.metadata.hash());
             }
+            if (file.chunks != null) {
+                builder.startArray(CHUNKS);
+                for (ChunkInfo chunk : file.chunks) {
+                    builder.startObject();
+                    builder.field(CHUNK_HASH, chunk.hash);
+                    builder.field(LENGTH, chunk.length);
+                    builder.endObject();
+                }
+                builder.endArray();
+            }
             builder.endObject();
         }
 
@@ -286,6 +407,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
             Version writtenBy = null;
             String writtenByStr = null;
             BytesRef metaHash = new BytesRef();
+            List<ChunkInfo> chunks = null;
             if (token == XContentParser.Token.START_OBJECT) {
                 while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
                     if (token == XContentParser.Token.FIELD_NAME) {
@@ -312,6 +434,11 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
                             } else {
                                 throw new ElasticsearchParseException("unknown parameter [{}]", currentFieldName);
                             }
+                        } else if (token == XContentParser.Token.START_ARRAY && CHUNKS.equals(currentFieldName)) {
+                            chunks = new ArrayList<>();
+                            while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                                chunks.add(parseChunk(parser));
+                            }
                         } else {
                             throw new ElasticsearchParseException("unexpected token  [{}]", token);
                         }
@@ -340,7 +467,49 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
                     throw new ElasticsearchParseException("missing checksum for name [" + name + "]");
                 }
             }
-            return new FileInfo(name, new StoreFileMetaData(physicalName, length, checksum, writtenBy, metaHash), partSize);
+            final StoreFileMetaData metaData = new StoreFileMetaData(physicalName, length, checksum, writtenBy, metaHash);
+            if (chunks != null) {
+                long chunksLength = 0;
+                for (ChunkInfo chunk : chunks) {
+                    chunksLength += chunk.length();
+                }
+                if (chunksLength != length) {
+                    throw new ElasticsearchParseException("chunks of [" + name + "] have a total length of [" + chunksLength
+                        + "] but the file length is [" + length + "]");
+                }
+                return new FileInfo(name, metaData, chunks);
+            }
+            return new FileInfo(name, metaData, partSize);
+        }
+
+        private static ChunkInfo parseChunk(XContentParser parser) throws IOException {
+            if (parser.currentToken() != XContentParser.Token.START_OBJECT) {
+                throw new ElasticsearchParseException("unexpected token [{}]", parser.currentToken());
+            }
+            String hash = null;
+            long length = -1;
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    String currentFieldName = parser.currentName();
+                    parser.nextToken();
+                    if (CHUNK_HASH.equals(currentFieldName)) {
+                        hash = parser.text();
+                    } else if (LENGTH.equals(currentFieldName)) {
+                        length = parser.longValue();
+                    } else {
+                        throw new ElasticsearchParseException("unknown parameter [{}]", currentFieldName);
+                    }
+                } else {
+                    throw new ElasticsearchParseException("unexpected token [{}]", token);
+                }
+            }
+            if (hash == null || Strings.validFileName(hash) == false) {
+                throw new ElasticsearchParseException("missing or invalid chunk hash [" + hash + "]");
+            } else if (length < 0) {
+                throw new ElasticsearchParseException("missing or invalid chunk length");
+            }
+            return new ChunkInfo(hash, length);
         }
 
         @Override
@@ -349,6 +518,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
                        ", numberOfParts: " + numberOfParts +
                        ", partSize: " + partSize +
                        ", partBytes: " + partBytes +
+                       (chunks == null ? "" : ", numberOfChunks: " + chunks.size()) +
                        ", metadata: " + metadata + "]";
         }
     }
@@ -365,6 +535,8 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
 
     private final long totalSize;
 
+    private final long deduplicatedSize;
+
     private final List<FileInfo> indexFiles;
 
     /**
@@ -380,6 +552,24 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
      */
     public BlobStoreIndexShardSnapshot(String snapshot, long indexVersion, List<FileInfo> indexFiles, long startTime, long time,
                                        int numberOfFiles, long totalSize) {
+        this(snapshot, indexVersion, indexFiles, startTime, time, numberOfFiles, totalSize, 0);
+    }
+
+    /**
+     * Constructs new shard snapshot metadata from snapshot metadata
+     *
+     * @param snapshot         snapshot id
+     * @param indexVersion     index version
+     * @param indexFiles       list of files in the shard
+     * @param startTime        snapshot start time
+     * @param time             snapshot running time
+     * @param numberOfFiles    number of files that where snapshotted
+     * @param totalSize        total size of all files snapshotted
+     * @param deduplicatedSize size of the snapshotted files that didn't have to be uploaded as the repository already
+     *                         contained their content
+     */
+    public BlobStoreIndexShardSnapshot(String snapshot, long indexVersion, List<FileInfo> indexFiles, long startTime, long time,
+                                       int numberOfFiles, long totalSize, long deduplicatedSize) {
         assert snapshot != null;
         assert indexVersion >= 0;
         this.snapshot = snapshot;
@@ -389,6 +579,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
         this.time = time;
         this.numberOfFiles = numberOfFiles;
         this.totalSize = totalSize;
+        this.deduplicatedSize = deduplicatedSize;
     }
 
     /**
@@ -402,6 +593,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
         this.time = 0;
         this.numberOfFiles = 0;
         this.totalSize = 0;
+        this.deduplicatedSize = 0;
     }
 
     /**
@@ -459,12 +651,20 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
         return totalSize;
     }
 
+    /**
+     * Returns the size of the snapshotted files that didn't have to be uploaded as the repository already contained their content
+     */
+    public long deduplicatedSize() {
+        return deduplicatedSize;
+    }
+
     private static final String NAME = "name";
     private static final String INDEX_VERSION = "index_version";
     private static final String START_TIME = "start_time";
     private static final String TIME = "time";
     private static final String NUMBER_OF_FILES = "number_of_files";
     private static final String TOTAL_SIZE = "total_size";
+    private static final String DEDUPLICATED_SIZE = "deduplicated_size";
     private static final String FILES = "files";
 
     private static final ParseField PARSE_NAME = new ParseField("name");
@@ -473,6 +673,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
     private static final ParseField PARSE_TIME = new ParseField("time");
     private static final ParseField PARSE_NUMBER_OF_FILES = new ParseField("number_of_files");
     private static final ParseField PARSE_TOTAL_SIZE = new ParseField("total_size");
+    private static final ParseField PARSE_DEDUPLICATED_SIZE = new ParseField("deduplicated_size");
     private static final ParseField PARSE_FILES = new ParseField("files");
 
     /**
@@ -489,6 +690,9 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
         builder.field(TIME, time);
         builder.field(NUMBER_OF_FILES, numberOfFiles);
         builder.field(TOTAL_SIZE, totalSize);
+        if (deduplicatedSize > 0) {
+            builder.field(DEDUPLICATED_SIZE, deduplicatedSize);
+        }
         builder.startArray(FILES);
         for (FileInfo fileInfo : indexFiles) {
             FileInfo.toXContent(fileInfo, builder, params);
@@ -510,6 +714,7 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
         long time = 0;
         int numberOfFiles = 0;
         long totalSize = 0;
+        long deduplicatedSize = 0;
 
         List<FileInfo> indexFiles = new ArrayList<>();
         if (parser.currentToken() == null) { // fresh parser? move to the first token
@@ -535,6 +740,8 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
                             numberOfFiles = parser.intValue();
                         } else if (PARSE_TOTAL_SIZE.match(currentFieldName)) {
                             totalSize = parser.longValue();
+                        } else if (PARSE_DEDUPLICATED_SIZE.match(currentFieldName)) {
+                            deduplicatedSize = parser.longValue();
                         } else {
                             throw new ElasticsearchParseException("unknown parameter [{}]", currentFieldName);
                         }
@@ -555,6 +762,6 @@ public class BlobStoreIndexShardSnapshot implements ToXContent {
             }
         }
         return new BlobStoreIndexShardSnapshot(snapshot, indexVersion, Collections.unmodifiableList(indexFiles),
-                                               startTime, time, numberOfFiles, totalSize);
+                                               startTime, time, numberOfFiles, totalSize, deduplicatedSize);
     }
 }
@@ -24,15 +24,18 @@ import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.ChunkInfo;
 import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.FileInfo;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.util.Collections.unmodifiableMap;
 
@@ -47,6 +50,7 @@ public class BlobStoreIndexShardSnapshots implements Iterable<SnapshotFiles>, To
     private final List<SnapshotFiles> shardSnapshots;
     private final Map<String, FileInfo> files;
     private final Map<String, List<FileInfo>> physicalFiles;
+    private final Set<String> chunkBlobs;
 
     public BlobStoreIndexShardSnapshots(List<SnapshotFiles> shardSnapshots) {
         this.shardSnapshots = Collections.unmodifiableList(new ArrayList<>(shardSnapshots));
@@ -79,6 +83,7 @@ public class BlobStoreIndexShardSnapshots implements Iterable<SnapshotFiles>, To
         }
         this.physicalFiles = unmodifiableMap(mapBuilder);
         this.files = unmodifiableMap(newFiles);
+        this.chunkBlobs = chunkBlobs(newFiles);
     }
 
     private BlobStoreIndexShardSnapshots(Map<String, FileInfo> files, List<SnapshotFiles> shardSnapshots) {
@@ -100,12 +105,26 @@ public class BlobStoreIndexShardSnapshots implements Iterable<SnapshotFiles>, To
             mapBuilder.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
         }
         this.physicalFiles = unmodifiableMap(mapBuilder);
+        this.chunkBlobs = chunkBlobs(files);
     }
 
     private BlobStoreIndexShardSnapshots() {
         shardSnapshots = Collections.emptyList();
         files = Collections.emptyMap();
         physicalFiles = Collections.emptyMap();
+        chunkBlobs = Collections.emptySet();
+    }
+
+    private static Set<String> chunkBlobs(Map<String, FileInfo> files) {
+        Set<String> chunkBlobs = new HashSet<>();
+        for (FileInfo fileInfo : files.values()) {
+            if (fileInfo.storedInChunks()) {
+                for (ChunkInfo chunk : fileInfo.chunks()) {
+                    chunkBlobs.add(chunk.blobName());
+                }
+            }
+        }
+        return Collections.unmodifiableSet(chunkBlobs);
     }
 
 
@@ -138,6 +157,16 @@ public class BlobStoreIndexShardSnapshots implements Iterable<SnapshotFiles>, To
         return files.get(name);
     }
 
+    /**
+     * Checks if a chunk blob is referenced by any file of any of the snapshots
+     *
+     * @param blobName chunk blob name
+     * @return true if the chunk is part of a snapshotted file
+     */
+    public boolean referencesChunk(String blobName) {
+        return chunkBlobs.contains(blobName);
+    }
+
     @Override
     public Iterator<SnapshotFiles> iterator() {
         return shardSnapshots.iterator();
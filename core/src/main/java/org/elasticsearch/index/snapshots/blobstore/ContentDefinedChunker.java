@@ -0,0 +1,139 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.elasticsearch.common.hash.MessageDigests;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.ChunkInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits streams into chunks at positions that depend on their content rather than on their offsets, so that files that share
+ * content, like a segment and the segment that it was merged into, mostly consist of the same chunks even if the shared content
+ * moved. Cut points are found with a gear rolling hash as described in the FastCDC paper: a chunk ends once the top bits of the
+ * hash of its last bytes are all zero. More bits have to be zero until a chunk reaches the average size and fewer bits afterwards,
+ * which keeps chunk sizes close to the average, and chunks are between a quarter and four times the average size.
+ */
+public final class ContentDefinedChunker {
+
+    /**
+     * The smallest average chunk size, which keeps chunks much larger than the 64 bytes that the rolling hash depends on.
+     */
+    public static final int MIN_AVERAGE_CHUNK_SIZE = 1024;
+
+    /**
+     * The largest average chunk size, which keeps the maximum chunk size within integer range.
+     */
+    public static final int MAX_AVERAGE_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // the table must never change as the chunks of existing snapshots would not be found again otherwise
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < GEAR.length; i++) {
+            // splitmix64
+            long z = (seed += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private final int minChunkSize;
+    private final int averageChunkSize;
+    private final int maxChunkSize;
+    private final long smallChunkMask;
+    private final long largeChunkMask;
+
+    /**
+     * Creates a new chunker
+     *
+     * @param averageChunkSize the average size of chunks in bytes, rounded down to a power of two
+     */
+    public ContentDefinedChunker(int averageChunkSize) {
+        if (averageChunkSize < MIN_AVERAGE_CHUNK_SIZE || averageChunkSize > MAX_AVERAGE_CHUNK_SIZE) {
+            throw new IllegalArgumentException("average chunk size must be between [" + MIN_AVERAGE_CHUNK_SIZE + "] and ["
+                + MAX_AVERAGE_CHUNK_SIZE + "] but was [" + averageChunkSize + "]");
+        }
+        this.averageChunkSize = Integer.highestOneBit(averageChunkSize);
+        this.minChunkSize = this.averageChunkSize / 4;
+        this.maxChunkSize = this.averageChunkSize * 4;
+        final int bits = Integer.numberOfTrailingZeros(this.averageChunkSize);
+        this.smallChunkMask = topBits(bits + 1);
+        this.largeChunkMask = topBits(bits - 1);
+    }
+
+    private static long topBits(int bits) {
+        return -1L << (Long.SIZE - bits);
+    }
+
+    /**
+     * Returns the average size of chunks in bytes
+     */
+    public int averageChunkSize() {
+        return averageChunkSize;
+    }
+
+    /**
+     * Reads the given stream to its end and returns its chunks in order. Empty streams have no chunks.
+     */
+    public List<ChunkInfo> split(InputStream stream) throws IOException {
+        final MessageDigest digest = MessageDigests.sha256();
+        final List<ChunkInfo> chunks = new ArrayList<>();
+        final byte[] buffer = new byte[8192];
+        long hash = 0;
+        int chunkLength = 0;
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            int chunkStart = 0;
+            for (int i = 0; i < read; i++) {
+                hash = (hash << 1) + GEAR[buffer[i] & 0xff];
+                chunkLength++;
+                if (isCutPoint(hash, chunkLength)) {
+                    digest.update(buffer, chunkStart, i + 1 - chunkStart);
+                    chunks.add(new ChunkInfo(MessageDigests.toHexString(digest.digest()), chunkLength));
+                    chunkStart = i + 1;
+                    hash = 0;
+                    chunkLength = 0;
+                }
+            }
+            digest.update(buffer, chunkStart, read - chunkStart);
+        }
+        if (chunkLength > 0) {
+            chunks.add(new ChunkInfo(MessageDigests.toHexString(digest.digest()), chunkLength));
+        }
+        return chunks;
+    }
+
+    private boolean isCutPoint(long hash, int chunkLength) {
+        if (chunkLength < minChunkSize) {
+            return false;
+        }
+        if (chunkLength >= maxChunkSize) {
+            return true;
+        }
+        return (hash & (chunkLength < averageChunkSize ? smallChunkMask : largeChunkMask)) == 0;
+    }
+}
@@ -50,6 +50,7 @@ import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.Version;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.Streams;
@@ -61,6 +62,8 @@ import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.store.ByteArrayIndexInput;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
@@ -78,6 +81,7 @@ import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.snapshot.SearchableSnapshotDirectory;
 
 import java.io.Closeable;
 import java.io.EOFException;
@@ -94,6 +98,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -139,6 +144,10 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
     private final ShardLock shardLock;
     private final OnClose onClose;
     private final SingleObjectCache<StoreStats> statsCache;
+    private final CounterMetric metadataCacheHits = new CounterMetric();
+    private final MeanMetric metadataLoads = new MeanMetric();
+    // the metadata of the commit that was loaded last, only replaced while holding the read lock and cleared under the write lock
+    private volatile CachedMetadata cachedMetadata;
 
     private final AbstractRefCounted refCounter = new AbstractRefCounted("store") {
         @Override
@@ -159,7 +168,7 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         this.shardLock = shardLock;
         this.onClose = onClose;
         final TimeValue refreshInterval = indexSettings.getValue(INDEX_STORE_STATS_REFRESH_INTERVAL_SETTING);
-        this.statsCache = new StoreStatsCache(refreshInterval, directory, directoryService);
+        this.statsCache = new StoreStatsCache(refreshInterval, directory, directoryService, metadataCacheHits, metadataLoads);
         logger.debug("store stats are refreshed with refresh_interval [{}]", refreshInterval);
 
         assert onClose != null;
@@ -215,7 +224,8 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
 
     /**
      * Returns a new MetadataSnapshot for the given commit. If the given commit is <code>null</code>
-     * the latest commit point is used.
+     * the latest commit point is used. The metadata of the commit that was read last is cached until the store
+     * moves to another commit, identified by the generation and the checksum of its segments file.
      *
      * Note that this method requires the caller verify it has the right to access the store and
      * no concurrent file changes are happening. If in doubt, you probably want to use one of the following:
@@ -237,7 +247,21 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         failIfCorrupted();
         metadataLock.readLock().lock();
         try {
-            return new MetadataSnapshot(commit, directory, logger);
+            final CommitKey commitKey = CommitKey.read(commit, directory);
+            final CachedMetadata cached = cachedMetadata;
+            if (commitKey != null && cached != null && cached.commitKey.equals(commitKey)) {
+                metadataCacheHits.inc();
+                return cached.metadata;
+            }
+            final long startTimeNanos = System.nanoTime();
+            final MetadataSnapshot metadata = new MetadataSnapshot(commit, directory, logger);
+            metadataLoads.inc(System.nanoTime() - startTimeNanos);
+            final StoreFileMetaData segmentsFile = metadata.getSegmentsFile();
+            // the latest commit might have moved on after we read the key, in which case we don't know what we loaded
+            if (commitKey != null && segmentsFile != null && commitKey.segmentsFileName.equals(segmentsFile.name())) {
+                cachedMetadata = new CachedMetadata(commitKey, metadata);
+            }
+            return metadata;
         } catch (CorruptIndexException | IndexFormatTooOldException | IndexFormatTooNewException ex) {
             markStoreCorrupted(ex);
             throw ex;
@@ -273,6 +297,7 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         // we make sure that nobody fetches the metadata while we do this rename operation here to ensure we don't
         // get exceptions if files are still open.
         try (Lock writeLock = directory().obtainLock(IndexWriter.WRITE_LOCK_NAME)) {
+            cachedMetadata = null;
             for (Map.Entry<String, String> entry : entries) {
                 String tempFile = entry.getKey();
                 String origFile = entry.getValue();
@@ -588,6 +613,7 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
     public void cleanupAndVerify(String reason, MetadataSnapshot sourceMetaData) throws IOException {
         metadataLock.writeLock().lock();
         try (Lock writeLock = directory.obtainLock(IndexWriter.WRITE_LOCK_NAME)) {
+            cachedMetadata = null;
             final StoreDirectory dir = directory;
             for (String existingFile : dir.listAll()) {
                 if (Store.isAutogenerated(existingFile) || sourceMetaData.contains(existingFile)) {
@@ -682,6 +708,72 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         }
     }
 
+    /**
+     * Identifies a commit point by its segments file. Lucene never reuses the name of a segments file for another commit
+     * in the same directory, unless the directory is wiped, and the checksum covers that case.
+     */
+    private static final class CommitKey {
+        private final String segmentsFileName;
+        private final long length;
+        private final long checksum;
+
+        private CommitKey(String segmentsFileName, long length, long checksum) {
+            this.segmentsFileName = segmentsFileName;
+            this.length = length;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Reads the key of the given commit, or of the latest commit if it is <code>null</code>. Returns <code>null</code> if the
+         * segments file can't be read, in which case the metadata is loaded without caching and reports the actual problem.
+         */
+        @Nullable
+        static CommitKey read(@Nullable IndexCommit commit, Directory directory) {
+            try {
+                final String segmentsFileName = commit == null ? SegmentInfos.getLastCommitSegmentsFileName(directory)
+                    : commit.getSegmentsFileName();
+                if (segmentsFileName == null) {
+                    return null;
+                }
+                try (IndexInput in = directory.openInput(segmentsFileName, IOContext.READONCE)) {
+                    if (in.length() < CodecUtil.footerLength()) {
+                        return null;
+                    }
+                    return new CommitKey(segmentsFileName, in.length(), CodecUtil.retrieveChecksum(in));
+                }
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CommitKey that = (CommitKey) o;
+            return length == that.length && checksum == that.checksum && segmentsFileName.equals(that.segmentsFileName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(segmentsFileName, length, checksum);
+        }
+    }
+
+    private static final class CachedMetadata {
+        private final CommitKey commitKey;
+        private final MetadataSnapshot metadata;
+
+        private CachedMetadata(CommitKey commitKey, MetadataSnapshot metadata) {
+            this.commitKey = commitKey;
+            this.metadata = metadata;
+        }
+    }
+
     /**
      * Represents a snapshot of the current directory build from the latest Lucene commit.
      * Only files that are part of the last commit are considered in this datastrucutre.
@@ -1346,22 +1438,42 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
     private static class StoreStatsCache extends SingleObjectCache<StoreStats> {
         private final Directory directory;
         private final DirectoryService directoryService;
+        private final CounterMetric metadataCacheHits;
+        private final MeanMetric metadataLoads;
 
-        StoreStatsCache(TimeValue refreshInterval, Directory directory, DirectoryService directoryService) throws IOException {
-            super(refreshInterval, new StoreStats(estimateSize(directory), directoryService.throttleTimeInNanos()));
+        StoreStatsCache(TimeValue refreshInterval, Directory directory, DirectoryService directoryService,
+                        CounterMetric metadataCacheHits, MeanMetric metadataLoads) throws IOException {
+            super(refreshInterval, newStoreStats(directory, directoryService, metadataCacheHits, metadataLoads));
             this.directory = directory;
             this.directoryService = directoryService;
+            this.metadataCacheHits = metadataCacheHits;
+            this.metadataLoads = metadataLoads;
         }
 
         @Override
         protected StoreStats refresh() {
             try {
-                return new StoreStats(estimateSize(directory), directoryService.throttleTimeInNanos());
+                return newStoreStats(directory, directoryService, metadataCacheHits, metadataLoads);
             } catch (IOException ex) {
                 throw new ElasticsearchException("failed to refresh store stats", ex);
             }
         }
 
+        private static StoreStats newStoreStats(Directory directory, DirectoryService directoryService, CounterMetric metadataCacheHits,
+                                                MeanMetric metadataLoads) throws IOException {
+            final long sizeInBytes = estimateSize(directory);
+            final SearchableSnapshotDirectory snapshotDirectory = SearchableSnapshotDirectory.unwrap(directory);
+            final StoreStats stats;
+            if (snapshotDirectory == null) {
+                stats = new StoreStats(sizeInBytes, directoryService.throttleTimeInNanos());
+            } else {
+                stats = new StoreStats(sizeInBytes, directoryService.throttleTimeInNanos(), snapshotDirectory.cacheHits(),
+                    snapshotDirectory.cacheMisses(), snapshotDirectory.bytesFetched());
+            }
+            stats.setMetadataStats(metadataLoads.count(), metadataLoads.sum(), metadataCacheHits.count());
+            return stats;
+        }
+
         private static long estimateSize(Directory directory) throws IOException {
             long estimatedSize = 0;
             String[] files = directory.listAll();
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.store;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -37,13 +38,33 @@ public class StoreStats implements Streamable, ToXContent {
 
     private long throttleTimeInNanos;
 
+    private long snapshotCacheHits;
+
+    private long snapshotCacheMisses;
+
+    private long snapshotBytesFetched;
+
+    private long metadataLoads;
+
+    private long metadataLoadTimeInNanos;
+
+    private long metadataCacheHits;
+
     public StoreStats() {
 
     }
 
     public StoreStats(long sizeInBytes, long throttleTimeInNanos) {
+        this(sizeInBytes, throttleTimeInNanos, 0, 0, 0);
+    }
+
+    public StoreStats(long sizeInBytes, long throttleTimeInNanos, long snapshotCacheHits, long snapshotCacheMisses,
+                      long snapshotBytesFetched) {
         this.sizeInBytes = sizeInBytes;
         this.throttleTimeInNanos = throttleTimeInNanos;
+        this.snapshotCacheHits = snapshotCacheHits;
+        this.snapshotCacheMisses = snapshotCacheMisses;
+        this.snapshotBytesFetched = snapshotBytesFetched;
     }
 
     public void add(StoreStats stats) {
@@ -52,6 +73,18 @@ public class StoreStats implements Streamable, ToXContent {
         }
         sizeInBytes += stats.sizeInBytes;
         throttleTimeInNanos += stats.throttleTimeInNanos;
+        snapshotCacheHits += stats.snapshotCacheHits;
+        snapshotCacheMisses += stats.snapshotCacheMisses;
+        snapshotBytesFetched += stats.snapshotBytesFetched;
+        metadataLoads += stats.metadataLoads;
+        metadataLoadTimeInNanos += stats.metadataLoadTimeInNanos;
+        metadataCacheHits += stats.metadataCacheHits;
+    }
+
+    void setMetadataStats(long metadataLoads, long metadataLoadTimeInNanos, long metadataCacheHits) {
+        this.metadataLoads = metadataLoads;
+        this.metadataLoadTimeInNanos = metadataLoadTimeInNanos;
+        this.metadataCacheHits = metadataCacheHits;
     }
 
 
@@ -79,16 +112,82 @@ public class StoreStats implements Streamable, ToXContent {
         return throttleTime();
     }
 
+    /**
+     * Returns the number of reads of shards that are mounted from a snapshot that were served from the snapshot block cache.
+     */
+    public long getSnapshotCacheHits() {
+        return snapshotCacheHits;
+    }
+
+    /**
+     * Returns the number of reads of shards that are mounted from a snapshot that had to fetch a block from the repository.
+     */
+    public long getSnapshotCacheMisses() {
+        return snapshotCacheMisses;
+    }
+
+    /**
+     * Returns the fraction of reads of shards that are mounted from a snapshot that were served from the snapshot block cache.
+     */
+    public double getSnapshotCacheHitRate() {
+        final long lookups = snapshotCacheHits + snapshotCacheMisses;
+        return lookups == 0 ? 0 : (double) snapshotCacheHits / lookups;
+    }
+
+    /**
+     * Returns the number of bytes that shards that are mounted from a snapshot fetched from the repository.
+     */
+    public ByteSizeValue getSnapshotBytesFetched() {
+        return new ByteSizeValue(snapshotBytesFetched);
+    }
+
+    /**
+     * Returns the number of times the metadata of a commit, the checksums of all its files, was read from the store.
+     */
+    public long getMetadataLoads() {
+        return metadataLoads;
+    }
+
+    /**
+     * Returns the total time spent reading the metadata of commits from the store.
+     */
+    public TimeValue getMetadataLoadTime() {
+        return TimeValue.timeValueNanos(metadataLoadTimeInNanos);
+    }
+
+    /**
+     * Returns the number of times the metadata of a commit was served from the cache instead of being read from the store.
+     */
+    public long getMetadataCacheHits() {
+        return metadataCacheHits;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         sizeInBytes = in.readVLong();
         throttleTimeInNanos = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            snapshotCacheHits = in.readVLong();
+            snapshotCacheMisses = in.readVLong();
+            snapshotBytesFetched = in.readVLong();
+            metadataLoads = in.readVLong();
+            metadataLoadTimeInNanos = in.readVLong();
+            metadataCacheHits = in.readVLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(sizeInBytes);
         out.writeVLong(throttleTimeInNanos);
+        if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+            out.writeVLong(snapshotCacheHits);
+            out.writeVLong(snapshotCacheMisses);
+            out.writeVLong(snapshotBytesFetched);
+            out.writeVLong(metadataLoads);
+            out.writeVLong(metadataLoadTimeInNanos);
+            out.writeVLong(metadataCacheHits);
+        }
     }
 
     @Override
@@ -96,6 +195,19 @@ public class StoreStats implements Streamable, ToXContent {
         builder.startObject(Fields.STORE);
         builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, sizeInBytes);
         builder.timeValueField(Fields.THROTTLE_TIME_IN_MILLIS, Fields.THROTTLE_TIME, throttleTime());
+        if (snapshotCacheHits > 0 || snapshotCacheMisses > 0) {
+            builder.startObject(Fields.SNAPSHOT_CACHE);
+            builder.field(Fields.HITS, snapshotCacheHits);
+            builder.field(Fields.MISSES, snapshotCacheMisses);
+            builder.field(Fields.HIT_RATE, getSnapshotCacheHitRate());
+            builder.byteSizeField(Fields.FETCHED_IN_BYTES, Fields.FETCHED, snapshotBytesFetched);
+            builder.endObject();
+        }
+        builder.startObject(Fields.METADATA);
+        builder.field(Fields.LOADS, metadataLoads);
+        builder.timeValueField(Fields.LOAD_TIME_IN_MILLIS, Fields.LOAD_TIME, getMetadataLoadTime());
+        builder.field(Fields.CACHE_HITS, metadataCacheHits);
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -106,5 +218,16 @@ public class StoreStats implements Streamable, ToXContent {
         static final String SIZE_IN_BYTES = "size_in_bytes";
         static final String THROTTLE_TIME = "throttle_time";
         static final String THROTTLE_TIME_IN_MILLIS = "throttle_time_in_millis";
+        static final String SNAPSHOT_CACHE = "snapshot_cache";
+        static final String HITS = "hits";
+        static final String MISSES = "misses";
+        static final String HIT_RATE = "hit_rate";
+        static final String FETCHED = "fetched";
+        static final String FETCHED_IN_BYTES = "fetched_in_bytes";
+        static final String METADATA = "metadata";
+        static final String LOADS = "loads";
+        static final String LOAD_TIME = "load_time";
+        static final String LOAD_TIME_IN_MILLIS = "load_time_in_millis";
+        static final String CACHE_HITS = "cache_hits";
     }
 }
@@ -0,0 +1,477 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store.snapshot;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.BufferedIndexInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.Lock;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.blobstore.BlobContainer;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.lucene.store.ByteArrayIndexInput;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.FileInfo;
+import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.repositories.Repository;
+import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
+import org.elasticsearch.snapshots.SnapshotId;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A directory of a shard of an index that is mounted from a snapshot. The files of the shard snapshot are read from the repository
+ * on demand, in blocks that are cached by the {@link SnapshotBlockCache} of the node, while files that the shard writes after it
+ * was mounted, like the commits of the engine, go to a local directory. Files of the snapshot are never modified, deleting them
+ * only hides them.
+ * <p>
+ * The directory learns about the repository when the shard starts to recover, see {@link #bindRepository(Repository)}, and loads
+ * the list of snapshotted files when it is first accessed.
+ */
+public class SearchableSnapshotDirectory extends Directory {
+
+    private static final Logger logger = Loggers.getLogger(SearchableSnapshotDirectory.class);
+
+    private final Directory localDirectory;
+    private final SnapshotBlockCache blockCache;
+    private final ShardId shardId;
+    private final String repositoryName;
+    private final SnapshotId snapshotId;
+    private final IndexId indexId;
+
+    private final Set<String> hiddenFiles = ConcurrentCollections.newConcurrentSet();
+    private final CounterMetric blockLookups = new CounterMetric();
+    private final CounterMetric blockMisses = new CounterMetric();
+    private final CounterMetric bytesFetched = new CounterMetric();
+
+    private volatile BlobStoreRepository repository;
+    private volatile SnapshotFiles snapshotFiles;
+    private volatile boolean closed;
+
+    public SearchableSnapshotDirectory(Directory localDirectory, SnapshotBlockCache blockCache, ShardId shardId, String repositoryName,
+                                       SnapshotId snapshotId, IndexId indexId) {
+        this.localDirectory = localDirectory;
+        this.blockCache = blockCache;
+        this.shardId = shardId;
+        this.repositoryName = repositoryName;
+        this.snapshotId = snapshotId;
+        this.indexId = indexId;
+    }
+
+    /**
+     * Returns the repository that the snapshot of this directory is read from.
+     */
+    public String repositoryName() {
+        return repositoryName;
+    }
+
+    /**
+     * Binds the repository that holds the snapshot of this directory, before the shard reads from it. This doesn't access the
+     * repository, the files of the snapshot are listed when they are first needed.
+     */
+    public void bindRepository(Repository repository) {
+        if (repository instanceof BlobStoreRepository == false) {
+            throw new IllegalArgumentException("repository [" + repositoryName + "] of type [" + repository.getMetadata().type()
+                + "] doesn't support mounting snapshots");
+        }
+        this.repository = (BlobStoreRepository) repository;
+    }
+
+    private SnapshotFiles snapshotFiles() throws IOException {
+        SnapshotFiles files = snapshotFiles;
+        if (files == null) {
+            synchronized (this) {
+                files = snapshotFiles;
+                if (files == null) {
+                    files = loadSnapshotFiles();
+                    snapshotFiles = files;
+                }
+            }
+        }
+        return files;
+    }
+
+    private SnapshotFiles loadSnapshotFiles() throws IOException {
+        final BlobStoreRepository repository = this.repository;
+        if (repository == null) {
+            throw new IllegalStateException("repository [" + repositoryName + "] of shard " + shardId + " isn't bound yet");
+        }
+        final BlobStoreIndexShardSnapshot shardSnapshot = repository.loadShardSnapshot(snapshotId,
+            repository.getSnapshotInfo(snapshotId).version(), indexId, shardId);
+        final BlobContainer blobContainer = repository.shardContainer(indexId, shardId.id());
+        // blob names are reused once a snapshot was deleted, so blocks are cached by snapshot and by content of the file instead
+        final SnapshotFiles files = new SnapshotFiles(blobContainer,
+            snapshotId.getUUID() + "/" + indexId.getId() + "/" + shardId.id() + "/", shardSnapshot.indexFiles());
+        logger.debug("{} mounted [{}] files of snapshot [{}] of repository [{}]", shardId, files.byName.size(), snapshotId,
+            repositoryName);
+        // the small files are read when the shard is opened, so fetch them while it recovers
+        for (FileInfo fileInfo : files.byName.values()) {
+            if (fileInfo.length() <= blockCache.blockSize() && isInMetadata(fileInfo) == false) {
+                readSnapshotBytes(files, fileInfo, 0, new byte[Math.toIntExact(fileInfo.length())], 0, Math.toIntExact(fileInfo.length()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns true if the metadata of the given snapshotted file holds its whole content, like for segments and segment info files.
+     */
+    private static boolean isInMetadata(FileInfo fileInfo) {
+        return fileInfo.metadata().hash().length == fileInfo.length();
+    }
+
+    /**
+     * Returns the snapshotted file with the given name unless it was deleted, or null if there is none.
+     */
+    private FileInfo snapshotFile(String name) throws IOException {
+        if (repository == null || hiddenFiles.contains(name)) {
+            return null;
+        }
+        return snapshotFiles().byName.get(name);
+    }
+
+    @Override
+    public String[] listAll() throws IOException {
+        ensureOpen();
+        final Set<String> files = new TreeSet<>(Arrays.asList(localDirectory.listAll()));
+        if (repository != null) {
+            for (String name : snapshotFiles().byName.keySet()) {
+                if (hiddenFiles.contains(name) == false) {
+                    files.add(name);
+                }
+            }
+        }
+        return files.toArray(new String[files.size()]);
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        ensureOpen();
+        if (snapshotFile(name) != null) {
+            hiddenFiles.add(name);
+        } else {
+            localDirectory.deleteFile(name);
+        }
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        ensureOpen();
+        final FileInfo fileInfo = snapshotFile(name);
+        if (fileInfo != null) {
+            return fileInfo.length();
+        }
+        return localDirectory.fileLength(name);
+    }
+
+    @Override
+    public IndexOutput createOutput(String name, IOContext context) throws IOException {
+        ensureOpen();
+        if (snapshotFile(name) != null) {
+            throw new FileAlreadyExistsException("file [" + name + "] of snapshot [" + snapshotId + "] already exists");
+        }
+        return localDirectory.createOutput(name, context);
+    }
+
+    @Override
+    public IndexOutput createTempOutput(String prefix, String suffix, IOContext context) throws IOException {
+        ensureOpen();
+        return localDirectory.createTempOutput(prefix, suffix, context);
+    }
+
+    @Override
+    public void sync(Collection<String> names) throws IOException {
+        ensureOpen();
+        final List<String> localNames = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (snapshotFile(name) == null) {
+                localNames.add(name);
+            }
+        }
+        localDirectory.sync(localNames);
+    }
+
+    @Override
+    public void rename(String source, String dest) throws IOException {
+        ensureOpen();
+        if (snapshotFile(source) != null) {
+            throw new IOException("can't rename file [" + source + "] of snapshot [" + snapshotId + "]");
+        }
+        if (snapshotFile(dest) != null) {
+            throw new FileAlreadyExistsException("file [" + dest + "] of snapshot [" + snapshotId + "] already exists");
+        }
+        localDirectory.rename(source, dest);
+    }
+
+    @Override
+    public void syncMetaData() throws IOException {
+        ensureOpen();
+        localDirectory.syncMetaData();
+    }
+
+    @Override
+    public IndexInput openInput(String name, IOContext context) throws IOException {
+        ensureOpen();
+        final FileInfo fileInfo = snapshotFile(name);
+        if (fileInfo == null) {
+            return localDirectory.openInput(name, context);
+        }
+        final String resourceDescription = "SearchableSnapshotIndexInput(path=\"" + name + "\", snapshot=\"" + snapshotId + "\")";
+        if (isInMetadata(fileInfo)) {
+            final BytesRef hash = fileInfo.metadata().hash();
+            return new ByteArrayIndexInput(resourceDescription, hash.bytes, hash.offset, hash.length);
+        }
+        return new SnapshotIndexInput(resourceDescription, snapshotFiles(), fileInfo, 0, fileInfo.length(),
+            BufferedIndexInput.bufferSize(context));
+    }
+
+    @Override
+    public Lock obtainLock(String name) throws IOException {
+        ensureOpen();
+        return localDirectory.obtainLock(name);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            final SnapshotFiles files = snapshotFiles;
+            if (files != null) {
+                // free the space of the blocks of this shard for other shards
+                final Set<String> fileKeys = new HashSet<>();
+                for (FileInfo fileInfo : files.byName.values()) {
+                    fileKeys.add(files.fileKey(fileInfo));
+                }
+                blockCache.evictFiles(fileKeys);
+            }
+        } finally {
+            localDirectory.close();
+        }
+    }
+
+    @Override
+    protected void ensureOpen() {
+        if (closed) {
+            throw new AlreadyClosedException("this Directory is closed");
+        }
+    }
+
+    /**
+     * Reads bytes of the given snapshotted file through the block cache.
+     */
+    private void readSnapshotBytes(SnapshotFiles files, FileInfo fileInfo, long position, byte[] dest, int offset, int length)
+        throws IOException {
+        final int blockSize = blockCache.blockSize();
+        final String fileKey = files.fileKey(fileInfo);
+        while (length > 0) {
+            final long blockIndex = position / blockSize;
+            final long blockStart = blockIndex * blockSize;
+            final int blockLength = Math.toIntExact(Math.min(blockSize, fileInfo.length() - blockStart));
+            final int positionInBlock = Math.toIntExact(position - blockStart);
+            final int toRead = Math.min(length, blockLength - positionInBlock);
+            blockLookups.inc();
+            try (SnapshotBlockCache.Block block = blockCache.acquire(fileKey, blockIndex, blockLength, out -> {
+                    blockMisses.inc();
+                    files.fetch(fileInfo, blockStart, blockLength, out);
+                    bytesFetched.inc(blockLength);
+                })) {
+                block.read(positionInBlock, dest, offset, toRead);
+            }
+            position += toRead;
+            offset += toRead;
+            length -= toRead;
+        }
+    }
+
+    /**
+     * Returns the number of block reads that were served from the cache.
+     */
+    public long cacheHits() {
+        return Math.max(0, blockLookups.count() - blockMisses.count());
+    }
+
+    /**
+     * Returns the number of block reads that had to fetch the block from the repository.
+     */
+    public long cacheMisses() {
+        return blockMisses.count();
+    }
+
+    /**
+     * Returns the number of bytes that were fetched from the repository.
+     */
+    public long bytesFetched() {
+        return bytesFetched.count();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchableSnapshotDirectory(" + repositoryName + "/" + snapshotId + ", " + localDirectory + ")";
+    }
+
+    /**
+     * Returns the searchable snapshot directory that the given directory wraps, or null if there is none.
+     */
+    public static SearchableSnapshotDirectory unwrap(Directory directory) {
+        while (directory instanceof FilterDirectory) {
+            directory = ((FilterDirectory) directory).getDelegate();
+        }
+        return directory instanceof SearchableSnapshotDirectory ? (SearchableSnapshotDirectory) directory : null;
+    }
+
+    /**
+     * The files of the shard snapshot, and how to fetch ranges of them from the blobs of the shard.
+     */
+    private static final class SnapshotFiles {
+
+        private final BlobContainer blobContainer;
+        private final String keyPrefix;
+        private final Map<String, FileInfo> byName;
+
+        SnapshotFiles(BlobContainer blobContainer, String keyPrefix, List<FileInfo> fileInfos) {
+            this.blobContainer = blobContainer;
+            this.keyPrefix = keyPrefix;
+            final Map<String, FileInfo> byName = new HashMap<>();
+            for (FileInfo fileInfo : fileInfos) {
+                byName.put(fileInfo.physicalName(), fileInfo);
+            }
+            this.byName = Collections.unmodifiableMap(byName);
+        }
+
+        String fileKey(FileInfo fileInfo) {
+            return keyPrefix + fileInfo.physicalName() + "/" + fileInfo.checksum() + "/" + fileInfo.length();
+        }
+
+        /**
+         * Writes the given range of the given file to the given stream, reading it from the parts or chunks that overlap the range.
+         */
+        void fetch(FileInfo fileInfo, long position, long length, OutputStream out) throws IOException {
+            final long end = position + length;
+            final int numberOfBlobs = Math.toIntExact(fileInfo.storedInChunks() ? fileInfo.chunks().size() : fileInfo.numberOfParts());
+            final byte[] buffer = new byte[8192];
+            long blobStart = 0;
+            for (int i = 0; i < numberOfBlobs && blobStart < end; i++) {
+                final String blobName;
+                final long blobLength;
+                if (fileInfo.storedInChunks()) {
+                    blobName = fileInfo.chunks().get(i).blobName();
+                    blobLength = fileInfo.chunks().get(i).length();
+                } else {
+                    blobName = fileInfo.partName(i);
+                    blobLength = fileInfo.partBytes(i);
+                }
+                final long blobEnd = blobStart + blobLength;
+                if (blobEnd > position) {
+                    final long from = Math.max(position, blobStart);
+                    final long to = Math.min(end, blobEnd);
+                    try (InputStream in = blobContainer.readBlob(blobName, from - blobStart, to - from)) {
+                        long remaining = to - from;
+                        while (remaining > 0) {
+                            final int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                            if (read == -1) {
+                                throw new EOFException("blob [" + blobName + "] of file [" + fileInfo.physicalName()
+                                    + "] ended with [" + remaining + "] bytes left to read");
+                            }
+                            out.write(buffer, 0, read);
+                            remaining -= read;
+                        }
+                    }
+                }
+                blobStart = blobEnd;
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshotted file, or a slice of it, through the block cache.
+     */
+    private final class SnapshotIndexInput extends BufferedIndexInput {
+
+        private final SnapshotFiles files;
+        private final FileInfo fileInfo;
+        private final long offset;
+        private final long length;
+
+        SnapshotIndexInput(String resourceDescription, SnapshotFiles files, FileInfo fileInfo, long offset, long length, int bufferSize) {
+            super(resourceDescription, bufferSize);
+            this.files = files;
+            this.fileInfo = fileInfo;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        protected void readInternal(byte[] b, int off, int len) throws IOException {
+            final long position = getFilePointer();
+            if (position + len > length) {
+                throw new EOFException("read past EOF: " + this);
+            }
+            readSnapshotBytes(files, fileInfo, offset + position, b, off, len);
+        }
+
+        @Override
+        protected void seekInternal(long pos) throws IOException {
+            if (pos > length) {
+                throw new EOFException("seek past EOF: " + this);
+            }
+        }
+
+        @Override
+        public IndexInput slice(String sliceDescription, long sliceOffset, long sliceLength) throws IOException {
+            if (sliceOffset < 0 || sliceLength < 0 || sliceOffset + sliceLength > length) {
+                throw new IllegalArgumentException("slice() " + sliceDescription + " out of bounds: offset=" + sliceOffset
+                    + ",length=" + sliceLength + ",fileLength=" + length + ": " + this);
+            }
+            return new SnapshotIndexInput(getFullSliceDescription(sliceDescription), files, fileInfo, offset + sliceOffset, sliceLength,
+                getBufferSize());
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store.snapshot;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.LockFactory;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.store.DirectoryService;
+import org.elasticsearch.index.store.FsDirectoryService;
+import org.elasticsearch.index.store.IndexStore;
+import org.elasticsearch.index.store.IndexStoreConfig;
+import org.elasticsearch.index.shard.ShardPath;
+import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.snapshots.SnapshotId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The store of indices that are mounted from a snapshot, whose shards read the snapshotted files from the repository through the
+ * {@link SnapshotBlockCache} of the node rather than restoring them.
+ */
+public class SearchableSnapshotIndexStore extends IndexStore {
+
+    /**
+     * The value of the store type setting of indices that are mounted from a snapshot.
+     */
+    public static final String TYPE = "snapshot";
+
+    public static final Setting<String> REPOSITORY_SETTING =
+        Setting.simpleString("index.store.snapshot.repository", Property.IndexScope);
+    public static final Setting<String> SNAPSHOT_NAME_SETTING =
+        Setting.simpleString("index.store.snapshot.snapshot_name", Property.IndexScope);
+    public static final Setting<String> SNAPSHOT_UUID_SETTING =
+        Setting.simpleString("index.store.snapshot.snapshot_uuid", Property.IndexScope);
+    public static final Setting<String> INDEX_NAME_SETTING =
+        Setting.simpleString("index.store.snapshot.index_name", Property.IndexScope);
+    public static final Setting<String> INDEX_ID_SETTING =
+        Setting.simpleString("index.store.snapshot.index_id", Property.IndexScope);
+
+    private final SnapshotBlockCache blockCache;
+    private final String repositoryName;
+    private final SnapshotId snapshotId;
+    private final IndexId indexId;
+
+    public SearchableSnapshotIndexStore(IndexSettings indexSettings, IndexStoreConfig indexStoreConfig, SnapshotBlockCache blockCache) {
+        super(indexSettings, indexStoreConfig);
+        this.blockCache = blockCache;
+        this.repositoryName = getRequired(indexSettings, REPOSITORY_SETTING);
+        this.snapshotId = new SnapshotId(getRequired(indexSettings, SNAPSHOT_NAME_SETTING),
+            getRequired(indexSettings, SNAPSHOT_UUID_SETTING));
+        this.indexId = new IndexId(getRequired(indexSettings, INDEX_NAME_SETTING), getRequired(indexSettings, INDEX_ID_SETTING));
+    }
+
+    private static String getRequired(IndexSettings indexSettings, Setting<String> setting) {
+        final String value = indexSettings.getValue(setting);
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("index [" + indexSettings.getIndex().getName() + "] has store type [" + TYPE
+                + "] but setting [" + setting.getKey() + "] is missing");
+        }
+        return value;
+    }
+
+    @Override
+    public DirectoryService newDirectoryService(ShardPath path) {
+        return new FsDirectoryService(indexSettings, this, path) {
+            @Override
+            protected Directory newFSDirectory(Path location, LockFactory lockFactory) throws IOException {
+                return new SearchableSnapshotDirectory(FSDirectory.open(location, lockFactory), blockCache, path.getShardId(),
+                    repositoryName, snapshotId, indexId);
+            }
+        };
+    }
+}
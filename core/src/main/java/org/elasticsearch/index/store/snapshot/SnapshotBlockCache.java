@@ -0,0 +1,360 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store.snapshot;
+
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.io.Channels;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A node level cache of blocks of files in snapshot repositories, that backs the shards of indices that are mounted from a
+ * snapshot. Blocks are fetched on demand and kept in files below a directory of the node, and the least recently used blocks
+ * are evicted once the cached blocks take more space than the configured cache size.
+ */
+public class SnapshotBlockCache extends AbstractComponent implements Closeable {
+
+    public static final Setting<ByteSizeValue> SIZE_SETTING =
+        Setting.byteSizeSetting("indices.snapshot_cache.size", new ByteSizeValue(1, ByteSizeUnit.GB), Property.NodeScope);
+    public static final Setting<ByteSizeValue> BLOCK_SIZE_SETTING =
+        Setting.byteSizeSetting("indices.snapshot_cache.block_size", new ByteSizeValue(1, ByteSizeUnit.MB),
+            new ByteSizeValue(4, ByteSizeUnit.KB), new ByteSizeValue(64, ByteSizeUnit.MB), Property.NodeScope);
+
+    @Nullable
+    private final Path path;
+    private final long maxSizeInBytes;
+    private final int blockSizeInBytes;
+
+    private final Object mutex = new Object();
+    // guarded by mutex, in access order so that iteration starts with the least recently used block
+    private final LinkedHashMap<BlockKey, Block> blocks = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeInBytes;
+    private boolean initialized;
+    private boolean closed;
+
+    /**
+     * Creates a cache that keeps its blocks below the given directory. Whatever is left in the directory is removed when the first
+     * block is cached. The directory may be <code>null</code> on nodes without a data path, which can't cache any blocks.
+     */
+    public SnapshotBlockCache(Settings settings, @Nullable Path path) {
+        super(settings);
+        this.path = path;
+        this.maxSizeInBytes = SIZE_SETTING.get(settings).getBytes();
+        this.blockSizeInBytes = Math.toIntExact(BLOCK_SIZE_SETTING.get(settings).getBytes());
+    }
+
+    /**
+     * Returns the size of the blocks that files are split into. Only the last block of a file may be smaller.
+     */
+    public int blockSize() {
+        return blockSizeInBytes;
+    }
+
+    /**
+     * Returns the block with the given index of the file with the given key, and loads it with the given loader if it isn't cached
+     * yet. The loader must write exactly the given number of bytes. The returned block must be released once it was read, it
+     * stays readable until then even if it is evicted in the meantime.
+     */
+    public Block acquire(String fileKey, long blockIndex, int length, CheckedConsumer<OutputStream, IOException> loader)
+        throws IOException {
+        final BlockKey key = new BlockKey(fileKey, blockIndex);
+        final Block block;
+        synchronized (mutex) {
+            ensureOpen();
+            Block existing = blocks.get(key);
+            if (existing == null || existing.length != length) {
+                if (existing != null) {
+                    remove(existing);
+                }
+                existing = new Block(key, length);
+                blocks.put(key, existing);
+            }
+            block = existing;
+            block.incRef();
+        }
+        boolean success = false;
+        try {
+            if (block.loaded == false) {
+                load(block, loader);
+            }
+            success = true;
+            return block;
+        } finally {
+            if (success == false) {
+                synchronized (mutex) {
+                    if (blocks.get(key) == block) {
+                        blocks.remove(key);
+                        remove(block);
+                    }
+                }
+                block.decRef();
+            }
+        }
+    }
+
+    private void load(Block block, CheckedConsumer<OutputStream, IOException> loader) throws IOException {
+        synchronized (block) {
+            if (block.loaded) {
+                return;
+            }
+            final Path file = directory().resolve(UUIDs.randomBase64UUID());
+            boolean success = false;
+            try {
+                try (OutputStream outputStream = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)) {
+                    loader.accept(outputStream);
+                }
+                final long size = Files.size(file);
+                if (size != block.length) {
+                    throw new EOFException("expected block [" + block.key + "] to have [" + block.length + "] bytes but loaded ["
+                        + size + "]");
+                }
+                block.channel = FileChannel.open(file, StandardOpenOption.READ);
+                block.file = file;
+                block.loaded = true;
+                success = true;
+            } finally {
+                if (success == false) {
+                    IOUtils.deleteFilesIgnoringExceptions(file);
+                }
+            }
+        }
+        synchronized (mutex) {
+            if (block.removed == false) {
+                block.accounted = true;
+                sizeInBytes += block.length;
+                evict(block);
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used blocks, except for the given one, until the cached blocks fit into the cache.
+     */
+    private void evict(Block loaded) {
+        assert Thread.holdsLock(mutex);
+        final Iterator<Block> iterator = blocks.values().iterator();
+        while (sizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+            final Block block = iterator.next();
+            if (block != loaded && block.accounted) {
+                iterator.remove();
+                remove(block);
+            }
+        }
+    }
+
+    /**
+     * Evicts all blocks of the files with the given keys, for instance because the shard that read them was closed. Blocks that
+     * are being read stay readable until they are released.
+     */
+    public void evictFiles(Set<String> fileKeys) {
+        synchronized (mutex) {
+            if (closed) {
+                return;
+            }
+            final Iterator<Block> iterator = blocks.values().iterator();
+            while (iterator.hasNext()) {
+                final Block block = iterator.next();
+                if (fileKeys.contains(block.key.fileKey)) {
+                    iterator.remove();
+                    remove(block);
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the reference of the cache to a block that was taken out of the map of cached blocks.
+     */
+    private void remove(Block block) {
+        assert Thread.holdsLock(mutex);
+        assert block.removed == false : "block [" + block.key + "] was removed already";
+        block.removed = true;
+        if (block.accounted) {
+            sizeInBytes -= block.length;
+        }
+        block.decRef();
+    }
+
+    private Path directory() throws IOException {
+        synchronized (mutex) {
+            ensureOpen();
+            if (initialized == false) {
+                if (path == null) {
+                    throw new IllegalStateException("node has no data path to cache blocks of snapshotted files");
+                }
+                IOUtils.rm(path);
+                Files.createDirectories(path);
+                initialized = true;
+            }
+            return path;
+        }
+    }
+
+    private void ensureOpen() {
+        assert Thread.holdsLock(mutex);
+        if (closed) {
+            throw new AlreadyClosedException("snapshot block cache is closed");
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the cached blocks.
+     */
+    public long sizeInBytes() {
+        synchronized (mutex) {
+            return sizeInBytes;
+        }
+    }
+
+    /**
+     * Returns the number of cached blocks, including those that are being loaded.
+     */
+    public int numberOfBlocks() {
+        synchronized (mutex) {
+            return blocks.size();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (mutex) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Block block : blocks.values()) {
+                remove(block);
+            }
+            blocks.clear();
+            if (initialized) {
+                IOUtils.rm(path);
+            }
+        }
+    }
+
+    private static final class BlockKey {
+
+        private final String fileKey;
+        private final long blockIndex;
+
+        BlockKey(String fileKey, long blockIndex) {
+            this.fileKey = fileKey;
+            this.blockIndex = blockIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            BlockKey blockKey = (BlockKey) o;
+            return blockIndex == blockKey.blockIndex && fileKey.equals(blockKey.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fileKey, blockIndex);
+        }
+
+        @Override
+        public String toString() {
+            return fileKey + "[" + blockIndex + "]";
+        }
+    }
+
+    /**
+     * A cached block of a file. The file that holds the block is deleted once the block was evicted and all readers released it.
+     */
+    public static final class Block extends AbstractRefCounted implements Releasable {
+
+        private final BlockKey key;
+        private final int length;
+
+        // guarded by the block itself until the block is loaded
+        private Path file;
+        private FileChannel channel;
+        private volatile boolean loaded;
+
+        // guarded by the mutex of the cache
+        private boolean removed;
+        private boolean accounted;
+
+        private Block(BlockKey key, int length) {
+            super(key.toString());
+            this.key = key;
+            this.length = length;
+        }
+
+        /**
+         * Returns the number of bytes of this block.
+         */
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Reads the given number of bytes at the given position of this block into the given array.
+         */
+        public void read(long position, byte[] dest, int offset, int length) throws IOException {
+            assert loaded : "block [" + key + "] isn't loaded";
+            assert position + length <= this.length : "reading past the end of block [" + key + "]";
+            Channels.readFromFileChannelWithEofException(channel, position, dest, offset, length);
+        }
+
+        @Override
+        public void close() {
+            decRef();
+        }
+
+        @Override
+        protected void closeInternal() {
+            IOUtils.closeWhileHandlingException(channel);
+            if (file != null) {
+                IOUtils.deleteFilesIgnoringExceptions(file);
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.apache.lucene.index.TwoPhaseCommit;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.bytes.BytesArray;
@@ -41,8 +42,10 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.FutureUtils;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.IndexShardComponent;
 
@@ -51,12 +54,15 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -95,7 +101,6 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
     /*
      * TODO
-     *  - we might need something like a deletion policy to hold on to more than one translog eventually (I think sequence IDs needs this) but we can refactor as we go
      *  - use a simple BufferedOutputStream to write stuff and fold BufferedTranslogWriter into it's super class... the tricky bit is we need to be able to do random access reads even from the buffer
      *  - we need random exception on the FileSystem API tests for all this.
      *  - we need to page align the last write before we sync, we can take advantage of ensureSynced for this since we might have already fsynced far enough
@@ -127,6 +132,10 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private final AtomicBoolean closed = new AtomicBoolean();
     private final TranslogConfig config;
     private final String translogUUID;
+    // the highest sequence number of each committed generation, to know which operations are lost when a generation is deleted.
+    // generations that were recovered from disk aren't tracked, their operations are covered by the history boundary of the engine
+    private final Map<Long, Long> maxSeqNoPerGeneration = new HashMap<>();
+    private volatile long maxTrimmedSeqNo = SequenceNumbers.NO_OPS_PERFORMED;
 
     /**
      * Creates a new Translog instance. This method will create a new transaction log unless the given {@link TranslogConfig} has
@@ -176,6 +185,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                     logger.warn("deleted previously created, but not yet committed, next generation [{}]. This can happen due to a tragic exception when creating a new generation", nextTranslogFile.getFileName());
                 }
                 this.readers.addAll(recoverFromFiles(translogGeneration, checkpoint));
+                deleteGenerationsBefore(translogGeneration.translogFileGeneration);
                 if (readers.isEmpty()) {
                     throw new IllegalStateException("at least one reader must be recovered");
                 }
@@ -265,6 +275,27 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         return foundTranslogs;
     }
 
+    /**
+     * Deletes the files of generations before the committed one, that were retained for operation based recoveries before the
+     * translog was closed. They can't be used for recoveries anymore since shards start a new history when they are reopened.
+     */
+    private void deleteGenerationsBefore(long committedGeneration) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(location, TRANSLOG_FILE_PREFIX + "*" + TRANSLOG_FILE_SUFFIX)) {
+            for (Path path : stream) {
+                final long generation;
+                try {
+                    generation = parseIdFromFileName(path);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                if (generation < committedGeneration) {
+                    logger.trace("delete retained translog file {} of a previous run", path);
+                    IOUtils.deleteFilesIgnoringExceptions(path, path.resolveSibling(getCommitCheckpointFileName(generation)));
+                }
+            }
+        }
+    }
+
     TranslogReader openReader(Path path, Checkpoint checkpoint) throws IOException {
         FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
         try {
@@ -406,7 +437,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             final ReleasablePagedBytesReference bytes = out.bytes();
             try (ReleasableLock lock = readLock.acquire()) {
                 ensureOpen();
-                Location location = current.add(bytes);
+                Location location = current.add(bytes, operation.seqNo());
                 return location;
             }
         } catch (AlreadyClosedException | IOException ex) {
@@ -444,11 +475,11 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     /**
-     * Snapshots the current transaction log allowing to safely iterate over the snapshot.
-     * Snapshots are fixed in time and will not be updated with future operations.
+     * Snapshots the operations of the current transaction log that aren't committed to lucene, allowing to safely iterate over
+     * the snapshot. Snapshots are fixed in time and will not be updated with future operations.
      */
     public Snapshot newSnapshot() {
-        return createSnapshot(Long.MIN_VALUE);
+        return createSnapshot(lastCommittedTranslogFileGeneration);
     }
 
     private Snapshot createSnapshot(long minGeneration) {
@@ -474,6 +505,31 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    /**
+     * Returns a view like {@link #newView()}, that also includes the committed operations that are retained for operation based
+     * recoveries.
+     *
+     * @see #getMaxTrimmedSeqNo()
+     */
+    public Translog.View newRetainedView() {
+        try (ReleasableLock lock = readLock.acquire()) {
+            ensureOpen();
+            final long minGeneration = readers.isEmpty() ? current.getGeneration() : readers.get(0).getGeneration();
+            View view = new View(Math.min(minGeneration, lastCommittedTranslogFileGeneration));
+            outstandingViews.add(view);
+            return view;
+        }
+    }
+
+    /**
+     * Returns the highest sequence number of the operations that were deleted from this translog, or
+     * {@link SequenceNumbers#NO_OPS_PERFORMED} if none were deleted yet. All operations with a higher sequence number that this
+     * translog received are still available through a {@link #newRetainedView() retained view}.
+     */
+    public long getMaxTrimmedSeqNo() {
+        return maxTrimmedSeqNo;
+    }
+
     /**
      * Sync's the translog.
      */
@@ -643,7 +699,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         public final long translogLocation;
         public final int size;
 
-        Location(long generation, long translogLocation, int size) {
+        public Location(long generation, long translogLocation, int size) {
             this.generation = generation;
             this.translogLocation = translogLocation;
             this.size = size;
@@ -749,6 +805,12 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
         Source getSource();
 
+        /**
+         * Returns the sequence number of the operation, or {@link SequenceNumbers#UNASSIGNED_SEQ_NO} for operations that were
+         * written without one.
+         */
+        long seqNo();
+
         /**
          * Reads the type and the operation from the given stream. The operatino must be written with
          * {@link Operation#writeType(Operation, StreamOutput)}
@@ -797,8 +859,11 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     public static class Index implements Operation {
         public static final int FORMAT_2x = 6; // since 2.0-beta1 and 1.1
         public static final int FORMAT_AUTO_GENERATED_IDS = 7; // since 5.0.0-beta1
-        public static final int SERIALIZATION_FORMAT = FORMAT_AUTO_GENERATED_IDS;
+        public static final int FORMAT_IN_PLACE = 8; // since 5.3.4
+        public static final int FORMAT_SEQ_NO = 9; // since 5.3.4
+        public static final int SERIALIZATION_FORMAT = FORMAT_SEQ_NO;
         private final String id;
+        private final long seqNo;
         private final long autoGeneratedIdTimestamp;
         private final String type;
         private final long version;
@@ -808,6 +873,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         private final String parent;
         private final long timestamp;
         private final long ttl;
+        private final boolean inPlace;
 
         public Index(StreamInput in) throws IOException {
             final int format = in.readVInt(); // SERIALIZATION_FORMAT
@@ -827,6 +893,16 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             } else {
                 this.autoGeneratedIdTimestamp = IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP;
             }
+            if (format >= FORMAT_IN_PLACE) {
+                this.inPlace = in.readBoolean();
+            } else {
+                this.inPlace = false;
+            }
+            if (format >= FORMAT_SEQ_NO) {
+                this.seqNo = in.readLong();
+            } else {
+                this.seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
+            }
         }
 
         public Index(Engine.Index index, Engine.IndexResult indexResult) {
@@ -840,6 +916,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             this.ttl = index.ttl();
             this.versionType = index.versionType();
             this.autoGeneratedIdTimestamp = index.getAutoGeneratedIdTimestamp();
+            this.inPlace = index.isInPlace();
+            this.seqNo = indexResult.getSeqNo();
         }
 
         public Index(String type, String id, byte[] source) {
@@ -853,6 +931,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             timestamp = 0;
             ttl = 0;
             autoGeneratedIdTimestamp = -1;
+            inPlace = false;
+            seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
         }
 
         @Override
@@ -901,6 +981,18 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             return versionType;
         }
 
+        /**
+         * Returns <code>true</code> if this operation only updated the numeric doc values of an existing document.
+         */
+        public boolean inPlace() {
+            return inPlace;
+        }
+
+        @Override
+        public long seqNo() {
+            return seqNo;
+        }
+
         @Override
         public Source getSource() {
             return new Source(source, routing, parent, timestamp, ttl);
@@ -908,7 +1000,16 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
-            out.writeVInt(SERIALIZATION_FORMAT);
+            // only operations that need it use the newer format, so that translogs and recoveries stay readable by older nodes
+            final int format;
+            if (seqNo != SequenceNumbers.UNASSIGNED_SEQ_NO && out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+                format = FORMAT_SEQ_NO;
+            } else if (inPlace) {
+                format = FORMAT_IN_PLACE;
+            } else {
+                format = FORMAT_AUTO_GENERATED_IDS;
+            }
+            out.writeVInt(format);
             out.writeString(id);
             out.writeString(type);
             out.writeBytesReference(source);
@@ -919,6 +1020,12 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             out.writeLong(ttl);
             out.writeByte(versionType.getValue());
             out.writeLong(autoGeneratedIdTimestamp);
+            if (format >= FORMAT_IN_PLACE) {
+                out.writeBoolean(inPlace);
+            }
+            if (format >= FORMAT_SEQ_NO) {
+                out.writeLong(seqNo);
+            }
         }
 
         @Override
@@ -933,12 +1040,14 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             Index index = (Index) o;
 
             if (version != index.version ||
+                    seqNo != index.seqNo ||
                     timestamp != index.timestamp ||
                     ttl != index.ttl ||
                     id.equals(index.id) == false ||
                     type.equals(index.type) == false ||
                     versionType != index.versionType ||
                     autoGeneratedIdTimestamp != index.autoGeneratedIdTimestamp ||
+                    inPlace != index.inPlace ||
                     source.equals(index.source) == false) {
                     return false;
             }
@@ -961,6 +1070,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             result = 31 * result + Long.hashCode(timestamp);
             result = 31 * result + Long.hashCode(autoGeneratedIdTimestamp);
             result = 31 * result + Long.hashCode(ttl);
+            result = 31 * result + Boolean.hashCode(inPlace);
+            result = 31 * result + Long.hashCode(seqNo);
             return result;
         }
 
@@ -978,25 +1089,31 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     public static class Delete implements Operation {
-        public static final int SERIALIZATION_FORMAT = 2; // since 2.0-beta1 and 1.1
+        public static final int FORMAT_2x = 2; // since 2.0-beta1 and 1.1
+        public static final int FORMAT_SEQ_NO = 3; // since 5.3.4
+        public static final int SERIALIZATION_FORMAT = FORMAT_SEQ_NO;
 
         private final Term uid;
+        private final long seqNo;
         private final long version;
         private final VersionType versionType;
 
         public Delete(StreamInput in) throws IOException {
             final int format = in.readVInt();// SERIALIZATION_FORMAT
-            assert format == SERIALIZATION_FORMAT : "format was: " + format;
+            assert format >= FORMAT_2x : "format was: " + format;
             uid = new Term(in.readString(), in.readString());
             this.version = in.readLong();
             this.versionType = VersionType.fromValue(in.readByte());
             assert versionType.validateVersionForWrites(this.version);
+            if (format >= FORMAT_SEQ_NO) {
+                this.seqNo = in.readLong();
+            } else {
+                this.seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
+            }
         }
 
         public Delete(Engine.Delete delete, Engine.DeleteResult deleteResult) {
-            this.uid = delete.uid();
-            this.version = deleteResult.getVersion();
-            this.versionType = delete.versionType();
+            this(delete.uid(), deleteResult.getSeqNo(), deleteResult.getVersion(), delete.versionType());
         }
 
         public Delete(Term uid) {
@@ -1004,7 +1121,12 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
 
         public Delete(Term uid, long version, VersionType versionType) {
+            this(uid, SequenceNumbers.UNASSIGNED_SEQ_NO, version, versionType);
+        }
+
+        public Delete(Term uid, long seqNo, long version, VersionType versionType) {
             this.uid = uid;
+            this.seqNo = seqNo;
             this.version = version;
             this.versionType = versionType;
         }
@@ -1031,6 +1153,11 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             return this.versionType;
         }
 
+        @Override
+        public long seqNo() {
+            return seqNo;
+        }
+
         @Override
         public Source getSource() {
             throw new IllegalStateException("trying to read doc source from delete operation");
@@ -1038,11 +1165,21 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
-            out.writeVInt(SERIALIZATION_FORMAT);
+            // like index operations, deletes without a sequence number keep the format that older nodes can read
+            final int format;
+            if (seqNo != SequenceNumbers.UNASSIGNED_SEQ_NO && out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+                format = FORMAT_SEQ_NO;
+            } else {
+                format = FORMAT_2x;
+            }
+            out.writeVInt(format);
             out.writeString(uid.field());
             out.writeString(uid.text());
             out.writeLong(version);
             out.writeByte(versionType.getValue());
+            if (format >= FORMAT_SEQ_NO) {
+                out.writeLong(seqNo);
+            }
         }
 
         @Override
@@ -1057,6 +1194,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             Delete delete = (Delete) o;
 
             return version == delete.version &&
+                    seqNo == delete.seqNo &&
                     uid.equals(delete.uid) &&
                     versionType == delete.versionType;
         }
@@ -1066,6 +1204,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             int result = uid.hashCode();
             result = 31 * result + Long.hashCode(version);
             result = 31 * result + versionType.hashCode();
+            result = 31 * result + Long.hashCode(seqNo);
             return result;
         }
 
@@ -1150,6 +1289,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         try {
             outStream.writeInt(toWrite.size());
             final BufferedChecksumStreamOutput checksumStreamOutput = new BufferedChecksumStreamOutput(out);
+            // the operations are sent to other nodes, which might not be able to read sequence numbers yet
+            checksumStreamOutput.setVersion(outStream.getVersion());
             for (Operation op : toWrite) {
                 out.reset();
                 final long start = out.position();
@@ -1187,6 +1328,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 throw new IllegalStateException("already committing a translog with generation: " + currentCommittingGeneration);
             }
             currentCommittingGeneration = current.getGeneration();
+            maxSeqNoPerGeneration.put(current.getGeneration(), current.getMaxSeqNo());
             TranslogReader currentCommittingTranslog = current.closeIntoReader();
             readers.add(currentCommittingTranslog);
             Path checkpoint = location.resolve(CHECKPOINT_FILE_NAME);
@@ -1218,30 +1360,73 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                     : "reader list doesn't contain committing generation [" + currentCommittingGeneration + "]";
             lastCommittedTranslogFileGeneration = current.getGeneration(); // this is important - otherwise old files will not be cleaned up
             currentCommittingGeneration = NOT_SET_GENERATION;
-            trimUnreferencedReaders();
         }
+        trimUnreferencedReaders();
         return 0;
     }
 
     void trimUnreferencedReaders() {
+        final List<TranslogReader> unreferenced;
         try (ReleasableLock ignored = writeLock.acquire()) {
             if (closed.get()) {
                 // we're shutdown potentially on some tragic event - don't delete anything
                 return;
             }
             long minReferencedGen = outstandingViews.stream().mapToLong(View::minTranslogGeneration).min().orElse(Long.MAX_VALUE);
-            minReferencedGen = Math.min(lastCommittedTranslogFileGeneration, minReferencedGen);
+            minReferencedGen = Math.min(minRetainedGeneration(), minReferencedGen);
             final long finalMinReferencedGen = minReferencedGen;
-            List<TranslogReader> unreferenced = readers.stream().filter(r -> r.getGeneration() < finalMinReferencedGen).collect(Collectors.toList());
+            unreferenced = readers.stream().filter(r -> r.getGeneration() < finalMinReferencedGen).collect(Collectors.toList());
             for (final TranslogReader unreferencedReader : unreferenced) {
-                Path translogPath = unreferencedReader.path();
-                logger.trace("delete translog file - not referenced and not current anymore {}", translogPath);
-                IOUtils.closeWhileHandlingException(unreferencedReader);
-                IOUtils.deleteFilesIgnoringExceptions(translogPath,
-                        translogPath.resolveSibling(getCommitCheckpointFileName(unreferencedReader.getGeneration())));
+                final Long maxSeqNo = maxSeqNoPerGeneration.remove(unreferencedReader.getGeneration());
+                if (maxSeqNo != null && maxSeqNo > maxTrimmedSeqNo) {
+                    maxTrimmedSeqNo = maxSeqNo;
+                }
             }
             readers.removeAll(unreferenced);
         }
+        // the readers are not reachable anymore, so we can delete their files without blocking writes
+        for (final TranslogReader unreferencedReader : unreferenced) {
+            Path translogPath = unreferencedReader.path();
+            logger.trace("delete translog file - not referenced and not current anymore {}", translogPath);
+            IOUtils.closeWhileHandlingException(unreferencedReader);
+            IOUtils.deleteFilesIgnoringExceptions(translogPath,
+                    translogPath.resolveSibling(getCommitCheckpointFileName(unreferencedReader.getGeneration())));
+        }
+    }
+
+    /**
+     * Returns the oldest generation that has to be kept: the last committed one, or an older one as long as the committed files
+     * from it on are within the retention size and age of {@link IndexSettings#INDEX_TRANSLOG_RETENTION_SIZE_SETTING} and
+     * {@link IndexSettings#INDEX_TRANSLOG_RETENTION_AGE_SETTING}.
+     */
+    private long minRetainedGeneration() {
+        assert writeLock.isHeldByCurrentThread();
+        final long retentionSizeInBytes = indexSettings.getTranslogRetentionSize().getBytes();
+        final long minLastModifiedMillis = System.currentTimeMillis() - indexSettings.getTranslogRetentionAge().millis();
+        long minGeneration = lastCommittedTranslogFileGeneration;
+        long retainedSizeInBytes = 0;
+        for (int i = readers.size() - 1; i >= 0; i--) {
+            final TranslogReader reader = readers.get(i);
+            if (reader.getGeneration() >= lastCommittedTranslogFileGeneration) {
+                continue;
+            }
+            retainedSizeInBytes += reader.sizeInBytes();
+            if (retainedSizeInBytes > retentionSizeInBytes || lastModifiedMillis(reader) < minLastModifiedMillis) {
+                break;
+            }
+            minGeneration = reader.getGeneration();
+        }
+        return minGeneration;
+    }
+
+    private long lastModifiedMillis(TranslogReader reader) {
+        try {
+            return Files.getLastModifiedTime(reader.path()).toMillis();
+        } catch (IOException e) {
+            logger.debug((Supplier<?>) () -> new ParameterizedMessage("failed to read last modified time of {}", reader.path()), e);
+            // don't retain files that we can't tell the age of
+            return Long.MIN_VALUE;
+        }
     }
 
     void closeFilesIfNoPendingViews() throws IOException {
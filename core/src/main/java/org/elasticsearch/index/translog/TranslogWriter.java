@@ -27,6 +27,7 @@ import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.Channels;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.ShardId;
 
 import java.io.BufferedOutputStream;
@@ -52,6 +53,8 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
     private volatile long lastSyncedOffset;
     /* the number of translog operations written to this file */
     private volatile int operationCounter;
+    /* the highest sequence number of the operations in this file */
+    private volatile long maxSeqNo = SequenceNumbers.NO_OPS_PERFORMED;
     /* if we hit an exception that we can't recover from we assign it to this var and ship it with every AlreadyClosedException we throw */
     private volatile Exception tragedy;
     /* A buffered outputstream what writes to the writers channel */
@@ -131,7 +134,15 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
     /**
      * add the given bytes to the translog and return the location they were written at
      */
-    public synchronized Translog.Location add(BytesReference data) throws IOException {
+    public Translog.Location add(BytesReference data) throws IOException {
+        return add(data, SequenceNumbers.UNASSIGNED_SEQ_NO);
+    }
+
+    /**
+     * add the given bytes of the operation with the given sequence number to the translog and return the location they were
+     * written at
+     */
+    public synchronized Translog.Location add(BytesReference data, long seqNo) throws IOException {
         ensureOpen();
         final long offset = totalOffset;
         try {
@@ -146,6 +157,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         }
         totalOffset += data.length();
         operationCounter++;
+        maxSeqNo = Math.max(maxSeqNo, seqNo);
         return new Translog.Location(generation, offset, data.length());
     }
 
@@ -176,6 +188,14 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         return totalOffset;
     }
 
+    /**
+     * Returns the highest sequence number of the operations that were added to this file, or
+     * {@link SequenceNumbers#NO_OPS_PERFORMED} if none had one.
+     */
+    public long getMaxSeqNo() {
+        return maxSeqNo;
+    }
+
     /**
      * closes this writer and transfers it's underlying file channel to a new immutable reader
      */
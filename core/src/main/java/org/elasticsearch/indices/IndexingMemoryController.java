@@ -22,6 +22,7 @@ package org.elasticsearch.indices;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.logging.log4j.util.Supplier;
 import org.apache.lucene.store.AlreadyClosedException;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -30,7 +31,9 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.IndexingOperationListener;
@@ -44,12 +47,15 @@ import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class IndexingMemoryController extends AbstractComponent implements IndexingOperationListener, Closeable {
+public class IndexingMemoryController extends AbstractComponent implements IndexingOperationListener, IndexEventListener, Closeable {
 
     /** How much heap (% or bytes) we will share across all actively indexing shards on this node (default: 10%). */
     public static final Setting<ByteSizeValue> INDEX_BUFFER_SIZE_SETTING =
@@ -75,6 +81,12 @@ public class IndexingMemoryController extends AbstractComponent implements Index
     /** How frequently we check indexing memory usage (default: 5 seconds). */
     public static final Setting<TimeValue> SHARD_MEMORY_INTERVAL_TIME_SETTING = Setting.positiveTimeSetting("indices.memory.interval", TimeValue.timeValueSeconds(5), Property.NodeScope);
 
+    /**
+     * The time window of the moving average of the write load of each shard, which decides how quickly the indexing buffer shares
+     * follow changes of the write load.
+     */
+    static final long WRITE_LOAD_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+
     private final ThreadPool threadPool;
 
     private final Iterable<IndexShard> indexShards;
@@ -87,6 +99,9 @@ public class IndexingMemoryController extends AbstractComponent implements Index
     /** Contains shards currently being throttled because we can't write segments quickly enough */
     private final Set<IndexShard> throttled = new HashSet<>();
 
+    /** The write load of each shard that indexed or deleted documents, updated by the status checker */
+    private final Map<ShardId, ShardWriteLoad> writeLoads = ConcurrentCollections.newConcurrentMap();
+
     private final Cancellable scheduler;
 
     private static final EnumSet<IndexShardState> CAN_WRITE_INDEX_BUFFER_STATES = EnumSet.of(
@@ -200,36 +215,81 @@ public class IndexingMemoryController extends AbstractComponent implements Index
         shard.deactivateThrottling();
     }
 
+    /** Records the write load of this shard and its share of the indexing buffer, so that the shard reports them in its stats */
+    protected void updateWriteLoad(IndexShard shard, long writeLoadBytesPerSecond, double indexBufferShare) {
+        shard.updateWriteLoad(writeLoadBytesPerSecond, indexBufferShare);
+    }
+
+    /** returns the current relative time in nanoseconds, used to compute the write load of shards */
+    protected long currentTimeInNanos() {
+        return System.nanoTime();
+    }
+
     @Override
     public void postIndex(ShardId shardId, Engine.Index index, Engine.IndexResult result) {
-        recordOperationBytes(index, result);
+        recordOperationBytes(shardId, index, result);
     }
 
     @Override
     public void postDelete(ShardId shardId, Engine.Delete delete, Engine.DeleteResult result) {
-        recordOperationBytes(delete, result);
+        recordOperationBytes(shardId, delete, result);
     }
 
     /** called by IndexShard to record estimated bytes written to translog for the operation */
-    private void recordOperationBytes(Engine.Operation operation, Engine.Result result) {
+    private void recordOperationBytes(ShardId shardId, Engine.Operation operation, Engine.Result result) {
         if (result.hasFailure() == false) {
+            recordWriteLoad(shardId, operation.estimatedSizeInBytes());
             statusChecker.bytesWritten(operation.estimatedSizeInBytes());
         }
     }
 
+    /** adds bytes indexed or deleted by this shard to its write load */
+    void recordWriteLoad(ShardId shardId, long bytes) {
+        ShardWriteLoad writeLoad = writeLoads.get(shardId);
+        if (writeLoad == null) {
+            writeLoad = writeLoads.computeIfAbsent(shardId, id -> new ShardWriteLoad());
+        }
+        writeLoad.bytesSinceCheck.add(bytes);
+    }
+
+    @Override
+    public void afterIndexShardClosed(ShardId shardId, @Nullable IndexShard indexShard, Settings indexSettings) {
+        // forget about the write load of shards that were closed or moved away
+        writeLoads.remove(shardId);
+    }
+
+    /** The write load of a shard, as an exponentially weighted moving average of the bytes it indexes and deletes per second. */
+    private static final class ShardWriteLoad {
+        final LongAdder bytesSinceCheck = new LongAdder();
+        // only accessed by the status checker, under its run lock:
+        double bytesPerSecond;
+        double indexBufferShare;
+
+        void update(long elapsedNanos) {
+            long bytes = bytesSinceCheck.sumThenReset();
+            double instantBytesPerSecond = bytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+            // weigh the new rate by the time it covers, so that checks triggered by indexing bytes count as much as scheduled ones:
+            double alpha = 1 - Math.exp(-elapsedNanos / (double) WRITE_LOAD_WINDOW_NANOS);
+            bytesPerSecond += alpha * (instantBytesPerSecond - bytesPerSecond);
+        }
+    }
+
     private static final class ShardAndBytesUsed implements Comparable<ShardAndBytesUsed> {
         final long bytesUsed;
+        /** the bytes of the indexing buffer that this shard is entitled to by its write load */
+        final long bytesShare;
         final IndexShard shard;
 
-        ShardAndBytesUsed(long bytesUsed, IndexShard shard) {
+        ShardAndBytesUsed(long bytesUsed, long bytesShare, IndexShard shard) {
             this.bytesUsed = bytesUsed;
+            this.bytesShare = bytesShare;
             this.shard = shard;
         }
 
         @Override
         public int compareTo(ShardAndBytesUsed other) {
-            // Sort larger shards first:
-            return Long.compare(other.bytesUsed, bytesUsed);
+            // Sort shards that exceed their share the most first, which is the largest shards if we know of no write load:
+            return Long.compare(other.bytesUsed - other.bytesShare, bytesUsed - bytesShare);
         }
     }
 
@@ -238,6 +298,8 @@ public class IndexingMemoryController extends AbstractComponent implements Index
 
         final AtomicLong bytesWrittenSinceCheck = new AtomicLong();
         final ReentrantLock runLock = new ReentrantLock();
+        boolean writeLoadsUpdated = false;
+        long lastWriteLoadUpdateNanos;
 
         /** Shard calls this on each indexing/delete op */
         public void bytesWritten(int bytes) {
@@ -284,6 +346,8 @@ public class IndexingMemoryController extends AbstractComponent implements Index
             // NOTE: even if we hit an errant exc here, our ThreadPool.scheduledWithFixedDelay will log the exception and re-invoke us
             // again, on schedule
 
+            final boolean hasWriteLoad = updateWriteLoads();
+
             // First pass to sum up how much heap all shards' indexing buffers are using now, and how many bytes they are currently moving
             // to disk:
             long totalBytesUsed = 0;
@@ -348,7 +412,7 @@ public class IndexingMemoryController extends AbstractComponent implements Index
                                 logger.trace("shard [{}] is using [{}] heap, not writing any bytes", shard.shardId(), shardBytesUsed);
                             }
                         }
-                        queue.add(new ShardAndBytesUsed(shardBytesUsed, shard));
+                        queue.add(new ShardAndBytesUsed(shardBytesUsed, bytesShare(shard), shard));
                     }
                 }
 
@@ -360,12 +424,16 @@ public class IndexingMemoryController extends AbstractComponent implements Index
                     logger.debug("write indexing buffer to disk for shard [{}] to free up its [{}] indexing buffer", largest.shard.shardId(), new ByteSizeValue(largest.bytesUsed));
                     writeIndexingBufferAsync(largest.shard);
                     totalBytesUsed -= largest.bytesUsed;
-                    if (doThrottle && throttled.contains(largest.shard) == false) {
+                    // only throttle the shards that use more than their share, the others get their buffers written because of them:
+                    if (doThrottle && largest.bytesUsed > largest.bytesShare && throttled.contains(largest.shard) == false) {
                         logger.info("now throttling indexing for shard [{}]: segment writing can't keep up", largest.shard.shardId());
                         throttled.add(largest.shard);
                         activateThrottling(largest.shard);
                     }
                 }
+            } else if (hasWriteLoad && totalBytesUsed > indexingBuffer.getBytes() / 2) {
+                // Hand the buffers of cold shards to the hot ones before we are over-budget, so that hot shards write larger segments:
+                writeColdIndexingBuffers();
             }
 
             if (doThrottle == false) {
@@ -376,6 +444,69 @@ public class IndexingMemoryController extends AbstractComponent implements Index
                 throttled.clear();
             }
         }
+
+        /**
+         * Updates the write load of all shards from the bytes they indexed since the last check and computes their shares of the
+         * indexing buffer, which are proportional to their write load.
+         *
+         * @return <code>true</code> if any shard has a write load
+         */
+        private boolean updateWriteLoads() {
+            final long now = currentTimeInNanos();
+            // the first check only starts the clock, the bytes recorded until then are accounted for by the next check:
+            final long elapsedNanos = writeLoadsUpdated ? now - lastWriteLoadUpdateNanos : 0;
+            writeLoadsUpdated = true;
+            lastWriteLoadUpdateNanos = now;
+
+            double totalBytesPerSecond = 0;
+            for (IndexShard shard : availableShards()) {
+                ShardWriteLoad writeLoad = writeLoads.get(shard.shardId());
+                if (writeLoad != null) {
+                    if (elapsedNanos > 0) {
+                        writeLoad.update(elapsedNanos);
+                    }
+                    totalBytesPerSecond += writeLoad.bytesPerSecond;
+                }
+            }
+
+            for (IndexShard shard : availableShards()) {
+                ShardWriteLoad writeLoad = writeLoads.get(shard.shardId());
+                if (writeLoad != null) {
+                    writeLoad.indexBufferShare = totalBytesPerSecond > 0 ? writeLoad.bytesPerSecond / totalBytesPerSecond : 0;
+                    updateWriteLoad(shard, Math.round(writeLoad.bytesPerSecond), writeLoad.indexBufferShare);
+                }
+            }
+            return totalBytesPerSecond > 0;
+        }
+
+        /** returns the bytes of the indexing buffer that this shard is entitled to by its write load */
+        private long bytesShare(IndexShard shard) {
+            ShardWriteLoad writeLoad = writeLoads.get(shard.shardId());
+            return writeLoad == null ? 0 : (long) (writeLoad.indexBufferShare * indexingBuffer.getBytes());
+        }
+
+        /**
+         * Writes the indexing buffers of cold shards, which are those whose share of the indexing buffer is less than a quarter of
+         * what they would get if all shards had the same write load. Buffers that are smaller than that are left alone, so that
+         * shards with a trickle of writes don't write tiny segments on every check.
+         */
+        private void writeColdIndexingBuffers() {
+            List<IndexShard> shards = availableShards();
+            double coldShare = 0.25 / shards.size();
+            long minBytesUsed = (long) (coldShare * indexingBuffer.getBytes());
+            for (IndexShard shard : shards) {
+                ShardWriteLoad writeLoad = writeLoads.get(shard.shardId());
+                if (writeLoad != null && writeLoad.indexBufferShare >= coldShare) {
+                    continue;
+                }
+                long shardBytesUsed = getIndexBufferRAMBytesUsed(shard) - getShardWritingBytes(shard);
+                if (shardBytesUsed > 0 && shardBytesUsed >= minBytesUsed) {
+                    logger.debug("write indexing buffer to disk for cold shard [{}] to free up its [{}] indexing buffer", shard.shardId(),
+                                 new ByteSizeValue(shardBytesUsed));
+                    writeIndexingBufferAsync(shard);
+                }
+            }
+        }
     }
 
     /**
@@ -0,0 +1,184 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.monitor.fs.FsProbe;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.ThreadPool.Cancellable;
+import org.elasticsearch.threadpool.ThreadPool.Names;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adjusts the throughput of recoveries to the load of the node if `indices.recovery.adaptive_throttling.enabled` is set. Every
+ * `indices.recovery.adaptive_throttling.interval` it samples the queues of the search and bulk thread pools and the utilization
+ * of the data path disks. If any of them is above its threshold the throughput is halved, otherwise it is raised by a tenth of
+ * `indices.recovery.adaptive_throttling.max_bytes_per_sec`, so that recoveries back off quickly when they compete with searches
+ * and indexing and make use of the resources of an idle node.
+ */
+public class AdaptiveRecoveryThrottler extends AbstractLifecycleComponent {
+
+    private final RecoverySettings recoverySettings;
+    private final ThreadPool threadPool;
+    private final FsProbe fsProbe;
+    private final TimeValue interval;
+
+    private final CounterMetric increases = new CounterMetric();
+    private final CounterMetric decreases = new CounterMetric();
+    // the time of the last change and the reasons for it
+    private volatile Tuple<Long, List<String>> lastChange = Tuple.tuple(-1L, Collections.emptyList());
+
+    // the previous sample of the I/O time of the disks, only accessed by the scheduled task
+    private Map<String, Long> lastIoTimeInMillis;
+    private long lastIoTimeSampleNanos;
+
+    private volatile Cancellable scheduledFuture;
+
+    public AdaptiveRecoveryThrottler(Settings settings, RecoverySettings recoverySettings, ThreadPool threadPool, FsProbe fsProbe) {
+        super(settings);
+        this.recoverySettings = recoverySettings;
+        this.threadPool = threadPool;
+        this.fsProbe = fsProbe;
+        this.interval = RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_INTERVAL_SETTING.get(settings);
+    }
+
+    @Override
+    protected void doStart() {
+        // adaptive throttling can be enabled at any time so the task always runs, it doesn't do anything while it is disabled
+        scheduledFuture = threadPool.scheduleWithFixedDelay(this::adjust, interval, Names.GENERIC);
+    }
+
+    @Override
+    protected void doStop() {
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel();
+        }
+    }
+
+    @Override
+    protected void doClose() {
+    }
+
+    /**
+     * Returns the statistics of adaptive throttling, or <code>null</code> if it is disabled.
+     */
+    public RecoveryThrottleStats stats() {
+        final ByteSizeValue bytesPerSec = recoverySettings.getAdaptiveBytesPerSec();
+        if (bytesPerSec == null) {
+            return null;
+        }
+        final Tuple<Long, List<String>> lastChange = this.lastChange;
+        return new RecoveryThrottleStats(bytesPerSec.getBytes(), increases.count(), decreases.count(), lastChange.v1(),
+            lastChange.v2());
+    }
+
+    private void adjust() {
+        if (recoverySettings.isAdaptiveThrottlingEnabled() == false) {
+            // start over with a fresh sample once it is enabled again
+            lastIoTimeInMillis = null;
+            return;
+        }
+        adjust(queueSize(Names.SEARCH), queueSize(Names.BULK), diskUtilization());
+    }
+
+    /**
+     * Lowers or raises the throughput of recoveries given the current load of the node.
+     *
+     * @param searchQueueSize the number of queued search requests
+     * @param bulkQueueSize the number of queued bulk requests
+     * @param diskUtilization the highest utilization of a data path disk since the last sample, between 0 and 1
+     */
+    void adjust(int searchQueueSize, int bulkQueueSize, double diskUtilization) {
+        final ByteSizeValue current = recoverySettings.getAdaptiveBytesPerSec();
+        if (current == null) {
+            return;
+        }
+        final List<String> reasons = new ArrayList<>();
+        final int maxQueueSize = recoverySettings.getAdaptiveQueueSize();
+        if (searchQueueSize > maxQueueSize) {
+            reasons.add("search queue size [" + searchQueueSize + "] is above [" + maxQueueSize + "]");
+        }
+        if (bulkQueueSize > maxQueueSize) {
+            reasons.add("bulk queue size [" + bulkQueueSize + "] is above [" + maxQueueSize + "]");
+        }
+        final double maxDiskUtilization = recoverySettings.getAdaptiveDiskUtilization();
+        if (diskUtilization > maxDiskUtilization) {
+            reasons.add(String.format(Locale.ROOT, "disk utilization [%.1f%%] is above [%.1f%%]", diskUtilization * 100,
+                maxDiskUtilization * 100));
+        }
+        final long target;
+        if (reasons.isEmpty()) {
+            reasons.add("search queue size [" + searchQueueSize + "], bulk queue size [" + bulkQueueSize
+                + "] and disk utilization are below their thresholds");
+            target = current.getBytes() + recoverySettings.getAdaptiveMaxBytesPerSec().getBytes() / 10;
+        } else {
+            target = current.getBytes() / 2;
+        }
+        final ByteSizeValue updated = recoverySettings.setAdaptiveBytesPerSec(target);
+        if (updated == null || updated.getBytes() == current.getBytes()) {
+            return;
+        }
+        if (updated.getBytes() > current.getBytes()) {
+            increases.inc();
+        } else {
+            decreases.inc();
+        }
+        lastChange = Tuple.tuple(threadPool.absoluteTimeInMillis(), reasons);
+        logger.debug("changed recovery throughput from [{}] to [{}] since {}", current, updated, reasons);
+    }
+
+    private int queueSize(String name) {
+        final Executor executor = threadPool.executor(name);
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+    }
+
+    private double diskUtilization() {
+        final Map<String, Long> ioTimeInMillis = fsProbe.ioTimeInMillis();
+        final long now = System.nanoTime();
+        double utilization = 0;
+        if (lastIoTimeInMillis != null) {
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - lastIoTimeSampleNanos);
+            if (elapsedMillis > 0) {
+                for (Map.Entry<String, Long> entry : ioTimeInMillis.entrySet()) {
+                    final Long previous = lastIoTimeInMillis.get(entry.getKey());
+                    if (previous != null) {
+                        utilization = Math.max(utilization, (entry.getValue() - previous) / (double) elapsedMillis);
+                    }
+                }
+            }
+        }
+        lastIoTimeInMillis = ioTimeInMillis;
+        lastIoTimeSampleNanos = now;
+        return Math.min(1.0, utilization);
+    }
+}
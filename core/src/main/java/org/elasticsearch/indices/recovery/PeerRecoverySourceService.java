@@ -201,7 +201,8 @@ public class PeerRecoverySourceService extends AbstractComponent implements Inde
                         this::delayNewRecoveries, logger);
                 } else {
                     handler = new RecoverySourceHandler(shard, recoveryTarget, request, currentClusterStateVersionSupplier,
-                        this::delayNewRecoveries, recoverySettings.getChunkSize().bytesAsInt(), logger);
+                        this::delayNewRecoveries, recoverySettings.getChunkSize().bytesAsInt(),
+                        recoverySettings.getMaxConcurrentFileChunks(), logger);
                 }
                 return handler;
             }
@@ -36,6 +36,13 @@ public class RecoverySettings extends AbstractComponent {
         Setting.byteSizeSetting("indices.recovery.max_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB),
             Property.Dynamic, Property.NodeScope);
 
+    /**
+     * the number of file chunks that a recovery source sends without waiting for the target to write them. Chunks are still
+     * throttled by `indices.recovery.max_bytes_per_sec`, but more chunks in flight hide the round trips to the target.
+     */
+    public static final Setting<Integer> INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING =
+        Setting.intSetting("indices.recovery.max_concurrent_file_chunks", 2, 1, 8, Property.Dynamic, Property.NodeScope);
+
     /**
      * how long to wait before retrying after issues cause by cluster state syncing between nodes
      * i.e., local node is not yet known on remote node, remote shard not yet started etc.
@@ -72,10 +79,43 @@ public class RecoverySettings extends AbstractComponent {
             INDICES_RECOVERY_INTERNAL_LONG_ACTION_TIMEOUT_SETTING::get, TimeValue.timeValueSeconds(0),
             Property.Dynamic, Property.NodeScope);
 
+    /**
+     * whether the node adjusts `indices.recovery.max_bytes_per_sec` to its load. The configured value is the throughput that
+     * recoveries start with, which {@link AdaptiveRecoveryThrottler} lowers while searches or bulk requests queue up or the disks
+     * are busy and raises otherwise, within the bounds below.
+     */
+    public static final Setting<Boolean> INDICES_RECOVERY_ADAPTIVE_THROTTLING_ENABLED_SETTING =
+        Setting.boolSetting("indices.recovery.adaptive_throttling.enabled", false, Property.Dynamic, Property.NodeScope);
+
+    /** the lowest throughput that adaptive throttling lowers recoveries to */
+    public static final Setting<ByteSizeValue> INDICES_RECOVERY_ADAPTIVE_THROTTLING_MIN_BYTES_PER_SEC_SETTING =
+        Setting.byteSizeSetting("indices.recovery.adaptive_throttling.min_bytes_per_sec", new ByteSizeValue(10, ByteSizeUnit.MB),
+            new ByteSizeValue(1, ByteSizeUnit.KB), new ByteSizeValue(Long.MAX_VALUE), Property.Dynamic, Property.NodeScope);
+
+    /** the highest throughput that adaptive throttling raises recoveries to */
+    public static final Setting<ByteSizeValue> INDICES_RECOVERY_ADAPTIVE_THROTTLING_MAX_BYTES_PER_SEC_SETTING =
+        Setting.byteSizeSetting("indices.recovery.adaptive_throttling.max_bytes_per_sec", new ByteSizeValue(250, ByteSizeUnit.MB),
+            new ByteSizeValue(1, ByteSizeUnit.KB), new ByteSizeValue(Long.MAX_VALUE), Property.Dynamic, Property.NodeScope);
+
+    /** the number of queued search or bulk requests above which adaptive throttling lowers the throughput of recoveries */
+    public static final Setting<Integer> INDICES_RECOVERY_ADAPTIVE_THROTTLING_QUEUE_SIZE_SETTING =
+        Setting.intSetting("indices.recovery.adaptive_throttling.queue_size", 10, 0, Property.Dynamic, Property.NodeScope);
+
+    /** the utilization of the data path disks, between 0 and 1, above which adaptive throttling lowers the throughput */
+    public static final Setting<Double> INDICES_RECOVERY_ADAPTIVE_THROTTLING_DISK_UTILIZATION_SETTING =
+        Setting.doubleSetting("indices.recovery.adaptive_throttling.disk_utilization", 0.8, 0.0, Property.Dynamic,
+            Property.NodeScope);
+
+    /** how often adaptive throttling samples the load of the node and adjusts the throughput of recoveries */
+    public static final Setting<TimeValue> INDICES_RECOVERY_ADAPTIVE_THROTTLING_INTERVAL_SETTING =
+        Setting.timeSetting("indices.recovery.adaptive_throttling.interval", TimeValue.timeValueSeconds(5),
+            TimeValue.timeValueSeconds(1), Property.NodeScope);
+
     public static final ByteSizeValue DEFAULT_CHUNK_SIZE = new ByteSizeValue(512, ByteSizeUnit.KB);
 
     private volatile ByteSizeValue maxBytesPerSec;
     private volatile SimpleRateLimiter rateLimiter;
+    private volatile int maxConcurrentFileChunks;
     private volatile TimeValue retryDelayStateSync;
     private volatile TimeValue retryDelayNetwork;
     private volatile TimeValue activityTimeout;
@@ -84,6 +124,14 @@ public class RecoverySettings extends AbstractComponent {
 
     private volatile ByteSizeValue chunkSize = DEFAULT_CHUNK_SIZE;
 
+    private volatile boolean adaptiveThrottlingEnabled;
+    private volatile ByteSizeValue adaptiveMinBytesPerSec;
+    private volatile ByteSizeValue adaptiveMaxBytesPerSec;
+    private volatile int adaptiveQueueSize;
+    private volatile double adaptiveDiskUtilization;
+    // the throughput that adaptive throttling chose, null if it is disabled
+    private volatile ByteSizeValue adaptiveBytesPerSec;
+
     public RecoverySettings(Settings settings, ClusterSettings clusterSettings) {
         super(settings);
 
@@ -97,21 +145,32 @@ public class RecoverySettings extends AbstractComponent {
 
         this.activityTimeout = INDICES_RECOVERY_ACTIVITY_TIMEOUT_SETTING.get(settings);
         this.maxBytesPerSec = INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING.get(settings);
-        if (maxBytesPerSec.getBytes() <= 0) {
-            rateLimiter = null;
-        } else {
-            rateLimiter = new SimpleRateLimiter(maxBytesPerSec.getMbFrac());
-        }
+        this.adaptiveMinBytesPerSec = INDICES_RECOVERY_ADAPTIVE_THROTTLING_MIN_BYTES_PER_SEC_SETTING.get(settings);
+        this.adaptiveMaxBytesPerSec = INDICES_RECOVERY_ADAPTIVE_THROTTLING_MAX_BYTES_PER_SEC_SETTING.get(settings);
+        this.adaptiveQueueSize = INDICES_RECOVERY_ADAPTIVE_THROTTLING_QUEUE_SIZE_SETTING.get(settings);
+        this.adaptiveDiskUtilization = INDICES_RECOVERY_ADAPTIVE_THROTTLING_DISK_UTILIZATION_SETTING.get(settings);
+        setAdaptiveThrottlingEnabled(INDICES_RECOVERY_ADAPTIVE_THROTTLING_ENABLED_SETTING.get(settings));
 
+        this.maxConcurrentFileChunks = INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING.get(settings);
 
-        logger.debug("using max_bytes_per_sec[{}]", maxBytesPerSec);
+        logger.debug("using max_bytes_per_sec[{}], max_concurrent_file_chunks[{}], adaptive_throttling[{}]", maxBytesPerSec,
+            maxConcurrentFileChunks, adaptiveThrottlingEnabled);
 
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING, this::setMaxBytesPerSec);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING, this::setMaxConcurrentFileChunks);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_RETRY_DELAY_STATE_SYNC_SETTING, this::setRetryDelayStateSync);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_RETRY_DELAY_NETWORK_SETTING, this::setRetryDelayNetwork);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_INTERNAL_ACTION_TIMEOUT_SETTING, this::setInternalActionTimeout);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_INTERNAL_LONG_ACTION_TIMEOUT_SETTING, this::setInternalActionLongTimeout);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_ACTIVITY_TIMEOUT_SETTING, this::setActivityTimeout);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_ADAPTIVE_THROTTLING_ENABLED_SETTING, this::setAdaptiveThrottlingEnabled);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_ADAPTIVE_THROTTLING_MIN_BYTES_PER_SEC_SETTING,
+            this::setAdaptiveMinBytesPerSec);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_ADAPTIVE_THROTTLING_MAX_BYTES_PER_SEC_SETTING,
+            this::setAdaptiveMaxBytesPerSec);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_ADAPTIVE_THROTTLING_QUEUE_SIZE_SETTING, this::setAdaptiveQueueSize);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_ADAPTIVE_THROTTLING_DISK_UTILIZATION_SETTING,
+            this::setAdaptiveDiskUtilization);
     }
 
     public RateLimiter rateLimiter() {
@@ -140,6 +199,53 @@ public class RecoverySettings extends AbstractComponent {
 
     public ByteSizeValue getChunkSize() { return chunkSize; }
 
+    public int getMaxConcurrentFileChunks() {
+        return maxConcurrentFileChunks;
+    }
+
+    public boolean isAdaptiveThrottlingEnabled() {
+        return adaptiveThrottlingEnabled;
+    }
+
+    public ByteSizeValue getAdaptiveMinBytesPerSec() {
+        return adaptiveMinBytesPerSec;
+    }
+
+    public ByteSizeValue getAdaptiveMaxBytesPerSec() {
+        return adaptiveMaxBytesPerSec;
+    }
+
+    public int getAdaptiveQueueSize() {
+        return adaptiveQueueSize;
+    }
+
+    public double getAdaptiveDiskUtilization() {
+        return adaptiveDiskUtilization;
+    }
+
+    /**
+     * Returns the throughput of recoveries that adaptive throttling chose, or <code>null</code> if adaptive throttling is disabled.
+     */
+    public ByteSizeValue getAdaptiveBytesPerSec() {
+        return adaptiveBytesPerSec;
+    }
+
+    /**
+     * Sets the throughput of recoveries while adaptive throttling is enabled, bounded by
+     * `indices.recovery.adaptive_throttling.min_bytes_per_sec` and `indices.recovery.adaptive_throttling.max_bytes_per_sec`.
+     * Returns the throughput that was set, or <code>null</code> if adaptive throttling is disabled.
+     */
+    synchronized ByteSizeValue setAdaptiveBytesPerSec(long bytesPerSec) {
+        if (adaptiveThrottlingEnabled == false) {
+            return null;
+        }
+        final long max = adaptiveMaxBytesPerSec.getBytes();
+        final long min = Math.min(adaptiveMinBytesPerSec.getBytes(), max);
+        adaptiveBytesPerSec = new ByteSizeValue(Math.max(min, Math.min(max, bytesPerSec)));
+        updateRateLimiter();
+        return adaptiveBytesPerSec;
+    }
+
     public void setChunkSize(ByteSizeValue chunkSize) { // only settable for tests
         if (chunkSize.bytesAsInt() <= 0) {
             throw new IllegalArgumentException("chunkSize must be > 0");
@@ -168,14 +274,60 @@ public class RecoverySettings extends AbstractComponent {
         this.internalActionLongTimeout = internalActionLongTimeout;
     }
 
-    private void setMaxBytesPerSec(ByteSizeValue maxBytesPerSec) {
+    private void setMaxConcurrentFileChunks(int maxConcurrentFileChunks) {
+        this.maxConcurrentFileChunks = maxConcurrentFileChunks;
+    }
+
+    private synchronized void setMaxBytesPerSec(ByteSizeValue maxBytesPerSec) {
         this.maxBytesPerSec = maxBytesPerSec;
-        if (maxBytesPerSec.getBytes() <= 0) {
+        if (adaptiveThrottlingEnabled) {
+            // adaptive throttling starts over from the configured throughput
+            setAdaptiveBytesPerSec(startingBytesPerSec());
+        } else {
+            updateRateLimiter();
+        }
+    }
+
+    private synchronized void setAdaptiveThrottlingEnabled(boolean enabled) {
+        this.adaptiveThrottlingEnabled = enabled;
+        if (enabled) {
+            setAdaptiveBytesPerSec(startingBytesPerSec());
+        } else {
+            adaptiveBytesPerSec = null;
+            updateRateLimiter();
+        }
+    }
+
+    private long startingBytesPerSec() {
+        // an unlimited throughput starts at the upper bound
+        return maxBytesPerSec.getBytes() <= 0 ? Long.MAX_VALUE : maxBytesPerSec.getBytes();
+    }
+
+    private void setAdaptiveMinBytesPerSec(ByteSizeValue adaptiveMinBytesPerSec) {
+        this.adaptiveMinBytesPerSec = adaptiveMinBytesPerSec;
+    }
+
+    private void setAdaptiveMaxBytesPerSec(ByteSizeValue adaptiveMaxBytesPerSec) {
+        this.adaptiveMaxBytesPerSec = adaptiveMaxBytesPerSec;
+    }
+
+    private void setAdaptiveQueueSize(int adaptiveQueueSize) {
+        this.adaptiveQueueSize = adaptiveQueueSize;
+    }
+
+    private void setAdaptiveDiskUtilization(double adaptiveDiskUtilization) {
+        this.adaptiveDiskUtilization = adaptiveDiskUtilization;
+    }
+
+    private void updateRateLimiter() {
+        assert Thread.holdsLock(this);
+        final ByteSizeValue bytesPerSec = adaptiveBytesPerSec != null ? adaptiveBytesPerSec : maxBytesPerSec;
+        if (bytesPerSec.getBytes() <= 0) {
             rateLimiter = null;
         } else if (rateLimiter != null) {
-            rateLimiter.setMBPerSec(maxBytesPerSec.getMbFrac());
+            rateLimiter.setMBPerSec(bytesPerSec.getMbFrac());
         } else {
-            rateLimiter = new SimpleRateLimiter(maxBytesPerSec.getMbFrac());
+            rateLimiter = new SimpleRateLimiter(bytesPerSec.getMbFrac());
         }
     }
 }
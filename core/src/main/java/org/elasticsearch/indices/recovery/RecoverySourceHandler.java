@@ -32,15 +32,22 @@ import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.indices.flush.FlushRequest;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.CancellableThreads;
+import org.elasticsearch.index.engine.CommitStats;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.RecoveryEngineException;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardClosedException;
 import org.elasticsearch.index.shard.IndexShardRelocatedException;
@@ -54,7 +61,12 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.StreamSupport;
@@ -82,7 +94,12 @@ public class RecoverySourceHandler {
     private final Supplier<Long> currentClusterStateVersionSupplier;
     private final Function<String, Releasable> delayNewRecoveries;
     private final int chunkSizeInBytes;
+    private final int maxConcurrentFileChunks;
     private final RecoveryTargetHandler recoveryTarget;
+    // limits the file chunks that were sent but not written by the target yet
+    private final Semaphore fileChunkPermits;
+    // the first file chunk that the target failed to write
+    private final AtomicReference<Tuple<StoreFileMetaData, Exception>> fileChunkFailure = new AtomicReference<>();
 
     protected final RecoveryResponse response;
 
@@ -108,6 +125,19 @@ public class RecoverySourceHandler {
                                  Function<String, Releasable> delayNewRecoveries,
                                  final int fileChunkSizeInBytes,
                                  final Logger logger) {
+        this(shard, recoveryTarget, request, currentClusterStateVersionSupplier, delayNewRecoveries, fileChunkSizeInBytes, 1, logger);
+    }
+
+    public RecoverySourceHandler(final IndexShard shard, RecoveryTargetHandler recoveryTarget,
+                                 final StartRecoveryRequest request,
+                                 final Supplier<Long> currentClusterStateVersionSupplier,
+                                 Function<String, Releasable> delayNewRecoveries,
+                                 final int fileChunkSizeInBytes,
+                                 final int maxConcurrentFileChunks,
+                                 final Logger logger) {
+        if (maxConcurrentFileChunks < 1) {
+            throw new IllegalArgumentException("max concurrent file chunks must be at least 1 but was [" + maxConcurrentFileChunks + "]");
+        }
         this.shard = shard;
         this.recoveryTarget = recoveryTarget;
         this.request = request;
@@ -117,6 +147,8 @@ public class RecoverySourceHandler {
         this.indexName = this.request.shardId().getIndex().getName();
         this.shardId = this.request.shardId().id();
         this.chunkSizeInBytes = fileChunkSizeInBytes;
+        this.maxConcurrentFileChunks = maxConcurrentFileChunks;
+        this.fileChunkPermits = new Semaphore(maxConcurrentFileChunks);
         this.response = new RecoveryResponse();
     }
 
@@ -124,10 +156,25 @@ public class RecoverySourceHandler {
      * performs the recovery from the local engine to the target
      */
     public RecoveryResponse recoverToTarget() throws IOException {
+        final long startingSeqNo = startingSeqNoForOperationBasedRecovery();
+        if (startingSeqNo != SequenceNumbers.UNASSIGNED_SEQ_NO) {
+            // acquire the view first so that no operations are trimmed from the translog after we checked that they are all there
+            try (Translog.View retainedView = shard.acquireRetainedTranslogView()) {
+                if (shard.hasCompleteOperationHistory(startingSeqNo)) {
+                    logger.trace("{} recovering {} from translog operations starting at seq no [{}]", shard.shardId(),
+                        request.targetNode(), startingSeqNo);
+                    recoverWithOperations(retainedView, startingSeqNo);
+                    return response;
+                }
+                logger.trace("{} translog doesn't have all operations from seq no [{}] on, falling back to file based recovery",
+                    shard.shardId(), startingSeqNo);
+            }
+        }
         try (Translog.View translogView = shard.acquireTranslogView()) {
             logger.trace("captured translog id [{}] for recovery", translogView.minTranslogGeneration());
             final IndexCommit phase1Snapshot;
             try {
+                commitHistoryIfNeeded();
                 phase1Snapshot = shard.acquireIndexCommit(false);
             } catch (Exception e) {
                 IOUtils.closeWhileHandlingException(translogView);
@@ -147,22 +194,7 @@ public class RecoverySourceHandler {
             }
 
             // engine was just started at the end of phase 1
-            if (shard.state() == IndexShardState.RELOCATED) {
-                assert request.isPrimaryRelocation() == false :
-                    "recovery target should not retry primary relocation if previous attempt made it past finalization step";
-                /**
-                 * The primary shard has been relocated while we copied files. This means that we can't guarantee any more that all
-                 * operations that were replicated during the file copy (when the target engine was not yet opened) will be present in the
-                 * local translog and thus will be resent on phase 2. The reason is that an operation replicated by the target primary is
-                 * sent to the recovery target and the local shard (old primary) concurrently, meaning it may have arrived at the recovery
-                 * target before we opened the engine and is still in-flight on the local shard.
-                 *
-                 * Checking the relocated status here, after we opened the engine on the target, is safe because primary relocation waits
-                 * for all ongoing operations to complete and be fully replicated. Therefore all future operation by the new primary are
-                 * guaranteed to reach the target shard when it's engine is open.
-                 */
-                throw new IndexShardRelocatedException(request.shardId());
-            }
+            ensureNotRelocated();
 
             logger.trace("{} snapshot translog for recovery. current size is [{}]", shard.shardId(), translogView.totalOperations());
             try {
@@ -176,6 +208,142 @@ public class RecoverySourceHandler {
         return response;
     }
 
+    /**
+     * Returns the sequence number from which on the target needs operations to catch up with this shard, or
+     * {@link SequenceNumbers#UNASSIGNED_SEQ_NO} if the target has to copy files. Targets can only catch up by replaying operations if
+     * their last commit belongs to the same history of operations as this shard, since only then their local checkpoint marks
+     * operations that this shard processed as well.
+     */
+    long startingSeqNoForOperationBasedRecovery() {
+        if (request.targetNode().getVersion().before(Version.V_5_3_4_UNRELEASED)) {
+            // older targets can't read the sequence numbers of the operations, nor track their local checkpoint
+            return SequenceNumbers.UNASSIGNED_SEQ_NO;
+        }
+        final Map<String, String> targetUserData = request.metadataSnapshot().getCommitUserData();
+        final String targetHistoryUUID = targetUserData.get(Engine.HISTORY_UUID_KEY);
+        if (targetHistoryUUID == null || targetHistoryUUID.equals(shard.getHistoryUUID()) == false) {
+            return SequenceNumbers.UNASSIGNED_SEQ_NO;
+        }
+        final long targetLocalCheckpoint = SequenceNumbers.loadLocalCheckpoint(targetUserData);
+        if (targetLocalCheckpoint > shard.getMaxSeqNo()) {
+            // can't happen within one history, but don't make the target skip operations if it does
+            return SequenceNumbers.UNASSIGNED_SEQ_NO;
+        }
+        return targetLocalCheckpoint + 1;
+    }
+
+    /**
+     * Commits the current history of operations if the last commit still belongs to an older one, so that the target gets the
+     * current history with the files and can catch up by replaying operations next time. Commits that the target already has
+     * by sync id are left alone, since it doesn't need to copy any files for them.
+     */
+    private void commitHistoryIfNeeded() {
+        final CommitStats commitStats = shard.commitStats();
+        if (commitStats == null) {
+            return;
+        }
+        final Map<String, String> userData = commitStats.getUserData();
+        if (Objects.equals(userData.get(Engine.HISTORY_UUID_KEY), shard.getHistoryUUID()) == false) {
+            final String syncId = userData.get(Engine.SYNC_COMMIT_ID);
+            if (syncId == null || syncId.equals(request.metadataSnapshot().getSyncId()) == false) {
+                logger.trace("{} flushing to commit history [{}] before recovery", shard.shardId(), shard.getHistoryUUID());
+                shard.flush(new FlushRequest().force(true).waitIfOngoing(true));
+            }
+        }
+    }
+
+    /**
+     * Recovers the target by replaying the operations of the retained translog that it missed, starting at the given sequence
+     * number, on top of the files that it already has. No files are copied.
+     */
+    void recoverWithOperations(Translog.View retainedView, long startingSeqNo) throws IOException {
+        final int totalOperations;
+        try {
+            totalOperations = SeqNoFilterSnapshot.countOperations(retainedView.snapshot(), startingSeqNo);
+            prepareTargetForTranslog(totalOperations, shard.segmentStats(false).getMaxUnsafeAutoIdTimestamp());
+        } catch (Exception e) {
+            throw new RecoveryEngineException(shard.shardId(), 1, "prepare target for translog failed", e);
+        }
+        ensureNotRelocated();
+        logger.trace("{} snapshot retained translog for recovery. [{}] of [{}] operations are missing on the target", shard.shardId(),
+            totalOperations, retainedView.totalOperations());
+        try {
+            phase2(new SeqNoFilterSnapshot(retainedView.snapshot(), startingSeqNo, totalOperations));
+        } catch (Exception e) {
+            throw new RecoveryEngineException(shard.shardId(), 2, "phase2 failed", e);
+        }
+        finalizeRecovery();
+    }
+
+    /**
+     * Fails the recovery if the primary shard was relocated while the engine of the target was started.
+     */
+    private void ensureNotRelocated() {
+        if (shard.state() == IndexShardState.RELOCATED) {
+            assert request.isPrimaryRelocation() == false :
+                "recovery target should not retry primary relocation if previous attempt made it past finalization step";
+            /**
+             * The primary shard has been relocated while we copied files. This means that we can't guarantee any more that all
+             * operations that were replicated during the file copy (when the target engine was not yet opened) will be present in the
+             * local translog and thus will be resent on phase 2. The reason is that an operation replicated by the target primary is
+             * sent to the recovery target and the local shard (old primary) concurrently, meaning it may have arrived at the recovery
+             * target before we opened the engine and is still in-flight on the local shard.
+             *
+             * Checking the relocated status here, after we opened the engine on the target, is safe because primary relocation waits
+             * for all ongoing operations to complete and be fully replicated. Therefore all future operation by the new primary are
+             * guaranteed to reach the target shard when it's engine is open.
+             */
+            throw new IndexShardRelocatedException(request.shardId());
+        }
+    }
+
+    /**
+     * A snapshot that skips the operations below a sequence number, which the target of an operation based recovery already has.
+     * Operations without a sequence number are always sent.
+     */
+    static final class SeqNoFilterSnapshot implements Translog.Snapshot {
+        private final Translog.Snapshot delegate;
+        private final long startingSeqNo;
+        private final int totalOperations;
+
+        /**
+         * @param totalOperations the number of operations of the delegate that are not skipped, see {@link #countOperations}
+         */
+        SeqNoFilterSnapshot(Translog.Snapshot delegate, long startingSeqNo, int totalOperations) {
+            this.delegate = delegate;
+            this.startingSeqNo = startingSeqNo;
+            this.totalOperations = totalOperations;
+        }
+
+        /**
+         * Counts the operations of the snapshot that are not skipped, which consumes the snapshot.
+         */
+        static int countOperations(Translog.Snapshot snapshot, long startingSeqNo) throws IOException {
+            final SeqNoFilterSnapshot filtered = new SeqNoFilterSnapshot(snapshot, startingSeqNo, -1);
+            int count = 0;
+            while (filtered.next() != null) {
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public int totalOperations() {
+            return totalOperations;
+        }
+
+        @Override
+        public Translog.Operation next() throws IOException {
+            Translog.Operation operation;
+            while ((operation = delegate.next()) != null) {
+                if (operation.seqNo() == SequenceNumbers.UNASSIGNED_SEQ_NO || operation.seqNo() >= startingSeqNo) {
+                    return operation;
+                }
+            }
+            return null;
+        }
+    }
+
     /**
      * Perform phase1 of the recovery operations. Once this {@link IndexCommit}
      * snapshot has been performed no commit operations (files being fsync'd)
@@ -526,16 +694,34 @@ public class RecoverySourceHandler {
 
         @Override
         public void write(byte[] b, int offset, int length) throws IOException {
-            sendNextChunk(position, new BytesArray(b, offset, length), md.length() == position + length);
+            // the chunk may still be in flight when the buffer is reused for the next one
+            sendNextChunk(position, new BytesArray(Arrays.copyOfRange(b, offset, offset + length)), md.length() == position + length);
             position += length;
             assert md.length() >= position : "length: " + md.length() + " but positions was: " + position;
         }
 
         private void sendNextChunk(long position, BytesArray content, boolean lastChunk) throws IOException {
-            // Actually send the file chunk to the target node, waiting for it to complete
-            cancellableThreads.executeIO(() ->
-                    recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations())
-            );
+            final Tuple<StoreFileMetaData, Exception> failure = fileChunkFailure.get();
+            if (failure != null) {
+                throw new IOException("failed to write chunk of file [" + failure.v1().name() + "]", failure.v2());
+            }
+            // Actually send the file chunk to the target node, waiting only if too many chunks are in flight already
+            cancellableThreads.execute(fileChunkPermits::acquire);
+            boolean sent = false;
+            try {
+                cancellableThreads.executeIO(() ->
+                    recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations(),
+                        ActionListener.wrap(r -> fileChunkPermits.release(), e -> {
+                            fileChunkFailure.compareAndSet(null, new Tuple<>(md, e));
+                            fileChunkPermits.release();
+                        }))
+                );
+                sent = true;
+            } finally {
+                if (sent == false) {
+                    fileChunkPermits.release();
+                }
+            }
             if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                 throw new IndexShardClosedException(request.shardId());
             }
@@ -553,35 +739,51 @@ public class RecoverySourceHandler {
                     // exceptions during close correctly and doesn't hide the original exception.
                     Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStreamFactory.apply(md));
                 } catch (Exception e) {
-                    final IOException corruptIndexException;
-                    if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(e)) != null) {
-                        if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
-                            logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
-                            failEngine(corruptIndexException);
-                            throw corruptIndexException;
-                        } else { // corruption has happened on the way to replica
-                            RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
-                                    "checksums are ok", null);
-                            exception.addSuppressed(e);
-                            logger.warn(
-                                (org.apache.logging.log4j.util.Supplier<?>) () -> new ParameterizedMessage(
-                                    "{} Remote file corruption on node {}, recovering {}. local checksum OK",
-                                    shardId,
-                                    request.targetNode(),
-                                    md),
-                                corruptIndexException);
-                            throw exception;
-                        }
-                    } else {
-                        throw e;
+                    // a chunk of an earlier file that was still in flight may have failed first
+                    final Tuple<StoreFileMetaData, Exception> failure = fileChunkFailure.get();
+                    if (failure != null) {
+                        handleErrorOnSendFiles(store, failure.v2(), failure.v1());
                     }
+                    handleErrorOnSendFiles(store, e, md);
                 }
             }
+            // wait for the chunks that are still in flight
+            cancellableThreads.execute(() -> fileChunkPermits.acquire(maxConcurrentFileChunks));
+            fileChunkPermits.release(maxConcurrentFileChunks);
+            final Tuple<StoreFileMetaData, Exception> failure = fileChunkFailure.get();
+            if (failure != null) {
+                handleErrorOnSendFiles(store, failure.v2(), failure.v1());
+            }
         } finally {
             store.decRef();
         }
     }
 
+    private void handleErrorOnSendFiles(Store store, Exception e, StoreFileMetaData md) throws Exception {
+        final IOException corruptIndexException;
+        if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(e)) != null) {
+            if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
+                logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
+                failEngine(corruptIndexException);
+                throw corruptIndexException;
+            } else { // corruption has happened on the way to replica
+                RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
+                        "checksums are ok", null);
+                exception.addSuppressed(e);
+                logger.warn(
+                    (org.apache.logging.log4j.util.Supplier<?>) () -> new ParameterizedMessage(
+                        "{} Remote file corruption on node {}, recovering {}. local checksum OK",
+                        shardId,
+                        request.targetNode(),
+                        md),
+                    corruptIndexException);
+                throw exception;
+            }
+        } else {
+            throw e;
+        }
+    }
+
     protected void failEngine(IOException cause) {
         shard.failShard("recovery", cause);
     }
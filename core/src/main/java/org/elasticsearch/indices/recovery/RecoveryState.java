@@ -326,6 +326,8 @@ public class RecoveryState implements ToXContent, Streamable {
         static final String VERIFY_INDEX = "verify_index";
         static final String RECOVERED = "recovered";
         static final String RECOVERED_IN_BYTES = "recovered_in_bytes";
+        static final String RECOVERED_PER_SEC = "recovered_per_sec";
+        static final String RECOVERED_PER_SEC_IN_BYTES = "recovered_per_sec_in_bytes";
         static final String CHECK_INDEX_TIME = "check_index_time";
         static final String CHECK_INDEX_TIME_IN_MILLIS = "check_index_time_in_millis";
         static final String LENGTH = "length";
@@ -800,6 +802,17 @@ public class RecoveryState implements ToXContent, Streamable {
             return recovered;
         }
 
+        /**
+         * number of bytes recovered per second since the index stage started, or 0 if it didn't start yet
+         */
+        public synchronized long recoveredBytesPerSec() {
+            final long timeInMillis = time();
+            if (timeInMillis == 0) {
+                return 0;
+            }
+            return recoveredBytes() * 1000 / timeInMillis;
+        }
+
         /**
          * total bytes of files to be recovered (potentially not yet done)
          */
@@ -902,6 +915,7 @@ public class RecoveryState implements ToXContent, Streamable {
             builder.byteSizeField(Fields.REUSED_IN_BYTES, Fields.REUSED, reusedBytes());
             builder.byteSizeField(Fields.RECOVERED_IN_BYTES, Fields.RECOVERED, recoveredBytes());
             builder.field(Fields.PERCENT, String.format(Locale.ROOT, "%1.1f%%", recoveredBytesPercent()));
+            builder.byteSizeField(Fields.RECOVERED_PER_SEC_IN_BYTES, Fields.RECOVERED_PER_SEC, recoveredBytesPerSec());
             builder.endObject();
 
             builder.startObject(Fields.FILES);
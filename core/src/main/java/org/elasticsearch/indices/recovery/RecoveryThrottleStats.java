@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Statistics of the adaptive throttling of recoveries on a node: the throughput it chose, how often it changed the throughput and
+ * why it changed it the last time.
+ */
+public class RecoveryThrottleStats implements Writeable, ToXContent {
+
+    private final long bytesPerSec;
+    private final long increases;
+    private final long decreases;
+    private final long lastChangeMillis;
+    private final List<String> lastChangeReasons;
+
+    public RecoveryThrottleStats(long bytesPerSec, long increases, long decreases, long lastChangeMillis,
+                                 List<String> lastChangeReasons) {
+        this.bytesPerSec = bytesPerSec;
+        this.increases = increases;
+        this.decreases = decreases;
+        this.lastChangeMillis = lastChangeMillis;
+        this.lastChangeReasons = Collections.unmodifiableList(lastChangeReasons);
+    }
+
+    public RecoveryThrottleStats(StreamInput in) throws IOException {
+        bytesPerSec = in.readVLong();
+        increases = in.readVLong();
+        decreases = in.readVLong();
+        lastChangeMillis = in.readLong();
+        lastChangeReasons = Collections.unmodifiableList(in.readList(StreamInput::readString));
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(bytesPerSec);
+        out.writeVLong(increases);
+        out.writeVLong(decreases);
+        out.writeLong(lastChangeMillis);
+        out.writeStringList(lastChangeReasons);
+    }
+
+    /**
+     * Returns the throughput per second that recoveries are currently throttled to.
+     */
+    public ByteSizeValue getRate() {
+        return new ByteSizeValue(bytesPerSec);
+    }
+
+    /**
+     * Returns the number of times the throughput was raised.
+     */
+    public long getIncreases() {
+        return increases;
+    }
+
+    /**
+     * Returns the number of times the throughput was lowered.
+     */
+    public long getDecreases() {
+        return decreases;
+    }
+
+    /**
+     * Returns the time in milliseconds since the epoch when the throughput was last changed, or <code>-1</code> if it never was.
+     */
+    public long getLastChangeMillis() {
+        return lastChangeMillis;
+    }
+
+    /**
+     * Returns the reasons why the throughput was last changed.
+     */
+    public List<String> getLastChangeReasons() {
+        return lastChangeReasons;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.ADAPTIVE_THROTTLING);
+        builder.byteSizeField(Fields.RATE_IN_BYTES, Fields.RATE, bytesPerSec);
+        builder.field(Fields.INCREASES, increases);
+        builder.field(Fields.DECREASES, decreases);
+        if (lastChangeMillis != -1) {
+            builder.startObject(Fields.LAST_CHANGE);
+            builder.dateField(Fields.TIMESTAMP_IN_MILLIS, Fields.TIMESTAMP, lastChangeMillis);
+            builder.field(Fields.REASONS, lastChangeReasons);
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final String ADAPTIVE_THROTTLING = "adaptive_throttling";
+        static final String RATE = "rate";
+        static final String RATE_IN_BYTES = "rate_in_bytes";
+        static final String INCREASES = "increases";
+        static final String DECREASES = "decreases";
+        static final String LAST_CHANGE = "last_change";
+        static final String TIMESTAMP = "timestamp";
+        static final String TIMESTAMP_IN_MILLIS = "timestamp_in_millis";
+        static final String REASONS = "reasons";
+    }
+}
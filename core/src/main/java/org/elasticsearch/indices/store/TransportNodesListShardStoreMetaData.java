@@ -42,6 +42,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.gateway.AsyncShardFetch;
+import org.elasticsearch.gateway.ShardFetchBatcher;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.shard.IndexShard;
@@ -69,11 +70,14 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
     TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> {
 
     public static final String ACTION_NAME = "internal:cluster/nodes/indices/shard/store";
+    public static final String BATCH_ACTION_NAME = "internal:cluster/nodes/indices/shard/store_batch";
 
     private final IndicesService indicesService;
 
     private final NodeEnvironment nodeEnv;
 
+    private final ShardFetchBatcher<NodeStoreFilesMetaData> batcher;
+
     @Inject
     public TransportNodesListShardStoreMetaData(Settings settings, ThreadPool threadPool,
                                                 ClusterService clusterService, TransportService transportService,
@@ -83,6 +87,18 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
             Request::new, NodeRequest::new, ThreadPool.Names.FETCH_SHARD_STORE, NodeStoreFilesMetaData.class);
         this.indicesService = indicesService;
         this.nodeEnv = nodeEnv;
+        this.batcher = new ShardFetchBatcher<>(logger, transportService, BATCH_ACTION_NAME, NodeStoreFilesMetaData::new,
+            (responses, failures) -> new NodesStoreFilesMetaData(clusterService.getClusterName(), responses, failures), this,
+            ShardFetchBatcher.BATCH_SIZE_SETTING.get(settings));
+        ShardFetchBatcher.registerBatchHandler(transportService, threadPool, BATCH_ACTION_NAME, ThreadPool.Names.FETCH_SHARD_STORE,
+            this::listShardStore);
+    }
+
+    /**
+     * Returns the lister that fetches the store metadata of many shards from a node with a single request.
+     */
+    public ShardFetchBatcher<NodeStoreFilesMetaData> batcher() {
+        return batcher;
     }
 
     @Override
@@ -108,10 +124,14 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
 
     @Override
     protected NodeStoreFilesMetaData nodeOperation(NodeRequest request) {
+        return listShardStore(request.shardId);
+    }
+
+    private NodeStoreFilesMetaData listShardStore(ShardId shardId) {
         try {
-            return new NodeStoreFilesMetaData(clusterService.localNode(), listStoreMetaData(request.shardId));
+            return new NodeStoreFilesMetaData(clusterService.localNode(), listStoreMetaData(shardId));
         } catch (IOException e) {
-            throw new ElasticsearchException("Failed to list store metadata for shard [" + request.shardId + "]", e);
+            throw new ElasticsearchException("Failed to list store metadata for shard [" + shardId + "]", e);
         }
     }
 
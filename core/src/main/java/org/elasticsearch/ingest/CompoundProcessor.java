@@ -41,6 +41,8 @@ public class CompoundProcessor implements Processor {
     private final boolean ignoreFailure;
     private final List<Processor> processors;
     private final List<Processor> onFailureProcessors;
+    private final List<IngestMetric> processorMetrics;
+    private final List<IngestMetric> onFailureProcessorMetrics;
 
     public CompoundProcessor(Processor... processor) {
         this(false, Arrays.asList(processor), Collections.emptyList());
@@ -51,6 +53,16 @@ public class CompoundProcessor implements Processor {
         this.ignoreFailure = ignoreFailure;
         this.processors = processors;
         this.onFailureProcessors = onFailureProcessors;
+        this.processorMetrics = newMetrics(processors.size());
+        this.onFailureProcessorMetrics = newMetrics(onFailureProcessors.size());
+    }
+
+    private static List<IngestMetric> newMetrics(int size) {
+        List<IngestMetric> metrics = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            metrics.add(new IngestMetric());
+        }
+        return Collections.unmodifiableList(metrics);
     }
 
     public boolean isIgnoreFailure() {
@@ -83,6 +95,39 @@ public class CompoundProcessor implements Processor {
         return flattened;
     }
 
+    /**
+     * Adds the stats of all processors, including the ones of nested compound and wrapping processors, in the order they
+     * are configured. Compound processors themselves are not reported, only the processors that they hold.
+     */
+    public void collectProcessorStats(List<IngestStats.ProcessorStats> processorStats) {
+        collectProcessorStats(processors, processorMetrics, processorStats);
+        collectProcessorStats(onFailureProcessors, onFailureProcessorMetrics, processorStats);
+    }
+
+    private static void collectProcessorStats(List<Processor> processors, List<IngestMetric> metrics,
+                                              List<IngestStats.ProcessorStats> processorStats) {
+        for (int i = 0; i < processors.size(); i++) {
+            collectProcessorStats(processors.get(i), metrics.get(i), processorStats);
+        }
+    }
+
+    private static void collectProcessorStats(Processor processor, IngestMetric metric, List<IngestStats.ProcessorStats> processorStats) {
+        if (processor instanceof CompoundProcessor) {
+            ((CompoundProcessor) processor).collectProcessorStats(processorStats);
+            return;
+        }
+        String name = processor.getTag() == null ? processor.getType() : processor.getType() + ":" + processor.getTag();
+        Map<String, Long> counters = Collections.emptyMap();
+        if (processor instanceof CountingProcessor) {
+            counters = ((CountingProcessor) processor).getCounters();
+        }
+        processorStats.add(new IngestStats.ProcessorStats(name, processor.getType(), metric.createStats(), counters));
+        if (processor instanceof WrappingProcessor) {
+            WrappingProcessor wrappingProcessor = (WrappingProcessor) processor;
+            collectProcessorStats(wrappingProcessor.getInnerProcessor(), wrappingProcessor.getInnerProcessorMetric(), processorStats);
+        }
+    }
+
     @Override
     public String getType() {
         return "compound";
@@ -95,9 +140,10 @@ public class CompoundProcessor implements Processor {
 
     @Override
     public void execute(IngestDocument ingestDocument) throws Exception {
-        for (Processor processor : processors) {
+        for (int i = 0; i < processors.size(); i++) {
+            Processor processor = processors.get(i);
             try {
-                processor.execute(ingestDocument);
+                processorMetrics.get(i).execute(processor, ingestDocument);
             } catch (Exception e) {
                 if (ignoreFailure) {
                     continue;
@@ -118,9 +164,10 @@ public class CompoundProcessor implements Processor {
     void executeOnFailure(IngestDocument ingestDocument, ElasticsearchException exception) throws Exception {
         try {
             putFailureMetadata(ingestDocument, exception);
-            for (Processor processor : onFailureProcessors) {
+            for (int i = 0; i < onFailureProcessors.size(); i++) {
+                Processor processor = onFailureProcessors.get(i);
                 try {
-                    processor.execute(ingestDocument);
+                    onFailureProcessorMetrics.get(i).execute(processor, ingestDocument);
                 } catch (Exception e) {
                     throw newCompoundProcessorException(e, processor.getType(), processor.getTag());
                 }
@@ -30,16 +30,27 @@ import org.elasticsearch.index.mapper.TimestampFieldMapper;
 import org.elasticsearch.index.mapper.TypeFieldMapper;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents a single document being captured before indexing and holds the source and metadata (like id, type and index).
+ * <p>
+ * Copies of a document (see {@link #IngestDocument(IngestDocument)}) share its maps and lists until either document modifies
+ * them: a document copies a shared map or list, and the maps and lists on the path to it, the first time it modifies it.
+ * Maps and lists that are returned to callers, e.g. by {@link #getFieldValue(String, Class)} or {@link #getSourceAndMetadata()},
+ * are never shared at the time they are returned, so callers may modify them as long as they don't hold on to them while the
+ * document is copied.
  */
 public final class IngestDocument {
 
@@ -49,8 +60,14 @@ public final class IngestDocument {
 
     static final String TIMESTAMP = "timestamp";
 
-    private final Map<String, Object> sourceAndMetadata;
-    private final Map<String, Object> ingestMetadata;
+    private Map<String, Object> sourceAndMetadata;
+    private Map<String, Object> ingestMetadata;
+
+    // the maps and lists that this document may modify in place, null as long as it doesn't share any with another document
+    private Set<Object> ownedContainers;
+
+    // whether the time that processors spend on this document is measured, see IngestMetric
+    private boolean timed = true;
 
     public IngestDocument(String index, String type, String id, String routing, String parent, String timestamp,
                           String ttl, Map<String, Object> source) {
@@ -77,10 +94,14 @@ public final class IngestDocument {
     }
 
     /**
-     * Copy constructor that creates a new {@link IngestDocument} which has exactly the same properties as the one provided as argument
+     * Copy constructor that creates a new {@link IngestDocument} which has exactly the same properties as the one provided as argument.
+     * This is a constant time operation: the two documents share all maps and lists and copy them when they first modify them.
+     * Byte arrays and dates are shared too, they must not be modified in place.
      */
     public IngestDocument(IngestDocument other) {
-        this(deepCopyMap(other.sourceAndMetadata), deepCopyMap(other.ingestMetadata));
+        this(other.sourceAndMetadata, other.ingestMetadata);
+        this.ownedContainers = newIdentitySet();
+        other.ownedContainers = newIdentitySet();
     }
 
     /**
@@ -93,6 +114,17 @@ public final class IngestDocument {
         this.ingestMetadata = ingestMetadata;
     }
 
+    /**
+     * Returns whether the time that processors spend on this document is recorded in their {@link IngestMetric}.
+     */
+    boolean isTimed() {
+        return timed;
+    }
+
+    void setTimed(boolean timed) {
+        this.timed = timed;
+    }
+
     /**
      * Returns the value contained in the document for the provided path
      * @param path The path within the document in dot-notation
@@ -107,6 +139,14 @@ public final class IngestDocument {
         for (String pathElement : fieldPath.pathElements) {
             context = resolve(pathElement, path, context);
         }
+        if (ownedContainers != null && isContainer(context)) {
+            // the caller may modify the returned map or list, so it must not be shared with any copy of this document
+            context = fieldPath.ownedInitialContext();
+            for (String pathElement : fieldPath.pathElements) {
+                context = ownValue(context, pathElement, resolve(pathElement, path, context));
+            }
+            context = ownDeep(context);
+        }
         return cast(path, context, clazz);
     }
 
@@ -287,9 +327,10 @@ public final class IngestDocument {
      */
     public void removeField(String path) {
         FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        Object context = fieldPath.ownedInitialContext();
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
-            context = resolve(fieldPath.pathElements[i], path, context);
+            String pathElement = fieldPath.pathElements[i];
+            context = ownValue(context, pathElement, resolve(pathElement, path, context));
         }
 
         String leafKey = fieldPath.pathElements[fieldPath.pathElements.length - 1];
@@ -388,7 +429,7 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty or invalid.
      */
     public void appendFieldValue(TemplateService.Template fieldPathTemplate, ValueSource valueSource) {
-        Map<String, Object> model = createTemplateModel();
+        Map<String, Object> model = createTemplateModel(fieldPathTemplate, valueSource);
         appendFieldValue(fieldPathTemplate.execute(model), valueSource.copyAndResolve(model));
     }
 
@@ -416,13 +457,14 @@ public final class IngestDocument {
      * item identified by the provided path.
      */
     public void setFieldValue(TemplateService.Template fieldPathTemplate, ValueSource valueSource) {
-        Map<String, Object> model = createTemplateModel();
+        Map<String, Object> model = createTemplateModel(fieldPathTemplate, valueSource);
         setFieldValue(fieldPathTemplate.execute(model), valueSource.copyAndResolve(model), false);
     }
 
     private void setFieldValue(String path, Object value, boolean append) {
+        adopt(value);
         FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        Object context = fieldPath.ownedInitialContext();
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             String pathElement = fieldPath.pathElements[i];
             if (context == null) {
@@ -432,9 +474,10 @@ public final class IngestDocument {
                 @SuppressWarnings("unchecked")
                 Map<String, Object> map = (Map<String, Object>) context;
                 if (map.containsKey(pathElement)) {
-                    context = map.get(pathElement);
+                    context = ownValue(map, pathElement, map.get(pathElement));
                 } else {
                     HashMap<Object, Object> newMap = new HashMap<>();
+                    adopt(newMap);
                     map.put(pathElement, newMap);
                     context = newMap;
                 }
@@ -452,7 +495,7 @@ public final class IngestDocument {
                     throw new IllegalArgumentException("[" + index + "] is out of bounds for array with length [" +
                             list.size() + "] as part of path [" + path + "]");
                 }
-                context = list.get(index);
+                context = ownValue(list, pathElement, list.get(index));
             } else {
                 throw new IllegalArgumentException("cannot resolve [" + pathElement + "] from object of type [" +
                         context.getClass().getName() + "] as part of path [" + path + "]");
@@ -468,14 +511,16 @@ public final class IngestDocument {
             Map<String, Object> map = (Map<String, Object>) context;
             if (append) {
                 if (map.containsKey(leafKey)) {
-                    Object object = map.get(leafKey);
+                    Object object = ownValue(map, leafKey, map.get(leafKey));
                     List<Object> list = appendValues(object, value);
                     if (list != object) {
+                        adopt(list);
                         map.put(leafKey, list);
                     }
                 } else {
                     List<Object> list = new ArrayList<>();
                     appendValues(list, value);
+                    adopt(list);
                     map.put(leafKey, list);
                 }
                 return;
@@ -496,9 +541,10 @@ public final class IngestDocument {
                         "] as part of path [" + path + "]");
             }
             if (append) {
-                Object object = list.get(index);
+                Object object = ownValue(list, leafKey, list.get(index));
                 List<Object> newList = appendValues(object, value);
                 if (newList != object) {
+                    adopt(newList);
                     list.set(index, newList);
                 }
                 return;
@@ -546,9 +592,20 @@ public final class IngestDocument {
     }
 
     public String renderTemplate(TemplateService.Template template) {
+        if (template.isConstant()) {
+            return template.execute(Collections.emptyMap());
+        }
         return template.execute(createTemplateModel());
     }
 
+    private Map<String, Object> createTemplateModel(TemplateService.Template template, ValueSource valueSource) {
+        if (template.isConstant() && valueSource.isConstant()) {
+            // neither looks at the model, so don't copy the document into one
+            return Collections.emptyMap();
+        }
+        return createTemplateModel();
+    }
+
     private Map<String, Object> createTemplateModel() {
         Map<String, Object> model = new HashMap<>(sourceAndMetadata);
         model.put(SourceFieldMapper.NAME, sourceAndMetadata);
@@ -564,6 +621,7 @@ public final class IngestDocument {
      */
     public Map<MetaData, String> extractMetadata() {
         Map<MetaData, String> metadataMap = new HashMap<>();
+        sourceAndMetadata = own(sourceAndMetadata);
         for (MetaData metaData : MetaData.values()) {
             metadataMap.put(metaData, cast(metaData.getFieldName(), sourceAndMetadata.remove(metaData.getFieldName()), String.class));
         }
@@ -575,49 +633,122 @@ public final class IngestDocument {
      * Use only for reading values, modify them instead using {@link #setFieldValue(String, Object)} and {@link #removeField(String)}
      */
     public Map<String, Object> getIngestMetadata() {
+        ingestMetadata = ownDeep(ingestMetadata);
         return this.ingestMetadata;
     }
 
+    /**
+     * Returns the same map as {@link #getIngestMetadata()} for reading only: unlike {@link #getIngestMetadata()} this doesn't copy
+     * the maps and lists that are shared with copies of this document, so neither the returned map nor its values may be modified.
+     */
+    public Map<String, Object> getIngestMetadataForReading() {
+        return Collections.unmodifiableMap(ingestMetadata);
+    }
+
     /**
      * Returns the document including its metadata fields, unless {@link #extractMetadata()} has been called, in which case the
      * metadata fields will not be present anymore.
      * Modify the document instead using {@link #setFieldValue(String, Object)} and {@link #removeField(String)}
      */
     public Map<String, Object> getSourceAndMetadata() {
+        sourceAndMetadata = ownDeep(sourceAndMetadata);
         return this.sourceAndMetadata;
     }
 
+    /**
+     * Returns the same map as {@link #getSourceAndMetadata()} for reading only: unlike {@link #getSourceAndMetadata()} this doesn't
+     * copy the maps and lists that are shared with copies of this document, so neither the returned map nor its values may be modified.
+     */
+    public Map<String, Object> getSourceAndMetadataForReading() {
+        return Collections.unmodifiableMap(sourceAndMetadata);
+    }
+
+    private static Set<Object> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    private static boolean isContainer(Object value) {
+        return value instanceof Map || value instanceof List;
+    }
+
+    /**
+     * Returns the given map or list if this document may modify it in place, or a shallow copy of it that this document owns
+     * otherwise. The caller is responsible for replacing the given map or list with the copy.
+     */
     @SuppressWarnings("unchecked")
-    private static <K, V> Map<K, V> deepCopyMap(Map<K, V> source) {
-        return (Map<K, V>) deepCopy(source);
+    private <T> T own(T container) {
+        if (ownedContainers == null || ownedContainers.contains(container)) {
+            return container;
+        }
+        Object copy;
+        if (container instanceof Map) {
+            copy = new HashMap<>((Map<?, ?>) container);
+        } else {
+            copy = new ArrayList<>((List<?>) container);
+        }
+        ownedContainers.add(copy);
+        return (T) copy;
     }
 
-    private static Object deepCopy(Object value) {
-        if (value instanceof Map) {
-            Map<?, ?> mapValue = (Map<?, ?>) value;
-            Map<Object, Object> copy = new HashMap<>(mapValue.size());
-            for (Map.Entry<?, ?> entry : mapValue.entrySet()) {
-                copy.put(entry.getKey(), deepCopy(entry.getValue()));
-            }
-            return copy;
-        } else if (value instanceof List) {
-            List<?> listValue = (List<?>) value;
-            List<Object> copy = new ArrayList<>(listValue.size());
-            for (Object itemValue : listValue) {
-                copy.add(deepCopy(itemValue));
+    /**
+     * Makes sure that the given value of the given owned map or list may be modified in place if it is a map or list itself,
+     * replacing it with a copy if it is shared, and returns the value.
+     */
+    @SuppressWarnings("unchecked")
+    private Object ownValue(Object context, String pathElement, Object value) {
+        if (ownedContainers == null || isContainer(value) == false) {
+            return value;
+        }
+        Object ownedValue = own(value);
+        if (ownedValue != value) {
+            if (context instanceof Map) {
+                ((Map<String, Object>) context).put(pathElement, ownedValue);
+            } else {
+                ((List<Object>) context).set(Integer.parseInt(pathElement), ownedValue);
             }
-            return copy;
-        } else if (value instanceof byte[]) {
-            byte[] bytes = (byte[]) value;
-            return Arrays.copyOf(bytes, bytes.length);
-        } else if (value == null || value instanceof String || value instanceof Integer ||
-            value instanceof Long || value instanceof Float ||
-            value instanceof Double || value instanceof Boolean) {
+        }
+        return ownedValue;
+    }
+
+    /**
+     * Like {@link #own(Object)} but also for all the maps and lists that the given map or list contains.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T ownDeep(T value) {
+        if (ownedContainers == null || isContainer(value) == false) {
             return value;
-        } else if (value instanceof Date) {
-            return ((Date) value).clone();
+        }
+        T owned = own(value);
+        if (owned instanceof Map) {
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) owned).entrySet()) {
+                Object ownedEntryValue = ownDeep(entry.getValue());
+                if (ownedEntryValue != entry.getValue()) {
+                    entry.setValue(ownedEntryValue);
+                }
+            }
         } else {
-            throw new IllegalArgumentException("unexpected value type [" + value.getClass() + "]");
+            for (ListIterator<Object> iterator = ((List<Object>) owned).listIterator(); iterator.hasNext(); ) {
+                Object item = iterator.next();
+                Object ownedItem = ownDeep(item);
+                if (ownedItem != item) {
+                    iterator.set(ownedItem);
+                }
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * Marks a map or list that is added to this document, and all maps and lists that it contains, as owned by this document, so
+     * that the caller can keep modifying it until the document is copied.
+     */
+    private void adopt(Object value) {
+        if (ownedContainers == null || isContainer(value) == false || ownedContainers.add(value) == false) {
+            return;
+        }
+        Iterable<?> values = value instanceof Map ? ((Map<?, ?>) value).values() : (List<?>) value;
+        for (Object item : values) {
+            adopt(item);
         }
     }
 
@@ -670,22 +801,52 @@ public final class IngestDocument {
 
         private final String[] pathElements;
         private final Object initialContext;
+        private final boolean ingestMetadataPath;
 
         private FieldPath(String path) {
-            if (Strings.isEmpty(path)) {
-                throw new IllegalArgumentException("path cannot be null nor empty");
+            ParsedPath parsedPath = ParsedPath.of(path);
+            this.pathElements = parsedPath.pathElements;
+            this.ingestMetadataPath = parsedPath.ingestMetadataPath;
+            this.initialContext = ingestMetadataPath ? ingestMetadata : sourceAndMetadata;
+        }
+
+        /**
+         * Returns the map that the path starts from, after making sure that this document may modify it in place.
+         */
+        private Object ownedInitialContext() {
+            if (ingestMetadataPath) {
+                ingestMetadata = own(ingestMetadata);
+                return ingestMetadata;
             }
+            sourceAndMetadata = own(sourceAndMetadata);
+            return sourceAndMetadata;
+        }
+
+    }
+
+    /**
+     * A path split into its elements. Pipelines access the same few paths for every document, so paths are only split the
+     * first time they are accessed and the result is shared by all documents. The elements must not be modified.
+     */
+    private static final class ParsedPath {
+
+        // paths that are rendered from templates may differ for every document, so the cache is cleared once it is full. Lookups
+        // don't track how recently paths were used, as that would make all ingest threads contend on the same lock
+        private static final int MAX_CACHED_PATHS = 10000;
+        private static final ConcurrentMap<String, ParsedPath> CACHE = new ConcurrentHashMap<>();
+
+        private final String[] pathElements;
+        private final boolean ingestMetadataPath;
+
+        private ParsedPath(String path) {
             String newPath;
-            if (path.startsWith(INGEST_KEY_PREFIX)) {
-                initialContext = ingestMetadata;
+            ingestMetadataPath = path.startsWith(INGEST_KEY_PREFIX);
+            if (ingestMetadataPath) {
                 newPath = path.substring(INGEST_KEY_PREFIX.length(), path.length());
+            } else if (path.startsWith(SOURCE_PREFIX)) {
+                newPath = path.substring(SOURCE_PREFIX.length(), path.length());
             } else {
-                initialContext = sourceAndMetadata;
-                if (path.startsWith(SOURCE_PREFIX)) {
-                    newPath = path.substring(SOURCE_PREFIX.length(), path.length());
-                } else {
-                    newPath = path;
-                }
+                newPath = path;
             }
             this.pathElements = newPath.split("\\.");
             if (pathElements.length == 1 && pathElements[0].isEmpty()) {
@@ -693,5 +854,19 @@ public final class IngestDocument {
             }
         }
 
+        private static ParsedPath of(String path) {
+            if (Strings.isEmpty(path)) {
+                throw new IllegalArgumentException("path cannot be null nor empty");
+            }
+            ParsedPath parsedPath = CACHE.get(path);
+            if (parsedPath == null) {
+                parsedPath = new ParsedPath(path);
+                if (CACHE.size() >= MAX_CACHED_PATHS) {
+                    CACHE.clear();
+                }
+                CACHE.put(path, parsedPath);
+            }
+            return parsedPath;
+        }
     }
 }
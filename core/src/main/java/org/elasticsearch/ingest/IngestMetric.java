@@ -0,0 +1,72 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.ingest;
+
+import org.elasticsearch.common.metrics.CounterMetric;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the executions of a single processor: how many documents it processed, how many of them failed and how much time
+ * it spent. Only the documents that are sampled for timing (see
+ * {@link PipelineExecutionService#PROCESSOR_STATS_SAMPLE_INTERVAL_SETTING}) are timed, the reported time is extrapolated
+ * from them.
+ */
+public final class IngestMetric {
+
+    private final CounterMetric count = new CounterMetric();
+    private final CounterMetric current = new CounterMetric();
+    private final CounterMetric failed = new CounterMetric();
+    private final CounterMetric timedCount = new CounterMetric();
+    private final CounterMetric timeInNanos = new CounterMetric();
+
+    /**
+     * Executes the given processor on the given document and records the execution.
+     */
+    public void execute(Processor processor, IngestDocument ingestDocument) throws Exception {
+        final boolean timed = ingestDocument.isTimed();
+        final long startTimeInNanos = timed ? System.nanoTime() : 0L;
+        current.inc();
+        try {
+            processor.execute(ingestDocument);
+        } catch (Exception e) {
+            failed.inc();
+            throw e;
+        } finally {
+            current.dec();
+            count.inc();
+            if (timed) {
+                timeInNanos.inc(System.nanoTime() - startTimeInNanos);
+                timedCount.inc();
+            }
+        }
+    }
+
+    IngestStats.Stats createStats() {
+        final long count = this.count.count();
+        final long timedCount = this.timedCount.count();
+        long timeInNanos = this.timeInNanos.count();
+        if (timedCount > 0 && timedCount < count) {
+            timeInNanos = (long) ((double) timeInNanos * count / timedCount);
+        }
+        return new IngestStats.Stats(count, TimeUnit.NANOSECONDS.toMillis(timeInNanos), current.count(), failed.count());
+    }
+}
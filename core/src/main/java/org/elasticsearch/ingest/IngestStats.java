@@ -19,6 +19,7 @@
 
 package org.elasticsearch.ingest;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -26,17 +27,27 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class IngestStats implements Writeable, ToXContent {
     private final Stats totalStats;
     private final Map<String, Stats> statsPerPipeline;
+    private final Map<String, List<ProcessorStats>> processorStatsPerPipeline;
 
     public IngestStats(Stats totalStats, Map<String, Stats> statsPerPipeline) {
+        this(totalStats, statsPerPipeline, Collections.emptyMap());
+    }
+
+    public IngestStats(Stats totalStats, Map<String, Stats> statsPerPipeline, Map<String, List<ProcessorStats>> processorStatsPerPipeline) {
         this.totalStats = totalStats;
         this.statsPerPipeline = statsPerPipeline;
+        this.processorStatsPerPipeline = processorStatsPerPipeline;
     }
 
     /**
@@ -46,8 +57,18 @@ public class IngestStats implements Writeable, ToXContent {
         this.totalStats = new Stats(in);
         int size = in.readVInt();
         this.statsPerPipeline = new HashMap<>(size);
+        this.processorStatsPerPipeline = new HashMap<>(size);
         for (int i = 0; i < size; i++) {
-            statsPerPipeline.put(in.readString(), new Stats(in));
+            String pipelineId = in.readString();
+            statsPerPipeline.put(pipelineId, new Stats(in));
+            if (in.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+                int numProcessors = in.readVInt();
+                List<ProcessorStats> processorStats = new ArrayList<>(numProcessors);
+                for (int j = 0; j < numProcessors; j++) {
+                    processorStats.add(new ProcessorStats(in));
+                }
+                processorStatsPerPipeline.put(pipelineId, processorStats);
+            }
         }
     }
 
@@ -58,6 +79,13 @@ public class IngestStats implements Writeable, ToXContent {
         for (Map.Entry<String, Stats> entry : statsPerPipeline.entrySet()) {
             out.writeString(entry.getKey());
             entry.getValue().writeTo(out);
+            if (out.getVersion().onOrAfter(Version.V_5_3_4_UNRELEASED)) {
+                List<ProcessorStats> processorStats = processorStatsPerPipeline.getOrDefault(entry.getKey(), Collections.emptyList());
+                out.writeVInt(processorStats.size());
+                for (ProcessorStats processorStat : processorStats) {
+                    processorStat.writeTo(out);
+                }
+            }
         }
     }
 
@@ -76,6 +104,13 @@ public class IngestStats implements Writeable, ToXContent {
         return statsPerPipeline;
     }
 
+    /**
+     * @return The stats of the processors of each pipeline, in the order the processors are configured
+     */
+    public Map<String, List<ProcessorStats>> getProcessorStatsPerPipeline() {
+        return processorStatsPerPipeline;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("ingest");
@@ -86,6 +121,14 @@ public class IngestStats implements Writeable, ToXContent {
         for (Map.Entry<String, Stats> entry : statsPerPipeline.entrySet()) {
             builder.startObject(entry.getKey());
             entry.getValue().toXContent(builder, params);
+            List<ProcessorStats> processorStats = processorStatsPerPipeline.get(entry.getKey());
+            if (processorStats != null) {
+                builder.startArray("processors");
+                for (ProcessorStats processorStat : processorStats) {
+                    processorStat.toXContent(builder, params);
+                }
+                builder.endArray();
+            }
             builder.endObject();
         }
         builder.endObject();
@@ -163,4 +206,97 @@ public class IngestStats implements Writeable, ToXContent {
             return builder;
         }
     }
+
+    public static class ProcessorStats implements Writeable, ToXContent {
+
+        private final String name;
+        private final String type;
+        private final Stats stats;
+        private final Map<String, Long> counters;
+
+        public ProcessorStats(String name, String type, Stats stats) {
+            this(name, type, stats, Collections.emptyMap());
+        }
+
+        public ProcessorStats(String name, String type, Stats stats, Map<String, Long> counters) {
+            this.name = name;
+            this.type = type;
+            this.stats = stats;
+            this.counters = counters;
+        }
+
+        /**
+         * Read from a stream.
+         */
+        public ProcessorStats(StreamInput in) throws IOException {
+            name = in.readString();
+            type = in.readString();
+            stats = new Stats(in);
+            int numCounters = in.readVInt();
+            counters = new LinkedHashMap<>(numCounters);
+            for (int i = 0; i < numCounters; i++) {
+                counters.put(in.readString(), in.readVLong());
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(name);
+            out.writeString(type);
+            stats.writeTo(out);
+            out.writeVInt(counters.size());
+            for (Map.Entry<String, Long> counter : counters.entrySet()) {
+                out.writeString(counter.getKey());
+                out.writeVLong(counter.getValue());
+            }
+        }
+
+        /**
+         * @return The type of the processor followed by its tag, if it has one.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The type of the processor.
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return The stats of the processor.
+         */
+        public Stats getStats() {
+            return stats;
+        }
+
+        /**
+         * @return The counters that the processor keeps of its own, see {@link CountingProcessor}.
+         */
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.startObject(name);
+            builder.field("type", type);
+            builder.startObject("stats");
+            stats.toXContent(builder, params);
+            builder.endObject();
+            if (counters.isEmpty() == false) {
+                builder.startObject("counters");
+                for (Map.Entry<String, Long> counter : counters.entrySet()) {
+                    builder.field(counter.getKey(), counter.getValue());
+                }
+                builder.endObject();
+            }
+            builder.endObject();
+            builder.endObject();
+            return builder;
+        }
+    }
 }
@@ -83,5 +83,10 @@ public class InternalTemplateService implements TemplateService {
         public String getKey() {
             return value;
         }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
     }
 }
@@ -26,34 +26,59 @@ import org.elasticsearch.cluster.ClusterStateApplier;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class PipelineExecutionService implements ClusterStateApplier {
 
+    /**
+     * The minimum number of documents that a single ingest task of a bulk request processes, so that small bulk requests don't
+     * get forked to many threads.
+     */
+    static final int MIN_BULK_CHUNK_SIZE = 16;
+
+    /**
+     * The time that processors spend is measured for one out of this many documents, the other documents are only counted.
+     * Measuring every document costs two calls to {@link System#nanoTime()} per processor and document.
+     */
+    public static final Setting<Integer> PROCESSOR_STATS_SAMPLE_INTERVAL_SETTING =
+        Setting.intSetting("ingest.processor_stats.sample_interval", 1, 1, Property.NodeScope);
+
     private final PipelineStore store;
     private final ThreadPool threadPool;
+    private final int processorStatsSampleInterval;
+    private final AtomicLong processorStatsSampleCounter = new AtomicLong();
 
     private final StatsHolder totalStats = new StatsHolder();
     private volatile Map<String, StatsHolder> statsHolderPerPipeline = Collections.emptyMap();
 
-    public PipelineExecutionService(PipelineStore store, ThreadPool threadPool) {
+    public PipelineExecutionService(Settings settings, PipelineStore store, ThreadPool threadPool) {
         this.store = store;
         this.threadPool = threadPool;
+        this.processorStatsSampleInterval = PROCESSOR_STATS_SAMPLE_INTERVAL_SETTING.get(settings);
     }
 
     public void executeIndexRequest(IndexRequest request, Consumer<Exception> failureHandler, Consumer<Boolean> completionHandler) {
         Pipeline pipeline = getPipeline(request.getPipeline());
-        threadPool.executor(ThreadPool.Names.INDEX).execute(new AbstractRunnable() {
+        threadPool.executor(ThreadPool.Names.INGEST).execute(new AbstractRunnable() {
 
             @Override
             public void onFailure(Exception e) {
@@ -68,47 +93,93 @@ public class PipelineExecutionService implements ClusterStateApplier {
         });
     }
 
+    /**
+     * Runs the pipelines of all index requests of a bulk request. The requests are split into chunks that are executed
+     * concurrently on the {@link ThreadPool.Names#INGEST} thread pool. Once all chunks are done the item failure handler is
+     * called for every failed request, in the order of the requests and from a single thread, followed by the completion
+     * handler.
+     */
     public void executeBulkRequest(Iterable<DocWriteRequest> actionRequests,
                                    BiConsumer<IndexRequest, Exception> itemFailureHandler,
                                    Consumer<Exception> completionHandler) {
-        threadPool.executor(ThreadPool.Names.BULK).execute(new AbstractRunnable() {
-
-            @Override
-            public void onFailure(Exception e) {
-                completionHandler.accept(e);
+        final List<IndexRequest> indexRequests = new ArrayList<>();
+        for (DocWriteRequest actionRequest : actionRequests) {
+            if (actionRequest instanceof IndexRequest && Strings.hasText(((IndexRequest) actionRequest).getPipeline())) {
+                indexRequests.add((IndexRequest) actionRequest);
             }
+        }
+        final ExecutorService executor = threadPool.executor(ThreadPool.Names.INGEST);
+        final int maxThreads = executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getMaximumPoolSize() : 1;
+        final int numChunks = Math.max(1, Math.min(maxThreads, indexRequests.size() / MIN_BULK_CHUNK_SIZE));
+        final int chunkSize = (indexRequests.size() + numChunks - 1) / numChunks;
+        // each slot is only written by the task of its chunk, the count down makes the writes visible to the last task
+        final Exception[] failures = new Exception[indexRequests.size()];
+        final CountDown countDown = new CountDown(numChunks);
+        for (int chunk = 0; chunk < numChunks; chunk++) {
+            final int from = chunk * chunkSize;
+            final int to = Math.min(indexRequests.size(), from + chunkSize);
+            executor.execute(new AbstractRunnable() {
 
-            @Override
-            protected void doRun() throws Exception {
-                for (DocWriteRequest actionRequest : actionRequests) {
-                    if ((actionRequest instanceof IndexRequest)) {
-                        IndexRequest indexRequest = (IndexRequest) actionRequest;
-                        if (Strings.hasText(indexRequest.getPipeline())) {
-                            try {
-                                innerExecute(indexRequest, getPipeline(indexRequest.getPipeline()));
-                                //this shouldn't be needed here but we do it for consistency with index api
-                                // which requires it to prevent double execution
-                                indexRequest.setPipeline(null);
-                            } catch (Exception e) {
-                                itemFailureHandler.accept(indexRequest, e);
+                @Override
+                public void onFailure(Exception e) {
+                    // the chunk was rejected, fail all of its documents
+                    for (int i = from; i < to; i++) {
+                        failures[i] = e;
+                    }
+                }
+
+                @Override
+                protected void doRun() throws Exception {
+                    for (int i = from; i < to; i++) {
+                        IndexRequest indexRequest = indexRequests.get(i);
+                        try {
+                            innerExecute(indexRequest, getPipeline(indexRequest.getPipeline()));
+                            //this shouldn't be needed here but we do it for consistency with index api
+                            // which requires it to prevent double execution
+                            indexRequest.setPipeline(null);
+                        } catch (Exception e) {
+                            failures[i] = e;
+                        }
+                    }
+                }
+
+                @Override
+                public void onAfter() {
+                    if (countDown.countDown()) {
+                        try {
+                            for (int i = 0; i < failures.length; i++) {
+                                if (failures[i] != null) {
+                                    itemFailureHandler.accept(indexRequests.get(i), failures[i]);
+                                }
                             }
+                        } catch (Exception e) {
+                            completionHandler.accept(e);
+                            return;
                         }
+                        completionHandler.accept(null);
                     }
                 }
-                completionHandler.accept(null);
-            }
-        });
+            });
+        }
     }
 
     public IngestStats stats() {
         Map<String, StatsHolder> statsHolderPerPipeline = this.statsHolderPerPipeline;
 
         Map<String, IngestStats.Stats> statsPerPipeline = new HashMap<>(statsHolderPerPipeline.size());
+        Map<String, List<IngestStats.ProcessorStats>> processorStatsPerPipeline = new HashMap<>(statsHolderPerPipeline.size());
         for (Map.Entry<String, StatsHolder> entry : statsHolderPerPipeline.entrySet()) {
             statsPerPipeline.put(entry.getKey(), entry.getValue().createStats());
+            // the processor stats live as long as the pipeline instance, so they start over when the pipeline gets updated
+            Pipeline pipeline = store.get(entry.getKey());
+            if (pipeline != null) {
+                List<IngestStats.ProcessorStats> processorStats = new ArrayList<>();
+                pipeline.getCompoundProcessor().collectProcessorStats(processorStats);
+                processorStatsPerPipeline.put(entry.getKey(), processorStats);
+            }
         }
 
-        return new IngestStats(totalStats.createStats(), statsPerPipeline);
+        return new IngestStats(totalStats.createStats(), statsPerPipeline, processorStatsPerPipeline);
     }
 
     @Override
@@ -163,6 +234,9 @@ public class PipelineExecutionService implements ClusterStateApplier {
             String ttl = indexRequest.ttl() == null ? null : indexRequest.ttl().toString();
             Map<String, Object> sourceAsMap = indexRequest.sourceAsMap();
             IngestDocument ingestDocument = new IngestDocument(index, type, id, routing, parent, timestamp, ttl, sourceAsMap);
+            if (processorStatsSampleInterval > 1) {
+                ingestDocument.setTimed(processorStatsSampleCounter.getAndIncrement() % processorStatsSampleInterval == 0);
+            }
             pipeline.execute(ingestDocument);
 
             Map<IngestDocument.MetaData, String> metadataMap = ingestDocument.extractMetadata();
@@ -34,5 +34,13 @@ public interface TemplateService {
         String execute(Map<String, Object> model);
 
         String getKey();
+
+        /**
+         * Returns whether this template renders the same string for any model. Constant templates may be executed with an
+         * empty model, which saves callers from building one.
+         */
+        default boolean isConstant() {
+            return false;
+        }
     }
 }
@@ -41,6 +41,13 @@ public interface ValueSource {
      */
     Object copyAndResolve(Map<String, Object> model);
 
+    /**
+     * Returns whether this ValueSource resolves to the same value for any model, so that it can be resolved with an empty model.
+     */
+    default boolean isConstant() {
+        return false;
+    }
+
     static ValueSource wrap(Object value, TemplateService templateService) {
         if (value instanceof Map) {
             @SuppressWarnings("unchecked")
@@ -86,6 +93,16 @@ public interface ValueSource {
             return copy;
         }
 
+        @Override
+        public boolean isConstant() {
+            for (Map.Entry<ValueSource, ValueSource> entry : map.entrySet()) {
+                if (entry.getKey().isConstant() == false || entry.getValue().isConstant() == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -119,6 +136,16 @@ public interface ValueSource {
             return copy;
         }
 
+        @Override
+        public boolean isConstant() {
+            for (ValueSource value : values) {
+                if (value.isConstant() == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -148,6 +175,11 @@ public interface ValueSource {
             return value;
         }
 
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -176,6 +208,11 @@ public interface ValueSource {
             return value;
         }
 
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -205,6 +242,11 @@ public interface ValueSource {
             return template.execute(model);
         }
 
+        @Override
+        public boolean isConstant() {
+            return template.isConstant();
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
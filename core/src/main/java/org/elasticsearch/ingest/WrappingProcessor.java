@@ -0,0 +1,38 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.ingest;
+
+/**
+ * A processor that executes another processor, for instance once per element of a list. The inner processor is reported in
+ * the ingest stats next to the wrapping processor.
+ */
+public interface WrappingProcessor extends Processor {
+
+    /**
+     * The processor that is executed by this processor.
+     */
+    Processor getInnerProcessor();
+
+    /**
+     * The metric that the executions of the inner processor are recorded in, see {@link IngestMetric#execute}.
+     */
+    IngestMetric getInnerProcessorMetric();
+}
@@ -33,6 +33,7 @@ import org.elasticsearch.env.NodeEnvironment.NodePath;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -59,15 +60,51 @@ public class FsProbe extends AbstractComponent {
         }
         FsInfo.IoStats ioStats = null;
         if (Constants.LINUX) {
-            Set<Tuple<Integer, Integer>> devicesNumbers = new HashSet<>();
-            for (int i = 0; i < dataLocations.length; i++) {
-                if (dataLocations[i].majorDeviceNumber != -1 && dataLocations[i].minorDeviceNumber != -1) {
-                    devicesNumbers.add(Tuple.tuple(dataLocations[i].majorDeviceNumber, dataLocations[i].minorDeviceNumber));
+            ioStats = ioStats(devicesNumbers(dataLocations), previous);
+        }
+        return new FsInfo(System.currentTimeMillis(), ioStats, paths);
+    }
+
+    /**
+     * Returns the total time in milliseconds that the devices of the data paths spent doing I/O, keyed by device name. The ratio of
+     * the growth of these values to the elapsed time is the utilization of the devices. Only available on Linux, empty otherwise.
+     */
+    public Map<String, Long> ioTimeInMillis() {
+        if (Constants.LINUX == false || nodeEnv.hasNodeFile() == false) {
+            return Collections.emptyMap();
+        }
+        return ioTimeInMillis(devicesNumbers(nodeEnv.nodePaths()));
+    }
+
+    private static Set<Tuple<Integer, Integer>> devicesNumbers(NodePath[] dataLocations) {
+        Set<Tuple<Integer, Integer>> devicesNumbers = new HashSet<>();
+        for (int i = 0; i < dataLocations.length; i++) {
+            if (dataLocations[i].majorDeviceNumber != -1 && dataLocations[i].minorDeviceNumber != -1) {
+                devicesNumbers.add(Tuple.tuple(dataLocations[i].majorDeviceNumber, dataLocations[i].minorDeviceNumber));
+            }
+        }
+        return devicesNumbers;
+    }
+
+    final Map<String, Long> ioTimeInMillis(final Set<Tuple<Integer, Integer>> devicesNumbers) {
+        try {
+            final Map<String, Long> ioTimes = new HashMap<>();
+            for (String line : readProcDiskStats()) {
+                String fields[] = line.trim().split("\\s+");
+                final int majorDeviceNumber = Integer.parseInt(fields[0]);
+                final int minorDeviceNumber = Integer.parseInt(fields[1]);
+                if (devicesNumbers.contains(Tuple.tuple(majorDeviceNumber, minorDeviceNumber))) {
+                    // the tenth statistic of a device is the number of milliseconds spent doing I/Os
+                    ioTimes.put(fields[2], Long.parseLong(fields[12]));
                 }
             }
-            ioStats = ioStats(devicesNumbers, previous);
+            return ioTimes;
+        } catch (Exception e) {
+            logger.debug(
+                (Supplier<?>) () -> new ParameterizedMessage(
+                    "unexpected exception reading I/O time from /proc/diskstats for devices {}", devicesNumbers), e);
+            return Collections.emptyMap();
         }
-        return new FsInfo(System.currentTimeMillis(), ioStats, paths);
     }
 
     final FsInfo.IoStats ioStats(final Set<Tuple<Integer, Integer>> devicesNumbers, final FsInfo previous) {
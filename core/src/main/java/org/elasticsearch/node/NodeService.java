@@ -32,7 +32,9 @@ import org.elasticsearch.common.settings.SettingsFilter;
 import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.http.HttpServerTransport;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.NodeIndicesStats;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.recovery.AdaptiveRecoveryThrottler;
 import org.elasticsearch.ingest.IngestService;
 import org.elasticsearch.monitor.MonitorService;
 import org.elasticsearch.plugins.PluginsService;
@@ -55,6 +57,7 @@ public class NodeService extends AbstractComponent implements Closeable {
     private final SettingsFilter settingsFilter;
     private ScriptService scriptService;
     private final HttpServerTransport httpServerTransport;
+    private final AdaptiveRecoveryThrottler recoveryThrottler;
 
 
     private final Discovery discovery;
@@ -63,7 +66,7 @@ public class NodeService extends AbstractComponent implements Closeable {
                        TransportService transportService, IndicesService indicesService, PluginsService pluginService,
                        CircuitBreakerService circuitBreakerService, ScriptService scriptService,
                        @Nullable HttpServerTransport httpServerTransport, IngestService ingestService, ClusterService clusterService,
-                       SettingsFilter settingsFilter) {
+                       SettingsFilter settingsFilter, AdaptiveRecoveryThrottler recoveryThrottler) {
         super(settings);
         this.threadPool = threadPool;
         this.monitorService = monitorService;
@@ -76,6 +79,7 @@ public class NodeService extends AbstractComponent implements Closeable {
         this.ingestService = ingestService;
         this.settingsFilter = settingsFilter;
         this.scriptService = scriptService;
+        this.recoveryThrottler = recoveryThrottler;
         clusterService.addStateApplier(ingestService.getPipelineStore());
         clusterService.addStateApplier(ingestService.getPipelineExecutionService());
     }
@@ -102,7 +106,7 @@ public class NodeService extends AbstractComponent implements Closeable {
         // for indices stats we want to include previous allocated shards stats as well (it will
         // only be applied to the sensible ones to use, like refresh/merge/flush/indexing stats)
         return new NodeStats(discovery.localNode(), System.currentTimeMillis(),
-                indices.anySet() ? indicesService.stats(true, indices) : null,
+                indices.anySet() ? indicesStats(indices) : null,
                 os ? monitorService.osService().stats() : null,
                 process ? monitorService.processService().stats() : null,
                 jvm ? monitorService.jvmService().stats() : null,
@@ -117,6 +121,15 @@ public class NodeService extends AbstractComponent implements Closeable {
         );
     }
 
+    private NodeIndicesStats indicesStats(CommonStatsFlags flags) {
+        final NodeIndicesStats stats = indicesService.stats(true, flags);
+        if (flags.isSet(CommonStatsFlags.Flag.Recovery) && stats.getRecoveryStats() != null) {
+            // adaptive throttling applies to all recoveries of the node so it is only part of the node level statistics
+            stats.getRecoveryStats().setAdaptiveThrottleStats(recoveryThrottler.stats());
+        }
+        return stats;
+    }
+
     public IngestService getIngestService() {
         return ingestService;
     }
@@ -44,6 +44,7 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.metadata.RepositoryMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.Numbers;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.UUIDs;
@@ -56,6 +57,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.compress.NotXContentException;
+import org.elasticsearch.common.hash.MessageDigests;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
@@ -66,6 +68,8 @@ import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.util.iterable.Iterables;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
@@ -83,6 +87,7 @@ import org.elasticsearch.index.snapshots.IndexShardSnapshotFailedException;
 import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
 import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot;
 import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshots;
+import org.elasticsearch.index.snapshots.blobstore.ContentDefinedChunker;
 import org.elasticsearch.index.snapshots.blobstore.RateLimitingInputStream;
 import org.elasticsearch.index.snapshots.blobstore.SlicedInputStream;
 import org.elasticsearch.index.snapshots.blobstore.SnapshotFiles;
@@ -101,19 +106,27 @@ import org.elasticsearch.snapshots.SnapshotId;
 import org.elasticsearch.snapshots.SnapshotInfo;
 import org.elasticsearch.snapshots.SnapshotMissingException;
 import org.elasticsearch.snapshots.SnapshotShardFailure;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.NoSuchFileException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyMap;
@@ -231,6 +244,10 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
     private final boolean readOnly;
 
+    private final int maxConcurrentFileTransfers;
+
+    private final ContentDefinedChunker chunker;
+
     private final ChecksumBlobStoreFormat<BlobStoreIndexShardSnapshot> indexShardSnapshotFormat;
 
     private final LegacyBlobStoreFormat<BlobStoreIndexShardSnapshot> indexShardSnapshotLegacyFormat;
@@ -250,6 +267,24 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         snapshotRateLimiter = getRateLimiter(metadata.settings(), "max_snapshot_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         restoreRateLimiter = getRateLimiter(metadata.settings(), "max_restore_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         readOnly = metadata.settings().getAsBoolean("readonly", false);
+        maxConcurrentFileTransfers = metadata.settings().getAsInt("max_concurrent_file_transfers", 4);
+        if (maxConcurrentFileTransfers < 1) {
+            throw new RepositoryException(metadata.name(),
+                "[max_concurrent_file_transfers] must be at least 1 but was [" + maxConcurrentFileTransfers + "]");
+        }
+        if (metadata.settings().getAsBoolean("deduplicate", false)) {
+            final ByteSizeValue averageChunkSize = metadata.settings().getAsBytesSize("deduplication_chunk_size",
+                new ByteSizeValue(1, ByteSizeUnit.MB));
+            if (averageChunkSize.getBytes() < ContentDefinedChunker.MIN_AVERAGE_CHUNK_SIZE
+                || averageChunkSize.getBytes() > ContentDefinedChunker.MAX_AVERAGE_CHUNK_SIZE) {
+                throw new RepositoryException(metadata.name(), "[deduplication_chunk_size] must be between ["
+                    + new ByteSizeValue(ContentDefinedChunker.MIN_AVERAGE_CHUNK_SIZE) + "] and ["
+                    + new ByteSizeValue(ContentDefinedChunker.MAX_AVERAGE_CHUNK_SIZE) + "] but was [" + averageChunkSize + "]");
+            }
+            chunker = new ContentDefinedChunker((int) averageChunkSize.getBytes());
+        } else {
+            chunker = null;
+        }
 
         indexShardSnapshotFormat = new ChecksumBlobStoreFormat<>(SNAPSHOT_CODEC, SNAPSHOT_NAME_FORMAT,
             BlobStoreIndexShardSnapshot::fromXContent, namedXContentRegistry, isCompress());
@@ -660,6 +695,65 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }
     }
 
+    /**
+     * Transfers the given files of a shard with up to {@code max_concurrent_file_transfers} transfers at a time. The calling thread
+     * transfers files too and the other transfers run on the given executor, whose size bounds the number of concurrent transfers
+     * on the node. As the calling thread only waits for files that other threads have started to transfer already, the transfers
+     * make progress even if all threads of the executor are busy. Once a transfer fails the remaining files are skipped and the
+     * first failure is rethrown.
+     */
+    private void transferFiles(Executor executor, List<BlobStoreIndexShardSnapshot.FileInfo> files,
+                               CheckedConsumer<BlobStoreIndexShardSnapshot.FileInfo, IOException> transfer) throws IOException {
+        final Queue<BlobStoreIndexShardSnapshot.FileInfo> pendingFiles = new ConcurrentLinkedQueue<>(files);
+        final CountDownLatch latch = new CountDownLatch(files.size());
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final Runnable transferPendingFiles = () -> {
+            BlobStoreIndexShardSnapshot.FileInfo fileInfo;
+            while ((fileInfo = pendingFiles.poll()) != null) {
+                try {
+                    if (failure.get() == null) {
+                        transfer.accept(fileInfo);
+                    }
+                } catch (Exception e) {
+                    if (failure.compareAndSet(null, e) == false) {
+                        failure.get().addSuppressed(e);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            }
+        };
+        final int helpers = Math.min(maxConcurrentFileTransfers, files.size()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(transferPendingFiles);
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread transfers the files on its own
+                break;
+            }
+        }
+        transferPendingFiles.run();
+        // the files must not be transferred anymore once this method returns, as the caller releases the store
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        final Exception e = failure.get();
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e != null) {
+            throw (RuntimeException) e;
+        }
+    }
+
     /**
      * Returns appropriate global metadata format based on the provided version of the snapshot
      */
@@ -996,10 +1090,36 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         status.files(snapshot.numberOfFiles(), snapshot.totalSize());
         // The snapshot is done which means the number of processed files is the same as total
         status.processedFiles(snapshot.numberOfFiles(), snapshot.totalSize());
+        status.deduplicatedSize(snapshot.deduplicatedSize());
         status.time(snapshot.time());
         return status;
     }
 
+    /**
+     * Returns the container of the blobs of the given shard of the given index
+     *
+     * @param indexId id of the index in this repository
+     * @param shardId shard number
+     * @return blob container of the shard
+     */
+    public BlobContainer shardContainer(IndexId indexId, int shardId) {
+        return blobStore().blobContainer(basePath().add("indices").add(indexId.getId()).add(Integer.toString(shardId)));
+    }
+
+    /**
+     * Loads the description of the files of the given shard in the given snapshot
+     *
+     * @param snapshotId      snapshot id
+     * @param version         version of the node that created the snapshot
+     * @param indexId         id of the index in this repository
+     * @param snapshotShardId shard in the snapshot
+     * @return shard snapshot
+     */
+    public BlobStoreIndexShardSnapshot loadShardSnapshot(SnapshotId snapshotId, Version version, IndexId indexId,
+                                                         ShardId snapshotShardId) {
+        return new Context(snapshotId, version, indexId, snapshotShardId).loadSnapshot();
+    }
+
     @Override
     public void verify(String seed, DiscoveryNode localNode) {
         BlobContainer testBlobContainer = blobStore().blobContainer(basePath().add(testBlobPrefix(seed)));
@@ -1067,7 +1187,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             this.snapshotId = snapshotId;
             this.version = version;
             this.shardId = shardId;
-            blobContainer = blobStore().blobContainer(basePath().add("indices").add(indexId.getId()).add(Integer.toString(snapshotShardId.getId())));
+            blobContainer = shardContainer(indexId, snapshotShardId.getId());
         }
 
         /**
@@ -1152,6 +1272,16 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                             logger.debug((Supplier<?>) () -> new ParameterizedMessage("[{}] [{}] error deleting blob [{}] during cleanup", snapshotId, shardId, blobName), e);
                         }
                     }
+                } else if (blobName.startsWith(BlobStoreIndexShardSnapshot.ChunkInfo.BLOB_PREFIX)) {
+                    // chunks are shared by all files with the same content and can only be deleted once no file references them
+                    if (newSnapshots.referencesChunk(blobName) == false) {
+                        try {
+                            blobContainer.deleteBlob(blobName);
+                        } catch (IOException e) {
+                            logger.debug((Supplier<?>) () -> new ParameterizedMessage("[{}] [{}] error deleting chunk [{}] during cleanup",
+                                snapshotId, shardId, blobName), e);
+                        }
+                    }
                 }
             }
 
@@ -1264,6 +1394,18 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
         private final IndexShardSnapshotStatus snapshotStatus;
 
+        private final Executor fileTransferExecutor;
+
+        /**
+         * The lengths of the chunk blobs of the shard, including those that are being uploaded by this snapshot
+         */
+        private final Map<String, Long> chunkBlobs = ConcurrentCollections.newConcurrentMap();
+
+        /**
+         * The infos of the files that were snapshotted as chunks, by file name
+         */
+        private final Map<String, BlobStoreIndexShardSnapshot.FileInfo> chunkedFiles = ConcurrentCollections.newConcurrentMap();
+
         /**
          * Constructs new context
          *
@@ -1276,6 +1418,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             super(snapshotId, Version.CURRENT, indexId, shard.shardId());
             this.snapshotStatus = snapshotStatus;
             this.store = shard.store();
+            this.fileTransferExecutor = shard.getThreadPool().executor(ThreadPool.Names.SNAPSHOT);
         }
 
         /**
@@ -1344,8 +1487,13 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                     if (existingFileInfo == null) {
                         indexNumberOfFiles++;
                         indexTotalFilesSize += md.length();
-                        // create a new FileInfo
-                        BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo = new BlobStoreIndexShardSnapshot.FileInfo(fileNameFromGeneration(++generation), md, chunkSize());
+                        // create a new FileInfo, files that are stored as chunks don't have a blob of their own and get a unique name
+                        // rather than the next generation, which is derived from the existing blobs; their chunks are only known
+                        // once they have been read, so that their info is replaced after the transfer
+                        final String name = chunker == null
+                            ? fileNameFromGeneration(++generation) : DATA_BLOB_PREFIX + UUIDs.randomBase64UUID();
+                        BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo =
+                            new BlobStoreIndexShardSnapshot.FileInfo(name, md, chunkSize());
                         indexCommitPointFiles.add(snapshotFileInfo);
                         filesToSnapshot.add(snapshotFileInfo);
                     } else {
@@ -1362,12 +1510,25 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
                 snapshotStatus.updateStage(IndexShardSnapshotStatus.Stage.STARTED);
 
-                for (BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo : filesToSnapshot) {
-                    try {
-                        snapshotFile(snapshotFileInfo);
-                    } catch (IOException e) {
-                        throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
+                try {
+                    if (chunker == null) {
+                        transferFiles(fileTransferExecutor, filesToSnapshot, this::snapshotFile);
+                    } else {
+                        for (Map.Entry<String, BlobMetaData> blob : blobs.entrySet()) {
+                            if (blob.getKey().startsWith(BlobStoreIndexShardSnapshot.ChunkInfo.BLOB_PREFIX)) {
+                                chunkBlobs.put(blob.getKey(), blob.getValue().length());
+                            }
+                        }
+                        transferFiles(fileTransferExecutor, filesToSnapshot, this::snapshotFileInChunks);
+                        for (int i = 0; i < indexCommitPointFiles.size(); i++) {
+                            final BlobStoreIndexShardSnapshot.FileInfo chunkedFile = chunkedFiles.get(indexCommitPointFiles.get(i).name());
+                            if (chunkedFile != null) {
+                                indexCommitPointFiles.set(i, chunkedFile);
+                            }
+                        }
                     }
+                } catch (IOException e) {
+                    throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
                 }
 
                 snapshotStatus.indexVersion(snapshotIndexCommit.getGeneration());
@@ -1377,7 +1538,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                 BlobStoreIndexShardSnapshot snapshot = new BlobStoreIndexShardSnapshot(snapshotId.getName(),
                     snapshotIndexCommit.getGeneration(), indexCommitPointFiles, snapshotStatus.startTime(),
                     // snapshotStatus.startTime() is assigned on the same machine, so it's safe to use with VLong
-                    System.currentTimeMillis() - snapshotStatus.startTime(), indexNumberOfFiles, indexTotalFilesSize);
+                    System.currentTimeMillis() - snapshotStatus.startTime(), indexNumberOfFiles, indexTotalFilesSize,
+                    snapshotStatus.deduplicatedSize());
                 //TODO: The time stored in snapshot doesn't include cleanup time.
                 logger.trace("[{}] [{}] writing shard snapshot file", shardId, snapshotId);
                 try {
@@ -1404,8 +1566,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         /**
          * Snapshot individual file
          * <p>
-         * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
-         * added to the {@code failures} list
+         * Several files of the shard may be snapshotted concurrently, see {@link #transferFiles}.
          *
          * @param fileInfo file to be snapshotted
          */
@@ -1433,6 +1594,79 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             }
         }
 
+        /**
+         * Snapshot individual file as content defined chunks, uploading only the chunks that the repository doesn't contain yet
+         * <p>
+         * The file is read twice: once to split it into chunks, which verifies its checksum, and once to upload the new chunks. The
+         * uploaded content is checked against the hash of the chunk, so that a blob never holds content that doesn't match its name.
+         *
+         * @param fileInfo file to be snapshotted
+         */
+        private void snapshotFileInChunks(final BlobStoreIndexShardSnapshot.FileInfo fileInfo) throws IOException {
+            final String file = fileInfo.physicalName();
+            try {
+                final List<BlobStoreIndexShardSnapshot.ChunkInfo> chunks;
+                try (IndexInput indexInput = store.openVerifyingInput(file, IOContext.READONCE, fileInfo.metadata())) {
+                    chunks = chunker.split(new AbortableInputStream(new InputStreamIndexInput(indexInput, fileInfo.length()), file));
+                    Store.verify(indexInput);
+                }
+                long deduplicatedSize = 0;
+                try (IndexInput indexInput = store.directory().openInput(file, IOContext.READONCE)) {
+                    long offset = 0;
+                    for (BlobStoreIndexShardSnapshot.ChunkInfo chunk : chunks) {
+                        if (claimChunkUpload(chunk)) {
+                            indexInput.seek(offset);
+                            snapshotChunk(chunk, new InputStreamIndexInput(indexInput, chunk.length()), file);
+                        } else {
+                            deduplicatedSize += chunk.length();
+                        }
+                        offset += chunk.length();
+                    }
+                }
+                chunkedFiles.put(fileInfo.name(), new BlobStoreIndexShardSnapshot.FileInfo(fileInfo.name(), fileInfo.metadata(), chunks));
+                snapshotStatus.addDeduplicatedSize(deduplicatedSize);
+                snapshotStatus.addProcessedFile(fileInfo.length());
+            } catch (Exception t) {
+                failStoreIfCorrupted(t);
+                snapshotStatus.addProcessedFile(0);
+                throw t;
+            }
+        }
+
+        /**
+         * Returns true if the calling thread has to upload the given chunk, which is the case unless the repository contains it
+         * already or another file that is being snapshotted uploads it. Chunk blobs that don't have the expected length, because
+         * their upload didn't complete, are deleted so that they can be uploaded again.
+         */
+        private boolean claimChunkUpload(BlobStoreIndexShardSnapshot.ChunkInfo chunk) throws IOException {
+            final Long existingLength = chunkBlobs.putIfAbsent(chunk.blobName(), chunk.length());
+            if (existingLength == null) {
+                return true;
+            }
+            if (existingLength != chunk.length() && chunkBlobs.replace(chunk.blobName(), existingLength, chunk.length())) {
+                logger.debug("[{}] [{}] replacing incomplete chunk [{}]", shardId, snapshotId, chunk.blobName());
+                blobContainer.deleteBlob(chunk.blobName());
+                return true;
+            }
+            return false;
+        }
+
+        private void snapshotChunk(BlobStoreIndexShardSnapshot.ChunkInfo chunk, InputStream chunkStream, String file) throws IOException {
+            final MessageDigest digest = MessageDigests.sha256();
+            InputStream inputStream = new DigestInputStream(chunkStream, digest);
+            if (snapshotRateLimiter != null) {
+                inputStream = new RateLimitingInputStream(inputStream, snapshotRateLimiter, snapshotRateLimitingTimeInNanos::inc);
+            }
+            inputStream = new AbortableInputStream(inputStream, file);
+            blobContainer.writeBlob(chunk.blobName(), inputStream, chunk.length());
+            final String hash = MessageDigests.toHexString(digest.digest());
+            if (hash.equals(chunk.hash()) == false) {
+                blobContainer.deleteBlob(chunk.blobName());
+                throw new CorruptIndexException("content of chunk [" + chunk.blobName() + "] of file [" + file
+                    + "] changed while it was snapshotted, hash is now [" + hash + "]", file);
+            }
+        }
+
         private void failStoreIfCorrupted(Exception e) {
             if (e instanceof CorruptIndexException || e instanceof IndexFormatTooOldException || e instanceof IndexFormatTooNewException) {
                 try {
@@ -1452,6 +1686,15 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
          * @return true if file exists in the list of blobs
          */
         private boolean snapshotFileExistsInBlobs(BlobStoreIndexShardSnapshot.FileInfo fileInfo, Map<String, BlobMetaData> blobs) {
+            if (fileInfo.storedInChunks()) {
+                for (BlobStoreIndexShardSnapshot.ChunkInfo chunk : fileInfo.chunks()) {
+                    final BlobMetaData chunkMetaData = blobs.get(chunk.blobName());
+                    if (chunkMetaData == null || chunkMetaData.length() != chunk.length()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
             BlobMetaData blobMetaData = blobs.get(fileInfo.name());
             if (blobMetaData != null) {
                 return blobMetaData.length() == fileInfo.length();
@@ -1526,19 +1769,25 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }
     }
 
+    /**
+     * Reads a snapshotted file from its parts or, if it is stored as content defined chunks, from its chunks
+     */
     private static final class PartSliceStream extends SlicedInputStream {
 
         private final BlobContainer container;
         private final BlobStoreIndexShardSnapshot.FileInfo info;
 
         PartSliceStream(BlobContainer container, BlobStoreIndexShardSnapshot.FileInfo info) {
-            super(info.numberOfParts());
+            super(info.storedInChunks() ? info.chunks().size() : info.numberOfParts());
             this.info = info;
             this.container = container;
         }
 
         @Override
         protected InputStream openSlice(long slice) throws IOException {
+            if (info.storedInChunks()) {
+                return container.readBlob(info.chunks().get(Math.toIntExact(slice)).blobName());
+            }
             return container.readBlob(info.partName(slice));
         }
     }
@@ -1552,6 +1801,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
         private final RecoveryState recoveryState;
 
+        private final Executor fileTransferExecutor;
+
         /**
          * Constructs new restore context
          *
@@ -1565,6 +1816,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             super(snapshotId, version, indexId, shard.shardId(), snapshotShardId);
             this.recoveryState = recoveryState;
             this.targetShard = shard;
+            this.fileTransferExecutor = shard.getThreadPool().executor(ThreadPool.Names.SNAPSHOT);
         }
 
         /**
@@ -1663,10 +1915,10 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                         IOUtils.deleteFiles(store.directory(), storeFileMetaData.name());
                     }
                     // restore the files from the snapshot to the Lucene store
-                    for (final BlobStoreIndexShardSnapshot.FileInfo fileToRecover : filesToRecover) {
+                    transferFiles(fileTransferExecutor, filesToRecover, fileToRecover -> {
                         logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
                         restoreFile(fileToRecover, store);
-                    }
+                    });
                 } catch (IOException ex) {
                     throw new IndexShardRestoreFailedException(shardId, "Failed to recover index", ex);
                 }
@@ -1707,8 +1959,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
         /**
          * Restores a file
-         * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
-         * added to the {@code failures} list
+         * <p>
+         * Several files of the shard may be restored concurrently, see {@link #transferFiles}.
          *
          * @param fileInfo file to be restored
          */
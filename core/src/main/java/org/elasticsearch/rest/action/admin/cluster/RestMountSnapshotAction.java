@@ -0,0 +1,52 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.admin.cluster;
+
+import org.elasticsearch.action.admin.cluster.snapshots.restore.MountSnapshotRequest;
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.RestToXContentListener;
+
+import java.io.IOException;
+
+import static org.elasticsearch.client.Requests.mountSnapshotRequest;
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+
+/**
+ * Mounts an index of a snapshot
+ */
+public class RestMountSnapshotAction extends BaseRestHandler {
+    public RestMountSnapshotAction(Settings settings, RestController controller) {
+        super(settings);
+        controller.registerHandler(POST, "/_snapshot/{repository}/{snapshot}/_mount", this);
+    }
+
+    @Override
+    public RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) throws IOException {
+        MountSnapshotRequest mountSnapshotRequest = mountSnapshotRequest(request.param("repository"), request.param("snapshot"));
+        mountSnapshotRequest.masterNodeTimeout(request.paramAsTime("master_timeout", mountSnapshotRequest.masterNodeTimeout()));
+        mountSnapshotRequest.waitForCompletion(request.paramAsBoolean("wait_for_completion", false));
+        request.applyContentParser(p -> mountSnapshotRequest.source(p.mapOrdered()));
+        return channel -> client.admin().cluster().mountSnapshot(mountSnapshotRequest, new RestToXContentListener<>(channel));
+    }
+}
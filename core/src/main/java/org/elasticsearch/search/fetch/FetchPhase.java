@@ -208,7 +208,15 @@ public class FetchPhase implements SearchPhase {
         SourceLookup sourceLookup = context.lookup().source();
         sourceLookup.setSegmentAndDocument(subReaderContext, subDocId);
         if (fieldsVisitor.source() != null) {
-            sourceLookup.setSource(fieldsVisitor.source());
+            BytesReference source = fieldsVisitor.source();
+            if (documentMapper != null) {
+                try {
+                    source = documentMapper.sourceWithInPlaceValues(subReaderContext.reader(), subDocId, source);
+                } catch (IOException e) {
+                    throw new FetchPhaseExecutionException(context, "Failed to load in place values of [" + fieldsVisitor.uid() + "]", e);
+                }
+            }
+            sourceLookup.setSource(source);
         }
         return searchHit;
     }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.cluster.health;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.health.ClusterStateHealth;
@@ -27,6 +28,7 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.gateway.ShardFetchStats;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESTestCase;
 import org.hamcrest.Matchers;
@@ -68,6 +70,23 @@ public class ClusterHealthResponsesTests extends ESTestCase {
         assertThat(clusterHealth.getActiveShardsPercent(), is(allOf(greaterThanOrEqualTo(0.0), lessThanOrEqualTo(100.0))));
     }
 
+    public void testShardFetchStatsSerialization() throws IOException {
+        ClusterState clusterState = ClusterState.builder(ClusterName.CLUSTER_NAME_SETTING.getDefault(Settings.EMPTY)).build();
+        ShardFetchStats shardFetchStats = new ShardFetchStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong());
+        ClusterHealthResponse clusterHealth = new ClusterHealthResponse("bla", new String[] {MetaData.ALL}, clusterState, 0, 0, 0,
+            TimeValue.timeValueMillis(0), shardFetchStats);
+
+        ShardFetchStats copy = serialize(clusterHealth, Version.CURRENT).getShardFetchStats();
+        assertThat(copy.getRounds(), Matchers.equalTo(shardFetchStats.getRounds()));
+        assertThat(copy.getRequests(), Matchers.equalTo(shardFetchStats.getRequests()));
+        assertThat(copy.getShards(), Matchers.equalTo(shardFetchStats.getShards()));
+        assertThat(copy.getFailures(), Matchers.equalTo(shardFetchStats.getFailures()));
+        assertThat(copy.getTime(), Matchers.equalTo(shardFetchStats.getTime()));
+
+        assertThat(serialize(clusterHealth, Version.V_5_3_1).getShardFetchStats(), Matchers.sameInstance(ShardFetchStats.EMPTY));
+    }
+
     private void assertClusterHealth(ClusterHealthResponse clusterHealth) {
         ClusterStateHealth clusterStateHealth = clusterHealth.getClusterStateHealth();
 
@@ -80,6 +99,15 @@ public class ClusterHealthResponsesTests extends ESTestCase {
         assertThat(clusterHealth.getNumberOfDataNodes(), Matchers.equalTo(clusterStateHealth.getNumberOfDataNodes()));
     }
 
+    private ClusterHealthResponse serialize(ClusterHealthResponse clusterHealth, Version version) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        clusterHealth.writeTo(out);
+        StreamInput in = out.bytes().streamInput();
+        in.setVersion(version);
+        return ClusterHealthResponse.readResponseFrom(in);
+    }
+
     ClusterHealthResponse maybeSerialize(ClusterHealthResponse clusterHealth) throws IOException {
         if (randomBoolean()) {
             BytesStreamOutput out = new BytesStreamOutput();
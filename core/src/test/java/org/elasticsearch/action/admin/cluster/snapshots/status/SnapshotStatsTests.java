@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.snapshots.status;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class SnapshotStatsTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        SnapshotStats stats = createTestStats();
+        SnapshotStats copy = copyStats(stats, Version.CURRENT);
+        assertEquals(stats.getStartTime(), copy.getStartTime());
+        assertEquals(stats.getTime(), copy.getTime());
+        assertEquals(stats.getNumberOfFiles(), copy.getNumberOfFiles());
+        assertEquals(stats.getProcessedFiles(), copy.getProcessedFiles());
+        assertEquals(stats.getTotalSize(), copy.getTotalSize());
+        assertEquals(stats.getProcessedSize(), copy.getProcessedSize());
+        assertEquals(stats.getDeduplicatedSize(), copy.getDeduplicatedSize());
+        assertEquals(stats.getDeduplicationRatio(), copy.getDeduplicationRatio(), 0.0d);
+    }
+
+    public void testSerializationToOlderVersion() throws IOException {
+        SnapshotStats stats = createTestStats();
+        SnapshotStats copy = copyStats(stats, Version.V_5_3_1);
+        assertEquals(stats.getProcessedFiles(), copy.getProcessedFiles());
+        assertEquals(stats.getProcessedSize(), copy.getProcessedSize());
+        assertEquals(0, copy.getDeduplicatedSize());
+        assertEquals(0.0d, copy.getDeduplicationRatio(), 0.0d);
+    }
+
+    private static SnapshotStats createTestStats() {
+        IndexShardSnapshotStatus status = new IndexShardSnapshotStatus();
+        status.startTime(randomIntBetween(0, Integer.MAX_VALUE));
+        status.time(randomIntBetween(0, Integer.MAX_VALUE));
+        int numberOfFiles = randomIntBetween(1, 100);
+        long totalSize = randomIntBetween(1, Integer.MAX_VALUE);
+        status.files(numberOfFiles, totalSize);
+        status.processedFiles(numberOfFiles, totalSize);
+        status.deduplicatedSize(randomIntBetween(1, (int) totalSize));
+        return new SnapshotStats(status);
+    }
+
+    private static SnapshotStats copyStats(SnapshotStats stats, Version version) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            stats.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                return SnapshotStats.readSnapshotStats(in);
+            }
+        }
+    }
+}
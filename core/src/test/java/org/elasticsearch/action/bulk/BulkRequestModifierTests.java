@@ -53,9 +53,9 @@ public class BulkRequestModifierTests extends ESTestCase {
         int i = 0;
         Set<Integer> failedSlots = new HashSet<>();
         while (bulkRequestModifier.hasNext()) {
-            bulkRequestModifier.next();
+            DocWriteRequest request = bulkRequestModifier.next();
             if (randomBoolean()) {
-                bulkRequestModifier.markCurrentItemAsFailed(new RuntimeException());
+                bulkRequestModifier.markItemAsFailed((IndexRequest) request, new RuntimeException());
                 failedSlots.add(i);
             }
             i++;
@@ -91,9 +91,9 @@ public class BulkRequestModifierTests extends ESTestCase {
 
         TransportBulkAction.BulkRequestModifier modifier = new TransportBulkAction.BulkRequestModifier(originalBulkRequest);
         for (int i = 0; modifier.hasNext(); i++) {
-            modifier.next();
+            DocWriteRequest request = modifier.next();
             if (i % 2 == 0) {
-                modifier.markCurrentItemAsFailed(new RuntimeException());
+                modifier.markItemAsFailed((IndexRequest) request, new RuntimeException());
             }
         }
 
@@ -0,0 +1,102 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.Mapping;
+import org.elasticsearch.index.shard.IndexingStats;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class TransportShardBulkActionTests extends ESSingleNodeTestCase {
+
+    private final Logger logger = Loggers.getLogger(TransportShardBulkActionTests.class);
+
+    public void testMergeDynamicMappingUpdatesParsesEveryItemOnce() throws Exception {
+        final IndexService indexService = createIndex("test", client().admin().indices().prepareCreate("test").addMapping("type"));
+        final DocumentMapper mapper = indexService.mapperService().documentMapper("type");
+        final AtomicInteger parsed = new AtomicInteger();
+        final Function<IndexRequest, Mapping> dynamicMappingsUpdate = item -> {
+            parsed.incrementAndGet();
+            return mapper.parse("test", item.type(), item.id(), item.source()).dynamicMappingsUpdate();
+        };
+
+        final BulkItemRequest[] items = new BulkItemRequest[] {
+            new BulkItemRequest(0, new IndexRequest("test", "type", "0").source("{\"a\": 1}")),
+            new BulkItemRequest(1, new IndexRequest("test", "type", "1").source("{\"b\": \"text\"}")),
+            // conflicts with the type of field a of the first item
+            new BulkItemRequest(2, new IndexRequest("test", "type", "2").source("{\"a\": \"text\"}")),
+            new BulkItemRequest(3, new DeleteRequest("test", "type", "0")),
+            new BulkItemRequest(4, new IndexRequest("test", "other_type", "4").source("{\"d\": 1}")),
+            new BulkItemRequest(5, new IndexRequest("test", "type", "5").source("{\"c\": true}"))
+        };
+        final BulkShardRequest request = new BulkShardRequest(new ShardId(indexService.index(), 0), RefreshPolicy.NONE, items);
+        final boolean[] parsedForMerge = new boolean[items.length];
+
+        final Mapping firstUpdate = mapper.parse("test", "type", "0", new BytesArray("{\"a\": 1}")).dynamicMappingsUpdate();
+        final Mapping merged = TransportShardBulkAction.mergeDynamicMappingUpdates(firstUpdate, request, 0, parsedForMerge,
+            dynamicMappingsUpdate, logger);
+        // deletes and items of other types are not parsed
+        assertThat(parsed.get(), equalTo(3));
+        assertThat(merged.toString(), containsString("\"b\""));
+        assertThat(merged.toString(), containsString("\"c\""));
+        assertThat(merged.toString(), containsString("\"long\""));
+
+        // the conflicting item sends its own update, the items after it were already parsed
+        final Mapping conflictingUpdate = mapper.parse("test", "type", "2", new BytesArray("{\"a\": \"text\"}")).dynamicMappingsUpdate();
+        assertSame(conflictingUpdate, TransportShardBulkAction.mergeDynamicMappingUpdates(conflictingUpdate, request, 2,
+            parsedForMerge, dynamicMappingsUpdate, logger));
+        assertThat(parsed.get(), equalTo(3));
+    }
+
+    public void testBulkWaitsForSingleMappingUpdate() {
+        createIndex("test", Settings.builder().put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1).build());
+        final int numDocs = randomIntBetween(2, 20);
+        final BulkRequestBuilder bulk = client().prepareBulk();
+        for (int i = 0; i < numDocs; i++) {
+            bulk.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("field_" + i, i));
+        }
+        assertFalse(bulk.get().hasFailures());
+
+        final IndexingStats.Stats stats = client().admin().indices().prepareStats("test").setIndexing(true).get()
+            .getPrimaries().getIndexing().getTotal();
+        assertThat(stats.getMappingUpdateCount(), equalTo(1L));
+        assertThat(stats.getIndexCount(), equalTo((long) numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            assertNotNull(client().admin().indices().prepareGetFieldMappings("test").setTypes("type").setFields("field_" + i).get()
+                .fieldMappings("test", "type", "field_" + i));
+        }
+    }
+}
@@ -50,6 +50,8 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.IndexService;
@@ -67,10 +69,15 @@ import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.transport.CapturingTransport;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.ActionNotFoundTransportException;
+import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportException;
+import org.elasticsearch.transport.TransportInterceptor;
 import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportResponseHandler;
 import org.elasticsearch.transport.TransportResponseOptions;
 import org.elasticsearch.transport.TransportService;
 import org.hamcrest.Matcher;
@@ -80,10 +87,15 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -844,6 +856,243 @@ public class TransportReplicationActionTests extends ESTestCase {
         }
     }
 
+    public void testReplicaProxyBatchesRequests() throws Exception {
+        final int maxRequests = randomIntBetween(1, 10);
+        final Settings settings = Settings.builder()
+            .put(TransportReplicationAction.REPLICA_BATCH_WINDOW_SETTING.getKey(), "1h")
+            .put(TransportReplicationAction.REPLICA_BATCH_MAX_REQUESTS_SETTING.getKey(), maxRequests)
+            .build();
+        final Action action = new BatchingAction(settings, "testActionWithBatches", transportService, clusterService, shardStateAction,
+            threadPool);
+        final Action.ReplicasProxy proxy = action.new ReplicasProxy();
+        final String index = "test";
+        final ShardId shardId = new ShardId(index, "_na_", 0);
+        final ClusterState state = stateWithActivePrimary(index, true, 2 + randomInt(3), randomInt(2));
+        setState(clusterService, state);
+        final ShardRouting replica = randomFrom(state.routingTable().shardRoutingTable(shardId).replicaShards().stream()
+            .filter(ShardRouting::assignedToNode).collect(Collectors.toList()));
+
+        final List<Request> requests = new ArrayList<>();
+        final List<PlainActionFuture<TransportResponse.Empty>> listeners = new ArrayList<>();
+        for (int i = 0; i < maxRequests; i++) {
+            assertThat(transport.capturedRequests(), arrayWithSize(0));
+            final Request request = new Request(shardId);
+            final PlainActionFuture<TransportResponse.Empty> listener = new PlainActionFuture<>();
+            requests.add(request);
+            listeners.add(listener);
+            proxy.performOn(replica, request, listener);
+        }
+
+        // the batch is sent as soon as it is full
+        CapturingTransport.CapturedRequest[] captures = transport.getCapturedRequestsAndClear();
+        assertThat(captures, arrayWithSize(1));
+        assertThat(captures[0].action, equalTo("testActionWithBatches[r][batch]"));
+        assertThat(captures[0].node.getId(), equalTo(replica.currentNodeId()));
+        final TransportReplicationAction.ReplicaBatchRequest<?> batchRequest =
+            (TransportReplicationAction.ReplicaBatchRequest<?>) captures[0].request;
+        assertThat(batchRequest.getTargetAllocationID(), equalTo(replica.allocationId().getId()));
+        assertThat(batchRequest.getRequests(), equalTo(requests));
+        for (PlainActionFuture<TransportResponse.Empty> listener : listeners) {
+            assertFalse(listener.isDone());
+        }
+
+        if (randomBoolean()) {
+            final List<Exception> failures = new ArrayList<>();
+            for (int i = 0; i < maxRequests; i++) {
+                failures.add(randomBoolean() ? null : new ElasticsearchException("simulated"));
+            }
+            transport.handleResponse(captures[0].requestId, new TransportReplicationAction.ReplicaBatchResponse(failures));
+            for (int i = 0; i < maxRequests; i++) {
+                assertTrue(listeners.get(i).isDone());
+                if (failures.get(i) == null) {
+                    listeners.get(i).get();
+                } else {
+                    assertListenerThrows("listener should reflect the failure of the request", listeners.get(i),
+                        ElasticsearchException.class);
+                }
+            }
+        } else {
+            // replicas that don't know about batches get the requests one by one
+            transport.handleRemoteError(captures[0].requestId, new ActionNotFoundTransportException("testActionWithBatches[r][batch]"));
+            captures = transport.getCapturedRequestsAndClear();
+            assertThat(captures, arrayWithSize(maxRequests));
+            for (int i = 0; i < maxRequests; i++) {
+                assertThat(captures[i].action, equalTo("testActionWithBatches[r]"));
+                assertThat(((TransportReplicationAction.ConcreteShardRequest<?>) captures[i].request).getRequest(),
+                    equalTo(requests.get(i)));
+                assertFalse(listeners.get(i).isDone());
+                transport.handleResponse(captures[i].requestId, TransportResponse.Empty.INSTANCE);
+                listeners.get(i).get();
+            }
+        }
+    }
+
+    public void testReplicaProxyOnlyBatchesRequestsWithTheSameHeaders() throws Exception {
+        final int maxRequests = randomIntBetween(1, 10);
+        final Settings settings = Settings.builder()
+            .put(TransportReplicationAction.REPLICA_BATCH_WINDOW_SETTING.getKey(), "1h")
+            .put(TransportReplicationAction.REPLICA_BATCH_MAX_REQUESTS_SETTING.getKey(), maxRequests)
+            .build();
+        final ThreadContext threadContext = threadPool.getThreadContext();
+        // records the header that each request is sent with
+        final Map<TransportRequest, String> sentHeaders = ConcurrentCollections.newConcurrentMap();
+        final CapturingTransport capturingTransport = new CapturingTransport();
+        final TransportService headersTransportService = new TransportService(clusterService.getSettings(), capturingTransport,
+            threadPool, new TransportInterceptor() {
+                @Override
+                public AsyncSender interceptSender(AsyncSender sender) {
+                    return new AsyncSender() {
+                        @Override
+                        public <T extends TransportResponse> void sendRequest(Transport.Connection connection, String action,
+                                                                              TransportRequest request, TransportRequestOptions options,
+                                                                              TransportResponseHandler<T> handler) {
+                            sentHeaders.put(request, threadContext.getHeader("test_header"));
+                            sender.sendRequest(connection, action, request, options, handler);
+                        }
+                    };
+                }
+            }, x -> clusterService.localNode(), null);
+        headersTransportService.start();
+        headersTransportService.acceptIncomingRequests();
+        try {
+            final Action action = new BatchingAction(settings, "testActionWithBatches", headersTransportService, clusterService,
+                shardStateAction, threadPool);
+            final Action.ReplicasProxy proxy = action.new ReplicasProxy();
+            final String index = "test";
+            final ShardId shardId = new ShardId(index, "_na_", 0);
+            final ClusterState state = stateWithActivePrimary(index, true, 2 + randomInt(3), randomInt(2));
+            setState(clusterService, state);
+            final ShardRouting replica = randomFrom(state.routingTable().shardRoutingTable(shardId).replicaShards().stream()
+                .filter(ShardRouting::assignedToNode).collect(Collectors.toList()));
+
+            final Map<String, List<Request>> requestsByHeader = new HashMap<>();
+            final List<AtomicReference<String>> responseHeaders = new ArrayList<>();
+            for (int i = 0; i < maxRequests; i++) {
+                for (String header : new String[] { "a", "b" }) {
+                    try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+                        threadContext.putHeader("test_header", header);
+                        final Request request = new Request(shardId);
+                        requestsByHeader.computeIfAbsent(header, h -> new ArrayList<>()).add(request);
+                        final AtomicReference<String> responseHeader = new AtomicReference<>();
+                        responseHeaders.add(responseHeader);
+                        proxy.performOn(replica, request, ActionListener.wrap(
+                            r -> responseHeader.set(header + ":" + threadContext.getHeader("test_header")),
+                            e -> fail(e.toString())));
+                    }
+                }
+            }
+
+            final CapturingTransport.CapturedRequest[] captures = capturingTransport.getCapturedRequestsAndClear();
+            assertThat(captures, arrayWithSize(2));
+            for (CapturingTransport.CapturedRequest capture : captures) {
+                final TransportReplicationAction.ReplicaBatchRequest<?> batchRequest =
+                    (TransportReplicationAction.ReplicaBatchRequest<?>) capture.request;
+                final String header = sentHeaders.get(batchRequest);
+                assertThat(header, notNullValue());
+                assertThat(batchRequest.getRequests(), equalTo(requestsByHeader.get(header)));
+                final List<Exception> failures = new ArrayList<>();
+                for (int i = 0; i < maxRequests; i++) {
+                    failures.add(null);
+                }
+                capturingTransport.handleResponse(capture.requestId, new TransportReplicationAction.ReplicaBatchResponse(failures));
+            }
+            // the listeners are notified in the context of their own request
+            for (AtomicReference<String> responseHeader : responseHeaders) {
+                final String[] headers = responseHeader.get().split(":");
+                assertThat(headers[1], equalTo(headers[0]));
+            }
+        } finally {
+            headersTransportService.close();
+        }
+    }
+
+    public void testReplicaProxySendsBatchAfterWindow() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(TransportReplicationAction.REPLICA_BATCH_WINDOW_SETTING.getKey(), "10ms")
+            .build();
+        final Action action = new BatchingAction(settings, "testActionWithBatches", transportService, clusterService, shardStateAction,
+            threadPool);
+        final Action.ReplicasProxy proxy = action.new ReplicasProxy();
+        final String index = "test";
+        final ShardId shardId = new ShardId(index, "_na_", 0);
+        final ClusterState state = state(index, true, ShardRoutingState.STARTED, ShardRoutingState.STARTED, ShardRoutingState.STARTED);
+        setState(clusterService, state);
+        final List<ShardRouting> replicas = state.routingTable().shardRoutingTable(shardId).replicaShards();
+        assertThat(replicas.size(), equalTo(2));
+
+        final int numRequests = randomIntBetween(1, 5);
+        final List<PlainActionFuture<TransportResponse.Empty>> listeners = new ArrayList<>();
+        for (int i = 0; i < numRequests; i++) {
+            for (ShardRouting replica : replicas) {
+                final PlainActionFuture<TransportResponse.Empty> listener = new PlainActionFuture<>();
+                listeners.add(listener);
+                proxy.performOn(replica, new Request(shardId), listener);
+            }
+        }
+
+        // one batch per replica
+        assertBusy(() -> assertThat(transport.capturedRequests(), arrayWithSize(replicas.size())));
+        for (CapturingTransport.CapturedRequest capture : transport.getCapturedRequestsAndClear()) {
+            final TransportReplicationAction.ReplicaBatchRequest<?> batchRequest =
+                (TransportReplicationAction.ReplicaBatchRequest<?>) capture.request;
+            assertThat(batchRequest.getRequests().size(), equalTo(numRequests));
+            transport.handleResponse(capture.requestId,
+                new TransportReplicationAction.ReplicaBatchResponse(Arrays.asList(new Exception[numRequests])));
+        }
+        for (PlainActionFuture<TransportResponse.Empty> listener : listeners) {
+            assertTrue(listener.isDone());
+            listener.get();
+        }
+    }
+
+    public void testReplicaBatchExecutesRequestsIndividually() throws Exception {
+        final ShardId shardId = new ShardId("test", "_na_", 0);
+        ClusterState state = state(shardId.getIndexName(), true, ShardRoutingState.STARTED, ShardRoutingState.STARTED);
+        final ShardRouting replica = state.getRoutingTable().shardRoutingTable(shardId).replicaShards().get(0);
+        // simulate execution of the node holding the replica
+        state = ClusterState.builder(state).nodes(DiscoveryNodes.builder(state.nodes()).localNodeId(replica.currentNodeId())).build();
+        setState(clusterService, state);
+        final Set<Request> failingRequests = ConcurrentCollections.newConcurrentSet();
+        final Action action = new BatchingAction(Settings.EMPTY, "testActionWithBatches", transportService, clusterService,
+            shardStateAction, threadPool) {
+            @Override
+            protected ReplicaResult shardOperationOnReplica(Request request, IndexShard replica) {
+                if (failingRequests.contains(request)) {
+                    throw new ElasticsearchException("simulated");
+                }
+                return super.shardOperationOnReplica(request, replica);
+            }
+        };
+
+        final int numRequests = randomIntBetween(1, 10);
+        final List<Request> requests = new ArrayList<>();
+        for (int i = 0; i < numRequests; i++) {
+            final Request request = new Request(shardId);
+            request.primaryTerm(state.metaData().getIndexSafe(shardId.getIndex()).primaryTerm(shardId.id()));
+            if (rarely()) {
+                failingRequests.add(request);
+            }
+            requests.add(request);
+        }
+        final PlainActionFuture<TransportReplicationAction.ReplicaBatchResponse> listener = new PlainActionFuture<>();
+        action.new ReplicaBatchTransportHandler().messageReceived(
+            new TransportReplicationAction.ReplicaBatchRequest<>(replica.allocationId().getId(), requests),
+            createTransportChannel(listener));
+        final List<Exception> failures = listener.get().getFailures();
+        assertThat(failures.size(), equalTo(numRequests));
+        for (int i = 0; i < numRequests; i++) {
+            final Request request = requests.get(i);
+            if (failingRequests.contains(request)) {
+                assertThat(failures.get(i), instanceOf(ElasticsearchException.class));
+                assertThat(request.processedOnReplicas.get(), equalTo(0));
+            } else {
+                assertThat(failures.get(i), nullValue());
+                assertThat(request.processedOnReplicas.get(), equalTo(1));
+            }
+        }
+        assertIndexShardCounter(0);
+    }
+
     /** test that a replica request is rejected if it arrives at a shard with a wrong allocation id */
     public void testReplicaActionRejectsWrongAid() throws Exception {
         final String index = "test";
@@ -1035,6 +1284,19 @@ public class TransportReplicationActionTests extends ESTestCase {
         }
     }
 
+    class BatchingAction extends Action {
+
+        BatchingAction(Settings settings, String actionName, TransportService transportService, ClusterService clusterService,
+                       ShardStateAction shardStateAction, ThreadPool threadPool) {
+            super(settings, actionName, transportService, clusterService, shardStateAction, threadPool);
+        }
+
+        @Override
+        protected boolean supportsReplicaBatching() {
+            return true;
+        }
+    }
+
     final IndicesService mockIndicesService(ClusterService clusterService) {
         final IndicesService indicesService = mock(IndicesService.class);
         when(indicesService.indexServiceSafe(any(Index.class))).then(invocation -> {
@@ -1120,7 +1382,8 @@ public class TransportReplicationActionTests extends ESTestCase {
     /**
      * Transport channel that is needed for replica operation testing.
      */
-    public TransportChannel createTransportChannel(final PlainActionFuture<Response> listener) {
+    @SuppressWarnings("unchecked")
+    public <R extends TransportResponse> TransportChannel createTransportChannel(final PlainActionFuture<R> listener) {
         return new TransportChannel() {
 
             @Override
@@ -1135,12 +1398,12 @@ public class TransportReplicationActionTests extends ESTestCase {
 
             @Override
             public void sendResponse(TransportResponse response) throws IOException {
-                listener.onResponse(((Response) response));
+                listener.onResponse(((R) response));
             }
 
             @Override
             public void sendResponse(TransportResponse response, TransportResponseOptions options) throws IOException {
-                listener.onResponse(((Response) response));
+                listener.onResponse(((R) response));
             }
 
             @Override
@@ -24,6 +24,7 @@ import org.elasticsearch.action.support.ActionFilters;
 import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
 import org.elasticsearch.action.support.WriteResponse;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
@@ -35,13 +36,21 @@ import org.elasticsearch.transport.TransportService;
 import org.junit.Before;
 import org.mockito.ArgumentCaptor;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.instanceOf;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class TransportWriteActionTests extends ESTestCase {
     private IndexShard indexShard;
@@ -154,6 +163,54 @@ public class TransportWriteActionTests extends ESTestCase {
         assertNull(listener.failure);
     }
 
+    public void testReplicaBatchSyncsTranslogOnce() throws Exception {
+        when(indexShard.getTranslogDurability()).thenReturn(Translog.Durability.REQUEST);
+        TestAction testAction = new TestAction();
+        final int numRequests = randomIntBetween(1, 10);
+        final List<Tuple<TransportReplicationAction.ReplicaResult, ActionListener<TransportResponse.Empty>>> results = new ArrayList<>();
+        final List<CapturingActionListener<TransportResponse.Empty>> listeners = new ArrayList<>();
+        Translog.Location maxLocation = null;
+        for (int i = 0; i < numRequests; i++) {
+            final Translog.Location location = new Translog.Location(randomIntBetween(1, 3), randomIntBetween(0, 1000), 10);
+            if (maxLocation == null || location.compareTo(maxLocation) > 0) {
+                maxLocation = location;
+            }
+            final CapturingActionListener<TransportResponse.Empty> listener = new CapturingActionListener<>();
+            listeners.add(listener);
+            results.add(new Tuple<>(new TransportWriteAction.WriteReplicaResult<>(new TestRequest(), location, null, indexShard, logger),
+                listener));
+        }
+        testAction.respondToReplicaBatch(indexShard, results);
+        for (CapturingActionListener<TransportResponse.Empty> listener : listeners) {
+            assertNull(listener.response); // the translog isn't synced yet
+        }
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        ArgumentCaptor<Consumer<Exception>> syncListener = ArgumentCaptor.forClass((Class) Consumer.class);
+        verify(indexShard, times(1)).sync(eq(maxLocation), syncListener.capture());
+
+        syncListener.getValue().accept(null);
+        for (CapturingActionListener<TransportResponse.Empty> listener : listeners) {
+            assertNotNull(listener.response);
+            assertNull(listener.failure);
+        }
+        // the requests of the batch don't sync the translog on their own
+        verify(indexShard, times(1)).sync(any(), any());
+    }
+
+    public void testReplicaBatchFailsOnSyncFailure() throws Exception {
+        when(indexShard.getTranslogDurability()).thenReturn(Translog.Durability.REQUEST);
+        TestAction testAction = new TestAction();
+        final CapturingActionListener<TransportResponse.Empty> listener = new CapturingActionListener<>();
+        testAction.respondToReplicaBatch(indexShard, Collections.singletonList(
+            new Tuple<>(new TransportWriteAction.WriteReplicaResult<>(new TestRequest(), location, null, indexShard, logger), listener)));
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        ArgumentCaptor<Consumer<Exception>> syncListener = ArgumentCaptor.forClass((Class) Consumer.class);
+        verify(indexShard).sync(eq(location), syncListener.capture());
+        syncListener.getValue().accept(new IOException("simulated"));
+        assertNull(listener.response);
+        assertThat(listener.failure, instanceOf(IOException.class));
+    }
+
     public void testDocumentFailureInShardOperationOnPrimary() throws Exception {
         TestRequest request = new TestRequest();
         TestAction testAction = new TestAction(true, true);
@@ -0,0 +1,114 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.action.index;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.admin.indices.mapping.put.PutMappingAction;
+import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.mapper.Mapping;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.elasticsearch.test.client.NoOpClient;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class MappingUpdatedActionTests extends ESSingleNodeTestCase {
+
+    public void testIdenticalInFlightUpdatesAreCoalesced() throws Exception {
+        final IndexService indexService = createIndex("test", client().admin().indices().prepareCreate("test")
+            .addMapping("type", "field", "type=keyword"));
+        final Mapping mapping = indexService.mapperService().documentMapper("type").mapping();
+        final List<ActionListener<PutMappingResponse>> sent = new CopyOnWriteArrayList<>();
+        try (NoOpClient client = new CapturingClient(getTestName(), sent)) {
+            final MappingUpdatedAction action = new MappingUpdatedAction(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+            action.setClient(client);
+
+            final int numUpdates = randomIntBetween(2, 5);
+            final Thread[] threads = new Thread[numUpdates];
+            final AtomicReference<Exception> failure = new AtomicReference<>();
+            for (int i = 0; i < numUpdates; i++) {
+                threads[i] = new Thread(() -> {
+                    try {
+                        action.updateMappingOnMaster(indexService.index(), "type", mapping);
+                    } catch (Exception e) {
+                        failure.set(e);
+                    }
+                });
+                threads[i].start();
+                final Thread thread = threads[i];
+                // wait until the update sent its request or waits for the one that is in flight
+                assertBusy(() -> assertThat(thread.getState(), equalTo(Thread.State.WAITING)));
+            }
+            assertThat(sent.size(), equalTo(1));
+
+            sent.get(0).onResponse(new PutMappingResponse(true) {});
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertNull(failure.get());
+
+            // the update is not in flight anymore, so sending it again sends another request
+            final Thread thread = new Thread(() -> {
+                try {
+                    action.updateMappingOnMaster(indexService.index(), "type", mapping);
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            });
+            thread.start();
+            assertBusy(() -> assertThat(sent.size(), equalTo(2)));
+            sent.get(1).onFailure(new IllegalArgumentException("simulated"));
+            thread.join();
+            assertThat(failure.get(), instanceOf(IllegalArgumentException.class));
+        }
+    }
+
+    private static class CapturingClient extends NoOpClient {
+
+        private final List<ActionListener<PutMappingResponse>> sent;
+
+        CapturingClient(String testName, List<ActionListener<PutMappingResponse>> sent) {
+            super(testName);
+            this.sent = sent;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected <Request extends ActionRequest,
+                        Response extends ActionResponse,
+                        RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+                void doExecute(Action<Request, Response, RequestBuilder> action, Request request, ActionListener<Response> listener) {
+            assertSame(PutMappingAction.INSTANCE, action);
+            sent.add((ActionListener<PutMappingResponse>) listener);
+        }
+    }
+}
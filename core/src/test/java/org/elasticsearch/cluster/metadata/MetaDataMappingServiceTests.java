@@ -20,15 +20,19 @@ package org.elasticsearch.cluster.metadata;
 
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingClusterStateUpdateRequest;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateTaskExecutor;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
@@ -109,4 +113,27 @@ public class MetaDataMappingServiceTests extends ESSingleNodeTestCase {
 
         assertSame(result, result2);
     }
+
+    public void testIdenticalRequestsAreAppliedOnceWithinABatch() throws Exception {
+        final IndexService indexService = createIndex("test", client().admin().indices().prepareCreate("test").addMapping("type"));
+
+        final MetaDataMappingService mappingService = getInstanceFromNode(MetaDataMappingService.class);
+        final ClusterService clusterService = getInstanceFromNode(ClusterService.class);
+        final List<PutMappingClusterStateUpdateRequest> requests = new ArrayList<>();
+        final int numRequests = randomIntBetween(2, 10);
+        for (int i = 0; i < numRequests; i++) {
+            requests.add(new PutMappingClusterStateUpdateRequest().type("type")
+                .indices(new Index[] {indexService.index()})
+                .source("{ \"properties\": { \"field\": { \"type\": \"keyword\" }}}"));
+        }
+        ClusterStateTaskExecutor.ClusterTasksResult<PutMappingClusterStateUpdateRequest> result =
+            mappingService.putMappingExecutor.execute(clusterService.state(), requests);
+
+        assertThat(result.executionResults.size(), equalTo(requests.size()));
+        for (PutMappingClusterStateUpdateRequest request : requests) {
+            assertTrue(result.executionResults.get(request).isSuccess());
+        }
+        assertNotSame(clusterService.state(), result.resultingState);
+        assertNotNull(result.resultingState.metaData().index("test").mapping("type").sourceAsMap().get("properties"));
+    }
 }
@@ -0,0 +1,233 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.joda;
+
+import org.elasticsearch.test.ESTestCase;
+import org.joda.time.DateTimeZone;
+import org.joda.time.MutableDateTime;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.util.Locale;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class FastDateParserTests extends ESTestCase {
+
+    private static final String[] FORMATS = new String[] {
+        "strict_date_optional_time", "strictDateOptionalTime", "date_optional_time", "epoch_millis", "epoch_second",
+        "strict_date_optional_time||epoch_millis", "epoch_millis||strict_date_optional_time", "dateOptionalTime||epoch_second",
+        "epoch_second||epoch_millis"
+    };
+
+    public void testForFormat() {
+        for (String format : FORMATS) {
+            assertThat(format, FastDateParser.forFormat(format), notNullValue());
+            assertThat(format, Joda.forPattern(format).fastParser(), notNullValue());
+        }
+        assertThat(FastDateParser.forFormat("yyyy-MM-dd"), nullValue());
+        assertThat(FastDateParser.forFormat("strict_date_optional_time||yyyy/MM/dd"), nullValue());
+        assertThat(Joda.forPattern("basic_date").fastParser(), nullValue());
+    }
+
+    public void testCommonDates() {
+        FormatDateTimeFormatter formatter = Joda.forPattern("strict_date_optional_time||epoch_millis");
+        FastDateParser parser = formatter.fastParser();
+        String[] dates = new String[] {"2016", "2016-05", "2016-05-24", "2016-05-24T17", "2016-05-24T17:06", "2016-05-24T17:06:51",
+            "2016-05-24T17:06:51.1", "2016-05-24T17:06:51.123", "2016-05-24T17:06:51.123456789", "2016-05-24T17:06:51,123Z",
+            "2016-05-24T17:06:51Z", "2016-05-24T17:06:51.123+02:00", "2016-05-24T17:06:51-05:30", "2016-02-29", "0001-01-01",
+            "9999-12-31T23:59:59.999Z", "1464109611123", "0", "12345"};
+        for (String date : dates) {
+            long millis = parser.parseMillis(date, DateTimeZone.UTC, false);
+            assertThat(date, millis, not(equalTo(FastDateParser.UNSUPPORTED)));
+            assertThat(date, millis, equalTo(formatter.parser().parseMillis(date)));
+            assertThat(date, formatter.parseMillis(date), equalTo(millis));
+        }
+    }
+
+    public void testInvalidDatesAreLeftToJoda() {
+        FastDateParser parser = FastDateParser.forFormat("strict_date_optional_time||epoch_millis");
+        String[] dates = new String[] {"", "2016-02-30", "2015-02-29", "2016-13-01", "2016-05-24T24:00", "2016-05-24T12:60",
+            "2016-05-24T17:06:51.", "2016-05-24T17:06:51.1234567890", "2016-05-24T17:06:51+24:00", "2016-05-24T17:06:51+0100",
+            "2016-05-24 17:06:51", "2016-W21", "2016-145", "+1464109611123", "-1464109611123", "99999999999999999999", "foo"};
+        for (String date : dates) {
+            assertThat(date, parser.parseMillis(date, DateTimeZone.UTC, false), equalTo(FastDateParser.UNSUPPORTED));
+        }
+    }
+
+    public void testZones() {
+        FastDateParser parser = FastDateParser.forFormat("strict_date_optional_time||epoch_millis");
+        DateTimeZone fixed = DateTimeZone.forOffsetHoursMinutes(5, 30);
+        assertThat(parser.parseMillis("2016-05-24T17:06:51", fixed, false),
+            equalTo(parser.parseMillis("2016-05-24T17:06:51+05:30", DateTimeZone.UTC, false)));
+        // offsets in the text win over the zone
+        assertThat(parser.parseMillis("2016-05-24T17:06:51Z", fixed, false),
+            equalTo(parser.parseMillis("2016-05-24T17:06:51Z", DateTimeZone.UTC, false)));
+        DateTimeZone withTransitions = DateTimeZone.forID("Europe/Paris");
+        assertThat(parser.parseMillis("2016-05-24T17:06:51", withTransitions, false), equalTo(FastDateParser.UNSUPPORTED));
+        assertThat(parser.parseMillis("1464109611123", fixed, false), equalTo(FastDateParser.UNSUPPORTED));
+        assertThat(FastDateParser.forFormat("epoch_millis").parseMillis("-1464109611123", DateTimeZone.UTC, false),
+            equalTo(-1464109611123L));
+    }
+
+    public void testRoundUp() {
+        FastDateParser parser = FastDateParser.forFormat("strict_date_optional_time");
+        assertThat(parser.parseMillis("2016-05-24", DateTimeZone.UTC, true),
+            equalTo(parser.parseMillis("2016-05-24T23:59:59.999", DateTimeZone.UTC, false)));
+        assertThat(parser.parseMillis("2016-05-24T17", DateTimeZone.UTC, true),
+            equalTo(parser.parseMillis("2016-05-24T17:59:59.999", DateTimeZone.UTC, false)));
+        assertThat(parser.parseMillis("2016-05-24T17:06:51.5", DateTimeZone.UTC, true),
+            equalTo(parser.parseMillis("2016-05-24T17:06:51.500", DateTimeZone.UTC, false)));
+    }
+
+    public void testDaysSinceEpoch() {
+        assertThat(FastDateParser.daysSinceEpoch(1970, 1, 1), equalTo(0L));
+        assertThat(FastDateParser.daysSinceEpoch(1969, 12, 31), equalTo(-1L));
+        assertThat(FastDateParser.daysSinceEpoch(2000, 3, 1), equalTo(11017L));
+        for (int i = 0; i < 1000; i++) {
+            MutableDateTime date = new MutableDateTime(randomIntBetween(0, 9999), randomIntBetween(1, 12), 1, 0, 0, 0, 0,
+                DateTimeZone.UTC);
+            date.setDayOfMonth(randomIntBetween(1, date.dayOfMonth().getMaximumValue()));
+            assertThat(date.toString(), FastDateParser.daysSinceEpoch(date.getYear(), date.getMonthOfYear(), date.getDayOfMonth()),
+                equalTo(date.getMillis() / (24L * 60 * 60 * 1000)));
+        }
+    }
+
+    /**
+     * Checks that whatever the fast parser parses, it parses to the same instant as Joda, the way both
+     * {@link FormatDateTimeFormatter#parseMillis(String)} and {@link DateMathParser} use them.
+     */
+    public void testSameAsJoda() {
+        DateTimeZone[] zones = new DateTimeZone[] {DateTimeZone.UTC, DateTimeZone.forOffsetHours(-8),
+            DateTimeZone.forOffsetHoursMinutes(5, 45), DateTimeZone.forID("America/New_York")};
+        int supported = 0;
+        int iterations = scaledRandomIntBetween(5000, 20000);
+        for (int i = 0; i < iterations; i++) {
+            String format = randomFrom(FORMATS);
+            FormatDateTimeFormatter formatter = Joda.forPattern(format, Locale.ROOT);
+            FastDateParser parser = formatter.fastParser();
+            String text = randomDate();
+            DateTimeZone zone = randomFrom(zones);
+            boolean roundUp = randomBoolean();
+
+            long millis = parser.parseMillis(text, zone, roundUp);
+            if (millis == FastDateParser.UNSUPPORTED) {
+                continue;
+            }
+            supported++;
+            String description = "[" + text + "] with format [" + format + "], zone [" + zone + "] and roundUp [" + roundUp + "]";
+            assertThat(description, millis, equalTo(parseWithJoda(formatter.parser(), text, zone, roundUp)));
+            if (zone == DateTimeZone.UTC && roundUp == false) {
+                assertThat(description, millis, equalTo(formatter.parser().parseMillis(text)));
+            }
+        }
+        assertThat(supported > 0, equalTo(true));
+    }
+
+    /**
+     * Parses like {@link DateMathParser} did before it had a fast path.
+     */
+    private static long parseWithJoda(DateTimeFormatter parser, String text, DateTimeZone zone, boolean roundUp) {
+        MutableDateTime date;
+        if (roundUp) {
+            date = new MutableDateTime(1970, 1, 1, 23, 59, 59, 999, DateTimeZone.UTC);
+        } else {
+            date = new MutableDateTime(1970, 1, 1, 0, 0, 0, 0, DateTimeZone.UTC);
+        }
+        int end = parser.withZone(zone).parseInto(date, text, 0);
+        assertThat("[" + text + "] should be parsed completely", end, equalTo(text.length()));
+        return date.getMillis();
+    }
+
+    private static String randomDate() {
+        switch (randomIntBetween(0, 4)) {
+            case 0:
+                // numbers, that look like years or epochs
+                return (randomBoolean() ? "-" : "") + randomNumericStringOfLength(randomIntBetween(1, 20));
+            case 1:
+                // random characters of the alphabet of dates
+                StringBuilder builder = new StringBuilder();
+                int length = randomIntBetween(0, 30);
+                for (int i = 0; i < length; i++) {
+                    builder.append(randomFrom('0', '1', '2', '5', '9', '-', ':', 'T', 'Z', '.', ',', '+'));
+                }
+                return builder.toString();
+            default:
+                return randomIsoDate();
+        }
+    }
+
+    private static String randomNumericStringOfLength(int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('0' + randomIntBetween(0, 9)));
+        }
+        return builder.toString();
+    }
+
+    private static String randomIsoDate() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%04d", randomIntBetween(0, 9999)));
+        if (randomBoolean()) {
+            return builder.toString();
+        }
+        builder.append('-').append(String.format(Locale.ROOT, "%02d", randomIntBetween(0, 13)));
+        if (rarely()) {
+            return builder.toString();
+        }
+        builder.append('-').append(String.format(Locale.ROOT, "%02d", randomIntBetween(0, 32)));
+        if (randomBoolean()) {
+            return builder.toString();
+        }
+        builder.append('T');
+        if (rarely() == false) {
+            builder.append(String.format(Locale.ROOT, "%02d", randomIntBetween(0, 24)));
+            if (frequently()) {
+                builder.append(':').append(String.format(Locale.ROOT, "%02d", randomIntBetween(0, 60)));
+                if (frequently()) {
+                    builder.append(':').append(String.format(Locale.ROOT, "%02d", randomIntBetween(0, 60)));
+                    if (randomBoolean()) {
+                        builder.append(randomFrom('.', ',')).append(randomNumericStringOfLength(randomIntBetween(0, 10)));
+                    }
+                }
+            }
+        }
+        switch (randomIntBetween(0, 4)) {
+            case 0:
+                break;
+            case 1:
+                builder.append('Z');
+                break;
+            case 2:
+                builder.append(randomFrom('+', '-')).append(String.format(Locale.ROOT, "%02d", randomIntBetween(0, 24)));
+                if (randomBoolean()) {
+                    builder.append(randomBoolean() ? ":" : "").append(String.format(Locale.ROOT, "%02d", randomIntBetween(0, 60)));
+                }
+                break;
+            default:
+                builder.append(randomFrom('+', '-')).append(String.format(Locale.ROOT, "%02d:%02d", randomIntBetween(0, 14),
+                    randomIntBetween(0, 59)));
+                break;
+        }
+        return builder.toString();
+    }
+}
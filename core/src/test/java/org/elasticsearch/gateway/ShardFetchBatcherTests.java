@@ -0,0 +1,327 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.LocalTransportAddress;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.transport.CapturingTransport;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.ActionNotFoundTransportException;
+import org.elasticsearch.transport.TransportService;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class ShardFetchBatcherTests extends ESTestCase {
+
+    private static final String BATCH_ACTION = "internal:test/batch";
+
+    private final DiscoveryNode localNode = newNode("local");
+    private ThreadPool threadPool;
+    private CapturingTransport transport;
+    private TransportService transportService;
+    private final Map<ShardId, BaseNodesResponse<Response>> responses = new ConcurrentHashMap<>();
+    private final List<ShardId> perShardFetches = new CopyOnWriteArrayList<>();
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        threadPool = new TestThreadPool(getTestName());
+        transport = new CapturingTransport();
+        transportService = new TransportService(Settings.EMPTY, transport, threadPool, TransportService.NOOP_TRANSPORT_INTERCEPTOR,
+            x -> localNode, null);
+        transportService.start();
+        transportService.acceptIncomingRequests();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        transportService.close();
+        terminate(threadPool);
+    }
+
+    private static DiscoveryNode newNode(String nodeId) {
+        return new DiscoveryNode(nodeId, LocalTransportAddress.buildUnique(), Collections.emptyMap(),
+            Collections.singleton(DiscoveryNode.Role.DATA), Version.CURRENT);
+    }
+
+    private ShardFetchBatcher<Response> newBatcher(int batchSize) {
+        return new ShardFetchBatcher<>(logger, transportService, BATCH_ACTION, Response::new,
+            (nodeResponses, failures) -> new Responses(nodeResponses, failures),
+            (shardId, nodes, listener) -> {
+                perShardFetches.add(shardId);
+                listener.onResponse(new Responses(Collections.singletonList(new Response(nodes[0])), Collections.emptyList()));
+            }, batchSize);
+    }
+
+    private ActionListener<BaseNodesResponse<Response>> listener(ShardId shardId) {
+        return ActionListener.wrap(response -> assertNull(responses.put(shardId, response)), e -> fail(e.toString()));
+    }
+
+    public void testOneRequestPerNode() {
+        final ShardFetchBatcher<Response> batcher = newBatcher(Integer.MAX_VALUE);
+        final DiscoveryNode[] nodes = new DiscoveryNode[] { newNode("node1"), newNode("node2"), newNode("node3") };
+        final Map<String, Set<ShardId>> expectedShards = new HashMap<>();
+        final int numShards = randomIntBetween(1, 50);
+        final Map<ShardId, Integer> numNodesPerShard = new HashMap<>();
+        for (int i = 0; i < numShards; i++) {
+            final ShardId shardId = new ShardId("index", "_na_", i);
+            final List<DiscoveryNode> shardNodes = randomSubsetOf(randomIntBetween(1, nodes.length), nodes);
+            for (DiscoveryNode node : shardNodes) {
+                expectedShards.computeIfAbsent(node.getId(), n -> new HashSet<>()).add(shardId);
+            }
+            numNodesPerShard.put(shardId, shardNodes.size());
+            batcher.list(shardId, shardNodes.toArray(new DiscoveryNode[shardNodes.size()]), listener(shardId));
+        }
+        assertThat(transport.capturedRequests().length, equalTo(0));
+
+        batcher.flush();
+        final Map<String, List<CapturingTransport.CapturedRequest>> requests = transport.getCapturedRequestsByTargetNodeAndClear();
+        assertThat(requests.keySet(), equalTo(expectedShards.keySet()));
+        assertThat(responses.keySet(), empty());
+        final Set<ShardId> failedShards = new HashSet<>();
+        for (List<CapturingTransport.CapturedRequest> nodeRequests : requests.values()) {
+            assertThat(nodeRequests, hasSize(1));
+            final CapturingTransport.CapturedRequest request = nodeRequests.get(0);
+            assertThat(request.action, equalTo(BATCH_ACTION));
+            final List<ShardId> shardIds = ((ShardFetchBatcher.BatchRequest) request.request).shardIds();
+            assertThat(shardIds, containsInAnyOrder(expectedShards.get(request.node.getId()).toArray()));
+            final List<Object> results = new ArrayList<>();
+            for (ShardId shardId : shardIds) {
+                if (rarely()) {
+                    failedShards.add(shardId);
+                    results.add(new IllegalStateException("simulated"));
+                } else {
+                    results.add(new Response(request.node));
+                }
+            }
+            transport.handleResponse(request.requestId, new ShardFetchBatcher.BatchResponse<Response>(results));
+        }
+
+        assertThat(responses.size(), equalTo(numShards));
+        for (Map.Entry<ShardId, BaseNodesResponse<Response>> entry : responses.entrySet()) {
+            final BaseNodesResponse<Response> response = entry.getValue();
+            assertThat(response.getNodes().size() + response.failures().size(), equalTo(numNodesPerShard.get(entry.getKey())));
+            for (FailedNodeException failure : response.failures()) {
+                assertTrue(failedShards.contains(entry.getKey()));
+                assertThat(failure.getCause(), instanceOf(IllegalStateException.class));
+            }
+        }
+        final ShardFetchStats stats = batcher.stats();
+        assertThat(stats.getRounds(), equalTo(1L));
+        assertThat(stats.getRequests(), equalTo((long) requests.size()));
+        assertThat(stats.getShards(), equalTo(numNodesPerShard.values().stream().mapToLong(Integer::longValue).sum()));
+
+        // nothing left to send
+        batcher.flush();
+        assertThat(transport.capturedRequests().length, equalTo(0));
+        assertThat(batcher.stats().getRounds(), equalTo(1L));
+    }
+
+    public void testBatchSize() {
+        final int batchSize = randomIntBetween(1, 10);
+        final ShardFetchBatcher<Response> batcher = newBatcher(batchSize);
+        final DiscoveryNode node = newNode("node1");
+        final int numShards = randomIntBetween(1, 50);
+        for (int i = 0; i < numShards; i++) {
+            final ShardId shardId = new ShardId("index", "_na_", i);
+            batcher.list(shardId, new DiscoveryNode[] { node }, listener(shardId));
+        }
+        batcher.flush();
+        final CapturingTransport.CapturedRequest[] requests = transport.getCapturedRequestsAndClear();
+        assertThat(requests.length, equalTo((numShards + batchSize - 1) / batchSize));
+        for (CapturingTransport.CapturedRequest request : requests) {
+            final List<ShardId> shardIds = ((ShardFetchBatcher.BatchRequest) request.request).shardIds();
+            assertThat(shardIds.size(), lessThanOrEqualTo(batchSize));
+            final List<Object> results = new ArrayList<>();
+            for (int i = 0; i < shardIds.size(); i++) {
+                results.add(new Response(node));
+            }
+            transport.handleResponse(request.requestId, new ShardFetchBatcher.BatchResponse<Response>(results));
+        }
+        assertThat(responses.size(), equalTo(numShards));
+    }
+
+    public void testNodeFailureFailsAllShards() {
+        final ShardFetchBatcher<Response> batcher = newBatcher(Integer.MAX_VALUE);
+        final DiscoveryNode node1 = newNode("node1");
+        final DiscoveryNode node2 = newNode("node2");
+        final int numShards = randomIntBetween(1, 20);
+        for (int i = 0; i < numShards; i++) {
+            final ShardId shardId = new ShardId("index", "_na_", i);
+            batcher.list(shardId, new DiscoveryNode[] { node1, node2 }, listener(shardId));
+        }
+        batcher.flush();
+        for (CapturingTransport.CapturedRequest request : transport.getCapturedRequestsAndClear()) {
+            if (request.node.equals(node1)) {
+                transport.handleRemoteError(request.requestId, new IllegalStateException("simulated"));
+            } else {
+                final List<Object> results = new ArrayList<>();
+                for (int i = 0; i < numShards; i++) {
+                    results.add(new Response(node2));
+                }
+                transport.handleResponse(request.requestId, new ShardFetchBatcher.BatchResponse<Response>(results));
+            }
+        }
+        assertThat(responses.size(), equalTo(numShards));
+        for (BaseNodesResponse<Response> response : responses.values()) {
+            assertThat(response.getNodes(), hasSize(1));
+            assertThat(response.getNodes().get(0).getNode(), equalTo(node2));
+            assertThat(response.failures(), hasSize(1));
+            assertThat(response.failures().get(0).nodeId(), equalTo(node1.getId()));
+        }
+        assertThat(batcher.stats().getFailures(), equalTo((long) numShards));
+    }
+
+    public void testWrongNumberOfResultsFailsAllShards() {
+        final ShardFetchBatcher<Response> batcher = newBatcher(Integer.MAX_VALUE);
+        final DiscoveryNode node = newNode("node1");
+        final int numShards = randomIntBetween(1, 20);
+        for (int i = 0; i < numShards; i++) {
+            final ShardId shardId = new ShardId("index", "_na_", i);
+            batcher.list(shardId, new DiscoveryNode[] { node }, listener(shardId));
+        }
+        batcher.flush();
+        final CapturingTransport.CapturedRequest[] requests = transport.getCapturedRequestsAndClear();
+        assertThat(requests.length, equalTo(1));
+        final List<Object> results = new ArrayList<>();
+        final int numResults = randomValueOtherThan(numShards, () -> randomIntBetween(0, numShards + 1));
+        for (int i = 0; i < numResults; i++) {
+            results.add(new Response(node));
+        }
+        transport.handleResponse(requests[0].requestId, new ShardFetchBatcher.BatchResponse<Response>(results));
+        assertThat(responses.size(), equalTo(numShards));
+        for (BaseNodesResponse<Response> response : responses.values()) {
+            assertThat(response.getNodes(), empty());
+            assertThat(response.failures(), hasSize(1));
+            assertThat(response.failures().get(0).getCause(), instanceOf(IllegalStateException.class));
+        }
+        assertThat(batcher.stats().getFailures(), equalTo((long) numShards));
+    }
+
+    public void testFallsBackToPerShardRequests() {
+        final ShardFetchBatcher<Response> batcher = newBatcher(Integer.MAX_VALUE);
+        final DiscoveryNode node = newNode("node1");
+        final int numShards = randomIntBetween(1, 20);
+        for (int i = 0; i < numShards; i++) {
+            final ShardId shardId = new ShardId("index", "_na_", i);
+            batcher.list(shardId, new DiscoveryNode[] { node }, listener(shardId));
+        }
+        batcher.flush();
+        final CapturingTransport.CapturedRequest[] requests = transport.getCapturedRequestsAndClear();
+        assertThat(requests.length, equalTo(1));
+        transport.handleRemoteError(requests[0].requestId, new ActionNotFoundTransportException(BATCH_ACTION));
+        assertThat(perShardFetches, hasSize(numShards));
+        assertThat(responses.size(), equalTo(numShards));
+        for (BaseNodesResponse<Response> response : responses.values()) {
+            assertThat(response.getNodes(), hasSize(1));
+            assertThat(response.failures(), empty());
+        }
+    }
+
+    public void testProcessShards() throws Exception {
+        final int numShards = randomIntBetween(0, 100);
+        final List<ShardId> shardIds = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            shardIds.add(new ShardId("index", "_na_", i));
+        }
+        final AtomicInteger rejected = new AtomicInteger();
+        final boolean rejecting = randomBoolean();
+        final List<Object> results = ShardFetchBatcher.processShards(shardIds, shardId -> {
+            if (shardId.id() % 7 == 3) {
+                throw new IllegalStateException("simulated");
+            }
+            return shardId.id();
+        }, command -> {
+            if (rejecting) {
+                rejected.incrementAndGet();
+                throw new EsRejectedExecutionException("simulated");
+            }
+            threadPool.generic().execute(command);
+        }, randomIntBetween(1, 8));
+        assertThat(results, hasSize(numShards));
+        for (int i = 0; i < numShards; i++) {
+            if (i % 7 == 3) {
+                assertThat(results.get(i), instanceOf(IllegalStateException.class));
+            } else {
+                assertThat(results.get(i), equalTo(i));
+            }
+        }
+        assertThat(rejected.get(), lessThanOrEqualTo(1));
+    }
+
+    static class Response extends BaseNodeResponse {
+        Response() {
+        }
+
+        Response(DiscoveryNode node) {
+            super(node);
+        }
+    }
+
+    static class Responses extends BaseNodesResponse<Response> {
+        Responses(List<Response> nodes, List<FailedNodeException> failures) {
+            super(new ClusterName("test"), nodes, failures);
+        }
+
+        @Override
+        protected List<Response> readNodesFrom(StreamInput in) throws IOException {
+            return in.readStreamableList(Response::new);
+        }
+
+        @Override
+        protected void writeNodesTo(StreamOutput out, List<Response> nodes) throws IOException {
+            out.writeStreamableList(nodes);
+        }
+    }
+}
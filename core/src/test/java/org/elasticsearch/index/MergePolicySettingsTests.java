@@ -30,7 +30,10 @@ import java.io.IOException;
 
 import static org.elasticsearch.common.settings.Settings.Builder.EMPTY_SETTINGS;
 import static org.elasticsearch.index.IndexSettingsTests.newIndexMeta;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
 
 public class MergePolicySettingsTests extends ESTestCase {
     protected final ShardId shardId = new ShardId("index", "_na_", 1);
@@ -115,6 +118,41 @@ public class MergePolicySettingsTests extends ESTestCase {
         assertEquals(((TieredMergePolicy) indexSettings.getMergePolicy()).getSegmentsPerTier(), MergePolicyConfig.DEFAULT_SEGMENTS_PER_TIER, 0);
     }
 
+    public void testTimeSeriesMergePolicy() {
+        IndexSettings indexSettings = indexSettings(Settings.EMPTY);
+        assertThat(indexSettings.getMergePolicy(), instanceOf(TieredMergePolicy.class));
+        assertThat(indexSettings.getTimeSeriesMergeField(), nullValue());
+
+        indexSettings = indexSettings(Settings.builder()
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_TYPE_SETTING.getKey(), "time_series")
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_MAX_MERGE_AT_ONCE_SETTING.getKey(), 5)
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_MAX_MERGED_SEGMENT_SETTING.getKey(), "100mb")
+            .build());
+        assertThat(indexSettings.getMergePolicy(), instanceOf(TimeSeriesMergePolicy.class));
+        assertThat(indexSettings.getTimeSeriesMergeField(), equalTo("@timestamp"));
+        TimeSeriesMergePolicy policy = (TimeSeriesMergePolicy) indexSettings.getMergePolicy();
+        assertThat(policy.getMergeFactor(), equalTo(5));
+        assertEquals(20, policy.getMaxMergeMB(), 0.0d);
+
+        indexSettings.updateIndexMetaData(newIndexMeta("index", Settings.builder()
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_TYPE_SETTING.getKey(), "time_series")
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_MAX_MERGE_AT_ONCE_SETTING.getKey(), 10)
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_MAX_MERGED_SEGMENT_SETTING.getKey(), "100mb")
+            .build()));
+        assertThat(policy.getMergeFactor(), equalTo(10));
+        assertEquals(10, policy.getMaxMergeMB(), 0.0d);
+
+        indexSettings = indexSettings(Settings.builder()
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_TYPE_SETTING.getKey(), "time_series")
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_TIME_SERIES_FIELD_SETTING.getKey(), "created")
+            .build());
+        assertThat(indexSettings.getTimeSeriesMergeField(), equalTo("created"));
+
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> indexSettings(Settings.builder()
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_TYPE_SETTING.getKey(), "log_byte_size").build()));
+        assertThat(e.getMessage(), containsString("unknown merge policy type [log_byte_size]"));
+    }
+
     public Settings build(String value) {
         return Settings.builder().put(MergePolicyConfig.INDEX_COMPOUND_FORMAT_SETTING.getKey(), value).build();
     }
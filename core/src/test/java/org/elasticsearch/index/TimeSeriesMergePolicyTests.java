@@ -0,0 +1,174 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.MergeTrigger;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SerialMergeScheduler;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.TimeSeriesMergePolicy.TimeRange;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TimeSeriesMergePolicyTests extends ESTestCase {
+
+    private static final String FIELD = "@timestamp";
+
+    public void testReadTimeRange() throws IOException {
+        try (Directory dir = newDirectory()) {
+            IndexWriterConfig config = new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            config.setUseCompoundFile(randomBoolean());
+            try (IndexWriter writer = new IndexWriter(dir, config)) {
+                addSegment(writer, 100, 199);
+                addSegment(writer, -50, 49);
+                Document document = new Document();
+                document.add(new StringField("field", "value", StringField.Store.NO));
+                writer.addDocument(document);
+                writer.commit();
+            }
+            SegmentInfos infos = SegmentInfos.readLatestCommit(dir);
+            TimeSeriesMergePolicy policy = new TimeSeriesMergePolicy(FIELD);
+            assertRange(policy.timeRange(infos.info(0)), 100, 199);
+            assertRange(policy.timeRange(infos.info(1)), -50, 49);
+            assertThat(policy.timeRange(infos.info(2)), sameInstance(TimeRange.UNKNOWN));
+            assertThat(new TimeSeriesMergePolicy("other").timeRange(infos.info(0)), sameInstance(TimeRange.UNKNOWN));
+        }
+    }
+
+    public void testInTimeOrder() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            addSegment(writer, 200, 299);
+            writer.addDocument(new Document());
+            writer.commit();
+            addSegment(writer, 0, 99);
+            addSegment(writer, 100, 199);
+            SegmentInfos infos = SegmentInfos.readLatestCommit(dir);
+            SegmentInfos sorted = new TimeSeriesMergePolicy(FIELD).inTimeOrder(infos);
+            assertThat(sorted.size(), equalTo(4));
+            assertThat(sorted.info(0), sameInstance(infos.info(2)));
+            assertThat(sorted.info(1), sameInstance(infos.info(3)));
+            assertThat(sorted.info(2), sameInstance(infos.info(0)));
+            // segments without timestamps go last
+            assertThat(sorted.info(3), sameInstance(infos.info(1)));
+        }
+    }
+
+    public void testMergesSegmentsAdjacentInTime() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            addSegment(writer, 0, 9);
+            addSegment(writer, 20, 29);
+            addSegment(writer, 10, 19);
+            addSegment(writer, 30, 39);
+            SegmentInfos infos = SegmentInfos.readLatestCommit(dir);
+
+            TimeSeriesMergePolicy policy = new TimeSeriesMergePolicy(FIELD);
+            policy.setMergeFactor(2);
+            MergePolicy.MergeSpecification spec = policy.findMerges(MergeTrigger.EXPLICIT, infos, writer);
+            assertThat(spec.merges.size(), equalTo(2));
+            List<List<SegmentCommitInfo>> merges = new ArrayList<>();
+            for (MergePolicy.OneMerge merge : spec.merges) {
+                merges.add(merge.segments);
+            }
+            assertTrue(merges.toString(), merges.contains(Arrays.asList(infos.info(0), infos.info(2))));
+            assertTrue(merges.toString(), merges.contains(Arrays.asList(infos.info(1), infos.info(3))));
+
+            // large segments are not merged again
+            policy.setMaxMergeMB(Double.MIN_VALUE);
+            assertThat(policy.findMerges(MergeTrigger.EXPLICIT, infos, writer), nullValue());
+        }
+    }
+
+    public void testForceMergeKeepsTimeRangesApart() throws IOException {
+        try (Directory dir = newDirectory()) {
+            TimeSeriesMergePolicy policy = new TimeSeriesMergePolicy(FIELD);
+            // don't merge before the force merge
+            policy.setMergeFactor(100);
+            IndexWriterConfig config = new IndexWriterConfig().setMergePolicy(policy).setMergeScheduler(new SerialMergeScheduler());
+            try (IndexWriter writer = new IndexWriter(dir, config)) {
+                int numSegments = randomIntBetween(4, 10);
+                List<Integer> starts = new ArrayList<>();
+                for (int i = 0; i < numSegments; i++) {
+                    starts.add(i * 100);
+                }
+                Collections.shuffle(starts, random());
+                for (int start : starts) {
+                    addSegment(writer, start, start + 99);
+                }
+                writer.forceMerge(randomIntBetween(2, 3));
+                writer.commit();
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                List<long[]> ranges = new ArrayList<>();
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    PointValues points = leaf.reader().getPointValues();
+                    long min = LongPoint.decodeDimension(points.getMinPackedValue(FIELD), 0);
+                    long max = LongPoint.decodeDimension(points.getMaxPackedValue(FIELD), 0);
+                    // segments that cover contiguous ranges have as many documents as the range has values:
+                    assertThat(leaf.reader().maxDoc(), equalTo((int) (max - min + 1)));
+                    ranges.add(new long[] {min, max});
+                }
+                for (int i = 0; i < ranges.size(); i++) {
+                    for (int j = i + 1; j < ranges.size(); j++) {
+                        assertTrue("overlapping segments", ranges.get(i)[1] < ranges.get(j)[0] || ranges.get(j)[1] < ranges.get(i)[0]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a segment with one document per value in the given range and commits it.
+     */
+    private static void addSegment(IndexWriter writer, long min, long max) throws IOException {
+        for (long value = min; value <= max; value++) {
+            Document document = new Document();
+            document.add(new LongPoint(FIELD, value));
+            writer.addDocument(document);
+        }
+        writer.commit();
+    }
+
+    private static void assertRange(TimeRange range, long min, long max) {
+        assertThat(range.min, equalTo(min));
+        assertThat(range.max, equalTo(max));
+    }
+}
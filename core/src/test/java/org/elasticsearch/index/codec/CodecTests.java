@@ -20,6 +20,7 @@
 package org.elasticsearch.index.codec;
 
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.lucene50.Lucene50Codec;
 import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat;
 import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat.Mode;
@@ -39,6 +40,7 @@ import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.analysis.IndexAnalyzers;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.UidFieldMapper;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.indices.mapper.MapperRegistry;
 import org.elasticsearch.test.ESTestCase;
@@ -48,6 +50,7 @@ import java.io.IOException;
 import java.util.Collections;
 
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 
 @SuppressCodecs("*") // we test against default codec so never get a random one here!
 public class CodecTests extends ESTestCase {
@@ -71,6 +74,18 @@ public class CodecTests extends ESTestCase {
         assertCompressionEquals(Mode.BEST_COMPRESSION, codec);
     }
 
+    public void testUidBloom() throws Exception {
+        Codec codec = createCodecService().codec("uid_bloom");
+        assertThat(codec, instanceOf(PerFieldMappingPostingFormatCodec.class));
+        assertCompressionEquals(Mode.BEST_SPEED, codec);
+        PostingsFormat uidPostingsFormat = ((PerFieldMappingPostingFormatCodec) codec).getPostingsFormatForField(UidFieldMapper.NAME);
+        assertThat(uidPostingsFormat, instanceOf(UidBloomFilterPostingsFormat.class));
+        assertThat(((PerFieldMappingPostingFormatCodec) codec).getPostingsFormatForField("_all"),
+            not(instanceOf(UidBloomFilterPostingsFormat.class)));
+        assertThat(((PerFieldMappingPostingFormatCodec) createCodecService().codec("default"))
+            .getPostingsFormatForField(UidFieldMapper.NAME), not(instanceOf(UidBloomFilterPostingsFormat.class)));
+    }
+
     // write some docs with it, inspect .si to see this was the used compression
     private void assertCompressionEquals(Mode expected, Codec actual) throws Exception {
         Directory dir = newDirectory();
@@ -31,6 +31,7 @@ import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.TextField;
@@ -42,6 +43,7 @@ import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
 import org.apache.lucene.index.LiveIndexWriterConfig;
 import org.apache.lucene.index.LogByteSizeMergePolicy;
 import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.MultiDocValues;
 import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
@@ -68,6 +70,8 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.uid.Versions;
@@ -78,6 +82,7 @@ import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.MergePolicyConfig;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.analysis.AnalyzerScope;
 import org.elasticsearch.index.analysis.IndexAnalyzers;
@@ -97,6 +102,7 @@ import org.elasticsearch.index.mapper.RootObjectMapper;
 import org.elasticsearch.index.mapper.SourceFieldMapper;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.mapper.UidFieldMapper;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.IndexSearcherWrapper;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
@@ -136,6 +142,7 @@ import java.util.Map;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -150,6 +157,7 @@ import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -507,6 +515,59 @@ public class InternalEngineTests extends ESTestCase {
         }
     }
 
+    public void testSegmentsWithTimestampRange() throws Exception {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+            .put(defaultSettings.getSettings())
+            .put(MergePolicyConfig.INDEX_MERGE_POLICY_TYPE_SETTING.getKey(), "time_series")
+            .build());
+        try (Store store = createStore();
+             Engine engine = createEngine(indexSettings, store, createTempDir(), NoMergePolicy.INSTANCE)) {
+            for (int i = 0; i < 3; i++) {
+                Document document = testDocument();
+                document.add(new LongPoint("@timestamp", 1000 * i));
+                document.add(new LongPoint("@timestamp", 1000 * i + 999));
+                engine.index(indexForDoc(testParsedDocument(Integer.toString(i), "test", null, -1, -1, document, B_1, null)));
+                engine.refresh("test");
+            }
+            engine.index(indexForDoc(testParsedDocument("3", "test", null, -1, -1, testDocument(), B_1, null)));
+            engine.refresh("test");
+
+            List<Segment> segments = engine.segments(false);
+            assertThat(segments.size(), equalTo(4));
+            for (int i = 0; i < 3; i++) {
+                assertThat(segments.get(i).getTimestampField(), equalTo("@timestamp"));
+                assertThat(segments.get(i).getMinTimestamp(), equalTo(1000L * i));
+                assertThat(segments.get(i).getMaxTimestamp(), equalTo(1000L * i + 999));
+            }
+            // no timestamps in the last segment
+            assertThat(segments.get(3).getTimestampField(), nullValue());
+
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                segments.get(1).writeTo(out);
+                Segment deserialized = Segment.readSegment(out.bytes().streamInput());
+                assertThat(deserialized.getTimestampField(), equalTo("@timestamp"));
+                assertThat(deserialized.getMinTimestamp(), equalTo(1000L));
+                assertThat(deserialized.getMaxTimestamp(), equalTo(1999L));
+            }
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                out.setVersion(Version.V_5_3_1);
+                segments.get(1).writeTo(out);
+                StreamInput in = out.bytes().streamInput();
+                in.setVersion(Version.V_5_3_1);
+                assertThat(Segment.readSegment(in).getTimestampField(), nullValue());
+            }
+        }
+        try (Store store = createStore();
+             Engine engine = createEngine(defaultSettings, store, createTempDir(), NoMergePolicy.INSTANCE)) {
+            Document document = testDocument();
+            document.add(new LongPoint("@timestamp", 1000));
+            engine.index(indexForDoc(testParsedDocument("1", "test", null, -1, -1, document, B_1, null)));
+            engine.refresh("test");
+            // the range is only reported for indices with the time_series merge policy
+            assertThat(engine.segments(false).get(0).getTimestampField(), nullValue());
+        }
+    }
+
     public void testSegmentsWithMergeFlag() throws Exception {
         try (Store store = createStore();
             Engine engine = createEngine(defaultSettings, store, createTempDir(), new TieredMergePolicy())) {
@@ -604,6 +665,37 @@ public class InternalEngineTests extends ESTestCase {
         assertThat(stats2.getUserData().get(Translog.TRANSLOG_UUID_KEY), equalTo(stats1.getUserData().get(Translog.TRANSLOG_UUID_KEY)));
     }
 
+    public void testSeqNoAndHistoryInCommit() throws Exception {
+        final String historyUUID = engine.getHistoryUUID();
+        final int numDocs = randomIntBetween(1, 10);
+        for (int i = 0; i < numDocs; i++) {
+            ParsedDocument doc = testParsedDocument(Integer.toString(i), "test", null, -1, -1, testDocumentWithTextField(), B_1, null);
+            Engine.IndexResult result = engine.index(indexForDoc(doc));
+            assertThat(result.getSeqNo(), equalTo((long) i));
+        }
+        // a replica operation with a higher sequence number leaves a gap that the checkpoint can't move past
+        ParsedDocument doc = testParsedDocument("replica", "test", null, -1, -1, testDocumentWithTextField(), B_1, null);
+        engine.index(new Engine.Index(newUid(doc), doc, numDocs + 1, 1, VersionType.EXTERNAL, REPLICA, System.nanoTime(), -1, false,
+            false));
+        assertThat(engine.getLocalCheckpointTracker().getCheckpoint(), equalTo(numDocs - 1L));
+        assertThat(engine.getLocalCheckpointTracker().getMaxSeqNo(), equalTo(numDocs + 1L));
+
+        engine.flush(true, true);
+        Map<String, String> userData = engine.commitStats().getUserData();
+        assertThat(SequenceNumbers.loadLocalCheckpoint(userData), equalTo(numDocs - 1L));
+        assertThat(SequenceNumbers.loadMaxSeqNo(userData), equalTo(numDocs + 1L));
+        assertThat(userData.get(Engine.HISTORY_UUID_KEY), equalTo(historyUUID));
+        assertTrue(engine.hasCompleteOperationHistory(0));
+
+        engine.startNewHistory();
+        assertThat(engine.getHistoryUUID(), not(equalTo(historyUUID)));
+        assertThat(engine.getLocalCheckpointTracker().getCheckpoint(), equalTo(numDocs + 1L));
+        assertFalse(engine.hasCompleteOperationHistory(numDocs + 1));
+        assertTrue(engine.hasCompleteOperationHistory(numDocs + 2));
+        engine.flush(true, true);
+        assertThat(engine.commitStats().getUserData().get(Engine.HISTORY_UUID_KEY), equalTo(engine.getHistoryUUID()));
+    }
+
     public void testIndexSearcherWrapper() throws Exception {
         final AtomicInteger counter = new AtomicInteger();
         IndexSearcherWrapper wrapper = new IndexSearcherWrapper() {
@@ -1080,6 +1172,202 @@ public class InternalEngineTests extends ESTestCase {
         assertThat(replicaResult.getVersion(), equalTo(1L));
     }
 
+    public void testUidBloomFilter() throws IOException {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+            .put(defaultSettings.getSettings())
+            .put(EngineConfig.INDEX_CODEC_SETTING.getKey(), CodecService.UID_BLOOM_CODEC)
+            .build());
+        try (Store store = createStore();
+             Engine engine = createEngine(indexSettings, store, createTempDir(), NoMergePolicy.INSTANCE)) {
+            assertThat(engine.segmentsStats(false).getBloomFilterMemoryInBytes(), equalTo(0L));
+            final int numSegments = randomIntBetween(1, 5);
+            int id = 0;
+            for (int i = 0; i < numSegments; i++) {
+                final int numDocs = randomIntBetween(1, 20);
+                for (int j = 0; j < numDocs; j++) {
+                    ParsedDocument doc = testParsedDocument(Integer.toString(id++), "test", null, -1, -1, testDocument(), B_1, null);
+                    engine.index(indexForDoc(doc));
+                }
+                engine.refresh("test");
+            }
+            SegmentsStats stats = engine.segmentsStats(false);
+            assertThat(stats.getCount(), equalTo((long) numSegments));
+            assertThat(stats.getBloomFilterMemoryInBytes(), greaterThan(0L));
+            assertThat(stats.getBloomFilterMemoryInBytes(), lessThan(stats.getTermsMemoryInBytes()));
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                stats.writeTo(out);
+                SegmentsStats deserialized = new SegmentsStats();
+                deserialized.readFrom(out.bytes().streamInput());
+                assertThat(deserialized.getBloomFilterMemoryInBytes(), equalTo(stats.getBloomFilterMemoryInBytes()));
+            }
+
+            // lookups go through the bloom filtered terms, both for existing and missing uids
+            for (int i = 0; i < id; i++) {
+                ParsedDocument doc = testParsedDocument(Integer.toString(i), "test", null, -1, -1, testDocument(), B_1, null);
+                Engine.IndexResult result = engine.index(new Engine.Index(newUid(doc), doc, 1L));
+                assertFalse(result.hasFailure());
+                assertThat(result.getVersion(), equalTo(2L));
+            }
+            ParsedDocument doc = testParsedDocument("missing", "test", null, -1, -1, testDocument(), B_1, null);
+            Engine.IndexResult result = engine.index(new Engine.Index(newUid(doc), doc, 1L));
+            assertTrue(result.hasFailure());
+            assertThat(result.getFailure(), instanceOf(VersionConflictEngineException.class));
+        }
+    }
+
+    public void testInPlaceUpdate() throws IOException {
+        Document document = testDocumentWithTextField();
+        document.add(new NumericDocValuesField("counter", 1));
+        ParsedDocument doc = testParsedDocument("1", "test", null, -1, -1, document, B_1, null);
+        engine.index(indexForDoc(doc));
+
+        Document update = testDocument();
+        update.add(new NumericDocValuesField("counter", 5));
+        doc = testParsedDocument("1", "test", null, -1, -1, update, new BytesArray("{\"counter\":5}"), null);
+        Engine.IndexResult result = engine.index(new Engine.Index(newUid(doc), doc, 1L, VersionType.INTERNAL, PRIMARY,
+            System.nanoTime(), -1, false, true));
+        assertFalse(result.hasFailure());
+        assertThat(result.getVersion(), equalTo(2L));
+
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            // the other fields of the document are untouched
+            MatcherAssert.assertThat(searcher, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(new TermQuery(new Term("value", "test")), 1));
+            assertThat(MultiDocValues.getNumericValues(searcher.reader(), "counter").get(0), equalTo(5L));
+            assertThat(Versions.loadVersion(searcher.reader(), newUid(doc)), equalTo(2L));
+        }
+
+        doc = testParsedDocument("2", "test", null, -1, -1, update, new BytesArray("{\"counter\":5}"), null);
+        result = engine.index(new Engine.Index(newUid(doc), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY,
+            System.nanoTime(), -1, false, true));
+        assertTrue(result.hasFailure());
+        assertThat(result.getFailure(), instanceOf(DocumentMissingException.class));
+    }
+
+    public void testInPlaceUpdateOnReplicaBeforeCreate() throws IOException {
+        // the in place update reaches the replica before the document it updates, but it carries the whole resolved document
+        Document update = testDocumentWithTextField();
+        update.add(new NumericDocValuesField("counter", 5));
+        ParsedDocument doc = testParsedDocument("1", "test", null, -1, -1, update, new BytesArray("{\"value\":\"test\"}"), null);
+        Engine.IndexResult result = replicaEngine.index(new Engine.Index(newUid(doc), doc, 2L,
+            VersionType.INTERNAL.versionTypeForReplicationAndRecovery(), REPLICA, System.nanoTime(), -1, false, true));
+        assertFalse(result.hasFailure());
+        assertThat(result.getVersion(), equalTo(2L));
+
+        // the create arrives last and is skipped as stale instead of overwriting the counter
+        Document document = testDocumentWithTextField();
+        document.add(new NumericDocValuesField("counter", 1));
+        doc = testParsedDocument("1", "test", null, -1, -1, document, new BytesArray("{\"value\":\"test\"}"), null);
+        result = replicaEngine.index(new Engine.Index(newUid(doc), doc, 1L,
+            VersionType.INTERNAL.versionTypeForReplicationAndRecovery(), REPLICA, System.nanoTime(), -1, false));
+        assertFalse(result.hasFailure());
+        assertThat(result.getVersion(), equalTo(2L));
+
+        replicaEngine.refresh("test");
+        try (Engine.Searcher searcher = replicaEngine.acquireSearcher("test")) {
+            MatcherAssert.assertThat(searcher,
+                EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(new TermQuery(new Term("value", "test")), 1));
+            assertThat(MultiDocValues.getNumericValues(searcher.reader(), "counter").get(0), equalTo(5L));
+            assertThat(Versions.loadVersion(searcher.reader(), newUid(doc)), equalTo(2L));
+        }
+    }
+
+    public void testOptimizeAppendOnlyIds() throws IOException {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+            .put(defaultSettings.getSettings())
+            .put(EngineConfig.INDEX_OPTIMIZE_APPEND_ONLY_IDS.getKey(), true)
+            .build());
+        try (Store store = createStore();
+             Engine engine = createEngine(indexSettings, store, createTempDir(), newMergePolicy())) {
+            final int numDocs = randomIntBetween(1, 50);
+            for (int i = 0; i < numDocs; i++) {
+                ParsedDocument doc = testParsedDocument(Integer.toString(i), "test", null, -1, -1, testDocument(), B_1, null);
+                Engine.IndexResult indexResult = engine.index(new Engine.Index(newUid(doc), doc, Versions.MATCH_DELETED));
+                assertFalse(indexResult.hasFailure());
+                assertThat(indexResult.getVersion(), equalTo(1L));
+            }
+            // only the hashes of the new uids are kept until the next refresh
+            assertThat(engine.segmentsStats(false).getVersionMapMemoryInBytes(), equalTo(numDocs * LiveUidSet.BYTES_PER_UID));
+
+            // creating an existing document that is not refreshed yet still conflicts
+            ParsedDocument doc = testParsedDocument("0", "test", null, -1, -1, testDocument(), B_1, null);
+            Engine.IndexResult indexResult = engine.index(new Engine.Index(newUid(doc), doc, Versions.MATCH_DELETED));
+            assertTrue(indexResult.hasFailure());
+            assertThat(indexResult.getFailure(), instanceOf(VersionConflictEngineException.class));
+
+            // the lookup refreshed, so the uids don't need to be tracked anymore
+            assertThat(engine.segmentsStats(false).getVersionMapMemoryInBytes(), equalTo(0L));
+
+            doc = testParsedDocument("new", "test", null, -1, -1, testDocument(), B_1, null);
+            engine.index(new Engine.Index(newUid(doc), doc, Versions.MATCH_DELETED));
+            Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid(doc)));
+            assertThat(getResult.exists(), equalTo(true));
+            assertThat(getResult.version(), equalTo(1L));
+            getResult.release();
+
+            doc = testParsedDocument("deleted", "test", null, -1, -1, testDocument(), B_1, null);
+            engine.index(new Engine.Index(newUid(doc), doc, Versions.MATCH_DELETED));
+            Engine.DeleteResult deleteResult = engine.delete(new Engine.Delete("test", "deleted", newUid(doc)));
+            assertTrue(deleteResult.isFound());
+            assertThat(deleteResult.getVersion(), equalTo(2L));
+            getResult = engine.get(new Engine.Get(true, newUid(doc)));
+            assertThat(getResult.exists(), equalTo(false));
+            getResult.release();
+        }
+    }
+
+    public void testOptimizeAppendOnlyIdsConcurrentUpdates() throws Exception {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+            .put(defaultSettings.getSettings())
+            .put(EngineConfig.INDEX_OPTIMIZE_APPEND_ONLY_IDS.getKey(), true)
+            .build());
+        try (Store store = createStore();
+             Engine engine = createEngine(indexSettings, store, createTempDir(), newMergePolicy())) {
+            final int numIds = randomIntBetween(1, 5);
+            final int numThreads = randomIntBetween(2, 4);
+            final int numOpsPerThread = randomIntBetween(10, 50);
+            final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+            final AtomicReference<Exception> failure = new AtomicReference<>();
+            final Thread[] threads = new Thread[numThreads];
+            for (int t = 0; t < numThreads; t++) {
+                threads[t] = new Thread(() -> {
+                    try {
+                        barrier.await();
+                        for (int i = 0; i < numOpsPerThread; i++) {
+                            ParsedDocument doc = testParsedDocument(Integer.toString(i % numIds), "test", null, -1, -1, testDocument(),
+                                B_1, null);
+                            Engine.IndexResult result = engine.index(indexForDoc(doc));
+                            if (result.hasFailure()) {
+                                throw result.getFailure();
+                            }
+                        }
+                    } catch (Exception e) {
+                        failure.set(e);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertNull(failure.get());
+            // every update saw the version of the previous one, even if that was only tracked by the hash of its uid
+            for (int id = 0; id < numIds; id++) {
+                long expectedVersion = 0;
+                for (int i = 0; i < numOpsPerThread; i++) {
+                    if (i % numIds == id) {
+                        expectedVersion += numThreads;
+                    }
+                }
+                ParsedDocument doc = testParsedDocument(Integer.toString(id), "test", null, -1, -1, testDocument(), B_1, null);
+                try (Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid(doc)))) {
+                    assertTrue(getResult.exists());
+                    assertThat(getResult.version(), equalTo(expectedVersion));
+                }
+            }
+        }
+    }
+
     public void testVersioningNewIndex() throws IOException {
         ParsedDocument doc = testParsedDocument("1", "test", null, -1, -1, testDocument(), B_1, null);
         Engine.Index index = indexForDoc(doc);
@@ -2255,6 +2543,55 @@ public class InternalEngineTests extends ESTestCase {
         }
     }
 
+    public void testFlushReportsBlockedAndCommitTime() throws IOException {
+        assertEquals(0, engine.getFlushBlockedTimeInNanos());
+        assertEquals(0, engine.getFlushCommitTimeInNanos());
+        final int numDocs = randomIntBetween(1, 10);
+        for (int i = 0; i < numDocs; i++) {
+            ParsedDocument doc = testParsedDocument(Integer.toString(i), "test", null, -1, -1, testDocument(), B_1, null);
+            engine.index(indexForDoc(doc));
+        }
+        engine.flush(true, true);
+        assertThat(engine.getFlushBlockedTimeInNanos(), greaterThan(0L));
+        assertThat(engine.getFlushCommitTimeInNanos(), greaterThan(0L));
+    }
+
+    public void testIndexWhileFlushCommits() throws Exception {
+        final CountDownLatch committing = new CountDownLatch(1);
+        final CountDownLatch resumeCommit = new CountDownLatch(1);
+        final AtomicBoolean blockCommit = new AtomicBoolean();
+        try (Store store = createStore()) {
+            IndexWriter blockingWriter = new IndexWriter(store.directory(), new IndexWriterConfig()) {
+                @Override
+                protected void doAfterFlush() throws IOException {
+                    if (blockCommit.compareAndSet(true, false)) {
+                        committing.countDown();
+                        try {
+                            resumeCommit.await();
+                        } catch (InterruptedException e) {
+                            throw new AssertionError(e);
+                        }
+                    }
+                }
+            };
+            try (Engine engine = createEngine(defaultSettings, store, createTempDir(), NoMergePolicy.INSTANCE, () -> blockingWriter)) {
+                engine.index(indexForDoc(testParsedDocument("1", "test", null, -1, -1, testDocument(), B_1, null)));
+                blockCommit.set(true);
+                Thread flusher = new Thread(() -> engine.flush(true, true));
+                flusher.start();
+                assertTrue(committing.await(30, TimeUnit.SECONDS));
+                // the translog was rolled over already, so writes are not blocked by the ongoing lucene commit
+                Engine.IndexResult result = engine.index(indexForDoc(testParsedDocument("2", "test", null, -1, -1, testDocument(),
+                    B_1, null)));
+                assertNull(result.getFailure());
+                resumeCommit.countDown();
+                flusher.join();
+                // only the operation that was indexed during the commit is left in the translog
+                assertEquals(1, engine.getTranslog().totalOperations());
+            }
+        }
+    }
+
     public void testDoubleDelivery() throws IOException {
         final ParsedDocument doc = testParsedDocument("1", "test", null, 100, -1, testDocumentWithTextField(), new BytesArray("{}".getBytes(Charset.defaultCharset())), null);
         Engine.Index operation = randomAppendOnly(doc, false, 1);
@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class LiveUidSetTests extends ESTestCase {
+
+    public void testAddAndRefresh() throws Exception {
+        LiveUidSet set = new LiveUidSet();
+        Set<BytesRef> added = new HashSet<>();
+        final int numUids = randomIntBetween(1, 1000);
+        for (int i = 0; i < numUids; i++) {
+            BytesRef uid = new BytesRef(randomAsciiOfLengthBetween(5, 20));
+            set.addUnderLock(uid);
+            added.add(uid);
+        }
+        for (BytesRef uid : added) {
+            assertTrue(set.mightContain(uid));
+        }
+        assertEquals(added.size() * LiveUidSet.BYTES_PER_UID, set.ramBytesUsed());
+
+        // while the refresh is running, uids still need to be looked up
+        set.beforeRefresh();
+        BytesRef addedDuringRefresh = new BytesRef("added_during_refresh");
+        set.addUnderLock(addedDuringRefresh);
+        for (BytesRef uid : added) {
+            assertTrue(set.mightContain(uid));
+        }
+        assertEquals(LiveUidSet.BYTES_PER_UID, set.ramBytesUsed());
+
+        set.afterRefresh(true);
+        assertTrue(set.mightContain(addedDuringRefresh));
+        int stillContained = 0;
+        for (BytesRef uid : added) {
+            if (uid.equals(addedDuringRefresh) == false && set.mightContain(uid)) {
+                stillContained++;
+            }
+        }
+        assertEquals(0, stillContained);
+
+        set.clear();
+        assertFalse(set.mightContain(addedDuringRefresh));
+        assertEquals(0, set.ramBytesUsed());
+    }
+}
@@ -57,6 +57,7 @@ import org.elasticsearch.index.mapper.ParsedDocument;
 import org.elasticsearch.index.mapper.SourceFieldMapper;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.mapper.UidFieldMapper;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.RefreshListeners;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
@@ -294,6 +295,27 @@ public class ShadowEngineTests extends ESTestCase {
         assertThat(stats2.getUserData().get(Translog.TRANSLOG_UUID_KEY), equalTo(stats1.getUserData().get(Translog.TRANSLOG_UUID_KEY)));
     }
 
+    public void testSequenceNumbersOfLastCommit() throws IOException {
+        int numDocs = randomIntBetween(1, 10);
+        for (int i = 0; i < numDocs; i++) {
+            ParsedDocument doc = testParsedDocument(Integer.toString(i), "test", null, -1, -1, testDocumentWithTextField(), B_1, null);
+            primaryEngine.index(indexForDoc(doc));
+        }
+        // the replica only sees the sequence numbers that the primary committed
+        assertThat(replicaEngine.getLocalCheckpointTracker().getMaxSeqNo(), equalTo(SequenceNumbers.NO_OPS_PERFORMED));
+
+        primaryEngine.flush();
+        replicaEngine.flush();
+        assertThat(replicaEngine.getLocalCheckpointTracker().getMaxSeqNo(), equalTo((long) numDocs - 1));
+        assertThat(replicaEngine.getLocalCheckpointTracker().getCheckpoint(), equalTo((long) numDocs - 1));
+        assertThat(replicaEngine.getHistoryUUID(), equalTo(primaryEngine.getHistoryUUID()));
+
+        // the primary owns the history
+        replicaEngine.startNewHistory();
+        assertThat(replicaEngine.getHistoryUUID(), equalTo(primaryEngine.getHistoryUUID()));
+        assertFalse(replicaEngine.hasCompleteOperationHistory(0));
+    }
+
     public void testSegments() throws Exception {
         primaryEngine.close(); // recreate without merging
         primaryEngine = createInternalEngine(defaultSettings, store, createTempDir(), NoMergePolicy.INSTANCE);
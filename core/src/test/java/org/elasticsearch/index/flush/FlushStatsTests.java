@@ -0,0 +1,65 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.flush;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class FlushStatsTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        FlushStats stats = createTestStats();
+        FlushStats copy = copyStats(stats, Version.CURRENT);
+        assertEquals(stats.getTotal(), copy.getTotal());
+        assertEquals(stats.getTotalTime(), copy.getTotalTime());
+        assertEquals(stats.getBlockedTime(), copy.getBlockedTime());
+        assertEquals(stats.getCommitTime(), copy.getCommitTime());
+    }
+
+    public void testSerializationToOlderVersion() throws IOException {
+        FlushStats stats = createTestStats();
+        FlushStats copy = copyStats(stats, Version.V_5_3_1);
+        assertEquals(stats.getTotal(), copy.getTotal());
+        assertEquals(stats.getTotalTime(), copy.getTotalTime());
+        assertEquals(0, copy.getBlockedTime().millis());
+        assertEquals(0, copy.getCommitTime().millis());
+    }
+
+    private static FlushStats createTestStats() {
+        return new FlushStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+    }
+
+    private static FlushStats copyStats(FlushStats stats, Version version) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            stats.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                FlushStats copy = new FlushStats();
+                copy.readFrom(in);
+                return copy;
+            }
+        }
+    }
+}
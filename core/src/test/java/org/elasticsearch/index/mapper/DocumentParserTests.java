@@ -1293,4 +1293,51 @@ public class DocumentParserTests extends ESSingleNodeTestCase {
                     containsString("object field starting or ending with a [.] makes object resolution ambiguous: [top..foo..bar]"));
         }
     }
+
+    public void testParseContextIsReusedAcrossDocuments() throws Exception {
+        DocumentMapperParser mapperParser = createIndex("test").mapperService().documentMapperParser();
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type").startObject("properties")
+            .startObject("foo").startObject("properties")
+            .startObject("bar").field("type", "keyword").endObject()
+            .endObject().endObject()
+            .startObject("baz").field("type", "long").endObject()
+            .endObject().endObject().endObject().string();
+        DocumentMapper mapper = mapperParser.parse("type", new CompressedXContent(mapping));
+
+        ParsedDocument first = mapper.parse("test", "type", "1", XContentFactory.jsonBuilder()
+            .startObject().startObject("foo").field("bar", "a").endObject().field("baz", 1).endObject().bytes());
+
+        // a failure half way through an object must not leak path elements into the next document
+        expectThrows(MapperParsingException.class, () -> mapper.parse("test", "type", "2", XContentFactory.jsonBuilder()
+            .startObject().startObject("foo").field("bar", "b").endObject().field("baz", "not_a_number").endObject().bytes()));
+
+        ParsedDocument second = mapper.parse("test", "type", "3", XContentFactory.jsonBuilder()
+            .startObject().field("new_field", "c").startObject("foo").field("bar", "d").endObject().endObject().bytes());
+
+        assertNotSame(first.rootDoc(), second.rootDoc());
+        assertNotSame(first.docs(), second.docs());
+        assertEquals("a", first.rootDoc().getField("foo.bar").binaryValue().utf8ToString());
+        assertNotNull(first.rootDoc().getField("baz"));
+        assertNull(first.rootDoc().getField("new_field"));
+        assertNull(first.dynamicMappingsUpdate());
+        assertEquals("d", second.rootDoc().getField("foo.bar").binaryValue().utf8ToString());
+        assertNull(second.rootDoc().getField("baz"));
+        assertNotNull(second.dynamicMappingsUpdate());
+        assertNotNull(second.dynamicMappingsUpdate().root().getMapper("new_field"));
+    }
+
+    public void testMetadataFieldInsideObject() throws Exception {
+        DocumentMapperParser mapperParser = createIndex("test").mapperService().documentMapperParser();
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type").endObject().endObject().string();
+        DocumentMapper mapper = mapperParser.parse("type", new CompressedXContent(mapping));
+
+        MapperParsingException e = expectThrows(MapperParsingException.class, () -> mapper.parse("test", "type", "1",
+            XContentFactory.jsonBuilder().startObject().field("_id", "1").endObject().bytes()));
+        assertThat(e.getMessage(), containsString("Field [_id] is a metadata field and cannot be added inside a document"));
+
+        // metadata field names are only reserved at the root of the document
+        ParsedDocument doc = mapper.parse("test", "type", "1",
+            XContentFactory.jsonBuilder().startObject().startObject("foo").field("_id", "1").endObject().endObject().bytes());
+        assertNotNull(doc.rootDoc().getField("foo._id"));
+    }
 }
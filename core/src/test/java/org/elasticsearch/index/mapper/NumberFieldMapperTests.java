@@ -275,6 +275,52 @@ public class NumberFieldMapperTests extends AbstractNumericFieldMapperTestCase {
         }
     }
 
+    public void testInPlaceUpdates() throws IOException {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties").startObject("field").field("type", "long").field("index", false)
+                .field("in_place_updates", true).endObject().endObject()
+                .endObject().endObject().string();
+
+        DocumentMapper mapper = parser.parse("type", new CompressedXContent(mapping));
+        assertEquals(mapping, mapper.mappingSource().toString());
+        assertTrue(((NumberFieldMapper.NumberFieldType) mapper.mappers().getMapper("field").fieldType()).inPlaceUpdates());
+
+        ParsedDocument doc = mapper.parse("test", "type", "1", XContentFactory.jsonBuilder()
+                .startObject()
+                .field("field", 123)
+                .endObject()
+                .bytes());
+
+        IndexableField[] fields = doc.rootDoc().getFields("field");
+        assertEquals(1, fields.length);
+        assertEquals(DocValuesType.NUMERIC, fields[0].fieldType().docValuesType());
+        assertEquals(123L, fields[0].numericValue());
+    }
+
+    public void testInPlaceUpdatesValidation() throws IOException {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties").startObject("field").field("type", "double").field("index", false)
+                .field("in_place_updates", true).endObject().endObject()
+                .endObject().endObject().string();
+        MapperParsingException e = expectThrows(MapperParsingException.class,
+                () -> parser.parse("type", new CompressedXContent(mapping)));
+        assertThat(e.getMessage(), containsString("is only supported on fields of type [byte], [short], [integer] or [long]"));
+
+        String indexedMapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties").startObject("field").field("type", "long")
+                .field("in_place_updates", true).endObject().endObject()
+                .endObject().endObject().string();
+        e = expectThrows(MapperParsingException.class, () -> parser.parse("type", new CompressedXContent(indexedMapping)));
+        assertThat(e.getMessage(), containsString("requires [index] and [store] to be false and [doc_values] to be true"));
+
+        String copyToMapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties").startObject("field").field("type", "long").field("index", false)
+                .field("copy_to", "other").field("in_place_updates", true).endObject().endObject()
+                .endObject().endObject().string();
+        e = expectThrows(MapperParsingException.class, () -> parser.parse("type", new CompressedXContent(copyToMapping)));
+        assertThat(e.getMessage(), containsString("can't be combined with [copy_to]"));
+    }
+
     @Override
     protected void doTestNullValue(String type) throws IOException {
         String mapping = XContentFactory.jsonBuilder().startObject()
@@ -50,6 +50,16 @@ public class NumberFieldTypeTests extends FieldTypeTestCase {
         type = RandomPicks.randomFrom(random(), NumberFieldMapper.NumberType.values());
     }
 
+    @Before
+    public void setupProperties() {
+        addModifier(new Modifier("in_place_updates", false) {
+            @Override
+            public void modify(MappedFieldType ft) {
+                ((NumberFieldMapper.NumberFieldType) ft).setInPlaceUpdates(true);
+            }
+        });
+    }
+
     @Override
     protected MappedFieldType createDefaultFieldType() {
         return new NumberFieldMapper.NumberFieldType(type);
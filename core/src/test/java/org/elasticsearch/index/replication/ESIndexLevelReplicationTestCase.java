@@ -74,9 +74,14 @@ public abstract class ESIndexLevelReplicationTestCase extends IndexShardTestCase
     private final Map<String, String> indexMapping = Collections.singletonMap("type", "{ \"type\": {} }");
 
     protected ReplicationGroup createGroup(int replicas) throws IOException {
+        return createGroup(replicas, Settings.EMPTY);
+    }
+
+    protected ReplicationGroup createGroup(int replicas, Settings indexSettings) throws IOException {
         Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
             .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, replicas)
             .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(indexSettings)
             .build();
         IndexMetaData.Builder metaData = IndexMetaData.builder(index.getName())
             .settings(settings)
@@ -152,6 +157,28 @@ public abstract class ESIndexLevelReplicationTestCase extends IndexShardTestCase
             return replica;
         }
 
+        /**
+         * Adds a replica that was created outside of the group, for instance by reinitializing a replica that was removed before.
+         */
+        public synchronized IndexShard addReplica(IndexShard replica) {
+            assert shardRoutings().stream().noneMatch(r -> r.isSameAllocation(replica.routingEntry())) :
+                "replica " + replica.routingEntry() + " is already part of the group";
+            replicas.add(replica);
+            return replica;
+        }
+
+        /**
+         * Removes the given replica from the group, it won't receive any operations until it's added and recovered again.
+         */
+        public synchronized void removeReplica(IndexShard replica) {
+            final boolean removed = replicas.remove(replica);
+            assert removed : "replica " + replica.routingEntry() + " is not part of the group";
+        }
+
+        public synchronized List<IndexShard> getReplicas() {
+            return Collections.unmodifiableList(new ArrayList<>(replicas));
+        }
+
         public void recoverReplica(IndexShard replica) throws IOException {
             recoverReplica(replica, (r, sourceNode) -> new RecoveryTarget(r, sourceNode, recoveryListener, version -> {}));
         }
@@ -284,6 +311,7 @@ public abstract class ESIndexLevelReplicationTestCase extends IndexShardTestCase
                 // update the version on request so it will happen on the replicas
                 final long version = indexResult.getVersion();
                 request.version(version);
+                request.seqNo(indexResult.getSeqNo());
                 request.versionType(request.versionType().versionTypeForReplicationAndRecovery());
                 assert request.versionType().validateVersionForWrites(request.version());
             }
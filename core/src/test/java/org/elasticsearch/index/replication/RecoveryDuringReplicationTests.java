@@ -19,13 +19,21 @@
 package org.elasticsearch.index.replication;
 
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.recovery.PeerRecoveryTargetService;
 import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.indices.recovery.RecoveryTarget;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.EnumSet;
@@ -33,6 +41,11 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+
 public class RecoveryDuringReplicationTests extends ESIndexLevelReplicationTestCase {
 
     public void testIndexingDuringFileRecovery() throws Exception {
@@ -56,6 +69,97 @@ public class RecoveryDuringReplicationTests extends ESIndexLevelReplicationTestC
         }
     }
 
+    public void testRecoveryFromRetainedTranslogOperations() throws Exception {
+        try (ReplicationGroup shards = createGroup(1)) {
+            shards.startAll();
+            int docs = shards.indexDocs(randomInt(50));
+            shards.flush();
+            IndexShard replica = shards.getReplicas().get(0);
+            shards.removeReplica(replica);
+            final int missingDocs = shards.indexDocs(randomIntBetween(1, 20));
+            docs += missingDocs;
+            if (randomBoolean()) {
+                shards.flush();
+            }
+            replica = shards.addReplica(reinitShard(replica));
+            shards.recoverReplica(replica);
+
+            assertThat(replica.recoveryState().getIndex().fileDetails(), empty());
+            assertThat(replica.recoveryState().getTranslog().recoveredOperations(), equalTo(missingDocs));
+            shards.assertAllEqual(docs);
+            assertThat(replica.getLocalCheckpoint(), equalTo(shards.getPrimary().getLocalCheckpoint()));
+        }
+    }
+
+    public void testFileRecoveryIfTranslogOperationsAreNotRetained() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING.getKey(), new ByteSizeValue(0))
+            .build();
+        try (ReplicationGroup shards = createGroup(1, settings)) {
+            shards.startAll();
+            int docs = shards.indexDocs(randomIntBetween(1, 50));
+            shards.flush();
+            IndexShard replica = shards.getReplicas().get(0);
+            shards.removeReplica(replica);
+            docs += shards.indexDocs(randomIntBetween(1, 20));
+            shards.flush();
+            replica = shards.addReplica(reinitShard(replica));
+            shards.recoverReplica(replica);
+
+            assertThat(replica.recoveryState().getIndex().fileDetails(), not(empty()));
+            shards.assertAllEqual(docs);
+        }
+    }
+
+    public void testFileRecoveryAfterPrimaryPromotion() throws Exception {
+        try (ReplicationGroup shards = createGroup(2)) {
+            shards.startAll();
+            int docs = shards.indexDocs(randomInt(50));
+            shards.flush();
+            final IndexShard newPrimary = shards.getReplicas().get(0);
+            final IndexShard replica = shards.getReplicas().get(1);
+            final String historyUUID = replica.getHistoryUUID();
+            newPrimary.updateRoutingEntry(newPrimary.routingEntry().moveActiveReplicaToPrimary());
+            assertThat(newPrimary.getHistoryUUID(), not(equalTo(historyUUID)));
+
+            // operations of the new history can't be replayed on top of the old one
+            final IndexShard recoveringReplica = reinitShard(replica);
+            recoverReplica(recoveringReplica, newPrimary);
+            assertThat(recoveringReplica.recoveryState().getIndex().fileDetails(), not(empty()));
+            assertThat(recoveringReplica.getHistoryUUID(), equalTo(newPrimary.getHistoryUUID()));
+            assertThat(getShardDocUIDs(recoveringReplica).size(), equalTo(docs));
+            closeShards(recoveringReplica);
+            shards.removeReplica(replica);
+        }
+    }
+
+    public void testFileChunksWrittenOutOfOrder() throws Exception {
+        try (ReplicationGroup shards = createGroup(0)) {
+            shards.startAll();
+            final int docs = shards.indexDocs(randomIntBetween(10, 50));
+            shards.flush();
+            IndexShard replica = shards.addReplica();
+            shards.recoverReplica(replica, (indexShard, node) -> new RecoveryTarget(indexShard, node, recoveryListener, version -> {}) {
+                @Override
+                public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean lastChunk,
+                                           int totalTranslogOps, ActionListener<Void> listener) {
+                    // chunks that are delayed less overtake the chunks sent before them
+                    threadPool.schedule(TimeValue.timeValueMillis(randomIntBetween(0, 5)), ThreadPool.Names.GENERIC, () -> {
+                        try {
+                            writeFileChunk(fileMetaData, position, content, lastChunk, totalTranslogOps);
+                        } catch (Exception e) {
+                            listener.onFailure(e);
+                            return;
+                        }
+                        listener.onResponse(null);
+                    });
+                }
+            });
+            shards.assertAllEqual(docs);
+            assertThat(replica.recoveryState().getIndex().recoveredBytes(), greaterThan(0L));
+        }
+    }
+
     private static class BlockingTarget extends RecoveryTarget {
         private final CountDownLatch recoveryBlocked;
         private final CountDownLatch releaseRecovery;
@@ -0,0 +1,151 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.seqno;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+public class LocalCheckpointTrackerTests extends ESTestCase {
+
+    public void testSimplePrimary() {
+        final LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED,
+            SequenceNumbers.NO_OPS_PERFORMED);
+        assertThat(tracker.getCheckpoint(), equalTo(SequenceNumbers.NO_OPS_PERFORMED));
+        long seqNo1 = tracker.generateSeqNo();
+        assertThat(seqNo1, equalTo(0L));
+        tracker.markSeqNoAsCompleted(seqNo1);
+        assertThat(tracker.getCheckpoint(), equalTo(0L));
+        seqNo1 = tracker.generateSeqNo();
+        long seqNo2 = tracker.generateSeqNo();
+        assertThat(seqNo1, equalTo(1L));
+        assertThat(seqNo2, equalTo(2L));
+        tracker.markSeqNoAsCompleted(seqNo2);
+        assertThat(tracker.getCheckpoint(), equalTo(0L));
+        tracker.markSeqNoAsCompleted(seqNo1);
+        assertThat(tracker.getCheckpoint(), equalTo(2L));
+        assertThat(tracker.getMaxSeqNo(), equalTo(2L));
+    }
+
+    public void testSimpleReplica() {
+        final LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED,
+            SequenceNumbers.NO_OPS_PERFORMED);
+        tracker.markSeqNoAsCompleted(0L);
+        assertThat(tracker.getCheckpoint(), equalTo(0L));
+        tracker.markSeqNoAsCompleted(2L);
+        assertThat(tracker.getCheckpoint(), equalTo(0L));
+        assertThat(tracker.getMaxSeqNo(), equalTo(2L));
+        tracker.markSeqNoAsCompleted(1L);
+        assertThat(tracker.getCheckpoint(), equalTo(2L));
+        // a promoted replica continues after the highest sequence number it has seen
+        assertThat(tracker.generateSeqNo(), equalTo(3L));
+    }
+
+    public void testContinuesFromCommit() {
+        final LocalCheckpointTracker tracker = new LocalCheckpointTracker(10, 7);
+        assertThat(tracker.getCheckpoint(), equalTo(7L));
+        // operations that are already part of the commit are replayed during recovery
+        tracker.markSeqNoAsCompleted(randomIntBetween(0, 7));
+        assertThat(tracker.getCheckpoint(), equalTo(7L));
+        tracker.markSeqNoAsCompleted(8);
+        assertThat(tracker.getCheckpoint(), equalTo(8L));
+        assertThat(tracker.generateSeqNo(), equalTo(11L));
+    }
+
+    public void testInvalidArguments() {
+        expectThrows(IllegalArgumentException.class, () -> new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED, 0));
+        expectThrows(IllegalArgumentException.class, () -> new LocalCheckpointTracker(5, SequenceNumbers.UNASSIGNED_SEQ_NO));
+        final LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED,
+            SequenceNumbers.NO_OPS_PERFORMED);
+        expectThrows(IllegalArgumentException.class, () -> tracker.markSeqNoAsCompleted(SequenceNumbers.UNASSIGNED_SEQ_NO));
+    }
+
+    public void testOutOfOrderAcrossBitSets() {
+        final LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED,
+            SequenceNumbers.NO_OPS_PERFORMED);
+        final int numOps = randomIntBetween(1, 4 * LocalCheckpointTracker.BIT_SET_SIZE);
+        final List<Long> seqNos = new ArrayList<>();
+        for (long i = 0; i < numOps; i++) {
+            seqNos.add(i);
+        }
+        Collections.shuffle(seqNos, random());
+        final Long gap = randomFrom(seqNos);
+        for (Long seqNo : seqNos) {
+            if (seqNo.equals(gap) == false) {
+                tracker.markSeqNoAsCompleted(seqNo);
+            }
+        }
+        assertThat(tracker.getCheckpoint(), equalTo(gap - 1));
+        assertThat(tracker.getMaxSeqNo(), equalTo(numOps - 1L));
+        tracker.markSeqNoAsCompleted(gap);
+        assertThat(tracker.getCheckpoint(), equalTo(numOps - 1L));
+        // bit sets that the checkpoint moved past are released
+        assertThat(tracker.processedSeqNo.size(), equalTo(numOps % LocalCheckpointTracker.BIT_SET_SIZE == 0 ? 0 : 1));
+    }
+
+    public void testFillGaps() {
+        final LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED,
+            SequenceNumbers.NO_OPS_PERFORMED);
+        tracker.markSeqNoAsCompleted(0);
+        tracker.markSeqNoAsCompleted(randomIntBetween(2, 3 * LocalCheckpointTracker.BIT_SET_SIZE));
+        assertThat(tracker.getCheckpoint(), equalTo(0L));
+        tracker.fillGaps();
+        assertThat(tracker.getCheckpoint(), equalTo(tracker.getMaxSeqNo()));
+        assertThat(tracker.processedSeqNo.size(), equalTo(0));
+        final long next = tracker.generateSeqNo();
+        tracker.markSeqNoAsCompleted(next);
+        assertThat(tracker.getCheckpoint(), equalTo(next));
+    }
+
+    public void testConcurrentPrimary() throws Exception {
+        final LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED,
+            SequenceNumbers.NO_OPS_PERFORMED);
+        final Thread[] threads = new Thread[randomIntBetween(2, 5)];
+        final int opsPerThread = randomIntBetween(10, 2 * LocalCheckpointTracker.BIT_SET_SIZE);
+        final CyclicBarrier barrier = new CyclicBarrier(threads.length);
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    barrier.await();
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+                for (int i = 0; i < opsPerThread; i++) {
+                    final long seqNo = tracker.generateSeqNo();
+                    tracker.markSeqNoAsCompleted(seqNo);
+                    assertThat(tracker.getCheckpoint(), greaterThanOrEqualTo(SequenceNumbers.NO_OPS_PERFORMED));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        final long expected = (long) threads.length * opsPerThread - 1;
+        assertThat(tracker.getMaxSeqNo(), equalTo(expected));
+        assertThat(tracker.getCheckpoint(), equalTo(expected));
+    }
+}
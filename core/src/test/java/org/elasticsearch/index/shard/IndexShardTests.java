@@ -62,12 +62,14 @@ import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.LocalTransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.EngineException;
@@ -519,10 +521,12 @@ public class IndexShardTests extends IndexShardTestCase {
     public void testShardStats() throws IOException {
         IndexShard shard = newStartedShard();
         ShardStats stats = new ShardStats(shard.routingEntry(), shard.shardPath(),
-            new CommonStats(new IndicesQueryCache(Settings.EMPTY), shard, new CommonStatsFlags()), shard.commitStats());
+            new CommonStats(new IndicesQueryCache(Settings.EMPTY), shard, new CommonStatsFlags()), shard.commitStats(),
+            shard.isSearchIdle());
         assertEquals(shard.shardPath().getRootDataPath().toString(), stats.getDataPath());
         assertEquals(shard.shardPath().getRootStatePath().toString(), stats.getStatePath());
         assertEquals(shard.shardPath().isCustomDataPath(), stats.isCustomDataPath());
+        assertEquals(shard.isSearchIdle(), stats.isSearchIdle());
 
         if (randomBoolean() || true) { // try to serialize it to ensure values survive the serialization
             BytesStreamOutput out = new BytesStreamOutput();
@@ -540,6 +544,7 @@ public class IndexShardTests extends IndexShardTestCase {
         expectedSubSequence.append("\",\"data_path\":\"");
         expectedSubSequence.append(shard.shardPath().getRootDataPath().toString());
         expectedSubSequence.append("\",\"is_custom_data_path\":").append(shard.shardPath().isCustomDataPath()).append("}");
+        expectedSubSequence.append(",\"search_idle\":").append(shard.isSearchIdle());
         if (Constants.WINDOWS) {
             // Some path weirdness on windows
         } else {
@@ -548,6 +553,100 @@ public class IndexShardTests extends IndexShardTestCase {
         closeShards(shard);
     }
 
+    public void testScheduledRefresh() throws IOException {
+        Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .build();
+        IndexMetaData metaData = IndexMetaData.builder("test")
+            .putMapping("test", "{ \"properties\": { \"foo\":  { \"type\": \"text\"}}}")
+            .settings(settings)
+            .primaryTerm(0, 1).build();
+        IndexShard primary = newShard(new ShardId(metaData.getIndex(), 0), true, "n1", metaData, null);
+        recoveryShardFromStore(primary);
+        assertFalse(primary.isSearchIdle());
+        assertFalse(primary.scheduledRefresh());
+        indexDoc(primary, "test", "0");
+        assertTrue(primary.scheduledRefresh());
+        assertFalse(primary.isRefreshPending());
+        assertFalse(primary.scheduledRefresh());
+        try (Engine.Searcher searcher = primary.acquireSearcher("test")) {
+            assertEquals(1, searcher.reader().numDocs());
+        }
+        closeShards(primary);
+    }
+
+    public void testScheduledRefreshSkippedWhenSearchIdle() throws Exception {
+        Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), TimeValue.ZERO)
+            .build();
+        IndexMetaData metaData = IndexMetaData.builder("test")
+            .putMapping("test", "{ \"properties\": { \"foo\":  { \"type\": \"text\"}}}")
+            .settings(settings)
+            .primaryTerm(0, 1).build();
+        IndexShard primary = newShard(new ShardId(metaData.getIndex(), 0), true, "n1", metaData, null);
+        recoveryShardFromStore(primary);
+        assertTrue(primary.isSearchIdle());
+        ShardStats stats = new ShardStats(primary.routingEntry(), primary.shardPath(),
+            new CommonStats(new IndicesQueryCache(Settings.EMPTY), primary, new CommonStatsFlags()), primary.commitStats(),
+            primary.isSearchIdle());
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        assertTrue(ShardStats.readShardStats(out.bytes().streamInput()).isSearchIdle());
+        // older nodes don't know about search idle shards
+        out = new BytesStreamOutput();
+        out.setVersion(Version.V_5_3_1);
+        stats.writeTo(out);
+        StreamInput in = out.bytes().streamInput();
+        in.setVersion(Version.V_5_3_1);
+        assertFalse(ShardStats.readShardStats(in).isSearchIdle());
+
+        indexDoc(primary, "test", "0");
+        assertFalse(primary.scheduledRefresh());
+        assertTrue(primary.isRefreshPending());
+        try (Engine.Searcher searcher = primary.acquireSearcher("test")) {
+            assertEquals(0, searcher.reader().numDocs());
+        }
+
+        // the next search refreshes the shard first
+        primary.awaitShardSearchActive();
+        assertFalse(primary.isRefreshPending());
+        try (Engine.Searcher searcher = primary.acquireSearcher("test")) {
+            assertEquals(1, searcher.reader().numDocs());
+        }
+
+        // refresh listeners can't wait for the next search
+        indexDoc(primary, "test", "1");
+        AtomicBoolean refreshed = new AtomicBoolean();
+        Translog.Location location = primary.getEngine().getTranslog().getLastWriteLocation();
+        primary.addRefreshListener(location, forcedRefresh -> refreshed.set(true));
+        assertTrue(primary.scheduledRefresh());
+        assertBusy(() -> assertTrue(refreshed.get()));
+        closeShards(primary);
+    }
+
+    public void testScheduledRefreshWithExplicitRefreshInterval() throws IOException {
+        Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), TimeValue.ZERO)
+            .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), TimeValue.timeValueSeconds(1))
+            .build();
+        IndexMetaData metaData = IndexMetaData.builder("test")
+            .putMapping("test", "{ \"properties\": { \"foo\":  { \"type\": \"text\"}}}")
+            .settings(settings)
+            .primaryTerm(0, 1).build();
+        IndexShard primary = newShard(new ShardId(metaData.getIndex(), 0), true, "n1", metaData, null);
+        recoveryShardFromStore(primary);
+        assertTrue(primary.isSearchIdle());
+        indexDoc(primary, "test", "0");
+        assertTrue(primary.scheduledRefresh());
+        assertFalse(primary.isRefreshPending());
+        closeShards(primary);
+    }
+
     private ParsedDocument testParsedDocument(String id, String type, String routing, long timestamp, long ttl,
                                               ParseContext.Document document, BytesReference source, Mapping mappingUpdate) {
         Field uidField = new Field("_uid", Uid.createUid(type, id), UidFieldMapper.Defaults.FIELD_TYPE);
@@ -0,0 +1,88 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class IndexingStatsTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        IndexingStats.Stats stats = createTestStats();
+        IndexingStats.Stats copy = copyStats(stats, Version.CURRENT);
+        assertEquals(stats.getIndexCount(), copy.getIndexCount());
+        assertEquals(stats.getDeleteCount(), copy.getDeleteCount());
+        assertEquals(stats.getThrottleTime(), copy.getThrottleTime());
+        assertEquals(stats.getMappingUpdateCount(), copy.getMappingUpdateCount());
+        assertEquals(stats.getMappingUpdateTime(), copy.getMappingUpdateTime());
+        assertEquals(stats.getWriteLoadPerSecond(), copy.getWriteLoadPerSecond());
+        assertEquals(stats.getIndexBufferShare(), copy.getIndexBufferShare(), 0.0d);
+    }
+
+    public void testSerializationToOlderVersion() throws IOException {
+        IndexingStats.Stats stats = createTestStats();
+        IndexingStats.Stats copy = copyStats(stats, Version.V_5_3_1);
+        assertEquals(stats.getIndexCount(), copy.getIndexCount());
+        assertEquals(stats.getDeleteCount(), copy.getDeleteCount());
+        assertEquals(stats.getThrottleTime(), copy.getThrottleTime());
+        assertEquals(0, copy.getMappingUpdateCount());
+        assertEquals(0, copy.getMappingUpdateTime().millis());
+        assertEquals(0, copy.getWriteLoadPerSecond().getBytes());
+        assertEquals(0.0d, copy.getIndexBufferShare(), 0.0d);
+    }
+
+    public void testReplicaBatchSizesSerialization() throws IOException {
+        IndexingStats.Stats stats = createTestStats();
+        long[] replicaBatchSizes = new long[IndexingStats.REPLICA_BATCH_SIZE_BUCKETS.length + 1];
+        for (int i = 0; i < replicaBatchSizes.length; i++) {
+            replicaBatchSizes[i] = randomIntBetween(0, 1000);
+        }
+        stats.setReplicaBatchSizes(replicaBatchSizes);
+        IndexingStats.Stats copy = copyStats(stats, Version.CURRENT);
+        assertArrayEquals(replicaBatchSizes, copy.getReplicaBatchSizes());
+        assertEquals(stats.getReplicaBatchCount(), copy.getReplicaBatchCount());
+
+        copy = copyStats(stats, Version.V_5_3_1);
+        assertArrayEquals(new long[replicaBatchSizes.length], copy.getReplicaBatchSizes());
+        assertEquals(0, copy.getReplicaBatchCount());
+    }
+
+    static IndexingStats.Stats createTestStats() {
+        return new IndexingStats.Stats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomBoolean(), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong(), randomDouble());
+    }
+
+    static IndexingStats.Stats copyStats(IndexingStats.Stats stats, Version version) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            stats.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                return IndexingStats.Stats.readStats(in);
+            }
+        }
+    }
+}
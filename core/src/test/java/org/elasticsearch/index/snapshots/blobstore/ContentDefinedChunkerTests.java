@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.elasticsearch.common.hash.MessageDigests;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.ChunkInfo;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class ContentDefinedChunkerTests extends ESTestCase {
+
+    public void testChunksCoverContent() throws IOException {
+        final ContentDefinedChunker chunker = new ContentDefinedChunker(randomIntBetween(1024, 8192));
+        final byte[] content = randomBytes(randomIntBetween(0, 1 << 18));
+        final List<ChunkInfo> chunks = chunker.split(new ByteArrayInputStream(content));
+        int offset = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            final ChunkInfo chunk = chunks.get(i);
+            if (i < chunks.size() - 1) {
+                assertThat(chunk.length(), greaterThanOrEqualTo((long) chunker.averageChunkSize() / 4));
+            }
+            assertThat(chunk.length(), lessThanOrEqualTo((long) chunker.averageChunkSize() * 4));
+            final MessageDigest digest = MessageDigests.sha256();
+            digest.update(content, offset, (int) chunk.length());
+            assertThat(chunk.hash(), equalTo(MessageDigests.toHexString(digest.digest())));
+            offset += chunk.length();
+        }
+        assertThat(offset, equalTo(content.length));
+        if (content.length == 0) {
+            assertThat(chunks, empty());
+        }
+    }
+
+    public void testChunksDependOnContentOnly() throws IOException {
+        final ContentDefinedChunker chunker = new ContentDefinedChunker(1024);
+        final byte[] content = randomBytes(1 << 17);
+        final byte[] inserted = randomBytes(randomIntBetween(1, 512));
+        final int insertAt = randomIntBetween(0, content.length);
+        final byte[] modified = new byte[content.length + inserted.length];
+        System.arraycopy(content, 0, modified, 0, insertAt);
+        System.arraycopy(inserted, 0, modified, insertAt, inserted.length);
+        System.arraycopy(content, insertAt, modified, insertAt + inserted.length, content.length - insertAt);
+
+        final List<ChunkInfo> chunks = chunker.split(new ByteArrayInputStream(content));
+        assertThat(new ContentDefinedChunker(1024).split(new ByteArrayInputStream(content)), equalTo(chunks));
+        final Set<ChunkInfo> modifiedChunks = new HashSet<>(chunker.split(new ByteArrayInputStream(modified)));
+        int sharedChunks = 0;
+        for (ChunkInfo chunk : chunks) {
+            if (modifiedChunks.contains(chunk)) {
+                sharedChunks++;
+            }
+        }
+        // the insertion only changes the chunks around it, the chunks after it are found again at their new offsets
+        assertThat(sharedChunks, greaterThanOrEqualTo(chunks.size() - 4));
+    }
+
+    public void testInvalidAverageChunkSize() {
+        final int averageChunkSize = randomBoolean()
+            ? randomIntBetween(0, 1023) : randomIntBetween(64 * 1024 * 1024 + 1, Integer.MAX_VALUE);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new ContentDefinedChunker(averageChunkSize));
+        assertThat(e.getMessage(), equalTo("average chunk size must be between [1024] and [67108864] but was [" + averageChunkSize + "]"));
+    }
+
+    private static byte[] randomBytes(int length) {
+        final byte[] bytes = new byte[length];
+        random().nextBytes(bytes);
+        return bytes;
+    }
+}
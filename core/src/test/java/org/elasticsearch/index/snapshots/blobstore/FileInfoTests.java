@@ -29,11 +29,15 @@ import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.ChunkInfo;
 import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.FileInfo;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
@@ -74,6 +78,52 @@ public class FileInfoTests extends ESTestCase {
         }
     }
 
+    public void testChunksToFromXContent() throws IOException {
+        final List<ChunkInfo> chunks = new ArrayList<>();
+        long length = 0;
+        final int numChunks = randomIntBetween(0, 10);
+        for (int i = 0; i < numChunks; i++) {
+            final ChunkInfo chunk = new ChunkInfo(randomAsciiOfLength(64).toLowerCase(Locale.ROOT), randomIntBetween(1, 1 << 20));
+            chunks.add(chunk);
+            length += chunk.length();
+        }
+        StoreFileMetaData meta = new StoreFileMetaData("foobar", length, randomAsciiOfLengthBetween(1, 10), Version.LATEST);
+        BlobStoreIndexShardSnapshot.FileInfo info = new BlobStoreIndexShardSnapshot.FileInfo("_foobar", meta, chunks);
+        XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON);
+        BlobStoreIndexShardSnapshot.FileInfo.toXContent(info, builder, ToXContent.EMPTY_PARAMS);
+        byte[] xcontent = BytesReference.toBytes(shuffleXContent(builder).bytes());
+
+        final BlobStoreIndexShardSnapshot.FileInfo parsedInfo;
+        try (XContentParser parser = createParser(JsonXContent.jsonXContent, xcontent)) {
+            parser.nextToken();
+            parsedInfo = BlobStoreIndexShardSnapshot.FileInfo.fromXContent(parser);
+        }
+        assertTrue(parsedInfo.storedInChunks());
+        assertThat(parsedInfo.chunks(), equalTo(chunks));
+        assertThat(parsedInfo.length(), equalTo(length));
+        assertTrue(parsedInfo.isSame(info));
+
+        // the chunks have to add up to the length of the file
+        builder = XContentFactory.contentBuilder(XContentType.JSON);
+        builder.startObject();
+        builder.field(FileInfo.NAME, "_foobar");
+        builder.field(FileInfo.PHYSICAL_NAME, "foobar");
+        builder.field(FileInfo.LENGTH, length + 1);
+        builder.field(FileInfo.WRITTEN_BY, Version.LATEST.toString());
+        builder.field(FileInfo.CHECKSUM, "666");
+        builder.startArray(FileInfo.CHUNKS);
+        for (ChunkInfo chunk : chunks) {
+            builder.startObject().field(FileInfo.CHUNK_HASH, chunk.hash()).field(FileInfo.LENGTH, chunk.length()).endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        try (XContentParser parser = createParser(JsonXContent.jsonXContent, BytesReference.toBytes(builder.bytes()))) {
+            parser.nextToken();
+            ElasticsearchParseException e = expectThrows(ElasticsearchParseException.class, () -> FileInfo.fromXContent(parser));
+            assertThat(e.getMessage(), containsString("but the file length is [" + (length + 1) + "]"));
+        }
+    }
+
     public void testInvalidFieldsInFromXContent() throws IOException {
         final int iters = scaledRandomIntBetween(1, 10);
         for (int iter = 0; iter < iters; iter++) {
@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class StoreStatsTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        StoreStats stats = createTestStats();
+        StoreStats copy = copyStats(stats, Version.CURRENT);
+        assertEquals(stats.getSizeInBytes(), copy.getSizeInBytes());
+        assertEquals(stats.getThrottleTime(), copy.getThrottleTime());
+        assertEquals(stats.getSnapshotCacheHits(), copy.getSnapshotCacheHits());
+        assertEquals(stats.getSnapshotCacheMisses(), copy.getSnapshotCacheMisses());
+        assertEquals(stats.getSnapshotBytesFetched(), copy.getSnapshotBytesFetched());
+        assertEquals(stats.getMetadataLoads(), copy.getMetadataLoads());
+        assertEquals(stats.getMetadataLoadTime(), copy.getMetadataLoadTime());
+        assertEquals(stats.getMetadataCacheHits(), copy.getMetadataCacheHits());
+    }
+
+    public void testSerializationToOlderVersion() throws IOException {
+        StoreStats stats = createTestStats();
+        StoreStats copy = copyStats(stats, Version.V_5_3_1);
+        assertEquals(stats.getSizeInBytes(), copy.getSizeInBytes());
+        assertEquals(stats.getThrottleTime(), copy.getThrottleTime());
+        assertEquals(0, copy.getSnapshotCacheHits());
+        assertEquals(0, copy.getSnapshotCacheMisses());
+        assertEquals(0, copy.getSnapshotBytesFetched().getBytes());
+        assertEquals(0, copy.getMetadataLoads());
+        assertEquals(0, copy.getMetadataLoadTime().nanos());
+        assertEquals(0, copy.getMetadataCacheHits());
+    }
+
+    private static StoreStats createTestStats() {
+        StoreStats stats = new StoreStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong());
+        stats.setMetadataStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+        return stats;
+    }
+
+    private static StoreStats copyStats(StoreStats stats, Version version) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            stats.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                StoreStats copy = new StoreStats();
+                copy.readFrom(in);
+                return copy;
+            }
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexFileNames;
 import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
@@ -876,6 +877,51 @@ public class StoreTests extends ESTestCase {
         IOUtils.close(store);
     }
 
+    public void testMetadataCachedPerCommit() throws IOException {
+        final ShardId shardId = new ShardId("index", "_na_", 1);
+        DirectoryService directoryService = new LuceneManagedDirectoryService(random());
+        Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(Store.INDEX_STORE_STATS_REFRESH_INTERVAL_SETTING.getKey(), TimeValue.timeValueMinutes(0)).build();
+        Store store = new Store(shardId, IndexSettingsModule.newIndexSettings("index", settings), directoryService,
+            new DummyShardLock(shardId));
+        IndexWriterConfig config = newIndexWriterConfig(random(), new MockAnalyzer(random())).setCodec(TestUtil.getDefaultCodec());
+        SnapshotDeletionPolicy deletionPolicy = new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy());
+        config.setIndexDeletionPolicy(deletionPolicy);
+        IndexWriter writer = new IndexWriter(store.directory(), config);
+        Document doc = new Document();
+        doc.add(new TextField("id", "1", Field.Store.NO));
+        writer.addDocument(doc);
+        writer.commit();
+
+        Store.MetadataSnapshot first = store.getMetadata(null);
+        assertSame(first, store.getMetadata(null));
+        IndexCommit commit = deletionPolicy.snapshot();
+        assertSame(first, store.getMetadata(commit));
+        deletionPolicy.release(commit);
+        StoreStats stats = store.stats();
+        assertEquals(1, stats.getMetadataLoads());
+        assertEquals(2, stats.getMetadataCacheHits());
+
+        writer.addDocument(doc);
+        writer.commit();
+        Store.MetadataSnapshot second = store.getMetadata(null);
+        assertNotSame(first, second);
+        assertEquals(first.getNumDocs() + 1, second.getNumDocs());
+        assertSame(second, store.getMetadata(null));
+        writer.close();
+
+        // recovery replaces files under the write lock, which must not serve metadata of the replaced files
+        store.cleanupAndVerify("test", second);
+        stats = store.stats();
+        assertEquals(3, stats.getMetadataLoads());
+        assertEquals(3, stats.getMetadataCacheHits());
+        assertNotSame(second, store.getMetadata(null));
+        assertEquals(4, store.stats().getMetadataCacheHits());
+        deleteContent(store.directory());
+        IOUtils.close(store);
+    }
+
     public void testStreamStoreFilesMetaData() throws Exception {
         Store.MetadataSnapshot metadataSnapshot = createMetaDataSnapshot();
         TransportNodesListShardStoreMetaData.StoreFilesMetaData outStoreFileMetaData = new TransportNodesListShardStoreMetaData.StoreFilesMetaData(new ShardId("test", "_na_", 0),metadataSnapshot);
@@ -0,0 +1,194 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store.snapshot;
+
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.util.LuceneTestCase;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+@LuceneTestCase.SuppressFileSystems("ExtrasFS") // the tests count the files of the blocks
+public class SnapshotBlockCacheTests extends ESTestCase {
+
+    private SnapshotBlockCache newCache(Path path, int blockSize, int cacheSize) {
+        return new SnapshotBlockCache(Settings.builder()
+            .put(SnapshotBlockCache.BLOCK_SIZE_SETTING.getKey(), new ByteSizeValue(blockSize, ByteSizeUnit.KB))
+            .put(SnapshotBlockCache.SIZE_SETTING.getKey(), new ByteSizeValue(cacheSize, ByteSizeUnit.KB))
+            .build(), path);
+    }
+
+    private static byte[] blockContent(long blockIndex, int length) {
+        final byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (blockIndex * 31 + i);
+        }
+        return content;
+    }
+
+    private static long numberOfFiles(Path path) throws IOException {
+        try (Stream<Path> files = Files.list(path)) {
+            return files.count();
+        }
+    }
+
+    public void testLoadsBlocksOnce() throws IOException {
+        final Path path = createTempDir().resolve("cache");
+        try (SnapshotBlockCache cache = newCache(path, 4, 1024)) {
+            final AtomicInteger loads = new AtomicInteger();
+            final int length = randomIntBetween(1, 4096);
+            for (int i = 0; i < 3; i++) {
+                try (SnapshotBlockCache.Block block = cache.acquire("file", 7, length, out -> {
+                        loads.incrementAndGet();
+                        out.write(blockContent(7, length));
+                    })) {
+                    final int offset = randomIntBetween(0, length - 1);
+                    final byte[] bytes = new byte[length - offset];
+                    block.read(offset, bytes, 0, bytes.length);
+                    for (int j = 0; j < bytes.length; j++) {
+                        assertThat(bytes[j], equalTo(blockContent(7, length)[offset + j]));
+                    }
+                }
+            }
+            assertThat(loads.get(), equalTo(1));
+            assertThat(cache.sizeInBytes(), equalTo((long) length));
+            assertThat(numberOfFiles(path), equalTo(1L));
+        }
+        assertFalse(Files.exists(path));
+    }
+
+    public void testEvictsLeastRecentlyUsedBlocks() throws IOException {
+        final Path path = createTempDir().resolve("cache");
+        try (SnapshotBlockCache cache = newCache(path, 4, 16)) {
+            final int blockSize = cache.blockSize();
+            for (int i = 0; i < 4; i++) {
+                final long blockIndex = i;
+                cache.acquire("file", blockIndex, blockSize, out -> out.write(blockContent(blockIndex, blockSize))).close();
+            }
+            assertThat(cache.numberOfBlocks(), equalTo(4));
+            // use the first block so that the second one is the least recently used
+            cache.acquire("file", 0, blockSize, out -> fail("block should be cached")).close();
+            cache.acquire("file", 4, blockSize, out -> out.write(blockContent(4, blockSize))).close();
+            assertThat(cache.numberOfBlocks(), equalTo(4));
+            assertThat(cache.sizeInBytes(), lessThanOrEqualTo(16L * 1024));
+            assertThat(numberOfFiles(path), equalTo(4L));
+            cache.acquire("file", 0, blockSize, out -> fail("block should be cached")).close();
+            final AtomicInteger loads = new AtomicInteger();
+            cache.acquire("file", 1, blockSize, out -> {
+                loads.incrementAndGet();
+                out.write(blockContent(1, blockSize));
+            }).close();
+            assertThat(loads.get(), equalTo(1));
+        }
+    }
+
+    public void testEvictedBlockStaysReadableUntilReleased() throws IOException {
+        final Path path = createTempDir().resolve("cache");
+        try (SnapshotBlockCache cache = newCache(path, 4, 4)) {
+            final int blockSize = cache.blockSize();
+            final SnapshotBlockCache.Block held = cache.acquire("file", 0, blockSize, out -> out.write(blockContent(0, blockSize)));
+            cache.acquire("file", 1, blockSize, out -> out.write(blockContent(1, blockSize))).close();
+            assertThat(cache.numberOfBlocks(), equalTo(1));
+            assertThat(numberOfFiles(path), equalTo(2L));
+            final byte[] bytes = new byte[blockSize];
+            held.read(0, bytes, 0, blockSize);
+            assertArrayEquals(blockContent(0, blockSize), bytes);
+            held.close();
+            assertThat(numberOfFiles(path), equalTo(1L));
+        }
+    }
+
+    public void testEvictFiles() throws IOException {
+        final Path path = createTempDir().resolve("cache");
+        try (SnapshotBlockCache cache = newCache(path, 4, 1024)) {
+            final int blockSize = cache.blockSize();
+            for (String file : new String[] { "evicted", "kept" }) {
+                for (int i = 0; i < 2; i++) {
+                    final long blockIndex = i;
+                    cache.acquire(file, blockIndex, blockSize, out -> out.write(blockContent(blockIndex, blockSize))).close();
+                }
+            }
+            final SnapshotBlockCache.Block held = cache.acquire("evicted", 0, blockSize, out -> fail("block should be cached"));
+            cache.evictFiles(Collections.singleton("evicted"));
+            assertThat(cache.numberOfBlocks(), equalTo(2));
+            assertThat(cache.sizeInBytes(), equalTo(2L * blockSize));
+            assertThat(numberOfFiles(path), equalTo(3L));
+            final byte[] bytes = new byte[blockSize];
+            held.read(0, bytes, 0, blockSize);
+            assertArrayEquals(blockContent(0, blockSize), bytes);
+            held.close();
+            assertThat(numberOfFiles(path), equalTo(2L));
+            cache.acquire("kept", 1, blockSize, out -> fail("block should be cached")).close();
+            final AtomicInteger loads = new AtomicInteger();
+            cache.acquire("evicted", 1, blockSize, out -> {
+                loads.incrementAndGet();
+                out.write(blockContent(1, blockSize));
+            }).close();
+            assertThat(loads.get(), equalTo(1));
+        }
+    }
+
+    public void testFailedLoadIsNotCached() throws IOException {
+        final Path path = createTempDir().resolve("cache");
+        try (SnapshotBlockCache cache = newCache(path, 4, 1024)) {
+            final int blockSize = cache.blockSize();
+            expectThrows(IOException.class, () -> cache.acquire("file", 0, blockSize, out -> out.write(new byte[blockSize - 1])));
+            expectThrows(IOException.class, () -> cache.acquire("file", 0, blockSize, out -> {
+                throw new IOException("simulated");
+            }));
+            assertThat(cache.numberOfBlocks(), equalTo(0));
+            assertThat(cache.sizeInBytes(), equalTo(0L));
+            assertThat(numberOfFiles(path), equalTo(0L));
+            cache.acquire("file", 0, blockSize, out -> out.write(blockContent(0, blockSize))).close();
+            assertThat(cache.numberOfBlocks(), equalTo(1));
+        }
+    }
+
+    public void testCleansDirectoryOnFirstUse() throws IOException {
+        final Path path = createTempDir().resolve("cache");
+        Files.createDirectories(path);
+        Files.write(path.resolve("leftover"), new byte[10]);
+        try (SnapshotBlockCache cache = newCache(path, 4, 1024)) {
+            cache.acquire("file", 0, 10, out -> out.write(new byte[10])).close();
+            assertFalse(Files.exists(path.resolve("leftover")));
+            assertThat(numberOfFiles(path), equalTo(1L));
+            cache.close();
+            expectThrows(AlreadyClosedException.class, () -> cache.acquire("file", 0, 10, out -> out.write(new byte[10])));
+        }
+        assertFalse(Files.exists(path));
+    }
+
+    public void testNoDataPath() throws IOException {
+        try (SnapshotBlockCache cache = newCache(null, 4, 1024)) {
+            expectThrows(IllegalStateException.class, () -> cache.acquire("file", 0, 10, out -> out.write(new byte[10])));
+        }
+    }
+}
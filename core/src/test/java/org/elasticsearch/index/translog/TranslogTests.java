@@ -48,8 +48,10 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog.Location;
 import org.elasticsearch.test.ESTestCase;
@@ -142,8 +144,14 @@ public class TranslogTests extends ESTestCase {
     }
 
     private TranslogConfig getTranslogConfig(Path path) {
+        // most tests expect committed generations to be deleted right away
+        return getTranslogConfig(path, Settings.builder().put(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING.getKey(), "0b").build());
+    }
+
+    private TranslogConfig getTranslogConfig(Path path, Settings settings) {
         Settings build = Settings.builder()
             .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(settings)
             .build();
         ByteSizeValue bufferSize = randomBoolean() ? TranslogConfig.DEFAULT_BUFFER_SIZE : new ByteSizeValue(10 + randomInt(128 * 1024), ByteSizeUnit.BYTES);
         return new TranslogConfig(shardId, path, IndexSettingsModule.newIndexSettings(shardId.getIndex(), build), BigArrays.NON_RECYCLING_INSTANCE, bufferSize);
@@ -386,6 +394,72 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testRetainCommittedGenerations() throws IOException {
+        try (Translog retainingTranslog = new Translog(getTranslogConfig(createTempDir(), Settings.EMPTY), null)) {
+            final int committedOps = randomIntBetween(1, 10);
+            long seqNo = 0;
+            for (int i = 0; i < committedOps; i++) {
+                retainingTranslog.add(new Translog.Delete(newUid(Integer.toString(i)), seqNo++, 1, VersionType.EXTERNAL));
+            }
+            retainingTranslog.commit();
+            final int uncommittedOps = randomIntBetween(0, 10);
+            for (int i = 0; i < uncommittedOps; i++) {
+                retainingTranslog.add(new Translog.Delete(newUid(Integer.toString(i)), seqNo++, 2, VersionType.EXTERNAL));
+            }
+            assertTrue(Files.exists(retainingTranslog.location().resolve(Translog.getFilename(1))));
+            assertThat(retainingTranslog.getMaxTrimmedSeqNo(), equalTo(SequenceNumbers.NO_OPS_PERFORMED));
+            assertThat(retainingTranslog.newSnapshot().totalOperations(), equalTo(uncommittedOps));
+            try (Translog.View view = retainingTranslog.newRetainedView()) {
+                final Translog.Snapshot snapshot = view.snapshot();
+                assertThat(snapshot.totalOperations(), equalTo(committedOps + uncommittedOps));
+                for (long expected = 0; expected < seqNo; expected++) {
+                    assertThat(snapshot.next().seqNo(), equalTo(expected));
+                }
+                assertNull(snapshot.next());
+            }
+        }
+    }
+
+    public void testMaxTrimmedSeqNo() throws IOException {
+        final int numOps = randomIntBetween(1, 10);
+        for (int i = 0; i < numOps; i++) {
+            translog.add(new Translog.Delete(newUid(Integer.toString(i)), i, 1, VersionType.EXTERNAL));
+        }
+        // operations without a sequence number don't move the trimmed sequence number
+        translog.add(new Translog.Delete(newUid("legacy")));
+        assertThat(translog.getMaxTrimmedSeqNo(), equalTo(SequenceNumbers.NO_OPS_PERFORMED));
+        translog.commit();
+        assertFileDeleted(translog, 1);
+        assertThat(translog.getMaxTrimmedSeqNo(), equalTo(numOps - 1L));
+        try (Translog.View view = translog.newRetainedView()) {
+            assertNull(view.snapshot().next());
+        }
+    }
+
+    public void testDeleteRetainedGenerationsOnOpen() throws IOException {
+        final TranslogConfig config = getTranslogConfig(createTempDir(), Settings.EMPTY);
+        final Translog.TranslogGeneration generation;
+        try (Translog retainingTranslog = new Translog(config, null)) {
+            final int commits = randomIntBetween(1, 3);
+            for (int i = 0; i < commits; i++) {
+                retainingTranslog.add(new Translog.Delete(newUid(Integer.toString(i)), i, 1, VersionType.EXTERNAL));
+                retainingTranslog.commit();
+            }
+            retainingTranslog.add(new Translog.Delete(newUid("uncommitted"), commits, 1, VersionType.EXTERNAL));
+            generation = retainingTranslog.getGeneration();
+            retainingTranslog.sync();
+        }
+        // nothing tells how old the retained generations are after a restart so they are deleted
+        try (Translog retainingTranslog = new Translog(config, generation)) {
+            for (long gen = 1; gen < generation.translogFileGeneration; gen++) {
+                assertFalse(Files.exists(retainingTranslog.location().resolve(Translog.getFilename(gen))));
+            }
+            try (Translog.View view = retainingTranslog.newRetainedView()) {
+                assertThat(view.snapshot().totalOperations(), equalTo(1));
+            }
+        }
+    }
+
     public void assertFileIsPresent(Translog translog, long id) {
         if (Files.exists(translogDir.resolve(Translog.getFilename(id)))) {
             return;
@@ -32,6 +32,7 @@ import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.IndexSearcherWrapper;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardIT;
+import org.elasticsearch.index.shard.IndexingStats;
 import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -45,6 +46,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -52,6 +54,7 @@ import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 
 public class IndexingMemoryControllerTests extends ESSingleNodeTestCase {
 
@@ -66,6 +69,9 @@ public class IndexingMemoryControllerTests extends ESSingleNodeTestCase {
         // Shards that are currently throttled
         final Set<IndexShard> throttled = new HashSet<>();
 
+        // The relative time in nanos
+        long currentTimeInNanos = 0;
+
         MockController(Settings settings) {
             super(Settings.builder()
                             .put("indices.memory.interval", "200h") // disable it
@@ -160,6 +166,21 @@ public class IndexingMemoryControllerTests extends ESSingleNodeTestCase {
             forceCheck();
         }
 
+        @Override
+        protected long currentTimeInNanos() {
+            return currentTimeInNanos;
+        }
+
+        public void simulateWriteLoad(Map<IndexShard, Integer> mbPerShard, int seconds) {
+            // make sure that the write load is computed over the given seconds
+            forceCheck();
+            for (Map.Entry<IndexShard, Integer> entry : mbPerShard.entrySet()) {
+                recordWriteLoad(entry.getKey().shardId(), entry.getValue() * 1024 * 1024);
+            }
+            currentTimeInNanos += TimeUnit.SECONDS.toNanos(seconds);
+            forceCheck();
+        }
+
         @Override
         protected Cancellable scheduleTask(ThreadPool threadPool) {
             return null;
@@ -237,6 +258,104 @@ public class IndexingMemoryControllerTests extends ESSingleNodeTestCase {
         controller.assertBuffer(shard1, 0);
     }
 
+    public void testHotShardsKeepTheirShareOfTheBuffer() {
+        createIndex("test", Settings.builder().put("index.number_of_shards", 2).put("index.number_of_replicas", 0).build());
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService(resolveIndex("test"));
+
+        MockController controller = new MockController(Settings.builder()
+                                                       .put("indices.memory.index_buffer_size", "10mb")
+                                                       .build());
+        IndexShard shard0 = test.getShard(0);
+        IndexShard shard1 = test.getShard(1);
+        for (int i = 0; i < 4; i++) {
+            controller.simulateIndexing(shard0);
+            controller.simulateIndexing(shard1);
+        }
+        Map<IndexShard, Integer> writeLoad = new HashMap<>();
+        writeLoad.put(shard0, 7);
+        writeLoad.put(shard1, 3);
+        controller.simulateWriteLoad(writeLoad, 5);
+
+        IndexingStats.Stats stats = shard0.indexingStats().getTotal();
+        assertEquals(0.7, stats.getIndexBufferShare(), 0.0001);
+        assertThat(stats.getWriteLoadPerSecond().getBytes(), greaterThan(0L));
+        assertEquals(0.3, shard1.indexingStats().getTotal().getIndexBufferShare(), 0.0001);
+
+        // shard0 uses less than its share of 7 mb, so shard1 is written although it uses less heap:
+        controller.simulateIndexing(shard0);
+        controller.simulateIndexing(shard0);
+        controller.simulateIndexing(shard0);
+        controller.assertBuffer(shard0, 7);
+        controller.assertBuffer(shard1, 0);
+        controller.assertWriting(shard1, 4);
+    }
+
+    public void testWriteLoadOfUnavailableShardsIsKept() {
+        createIndex("test", Settings.builder().put("index.number_of_shards", 2).put("index.number_of_replicas", 0).build());
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService(resolveIndex("test"));
+
+        MockController controller = new MockController(Settings.builder()
+                                                       .put("indices.memory.index_buffer_size", "10mb")
+                                                       .build());
+        IndexShard shard0 = test.getShard(0);
+        IndexShard shard1 = test.getShard(1);
+        controller.simulateIndexing(shard0);
+        // shard1 records writes before it is available, like a recovering shard
+        controller.recordWriteLoad(shard0.shardId(), 1024 * 1024);
+        controller.recordWriteLoad(shard1.shardId(), 1024 * 1024);
+        controller.currentTimeInNanos += TimeUnit.SECONDS.toNanos(5);
+        controller.forceCheck();
+
+        controller.simulateIndexing(shard1);
+        controller.currentTimeInNanos += TimeUnit.SECONDS.toNanos(5);
+        controller.forceCheck();
+        assertThat(shard1.indexingStats().getTotal().getIndexBufferShare(), greaterThan(0.0));
+
+        // the write load of closed shards is forgotten
+        controller.afterIndexShardClosed(shard1.shardId(), shard1, Settings.EMPTY);
+        controller.recordWriteLoad(shard0.shardId(), 1024 * 1024);
+        controller.currentTimeInNanos += TimeUnit.SECONDS.toNanos(5);
+        controller.forceCheck();
+        assertEquals(1.0, shard0.indexingStats().getTotal().getIndexBufferShare(), 0.0001);
+    }
+
+    public void testColdShardsAreWrittenEagerly() {
+        createIndex("test", Settings.builder().put("index.number_of_shards", 2).put("index.number_of_replicas", 0).build());
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService(resolveIndex("test"));
+
+        MockController controller = new MockController(Settings.builder()
+                                                       .put("indices.memory.index_buffer_size", "10mb")
+                                                       .build());
+        IndexShard shard0 = test.getShard(0);
+        IndexShard shard1 = test.getShard(1);
+        controller.simulateIndexing(shard0);
+        controller.simulateIndexing(shard1);
+        controller.simulateIndexing(shard1);
+        Map<IndexShard, Integer> writeLoad = new HashMap<>();
+        writeLoad.put(shard0, 99);
+        writeLoad.put(shard1, 1);
+        controller.simulateWriteLoad(writeLoad, 5);
+
+        controller.simulateIndexing(shard0);
+        controller.simulateIndexing(shard0);
+        controller.assertBuffer(shard0, 3);
+        controller.assertBuffer(shard1, 2);
+
+        // we now use more than half of the buffer, so the buffer of the cold shard is written:
+        controller.simulateIndexing(shard0);
+        controller.assertBuffer(shard0, 4);
+        controller.assertBuffer(shard1, 0);
+        controller.assertWriting(shard1, 2);
+        controller.doneWriting(shard1);
+
+        // buffers of cold shards that are too small to be worth a segment are left alone:
+        controller.simulateIndexing(shard1);
+        controller.assertBuffer(shard1, 1);
+    }
+
     public void testMinBufferSizes() {
         MockController controller = new MockController(Settings.builder()
                                                        .put("indices.memory.index_buffer_size", "0.001%")
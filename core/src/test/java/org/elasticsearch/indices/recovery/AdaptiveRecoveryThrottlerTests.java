@@ -0,0 +1,162 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.recovery.RecoveryStats;
+import org.elasticsearch.monitor.fs.FsProbe;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+
+public class AdaptiveRecoveryThrottlerTests extends ESTestCase {
+
+    private ThreadPool threadPool;
+    private ClusterSettings clusterSettings;
+    private RecoverySettings recoverySettings;
+    private AdaptiveRecoveryThrottler throttler;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        threadPool = new TestThreadPool(getTestName());
+        Settings settings = Settings.builder()
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_ENABLED_SETTING.getKey(), true)
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_MIN_BYTES_PER_SEC_SETTING.getKey(), "10mb")
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_MAX_BYTES_PER_SEC_SETTING.getKey(), "100mb")
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_QUEUE_SIZE_SETTING.getKey(), 5)
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_DISK_UTILIZATION_SETTING.getKey(), 0.5)
+            .build();
+        clusterSettings = new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        recoverySettings = new RecoverySettings(settings, clusterSettings);
+        throttler = new AdaptiveRecoveryThrottler(settings, recoverySettings, threadPool, new FsProbe(settings, null));
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        terminate(threadPool);
+        super.tearDown();
+    }
+
+    public void testLowersThroughputUnderLoad() {
+        throttler.adjust(6, 0, 0.0);
+        assertThat(recoverySettings.getAdaptiveBytesPerSec(), equalTo(new ByteSizeValue(20, ByteSizeUnit.MB)));
+        RecoveryThrottleStats stats = throttler.stats();
+        assertThat(stats.getRate(), equalTo(new ByteSizeValue(20, ByteSizeUnit.MB)));
+        assertThat(stats.getDecreases(), equalTo(1L));
+        assertThat(stats.getIncreases(), equalTo(0L));
+        assertThat(stats.getLastChangeMillis(), greaterThan(0L));
+        assertThat(stats.getLastChangeReasons(), contains("search queue size [6] is above [5]"));
+
+        throttler.adjust(0, 10, 0.75);
+        assertThat(recoverySettings.getAdaptiveBytesPerSec(), equalTo(new ByteSizeValue(10, ByteSizeUnit.MB)));
+        stats = throttler.stats();
+        assertThat(stats.getDecreases(), equalTo(2L));
+        assertThat(stats.getLastChangeReasons(), hasSize(2));
+        assertThat(stats.getLastChangeReasons().get(0), equalTo("bulk queue size [10] is above [5]"));
+        assertThat(stats.getLastChangeReasons().get(1), equalTo("disk utilization [75.0%] is above [50.0%]"));
+        assertEquals(10.0, recoverySettings.rateLimiter().getMBPerSec(), 0.0);
+
+        // doesn't go below the min throughput, which isn't a change
+        throttler.adjust(6, 6, 1.0);
+        assertThat(recoverySettings.getAdaptiveBytesPerSec(), equalTo(new ByteSizeValue(10, ByteSizeUnit.MB)));
+        assertThat(throttler.stats().getDecreases(), equalTo(2L));
+    }
+
+    public void testRaisesThroughputWithoutLoad() {
+        throttler.adjust(5, 5, 0.5);
+        assertThat(recoverySettings.getAdaptiveBytesPerSec(), equalTo(new ByteSizeValue(50, ByteSizeUnit.MB)));
+        RecoveryThrottleStats stats = throttler.stats();
+        assertThat(stats.getIncreases(), equalTo(1L));
+        assertThat(stats.getLastChangeReasons(), hasSize(1));
+        assertThat(stats.getLastChangeReasons().get(0), containsString("below their thresholds"));
+
+        for (int i = 0; i < 10; i++) {
+            throttler.adjust(0, 0, 0.0);
+        }
+        // doesn't go above the max throughput
+        assertThat(recoverySettings.getAdaptiveBytesPerSec(), equalTo(new ByteSizeValue(100, ByteSizeUnit.MB)));
+        assertThat(throttler.stats().getIncreases(), equalTo(6L));
+        assertEquals(100.0, recoverySettings.rateLimiter().getMBPerSec(), 0.0);
+    }
+
+    public void testDisabled() {
+        clusterSettings.applySettings(Settings.builder()
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_ENABLED_SETTING.getKey(), false).build());
+        assertNull(throttler.stats());
+        throttler.adjust(100, 100, 1.0);
+        assertNull(throttler.stats());
+        assertNull(recoverySettings.getAdaptiveBytesPerSec());
+        assertEquals(40.0, recoverySettings.rateLimiter().getMBPerSec(), 0.0);
+    }
+
+    public void testSerialization() throws IOException {
+        throttler.adjust(6, 0, 0.0);
+        RecoveryStats recoveryStats = new RecoveryStats();
+        recoveryStats.setAdaptiveThrottleStats(throttler.stats());
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            recoveryStats.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                RecoveryStats read = RecoveryStats.readRecoveryStats(in);
+                RecoveryThrottleStats stats = read.getAdaptiveThrottleStats();
+                assertThat(stats.getRate(), equalTo(new ByteSizeValue(20, ByteSizeUnit.MB)));
+                assertThat(stats.getDecreases(), equalTo(1L));
+                assertThat(stats.getLastChangeMillis(), equalTo(throttler.stats().getLastChangeMillis()));
+                assertThat(stats.getLastChangeReasons(), equalTo(throttler.stats().getLastChangeReasons()));
+            }
+        }
+
+        // nodes that don't know about adaptive throttling don't get its statistics
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(Version.V_5_3_0);
+            recoveryStats.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(Version.V_5_3_0);
+                assertNull(RecoveryStats.readRecoveryStats(in).getAdaptiveThrottleStats());
+            }
+        }
+
+        RecoveryThrottleStats neverChanged = new RecoveryThrottleStats(1024, 0, 0, -1, Collections.emptyList());
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            neverChanged.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                RecoveryThrottleStats read = new RecoveryThrottleStats(in);
+                assertThat(read.getLastChangeMillis(), equalTo(-1L));
+                assertThat(read.getLastChangeReasons(), empty());
+            }
+        }
+    }
+}
@@ -21,6 +21,8 @@ package org.elasticsearch.indices.recovery;
 
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.elasticsearch.test.ESTestCase;
@@ -37,6 +39,52 @@ public class RecoverySettingsDynamicUpdateTests extends ESTestCase {
         assertEquals(null, recoverySettings.rateLimiter());
     }
 
+    public void testMaxConcurrentFileChunks() {
+        assertEquals(2, recoverySettings.getMaxConcurrentFileChunks());
+        int maxConcurrentFileChunks = between(1, 8);
+        clusterSettings.applySettings(Settings.builder().put(
+                RecoverySettings.INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING.getKey(), maxConcurrentFileChunks).build());
+        assertEquals(maxConcurrentFileChunks, recoverySettings.getMaxConcurrentFileChunks());
+        expectThrows(IllegalArgumentException.class, () -> clusterSettings.applySettings(Settings.builder().put(
+                RecoverySettings.INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING.getKey(), 0).build()));
+    }
+
+    public void testAdaptiveThrottling() {
+        assertFalse(recoverySettings.isAdaptiveThrottlingEnabled());
+        assertNull(recoverySettings.getAdaptiveBytesPerSec());
+        assertNull(recoverySettings.setAdaptiveBytesPerSec(randomNonNegativeLong()));
+
+        // starts from the configured throughput
+        clusterSettings.applySettings(Settings.builder()
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_ENABLED_SETTING.getKey(), true)
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_MIN_BYTES_PER_SEC_SETTING.getKey(), "10mb")
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_MAX_BYTES_PER_SEC_SETTING.getKey(), "100mb").build());
+        assertEquals(new ByteSizeValue(40, ByteSizeUnit.MB), recoverySettings.getAdaptiveBytesPerSec());
+        assertEquals(40.0, recoverySettings.rateLimiter().getMBPerSec(), 0.0);
+
+        // bounded by the min and max throughput
+        assertEquals(new ByteSizeValue(100, ByteSizeUnit.MB), recoverySettings.setAdaptiveBytesPerSec(Long.MAX_VALUE));
+        assertEquals(100.0, recoverySettings.rateLimiter().getMBPerSec(), 0.0);
+        assertEquals(new ByteSizeValue(10, ByteSizeUnit.MB), recoverySettings.setAdaptiveBytesPerSec(0));
+        assertEquals(10.0, recoverySettings.rateLimiter().getMBPerSec(), 0.0);
+
+        // an unlimited throughput starts at the max throughput
+        clusterSettings.applySettings(Settings.builder()
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_ENABLED_SETTING.getKey(), true)
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_MIN_BYTES_PER_SEC_SETTING.getKey(), "10mb")
+            .put(RecoverySettings.INDICES_RECOVERY_ADAPTIVE_THROTTLING_MAX_BYTES_PER_SEC_SETTING.getKey(), "100mb")
+            .put(RecoverySettings.INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING.getKey(), 0).build());
+        assertEquals(new ByteSizeValue(100, ByteSizeUnit.MB), recoverySettings.getAdaptiveBytesPerSec());
+        assertEquals(100.0, recoverySettings.rateLimiter().getMBPerSec(), 0.0);
+
+        // disabling it goes back to the configured throughput
+        clusterSettings.applySettings(Settings.builder()
+            .put(RecoverySettings.INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING.getKey(), "20mb").build());
+        assertFalse(recoverySettings.isAdaptiveThrottlingEnabled());
+        assertNull(recoverySettings.getAdaptiveBytesPerSec());
+        assertEquals(20.0, recoverySettings.rateLimiter().getMBPerSec(), 0.0);
+    }
+
     public void testRetryDelayStateSync() {
         long duration = between(1, 1000);
         TimeUnit timeUnit = randomFrom(TimeUnit.MILLISECONDS, TimeUnit.SECONDS, TimeUnit.MINUTES, TimeUnit.HOURS);
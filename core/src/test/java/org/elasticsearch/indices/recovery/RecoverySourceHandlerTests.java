@@ -27,6 +27,7 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.store.BaseDirectoryWrapper;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
@@ -43,6 +44,9 @@ import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.LocalTransportAddress;
 import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardRelocatedException;
 import org.elasticsearch.index.shard.IndexShardState;
@@ -60,7 +64,9 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -254,12 +260,76 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         IOUtils.close(store, targetStore);
     }
 
+    public void testStartingSeqNoForOperationBasedRecovery() {
+        final RecoverySettings recoverySettings = new RecoverySettings(Settings.EMPTY, service);
+        final Map<String, String> userData = new HashMap<>();
+        userData.put(Engine.HISTORY_UUID_KEY, "history");
+        userData.put(SequenceNumbers.LOCAL_CHECKPOINT_KEY, "5");
+        userData.put(SequenceNumbers.MAX_SEQ_NO, "5");
+        final Store.MetadataSnapshot metadataSnapshot = new Store.MetadataSnapshot(emptyMap(), userData, 6);
+        IndexShard shard = mock(IndexShard.class);
+        when(shard.getHistoryUUID()).thenReturn("history");
+        when(shard.getMaxSeqNo()).thenReturn(10L);
+        for (Version targetVersion : new Version[] { Version.CURRENT, Version.V_5_3_1 }) {
+            StartRecoveryRequest request = new StartRecoveryRequest(shardId,
+                new DiscoveryNode("a", LocalTransportAddress.buildUnique(), emptyMap(), emptySet(), Version.CURRENT),
+                new DiscoveryNode("b", LocalTransportAddress.buildUnique(), emptyMap(), emptySet(), targetVersion),
+                metadataSnapshot, false, randomLong());
+            RecoverySourceHandler handler = new RecoverySourceHandler(shard, null, request, () -> 0L, e -> () -> {},
+                recoverySettings.getChunkSize().bytesAsInt(), logger);
+            // older targets can't read the sequence numbers of operations and have to copy files
+            long expected = targetVersion.equals(Version.CURRENT) ? 6L : SequenceNumbers.UNASSIGNED_SEQ_NO;
+            assertEquals(expected, handler.startingSeqNoForOperationBasedRecovery());
+        }
+    }
+
+    public void testSeqNoFilterSnapshot() throws IOException {
+        final List<Translog.Operation> operations = new ArrayList<>();
+        final long startingSeqNo = randomIntBetween(0, 10);
+        int expected = 0;
+        final int numOps = randomIntBetween(0, 20);
+        for (int i = 0; i < numOps; i++) {
+            final long seqNo = randomBoolean() ? SequenceNumbers.UNASSIGNED_SEQ_NO : randomIntBetween(0, 20);
+            if (seqNo == SequenceNumbers.UNASSIGNED_SEQ_NO || seqNo >= startingSeqNo) {
+                expected++;
+            }
+            operations.add(new Translog.Delete(new Term("_uid", Integer.toString(i)), seqNo, 1, VersionType.INTERNAL));
+        }
+        final int totalOperations = RecoverySourceHandler.SeqNoFilterSnapshot.countOperations(snapshot(operations), startingSeqNo);
+        assertEquals(expected, totalOperations);
+        Translog.Snapshot filtered = new RecoverySourceHandler.SeqNoFilterSnapshot(snapshot(operations), startingSeqNo, totalOperations);
+        assertEquals(expected, filtered.totalOperations());
+        int sent = 0;
+        Translog.Operation operation;
+        while ((operation = filtered.next()) != null) {
+            assertTrue(operation.seqNo() == SequenceNumbers.UNASSIGNED_SEQ_NO || operation.seqNo() >= startingSeqNo);
+            sent++;
+        }
+        assertEquals(expected, sent);
+    }
+
+    private static Translog.Snapshot snapshot(List<Translog.Operation> operations) {
+        return new Translog.Snapshot() {
+            private int position = 0;
+
+            @Override
+            public int totalOperations() {
+                return operations.size();
+            }
+
+            @Override
+            public Translog.Operation next() {
+                return position < operations.size() ? operations.get(position++) : null;
+            }
+        };
+    }
+
     public void testThrowExceptionOnPrimaryRelocatedBeforePhase1Completed() throws IOException {
         final RecoverySettings recoverySettings = new RecoverySettings(Settings.EMPTY, service);
         StartRecoveryRequest request = new StartRecoveryRequest(shardId,
             new DiscoveryNode("b", LocalTransportAddress.buildUnique(), emptyMap(), emptySet(), Version.CURRENT),
             new DiscoveryNode("b", LocalTransportAddress.buildUnique(), emptyMap(), emptySet(), Version.CURRENT),
-            null, false, randomLong());
+            Store.MetadataSnapshot.EMPTY, false, randomLong());
         IndexShard shard = mock(IndexShard.class);
         Translog.View translogView = mock(Translog.View.class);
         when(shard.acquireTranslogView()).thenReturn(translogView);
@@ -289,7 +359,7 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         StartRecoveryRequest request = new StartRecoveryRequest(shardId,
             new DiscoveryNode("b", LocalTransportAddress.buildUnique(), emptyMap(), emptySet(), Version.CURRENT),
             new DiscoveryNode("b", LocalTransportAddress.buildUnique(), emptyMap(), emptySet(), Version.CURRENT),
-            null, true, randomLong());
+            Store.MetadataSnapshot.EMPTY, true, randomLong());
         AtomicBoolean phase1Called = new AtomicBoolean();
         AtomicBoolean phase2Called = new AtomicBoolean();
         AtomicBoolean ensureClusterStateVersionCalled = new AtomicBoolean();
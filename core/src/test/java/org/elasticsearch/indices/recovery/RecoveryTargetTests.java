@@ -330,6 +330,11 @@ public class RecoveryTargetTests extends ESTestCase {
         assertThat(index.recoveredBytes(), equalTo(recoveredBytes));
         assertThat(index.targetThrottling().nanos(), equalTo(targetThrottling));
         assertThat(index.sourceThrottling().nanos(), equalTo(sourceThrottling));
+        if (completeRecovery) {
+            // the time of a stopped stage doesn't change anymore
+            final long expectedBytesPerSec = index.time() == 0 ? 0 : index.recoveredBytes() * 1000 / index.time();
+            assertThat(index.recoveredBytesPerSec(), equalTo(expectedBytesPerSec));
+        }
         if (index.totalRecoverFiles() == 0) {
             assertThat((double) index.recoveredFilesPercent(), equalTo(100.0));
             assertThat((double) index.recoveredBytesPercent(), equalTo(100.0));
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.apache.lucene.index.Term;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.mapper.UidFieldMapper;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class RecoveryTranslogOperationsRequestTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        List<Translog.Operation> operations = randomOperations();
+        RecoveryTranslogOperationsRequest request = copyRequest(newRequest(operations), Version.CURRENT);
+        assertThat(request.operations(), equalTo(operations));
+        for (int i = 0; i < operations.size(); i++) {
+            assertThat(request.operations().get(i).seqNo(), equalTo((long) i));
+        }
+    }
+
+    public void testSerializationToOlderVersion() throws IOException {
+        List<Translog.Operation> operations = randomOperations();
+        // older nodes can't read the format of operations with sequence numbers
+        RecoveryTranslogOperationsRequest request = copyRequest(newRequest(operations), Version.V_5_3_1);
+        assertThat(request.operations().size(), equalTo(operations.size()));
+        for (int i = 0; i < operations.size(); i++) {
+            Translog.Delete expected = (Translog.Delete) operations.get(i);
+            Translog.Delete actual = (Translog.Delete) request.operations().get(i);
+            assertThat(actual.uid(), equalTo(expected.uid()));
+            assertThat(actual.version(), equalTo(expected.version()));
+            assertThat(actual.versionType(), equalTo(expected.versionType()));
+            assertThat(actual.seqNo(), equalTo(SequenceNumbers.UNASSIGNED_SEQ_NO));
+        }
+    }
+
+    private static List<Translog.Operation> randomOperations() {
+        int numOps = randomIntBetween(1, 10);
+        List<Translog.Operation> operations = new ArrayList<>(numOps);
+        for (int i = 0; i < numOps; i++) {
+            Term uid = new Term(UidFieldMapper.NAME, "type#" + i);
+            operations.add(new Translog.Delete(uid, i, randomIntBetween(1, 10), VersionType.INTERNAL));
+        }
+        return operations;
+    }
+
+    private static RecoveryTranslogOperationsRequest newRequest(List<Translog.Operation> operations) {
+        return new RecoveryTranslogOperationsRequest(randomNonNegativeLong(), new ShardId("test", "_na_", 0), operations,
+            operations.size());
+    }
+
+    private static RecoveryTranslogOperationsRequest copyRequest(RecoveryTranslogOperationsRequest request, Version version)
+        throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            request.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                RecoveryTranslogOperationsRequest copy = new RecoveryTranslogOperationsRequest();
+                copy.readFrom(in);
+                assertThat(copy.recoveryId(), equalTo(request.recoveryId()));
+                assertThat(copy.totalTranslogOps(), equalTo(request.totalTranslogOps()));
+                return copy;
+            }
+        }
+    }
+}
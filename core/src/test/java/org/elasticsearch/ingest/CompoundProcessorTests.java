@@ -23,9 +23,12 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -206,4 +209,105 @@ public class CompoundProcessorTests extends ESTestCase {
         assertThat(onFailureProcessor.getInvokedCounter(), equalTo(1));
 
     }
+
+    public void testProcessorStats() throws Exception {
+        TestProcessor first = new TestProcessor("id", "first", ingestDocument -> {throw new RuntimeException("error");});
+        TestProcessor onFailure = new TestProcessor(null, "second", ingestDocument -> {});
+        TestProcessor inner = new TestProcessor(null, "inner", ingestDocument -> {});
+        Processor wrapping = new WrappingProcessor() {
+            private final IngestMetric innerMetric = new IngestMetric();
+
+            @Override
+            public void execute(IngestDocument ingestDocument) throws Exception {
+                innerMetric.execute(inner, ingestDocument);
+                innerMetric.execute(inner, ingestDocument);
+            }
+
+            @Override
+            public String getType() {
+                return "wrapping";
+            }
+
+            @Override
+            public String getTag() {
+                return "wrapping-tag";
+            }
+
+            @Override
+            public Processor getInnerProcessor() {
+                return inner;
+            }
+
+            @Override
+            public IngestMetric getInnerProcessorMetric() {
+                return innerMetric;
+            }
+        };
+        CompoundProcessor compoundProcessor = new CompoundProcessor(false,
+            Arrays.asList(new CompoundProcessor(false, Collections.singletonList(first), Collections.singletonList(onFailure)), wrapping),
+            Collections.emptyList());
+        int numDocs = randomIntBetween(1, 10);
+        for (int i = 0; i < numDocs; i++) {
+            IngestDocument document = new IngestDocument(new HashMap<>(), new HashMap<>());
+            // documents that are not timed still get counted
+            document.setTimed(randomBoolean());
+            compoundProcessor.execute(document);
+        }
+
+        List<IngestStats.ProcessorStats> processorStats = new ArrayList<>();
+        compoundProcessor.collectProcessorStats(processorStats);
+        assertThat(processorStats, hasSize(4));
+        assertProcessorStats(processorStats.get(0), "first:id", "first", numDocs, numDocs);
+        assertProcessorStats(processorStats.get(1), "second", "second", numDocs, 0);
+        assertProcessorStats(processorStats.get(2), "wrapping:wrapping-tag", "wrapping", numDocs, 0);
+        assertProcessorStats(processorStats.get(3), "inner", "inner", 2 * numDocs, 0);
+    }
+
+    public void testCountingProcessorStats() throws Exception {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        Processor counting = new CountingProcessor() {
+            @Override
+            public void execute(IngestDocument ingestDocument) throws Exception {
+                counters.merge("executions", 1L, Long::sum);
+            }
+
+            @Override
+            public String getType() {
+                return "counting";
+            }
+
+            @Override
+            public String getTag() {
+                return null;
+            }
+
+            @Override
+            public Map<String, Long> getCounters() {
+                return new LinkedHashMap<>(counters);
+            }
+        };
+        CompoundProcessor compoundProcessor = new CompoundProcessor(counting,
+            new TestProcessor(null, "plain", ingestDocument -> {}));
+        int numDocs = randomIntBetween(1, 10);
+        for (int i = 0; i < numDocs; i++) {
+            compoundProcessor.execute(new IngestDocument(new HashMap<>(), new HashMap<>()));
+        }
+
+        List<IngestStats.ProcessorStats> processorStats = new ArrayList<>();
+        compoundProcessor.collectProcessorStats(processorStats);
+        assertThat(processorStats, hasSize(2));
+        assertProcessorStats(processorStats.get(0), "counting", "counting", numDocs, 0);
+        assertThat(processorStats.get(0).getCounters(), equalTo(Collections.singletonMap("executions", (long) numDocs)));
+        assertProcessorStats(processorStats.get(1), "plain", "plain", numDocs, 0);
+        assertThat(processorStats.get(1).getCounters().isEmpty(), equalTo(true));
+    }
+
+    private static void assertProcessorStats(IngestStats.ProcessorStats processorStats, String name, String type, long count,
+                                             long failed) {
+        assertThat(processorStats.getName(), equalTo(name));
+        assertThat(processorStats.getType(), equalTo(type));
+        assertThat(processorStats.getStats().getIngestCount(), equalTo(count));
+        assertThat(processorStats.getStats().getIngestFailedCount(), equalTo(failed));
+        assertThat(processorStats.getStats().getIngestCurrent(), equalTo(0L));
+    }
 }
@@ -982,6 +982,110 @@ public class IngestDocumentTests extends ESTestCase {
         assertIngestDocument(ingestDocument, copy);
     }
 
+    public void testCopySharesMapsAndListsUntilModified() {
+        IngestDocument copy = new IngestDocument(ingestDocument);
+        assertThat(copy.getSourceAndMetadataForReading().get("fizz"),
+            sameInstance(ingestDocument.getSourceAndMetadataForReading().get("fizz")));
+
+        copy.setFieldValue("fizz.buzz", "changed");
+        copy.appendFieldValue("fizz.list.0", "item2");
+        copy.removeField("list.0.field");
+        copy.setFieldValue("_ingest.new_field", "value");
+        assertThat(copy.getFieldValue("fizz.buzz", String.class), equalTo("changed"));
+        assertThat(copy.getFieldValue("fizz.list.0", List.class), equalTo(Arrays.asList("item1", "item2")));
+        assertThat(copy.hasField("list.0.field"), equalTo(false));
+        assertThat(copy.getFieldValue("_ingest.new_field", String.class), equalTo("value"));
+
+        assertThat(ingestDocument.getFieldValue("fizz.buzz", String.class), equalTo("hello world"));
+        assertThat(ingestDocument.getFieldValue("fizz.list.0", List.class), equalTo(Collections.singletonList("item1")));
+        assertThat(ingestDocument.getFieldValue("list.0.field", String.class), equalTo("value"));
+        assertThat(ingestDocument.hasField("_ingest.new_field"), equalTo(false));
+        // maps that neither document modified are still shared
+        assertThat(copy.getSourceAndMetadataForReading().get("_ingest"),
+            sameInstance(ingestDocument.getSourceAndMetadataForReading().get("_ingest")));
+    }
+
+    public void testModifyingReturnedMapsDoesNotChangeCopy() {
+        IngestDocument copy = new IngestDocument(ingestDocument);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> fizz = ingestDocument.getFieldValue("fizz", Map.class);
+        fizz.put("new_field", "value");
+        @SuppressWarnings("unchecked")
+        List<Object> innerList = (List<Object>) fizz.get("list");
+        innerList.add("item");
+        ingestDocument.getSourceAndMetadata().put("top_field", "value");
+        ingestDocument.getIngestMetadata().put("ingest_field", "value");
+
+        assertThat(ingestDocument.getFieldValue("fizz.new_field", String.class), equalTo("value"));
+        assertThat(ingestDocument.getFieldValue("fizz.list", List.class).size(), equalTo(2));
+        assertThat(ingestDocument.getFieldValue("top_field", String.class), equalTo("value"));
+        assertThat(ingestDocument.getFieldValue("_ingest.ingest_field", String.class), equalTo("value"));
+        assertThat(copy.hasField("fizz.new_field"), equalTo(false));
+        assertThat(copy.getFieldValue("fizz.list", List.class).size(), equalTo(1));
+        assertThat(copy.hasField("top_field"), equalTo(false));
+        assertThat(copy.hasField("_ingest.ingest_field"), equalTo(false));
+    }
+
+    public void testAddedMapsCanBeModifiedUntilCopied() {
+        IngestDocument copy = new IngestDocument(ingestDocument);
+        Map<String, Object> added = new HashMap<>();
+        ingestDocument.setFieldValue("added", added);
+        ingestDocument.setFieldValue("added.field", "value");
+        added.put("other_field", "value");
+        assertThat(added.get("field"), equalTo("value"));
+        assertThat(ingestDocument.getFieldValue("added.other_field", String.class), equalTo("value"));
+        assertThat(copy.hasField("added"), equalTo(false));
+
+        IngestDocument secondCopy = new IngestDocument(ingestDocument);
+        ingestDocument.setFieldValue("added.field", "changed");
+        assertThat(ingestDocument.getFieldValue("added.field", String.class), equalTo("changed"));
+        assertThat(secondCopy.getFieldValue("added.field", String.class), equalTo("value"));
+    }
+
+    public void testConstantTemplatesAreExecutedWithoutModel() {
+        boolean constant = randomBoolean();
+        TemplateService.Template template = new TemplateService.Template() {
+            @Override
+            public String execute(Map<String, Object> model) {
+                assertThat(model.isEmpty(), equalTo(constant));
+                return "fizz.buzz";
+            }
+
+            @Override
+            public String getKey() {
+                return "fizz.buzz";
+            }
+
+            @Override
+            public boolean isConstant() {
+                return constant;
+            }
+        };
+        assertThat(ingestDocument.renderTemplate(template), equalTo("fizz.buzz"));
+        assertThat(ingestDocument.getFieldValue(template, String.class), equalTo("hello world"));
+        assertTrue(ingestDocument.hasField(template));
+        ingestDocument.setFieldValue(template, ValueSource.wrap(1, TestTemplateService.instance()));
+        assertThat(ingestDocument.getFieldValue("fizz.buzz", Integer.class), equalTo(1));
+        ingestDocument.appendFieldValue(template, ValueSource.wrap(Collections.singletonList(2), TestTemplateService.instance()));
+        assertThat(ingestDocument.getFieldValue("fizz.buzz", List.class), equalTo(Arrays.asList(1, 2)));
+        ingestDocument.removeField(template);
+        assertFalse(ingestDocument.hasField("fizz.buzz"));
+    }
+
+    public void testSamePathInDifferentDocuments() {
+        String path = randomFrom("_ingest.timestamp", "_source._ingest.timestamp");
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> source = new HashMap<>();
+            source.put("_ingest", Collections.singletonMap("timestamp", i));
+            IngestDocument document = new IngestDocument("index", "type", "id", null, null, null, null, source);
+            if (path.startsWith("_source")) {
+                assertThat(document.getFieldValue(path, Integer.class), equalTo(i));
+            } else {
+                assertThat(document.getFieldValue(path, Object.class), instanceOf(Date.class));
+            }
+        }
+    }
+
     public void testSetInvalidSourceField() throws Exception {
         Map<String, Object> document = new HashMap<>();
         Object randomObject = randomFrom(new ArrayList<>(), new HashMap<>(), 12, 12.34);
@@ -19,12 +19,17 @@
 
 package org.elasticsearch.ingest;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class IngestStatsTests extends ESTestCase {
@@ -32,7 +37,14 @@ public class IngestStatsTests extends ESTestCase {
     public void testSerialization() throws IOException {
         IngestStats.Stats total = new IngestStats.Stats(5, 10, 20, 30);
         IngestStats.Stats foo = new IngestStats.Stats(50, 100, 200, 300);
-        IngestStats ingestStats = new IngestStats(total, Collections.singletonMap("foo", foo));
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("pattern_1_matches", 40L);
+        counters.put("pattern_0_matches", 9L);
+        List<IngestStats.ProcessorStats> fooProcessors = Arrays.asList(
+            new IngestStats.ProcessorStats("set:tag", "set", new IngestStats.Stats(50, 60, 0, 1)),
+            new IngestStats.ProcessorStats("grok", "grok", new IngestStats.Stats(49, 40, 1, 2), counters));
+        IngestStats ingestStats = new IngestStats(total, Collections.singletonMap("foo", foo),
+            Collections.singletonMap("foo", fooProcessors));
         IngestStats serialize = serialize(ingestStats);
         assertNotSame(serialize, ingestStats);
         assertNotSame(serialize.getTotalStats(), total);
@@ -57,6 +69,36 @@ public class IngestStatsTests extends ESTestCase {
         assertEquals(leftStats.getIngestFailedCount(), rightStats.getIngestFailedCount());
         assertEquals(leftStats.getIngestTimeInMillis(), rightStats.getIngestTimeInMillis());
         assertEquals(leftStats.getIngestCurrent(), rightStats.getIngestCurrent());
+
+        List<IngestStats.ProcessorStats> rightProcessors = serialize.getProcessorStatsPerPipeline().get("foo");
+        assertEquals(fooProcessors.size(), rightProcessors.size());
+        for (int i = 0; i < fooProcessors.size(); i++) {
+            assertEquals(fooProcessors.get(i).getName(), rightProcessors.get(i).getName());
+            assertEquals(fooProcessors.get(i).getType(), rightProcessors.get(i).getType());
+            assertEquals(fooProcessors.get(i).getStats().getIngestCount(), rightProcessors.get(i).getStats().getIngestCount());
+            assertEquals(fooProcessors.get(i).getStats().getIngestTimeInMillis(),
+                rightProcessors.get(i).getStats().getIngestTimeInMillis());
+            assertEquals(fooProcessors.get(i).getStats().getIngestFailedCount(),
+                rightProcessors.get(i).getStats().getIngestFailedCount());
+            assertEquals(fooProcessors.get(i).getCounters(), rightProcessors.get(i).getCounters());
+        }
+        assertEquals(Arrays.asList("pattern_1_matches", "pattern_0_matches"),
+            new ArrayList<>(rightProcessors.get(1).getCounters().keySet()));
+    }
+
+    public void testSerializationToOlderVersion() throws IOException {
+        IngestStats.Stats foo = new IngestStats.Stats(50, 100, 200, 300);
+        IngestStats ingestStats = new IngestStats(new IngestStats.Stats(5, 10, 20, 30), Collections.singletonMap("foo", foo),
+            Collections.singletonMap("foo", Collections.singletonList(
+                new IngestStats.ProcessorStats("set:tag", "set", new IngestStats.Stats(50, 60, 0, 1)))));
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(Version.V_5_3_1);
+        ingestStats.writeTo(out);
+        StreamInput in = out.bytes().streamInput();
+        in.setVersion(Version.V_5_3_1);
+        IngestStats serialize = new IngestStats(in);
+        assertEquals(foo.getIngestCount(), serialize.getStatsPerPipeline().get("foo").getIngestCount());
+        assertTrue(serialize.getProcessorStatsPerPipeline().isEmpty());
     }
 
     private IngestStats serialize(IngestStats stats) throws IOException {
@@ -28,6 +28,7 @@ import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -38,15 +39,23 @@ import org.junit.Before;
 import org.mockito.ArgumentMatcher;
 import org.mockito.invocation.InvocationOnMock;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.Matchers.any;
@@ -74,7 +83,7 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         ThreadPool threadPool = mock(ThreadPool.class);
         final ExecutorService executorService = EsExecutors.newDirectExecutorService();
         when(threadPool.executor(anyString())).thenReturn(executorService);
-        executionService = new PipelineExecutionService(store, threadPool);
+        executionService = new PipelineExecutionService(Settings.EMPTY, store, threadPool);
     }
 
     public void testExecuteIndexPipelineDoesNotExist() {
@@ -377,6 +386,74 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         verify(completionHandler, times(1)).accept(null);
     }
 
+    public void testConcurrentBulkRequestExecution() throws Exception {
+        ThreadPool threadPool = new ThreadPool(Settings.builder()
+            .put("node.name", getTestName())
+            .put("thread_pool.ingest.size", 4)
+            .build());
+        try {
+            PipelineExecutionService executionService = new PipelineExecutionService(Settings.EMPTY, store, threadPool);
+            Processor processor = new Processor() {
+                @Override
+                public void execute(IngestDocument ingestDocument) throws Exception {
+                    if (ingestDocument.getFieldValue("fail", Boolean.class)) {
+                        throw new IllegalArgumentException(ingestDocument.getFieldValue("_id", String.class));
+                    }
+                    ingestDocument.setFieldValue("processed_by", Thread.currentThread().getName());
+                }
+
+                @Override
+                public String getType() {
+                    return "test";
+                }
+
+                @Override
+                public String getTag() {
+                    return null;
+                }
+            };
+            when(store.get("_id")).thenReturn(new Pipeline("_id", null, version, new CompoundProcessor(processor)));
+
+            BulkRequest bulkRequest = new BulkRequest();
+            int numRequests = scaledRandomIntBetween(PipelineExecutionService.MIN_BULK_CHUNK_SIZE * 4, 1024);
+            List<String> expectedFailures = new ArrayList<>();
+            for (int i = 0; i < numRequests; i++) {
+                boolean fail = rarely();
+                if (fail) {
+                    expectedFailures.add(Integer.toString(i));
+                }
+                bulkRequest.add(new IndexRequest("_index", "_type", Integer.toString(i)).setPipeline("_id")
+                    .source(Requests.INDEX_CONTENT_TYPE, "fail", fail));
+            }
+
+            List<String> failures = new ArrayList<>();
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicReference<Exception> completionException = new AtomicReference<>();
+            executionService.executeBulkRequest(bulkRequest.requests(), (request, e) -> failures.add(request.id()), e -> {
+                completionException.set(e);
+                latch.countDown();
+            });
+            latch.await();
+
+            assertNull(completionException.get());
+            // failures are reported in the order of the bulk items
+            assertThat(failures, equalTo(expectedFailures));
+            Set<String> threads = new HashSet<>();
+            for (DocWriteRequest request : bulkRequest.requests()) {
+                IndexRequest indexRequest = (IndexRequest) request;
+                if (expectedFailures.contains(indexRequest.id()) == false) {
+                    assertNull(indexRequest.getPipeline());
+                    String thread = (String) indexRequest.sourceAsMap().get("processed_by");
+                    assertThat(thread, containsString("[" + ThreadPool.Names.INGEST + "]"));
+                    threads.add(thread);
+                }
+            }
+            assertThat(threads.size(), greaterThan(1));
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
     public void testStats() throws Exception {
         IngestStats ingestStats = executionService.stats();
         assertThat(ingestStats.getStatsPerPipeline().size(), equalTo(0));
@@ -398,7 +475,7 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         @SuppressWarnings("unchecked")
         Consumer<Boolean> completionHandler = mock(Consumer.class);
 
-        IndexRequest indexRequest = new IndexRequest("_index");
+        IndexRequest indexRequest = new IndexRequest("_index", "_type", "_id").source("field", "value");
         indexRequest.setPipeline("_id1");
         executionService.executeIndexRequest(indexRequest, failureHandler, completionHandler);
         ingestStats = executionService.stats();
@@ -406,6 +483,9 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         assertThat(ingestStats.getStatsPerPipeline().get("_id1").getIngestCount(), equalTo(1L));
         assertThat(ingestStats.getStatsPerPipeline().get("_id2").getIngestCount(), equalTo(0L));
         assertThat(ingestStats.getTotalStats().getIngestCount(), equalTo(1L));
+        assertThat(ingestStats.getProcessorStatsPerPipeline().get("_id1").size(), equalTo(1));
+        assertThat(ingestStats.getProcessorStatsPerPipeline().get("_id1").get(0).getStats().getIngestCount(), equalTo(1L));
+        assertThat(ingestStats.getProcessorStatsPerPipeline().get("_id2").get(0).getStats().getIngestCount(), equalTo(0L));
 
         indexRequest.setPipeline("_id2");
         executionService.executeIndexRequest(indexRequest, failureHandler, completionHandler);
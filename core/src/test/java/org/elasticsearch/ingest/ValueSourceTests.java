@@ -22,6 +22,7 @@ package org.elasticsearch.ingest;
 import org.elasticsearch.test.ESTestCase;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -69,4 +70,35 @@ public class ValueSourceTests extends ESTestCase {
         assertThat(myPreciousList.size(), equalTo(1));
         assertThat(myPreciousList.get(0), equalTo("value"));
     }
+
+    public void testIsConstant() {
+        TemplateService templateService = template -> new TemplateService.Template() {
+            @Override
+            public String execute(Map<String, Object> model) {
+                return template;
+            }
+
+            @Override
+            public String getKey() {
+                return template;
+            }
+
+            @Override
+            public boolean isConstant() {
+                return template.contains("{{") == false;
+            }
+        };
+        assertTrue(ValueSource.wrap(null, templateService).isConstant());
+        assertTrue(ValueSource.wrap(1, templateService).isConstant());
+        assertTrue(ValueSource.wrap(new byte[] {1}, templateService).isConstant());
+        assertTrue(ValueSource.wrap("value", templateService).isConstant());
+        assertFalse(ValueSource.wrap("{{field}}", templateService).isConstant());
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("key", Arrays.asList("value", 1));
+        assertTrue(ValueSource.wrap(map, templateService).isConstant());
+        map.put("{{field}}", "value");
+        assertFalse(ValueSource.wrap(map, templateService).isConstant());
+        assertFalse(ValueSource.wrap(Arrays.asList("value", Collections.singletonMap("key", "{{field}}")), templateService).isConstant());
+    }
 }
@@ -34,6 +34,7 @@ import java.nio.file.attribute.FileStoreAttributeView;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
@@ -243,6 +244,35 @@ public class FsProbeTests extends ESTestCase {
         assertThat(second.totalWriteKilobytes, equalTo(1236L));
     }
 
+    public void testIoTimeInMillis() {
+        final FsProbe probe = new FsProbe(Settings.EMPTY, null) {
+            @Override
+            List<String> readProcDiskStats() throws IOException {
+                return Arrays.asList(
+                    " 259       0 nvme0n1 336609 0 7923613 82813 10264051 0 182983933 52451441 0 2970886 52536260",
+                    " 253       0 dm-0 287716 0 7184666 33457 8398869 0 118857776 18730966 0 1918440 18767169",
+                    " 253       1 dm-1 112 0 4624 13 0 0 0 0 0 5 13",
+                    " 253       2 dm-2 47802 0 710658 49312 1371977 0 64126096 33730596 0 1058193 33781827");
+            }
+        };
+
+        final Set<Tuple<Integer, Integer>> devicesNumbers = new HashSet<>();
+        devicesNumbers.add(Tuple.tuple(253, 0));
+        devicesNumbers.add(Tuple.tuple(253, 2));
+        final Map<String, Long> ioTimes = probe.ioTimeInMillis(devicesNumbers);
+        assertThat(ioTimes.size(), equalTo(2));
+        assertThat(ioTimes.get("dm-0"), equalTo(1918440L));
+        assertThat(ioTimes.get("dm-2"), equalTo(1058193L));
+
+        final FsProbe failingProbe = new FsProbe(Settings.EMPTY, null) {
+            @Override
+            List<String> readProcDiskStats() throws IOException {
+                throw new IOException("simulated");
+            }
+        };
+        assertTrue(failingProbe.ioTimeInMillis(devicesNumbers).isEmpty());
+    }
+
     public void testAdjustForHugeFilesystems() throws Exception {
         NodePath np = new FakeNodePath(createTempDir());
         assertThat(FsProbe.getFSInfo(np).total, greaterThanOrEqualTo(0L));
@@ -19,8 +19,12 @@
 
 package org.elasticsearch.repositories.blobstore;
 
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.admin.cluster.repositories.put.PutRepositoryResponse;
 import org.elasticsearch.action.admin.cluster.snapshots.create.CreateSnapshotResponse;
+import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotResponse;
+import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotStats;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.settings.Settings;
@@ -33,6 +37,8 @@ import org.elasticsearch.test.ESIntegTestCase;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,7 +47,12 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.elasticsearch.repositories.RepositoryDataTests.generateRandomRepoData;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 /**
  * Tests for the {@link BlobStoreRepository} and its subclasses.
@@ -101,6 +112,149 @@ public class BlobStoreRepositoryTests extends ESSingleNodeTestCase {
         assertThat(snapshotIds, equalTo(originalSnapshots));
     }
 
+    public void testConcurrentFileTransfers() throws Exception {
+        final Client client = client();
+        final Path location = ESIntegTestCase.randomRepoPath(node().settings());
+        final String repositoryName = "test-repo";
+        PutRepositoryResponse putRepositoryResponse =
+            client.admin().cluster().preparePutRepository(repositoryName)
+                                    .setType("fs")
+                                    .setSettings(Settings.builder().put(node().settings()).put("location", location)
+                                                         .put("max_concurrent_file_transfers", randomIntBetween(1, 8)))
+                                    .get();
+        assertThat(putRepositoryResponse.isAcknowledged(), equalTo(true));
+
+        logger.info("--> creating an index with several segments");
+        final String indexName = "test-idx";
+        createIndex(indexName, Settings.builder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0).build());
+        ensureGreen();
+        int numDocs = 0;
+        final int numSegments = randomIntBetween(2, 5);
+        for (int i = 0; i < numSegments; i++) {
+            final int segmentDocs = randomIntBetween(1, 10);
+            for (int j = 0; j < segmentDocs; j++) {
+                client().prepareIndex(indexName, "type1", Integer.toString(numDocs++)).setSource("text", "sometext").get();
+            }
+            client().admin().indices().prepareFlush(indexName).get();
+        }
+
+        CreateSnapshotResponse createSnapshotResponse = client.admin()
+                                                              .cluster()
+                                                              .prepareCreateSnapshot(repositoryName, "test-snap")
+                                                              .setWaitForCompletion(true)
+                                                              .setIndices(indexName)
+                                                              .get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(1));
+        final SnapshotStats stats = client.admin().cluster().prepareSnapshotStatus(repositoryName).setSnapshots("test-snap").get()
+            .getSnapshots().get(0).getStats();
+        assertThat(stats.getProcessedFiles(), equalTo(stats.getNumberOfFiles()));
+        assertThat(stats.getProcessedSize(), equalTo(stats.getTotalSize()));
+
+        logger.info("--> restore the snapshot");
+        client.admin().indices().prepareDelete(indexName).get();
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot(repositoryName, "test-snap")
+            .setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+        assertHitCount(client.prepareSearch(indexName).setSize(0).get(), numDocs);
+    }
+
+    public void testDeduplication() throws Exception {
+        final Client client = client();
+        final Path location = ESIntegTestCase.randomRepoPath(node().settings());
+        final String repositoryName = "test-repo";
+        PutRepositoryResponse putRepositoryResponse =
+            client.admin().cluster().preparePutRepository(repositoryName)
+                                    .setType("fs")
+                                    .setSettings(Settings.builder().put(node().settings()).put("location", location)
+                                                         .put("deduplicate", true)
+                                                         .put("deduplication_chunk_size", "1kb")
+                                                         .put("max_concurrent_file_transfers", randomIntBetween(1, 8)))
+                                    .get();
+        assertThat(putRepositoryResponse.isAcknowledged(), equalTo(true));
+
+        final String indexName = "test-idx";
+        final int numDocs = randomIntBetween(50, 100);
+        final String[] sources = new String[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            sources[i] = randomRealisticUnicodeOfLength(randomIntBetween(500, 1000));
+        }
+
+        logger.info("--> snapshot an index");
+        indexDocs(indexName, sources);
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot(repositoryName, "test-snap-1")
+            .setWaitForCompletion(true).setIndices(indexName).get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(1));
+        final BlobStoreRepository repository =
+            (BlobStoreRepository) getInstanceFromNode(RepositoriesService.class).repository(repositoryName);
+        final IndexId indexId = repository.getRepositoryData().resolveIndexId(indexName);
+        final Path shardPath = location.resolve("indices").resolve(indexId.getId()).resolve("0");
+        final List<String> chunks = listChunks(shardPath);
+        assertThat(chunks.isEmpty(), equalTo(false));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(shardPath, "__*")) {
+            assertThat("files must be stored in chunks only", stream.iterator().hasNext(), equalTo(false));
+        }
+
+        logger.info("--> snapshot an index with the same documents, whose files differ but share most of their content");
+        client.admin().indices().prepareDelete(indexName).get();
+        indexDocs(indexName, sources);
+        createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot(repositoryName, "test-snap-2")
+            .setWaitForCompletion(true).setIndices(indexName).get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(1));
+        final SnapshotStats stats = client.admin().cluster().prepareSnapshotStatus(repositoryName).setSnapshots("test-snap-2").get()
+            .getSnapshots().get(0).getStats();
+        assertThat(stats.getDeduplicatedSize(), greaterThan(0L));
+        assertThat(stats.getDeduplicatedSize(), lessThanOrEqualTo(stats.getProcessedSize()));
+        assertThat(stats.getDeduplicationRatio(), greaterThan(0.0));
+
+        logger.info("--> delete the first snapshot, the chunks that the second snapshot shares with it have to remain");
+        client.admin().cluster().prepareDeleteSnapshot(repositoryName, "test-snap-1").get();
+        client.admin().indices().prepareDelete(indexName).get();
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot(repositoryName, "test-snap-2")
+            .setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+        assertHitCount(client.prepareSearch(indexName).setSize(0).get(), numDocs);
+
+        logger.info("--> delete the second snapshot, which deletes all chunks");
+        client.admin().cluster().prepareDeleteSnapshot(repositoryName, "test-snap-2").get();
+        assertThat(listChunks(shardPath), empty());
+    }
+
+    private void indexDocs(String indexName, String[] sources) {
+        createIndex(indexName, Settings.builder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0).build());
+        ensureGreen();
+        final BulkRequestBuilder bulkRequest = client().prepareBulk();
+        for (int i = 0; i < sources.length; i++) {
+            bulkRequest.add(client().prepareIndex(indexName, "type1", Integer.toString(i)).setSource("text", sources[i]));
+        }
+        assertThat(bulkRequest.get().hasFailures(), equalTo(false));
+        client().admin().indices().prepareFlush(indexName).get();
+    }
+
+    private static List<String> listChunks(Path shardPath) throws IOException {
+        final List<String> chunks = new ArrayList<>();
+        if (Files.exists(shardPath)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(shardPath, "chunk-*")) {
+                for (Path chunk : stream) {
+                    chunks.add(chunk.getFileName().toString());
+                }
+            }
+        }
+        return chunks;
+    }
+
+    public void testInvalidMaxConcurrentFileTransfers() {
+        final Path location = ESIntegTestCase.randomRepoPath(node().settings());
+        RepositoryException e = expectThrows(RepositoryException.class, () ->
+            client().admin().cluster().preparePutRepository("test-repo")
+                                      .setType("fs")
+                                      .setSettings(Settings.builder().put(node().settings()).put("location", location)
+                                                           .put("max_concurrent_file_transfers", 0))
+                                      .get());
+        assertThat(ExceptionsHelper.detailedMessage(e), containsString("[max_concurrent_file_transfers] must be at least 1 but was [0]"));
+    }
+
     public void testReadAndWriteSnapshotsThroughIndexFile() throws Exception {
         final BlobStoreRepository repository = setupRepo();
 
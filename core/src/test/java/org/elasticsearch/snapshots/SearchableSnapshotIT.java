@@ -0,0 +1,227 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.snapshots;
+
+import org.elasticsearch.action.admin.cluster.snapshots.create.CreateSnapshotResponse;
+import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotResponse;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.IndexModule;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.StoreStats;
+import org.elasticsearch.index.store.snapshot.SearchableSnapshotIndexStore;
+import org.elasticsearch.index.store.snapshot.SnapshotBlockCache;
+import org.elasticsearch.indices.IndicesService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class SearchableSnapshotIT extends AbstractSnapshotIntegTestCase {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder().put(super.nodeSettings(nodeOrdinal))
+            .put(SnapshotBlockCache.BLOCK_SIZE_SETTING.getKey(), new ByteSizeValue(randomIntBetween(4, 32), ByteSizeUnit.KB))
+            .put(SnapshotBlockCache.SIZE_SETTING.getKey(), new ByteSizeValue(randomIntBetween(64, 1024), ByteSizeUnit.KB))
+            .build();
+    }
+
+    private void createRepository(String name) {
+        final Settings.Builder settings = Settings.builder().put("location", randomRepoPath()).put("compress", false);
+        if (randomBoolean()) {
+            settings.put("deduplicate", true);
+            settings.put("deduplication_chunk_size", randomIntBetween(1, 8), ByteSizeUnit.KB);
+        } else {
+            settings.put("chunk_size", randomIntBetween(100, 10000), ByteSizeUnit.BYTES);
+        }
+        assertAcked(client().admin().cluster().preparePutRepository(name).setType("fs").setSettings(settings));
+    }
+
+    private int indexDocs(String index) throws Exception {
+        final int numDocs = scaledRandomIntBetween(100, 1000);
+        final List<IndexRequestBuilder> builders = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            builders.add(client().prepareIndex(index, "doc", Integer.toString(i)).setSource("field", "value" + (i % 10), "num", i));
+        }
+        indexRandom(true, builders);
+        if (randomBoolean()) {
+            flush(index);
+        }
+        return numDocs;
+    }
+
+    public void testMountSnapshot() throws Exception {
+        createRepository("test-repo");
+        assertAcked(prepareCreate("test-idx").setSettings(Settings.builder()
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, between(1, 3))
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)));
+        final int numDocs = indexDocs("test-idx");
+
+        logger.info("--> snapshot");
+        CreateSnapshotResponse createSnapshotResponse = client().admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+            .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(),
+            equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+
+        logger.info("--> mount the index next to the original one");
+        RestoreSnapshotResponse mountResponse = client().admin().cluster().prepareMountSnapshot("test-repo", "test-snap")
+            .setIndex("test-idx").setRenamedIndex("mounted-idx").setWaitForCompletion(true)
+            .setIndexSettings(Settings.builder().put(Store.INDEX_STORE_STATS_REFRESH_INTERVAL_SETTING.getKey(), "0s")).get();
+        assertThat(mountResponse.getRestoreInfo().successfulShards(), equalTo(mountResponse.getRestoreInfo().totalShards()));
+        ensureGreen("mounted-idx");
+
+        Settings mountedSettings = client().admin().indices().prepareGetSettings("mounted-idx").get().getIndexToSettings()
+            .get("mounted-idx");
+        assertThat(mountedSettings.get(IndexModule.INDEX_STORE_TYPE_SETTING.getKey()), equalTo(SearchableSnapshotIndexStore.TYPE));
+        assertThat(mountedSettings.get(SearchableSnapshotIndexStore.SNAPSHOT_NAME_SETTING.getKey()), equalTo("test-snap"));
+
+        logger.info("--> delete the original index and search the mounted one");
+        assertAcked(client().admin().indices().prepareDelete("test-idx"));
+        assertMountedIndex("mounted-idx", numDocs);
+
+        StoreStats storeStats = storeStats("mounted-idx");
+        assertThat(storeStats.getSnapshotCacheMisses(), greaterThan(0L));
+        assertThat(storeStats.getSnapshotBytesFetched().getBytes(), greaterThan(0L));
+        assertMountedIndex("mounted-idx", numDocs);
+        assertThat(storeStats("mounted-idx").getSnapshotCacheHits(), greaterThan(storeStats.getSnapshotCacheHits()));
+
+        logger.info("--> writes to the mounted index are rejected");
+        expectThrows(ClusterBlockException.class,
+            () -> client().prepareIndex("mounted-idx", "doc", "new").setSource("field", "value").get());
+
+        logger.info("--> close and reopen the mounted index");
+        assertAcked(client().admin().indices().prepareClose("mounted-idx"));
+        assertAcked(client().admin().indices().prepareOpen("mounted-idx"));
+        ensureGreen("mounted-idx");
+        assertMountedIndex("mounted-idx", numDocs);
+    }
+
+    public void testMountWithReplicas() throws Exception {
+        internalCluster().ensureAtLeastNumDataNodes(2);
+        createRepository("test-repo");
+        assertAcked(prepareCreate("test-idx").setSettings(Settings.builder()
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, between(1, 3))
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)));
+        final int numDocs = indexDocs("test-idx");
+        CreateSnapshotResponse createSnapshotResponse = client().admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+            .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(),
+            equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+        assertAcked(client().admin().indices().prepareDelete("test-idx"));
+
+        logger.info("--> mount the index with a replica");
+        RestoreSnapshotResponse mountResponse = client().admin().cluster().prepareMountSnapshot("test-repo", "test-snap")
+            .setIndex("test-idx").setIndexSettings(Settings.builder().put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1))
+            .setWaitForCompletion(true).get();
+        assertThat(mountResponse.getRestoreInfo().successfulShards(), equalTo(mountResponse.getRestoreInfo().totalShards()));
+        ensureGreen("test-idx");
+        for (int i = 0; i < 5; i++) {
+            assertMountedIndex("test-idx", numDocs);
+        }
+    }
+
+    public void testMountRecreatedSnapshot() throws Exception {
+        createRepository("test-repo");
+        final Settings indexSettings = Settings.builder()
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+            .build();
+        assertAcked(prepareCreate("test-idx").setSettings(indexSettings));
+        indexDocs("test-idx");
+        // keeps the index in the repository, so that the snapshots below put their files into the same container
+        CreateSnapshotResponse createSnapshotResponse = client().admin().cluster().prepareCreateSnapshot("test-repo", "keep-snap")
+            .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(),
+            equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+        for (int round = 0; round < 2; round++) {
+            assertAcked(client().admin().indices().prepareDelete("test-idx"));
+            assertAcked(prepareCreate("test-idx").setSettings(indexSettings));
+            final int numDocs = indexDocs("test-idx");
+            createSnapshotResponse = client().admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+                .setWaitForCompletion(true).setIndices("test-idx").get();
+            assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(),
+                equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+
+            logger.info("--> mount snapshot [{}] with [{}] docs", round, numDocs);
+            RestoreSnapshotResponse mountResponse = client().admin().cluster().prepareMountSnapshot("test-repo", "test-snap")
+                .setIndex("test-idx").setRenamedIndex("mounted-idx").setWaitForCompletion(true).get();
+            assertThat(mountResponse.getRestoreInfo().successfulShards(), equalTo(mountResponse.getRestoreInfo().totalShards()));
+            ensureGreen("mounted-idx");
+            assertMountedIndex("mounted-idx", numDocs);
+
+            // the files of the next snapshot reuse the names of the blobs of this one
+            assertAcked(client().admin().indices().prepareDelete("mounted-idx"));
+            assertAcked(client().admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap").get());
+        }
+    }
+
+    public void testMountMissingIndex() throws Exception {
+        createRepository("test-repo");
+        createIndex("test-idx");
+        indexDocs("test-idx");
+        CreateSnapshotResponse createSnapshotResponse = client().admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+            .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(),
+            equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+
+        expectThrows(SnapshotRestoreException.class, () -> client().admin().cluster().prepareMountSnapshot("test-repo", "test-snap")
+            .setIndex("missing-idx").setWaitForCompletion(true).get());
+        expectThrows(SnapshotMissingException.class, () -> client().admin().cluster().prepareMountSnapshot("test-repo", "missing-snap")
+            .setIndex("test-idx").setWaitForCompletion(true).get());
+    }
+
+    private void assertMountedIndex(String index, int numDocs) {
+        assertHitCount(client().prepareSearch(index).setSize(0).setRequestCache(false).get(), numDocs);
+        assertHitCount(client().prepareSearch(index).setSize(0).setRequestCache(false)
+            .setQuery(QueryBuilders.termQuery("field", "value3")).get(), numDocs / 10 + (numDocs % 10 > 3 ? 1 : 0));
+        assertHitCount(client().prepareSearch(index).setSize(0).setRequestCache(false)
+            .setQuery(QueryBuilders.rangeQuery("num").gte(numDocs / 2)).get(), numDocs - numDocs / 2);
+    }
+
+    /**
+     * Sums the store stats of the shards of the given index on the nodes that hold them, as the snapshot cache counters are
+     * only sent to nodes that know about them.
+     */
+    private StoreStats storeStats(String index) {
+        final StoreStats storeStats = new StoreStats();
+        for (IndicesService indicesService : internalCluster().getDataNodeInstances(IndicesService.class)) {
+            for (IndexService indexService : indicesService) {
+                if (indexService.index().getName().equals(index)) {
+                    for (IndexShard indexShard : indexService) {
+                        storeStats.add(indexShard.storeStats());
+                    }
+                }
+            }
+        }
+        return storeStats;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.update;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.engine.DocumentMissingException;
+import org.elasticsearch.index.engine.DocumentSourceMissingException;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class InPlaceUpdateTests extends ESSingleNodeTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> getPlugins() {
+        return Collections.singleton(UpdateIT.FieldIncrementScriptPlugin.class);
+    }
+
+    private void createCountersIndex() throws Exception {
+        createIndex("test", Settings.EMPTY, "type1", jsonBuilder().startObject()
+            .startObject("type1")
+                .startObject("_source").array("excludes", "counter").endObject()
+                .startObject("properties")
+                    .startObject("counter").field("type", "long").field("index", false).field("in_place_updates", true).endObject()
+                .endObject()
+            .endObject().endObject());
+    }
+
+    private static Script increment() {
+        return new Script(ScriptType.INLINE, "field_inc", "counter", Collections.emptyMap());
+    }
+
+    public void testInPlaceUpdate() throws Exception {
+        createCountersIndex();
+
+        expectThrows(DocumentMissingException.class, () -> client().prepareUpdate("test", "type1", "1")
+            .setScript(increment()).setInPlace(true).get());
+
+        client().prepareIndex("test", "type1", "1").setSource("title", "foo", "counter", 1).get();
+        for (int i = 0; i < 3; i++) {
+            UpdateResponse updateResponse = client().prepareUpdate("test", "type1", "1").setScript(increment()).setInPlace(true).get();
+            assertEquals(DocWriteResponse.Result.UPDATED, updateResponse.getResult());
+            assertThat(updateResponse.getVersion(), equalTo(i + 2L));
+        }
+        UpdateResponse updateResponse = client().prepareUpdate("test", "type1", "1")
+            .setDoc(jsonBuilder().startObject().field("counter", 10).endObject()).setInPlace(true).get();
+        assertThat(updateResponse.getVersion(), equalTo(5L));
+
+        client().admin().indices().prepareRefresh("test").get();
+        SearchResponse searchResponse = client().prepareSearch("test").setQuery(QueryBuilders.matchQuery("title", "foo"))
+            .addDocValueField("counter").get();
+        assertHitCount(searchResponse, 1);
+        assertThat(searchResponse.getHits().getAt(0).field("counter").getValue(), equalTo(10L));
+
+        // the rest of the document is untouched, and the _source shows the current value of the counter
+        GetResponse getResponse = client().prepareGet("test", "type1", "1").get();
+        assertThat(getResponse.getVersion(), equalTo(5L));
+        assertThat(getResponse.getSourceAsMap().get("title"), equalTo("foo"));
+        assertThat(getResponse.getSourceAsMap().get("counter"), equalTo(10));
+        assertThat(searchResponse.getHits().getAt(0).getSource().get("counter"), equalTo(10));
+    }
+
+    public void testRegularUpdateKeepsInPlaceFields() throws Exception {
+        createCountersIndex();
+        client().prepareIndex("test", "type1", "1").setSource("title", "foo", "counter", 1).get();
+        client().prepareUpdate("test", "type1", "1").setScript(increment()).setInPlace(true).get();
+
+        UpdateResponse updateResponse = client().prepareUpdate("test", "type1", "1")
+            .setDoc(jsonBuilder().startObject().field("title", "bar").endObject()).get();
+        assertEquals(DocWriteResponse.Result.UPDATED, updateResponse.getResult());
+
+        client().admin().indices().prepareRefresh("test").get();
+        SearchResponse searchResponse = client().prepareSearch("test").setQuery(QueryBuilders.matchQuery("title", "bar"))
+            .addDocValueField("counter").get();
+        assertHitCount(searchResponse, 1);
+        assertThat(searchResponse.getHits().getAt(0).field("counter").getValue(), equalTo(2L));
+    }
+
+    public void testInPlaceUpdateRequiresSource() throws Exception {
+        createIndex("test", Settings.EMPTY, "type1", jsonBuilder().startObject()
+            .startObject("type1")
+                .startObject("_source").field("enabled", false).endObject()
+                .startObject("properties")
+                    .startObject("counter").field("type", "long").field("index", false).field("in_place_updates", true).endObject()
+                .endObject()
+            .endObject().endObject());
+        client().prepareIndex("test", "type1", "1").setSource("counter", 1).get();
+
+        expectThrows(DocumentSourceMissingException.class, () -> client().prepareUpdate("test", "type1", "1")
+            .setScript(increment()).setInPlace(true).get());
+    }
+
+    public void testOnlyInPlaceFieldsCanBeUpdated() throws Exception {
+        createCountersIndex();
+        client().prepareIndex("test", "type1", "1").setSource("title", "foo", "counter", 1).get();
+
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> client().prepareUpdate("test", "type1", "1")
+            .setDoc(jsonBuilder().startObject().field("title", "bar").endObject()).setInPlace(true).get());
+        assertThat(e.getMessage(), containsString("field [title] of type [type1] doesn't support in_place updates"));
+
+        ActionRequestValidationException validation = expectThrows(ActionRequestValidationException.class,
+            () -> client().prepareUpdate("test", "type1", "1").setScript(increment()).setInPlace(true).setDocAsUpsert(true).get());
+        assertThat(validation.getMessage(), containsString("can't upsert documents with in_place updates"));
+    }
+
+    public void testInPlaceFieldMustBeExcludedFromSource() throws Exception {
+        createIndex("test", Settings.EMPTY, "type1", jsonBuilder().startObject()
+            .startObject("type1")
+                .startObject("properties")
+                    .startObject("counter").field("type", "long").field("index", false).field("in_place_updates", true).endObject()
+                .endObject()
+            .endObject().endObject());
+        client().prepareIndex("test", "type1", "1").setSource("counter", 1).get();
+
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> client().prepareUpdate("test", "type1", "1")
+            .setScript(increment()).setInPlace(true).get());
+        assertThat(e.getMessage(), containsString("must be excluded from _source to be updated in place"));
+    }
+
+    public void testNestedFieldsAreRejected() throws Exception {
+        createIndex("test", Settings.EMPTY, "type1", jsonBuilder().startObject()
+            .startObject("type1")
+                .startObject("_source").array("excludes", "counter").endObject()
+                .startObject("properties")
+                    .startObject("counter").field("type", "long").field("index", false).field("in_place_updates", true).endObject()
+                    .startObject("comments").field("type", "nested").endObject()
+                .endObject()
+            .endObject().endObject());
+        client().prepareIndex("test", "type1", "1").setSource(jsonBuilder().startObject()
+            .field("counter", 1)
+            .startArray("comments").startObject().field("text", "foo").endObject().endArray()
+            .endObject()).get();
+
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> client().prepareUpdate("test", "type1", "1")
+            .setScript(increment()).setInPlace(true).get());
+        assertThat(e.getMessage(), containsString("in_place updates are not supported for type [type1] because it has nested fields"));
+    }
+}
@@ -27,10 +27,12 @@ import org.elasticsearch.action.admin.indices.alias.Alias;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateRequestBuilder;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.client.transport.NoNodeAvailableException;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -66,6 +68,7 @@ import java.util.concurrent.TimeUnit;
 
 import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertThrows;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
@@ -393,6 +396,41 @@ public class UpdateIT extends ESIntegTestCase {
         }
     }
 
+    public void testInPlaceUpdate() throws Exception {
+        internalCluster().ensureAtLeastNumDataNodes(2);
+        assertAcked(prepareCreate("test")
+            .setSettings(Settings.builder().put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1).put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1))
+            .addMapping("type1", jsonBuilder().startObject()
+                .startObject("type1")
+                    .startObject("_source").array("excludes", "counter").endObject()
+                    .startObject("properties")
+                        .startObject("counter").field("type", "long").field("index", false).field("in_place_updates", true).endObject()
+                    .endObject()
+                .endObject().endObject()));
+        ensureGreen();
+
+        client().prepareIndex("test", "type1", "1").setSource("title", "foo", "counter", 1).get();
+        // coordinate the updates on every node so that they are also sent to the primary by nodes that don't hold it
+        long version = 1;
+        for (String node : internalCluster().getNodeNames()) {
+            UpdateResponse updateResponse = internalCluster().client(node).prepareUpdate("test", "type1", "1")
+                .setScript(new Script(ScriptType.INLINE, "field_inc", "counter", Collections.emptyMap()))
+                .setInPlace(true).get();
+            assertEquals(DocWriteResponse.Result.UPDATED, updateResponse.getResult());
+            assertThat(updateResponse.getVersion(), equalTo(++version));
+        }
+
+        refresh();
+        for (String preference : new String[] {"_primary", "_replica"}) {
+            SearchResponse searchResponse = client().prepareSearch("test").setPreference(preference).setVersion(true)
+                .addDocValueField("counter").get();
+            assertHitCount(searchResponse, 1);
+            assertThat(searchResponse.getHits().getAt(0).getVersion(), equalTo(version));
+            assertThat(searchResponse.getHits().getAt(0).field("counter").getValue(), equalTo(version));
+            assertThat(searchResponse.getHits().getAt(0).sourceAsMap().get("title"), equalTo("foo"));
+        }
+    }
+
     public void testScriptedUpsert() throws Exception {
         createTestIndex();
         ensureGreen();
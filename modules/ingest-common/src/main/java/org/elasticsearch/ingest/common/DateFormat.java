@@ -19,6 +19,7 @@
 
 package org.elasticsearch.ingest.common;
 
+import org.elasticsearch.common.joda.FastDateParser;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.format.DateTimeFormat;
@@ -32,7 +33,16 @@ enum DateFormat {
     Iso8601 {
         @Override
         Function<String, DateTime> getFunction(String format, DateTimeZone timezone, Locale locale) {
-            return ISODateTimeFormat.dateTimeParser().withZone(timezone)::parseDateTime;
+            DateTimeFormatter parser = ISODateTimeFormat.dateTimeParser().withZone(timezone);
+            // dates that start with a date are parsed the same as with date_optional_time, which has a parser that avoids Joda
+            FastDateParser fastParser = FastDateParser.forFormat("date_optional_time");
+            return text -> {
+                long millis = fastParser.parseMillis(text, timezone, false);
+                if (millis != FastDateParser.UNSUPPORTED) {
+                    return new DateTime(millis, timezone);
+                }
+                return parser.parseDateTime(text);
+            };
         }
     },
     Unix {
@@ -22,7 +22,9 @@ package org.elasticsearch.ingest.common;
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
 import org.elasticsearch.ingest.IngestDocument;
+import org.elasticsearch.ingest.IngestMetric;
 import org.elasticsearch.ingest.Processor;
+import org.elasticsearch.ingest.WrappingProcessor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -41,12 +43,13 @@ import static org.elasticsearch.ingest.ConfigurationUtils.readStringProperty;
  *
  * Note that this processor is experimental.
  */
-public final class ForEachProcessor extends AbstractProcessor {
+public final class ForEachProcessor extends AbstractProcessor implements WrappingProcessor {
 
     public static final String TYPE = "foreach";
 
     private final String field;
     private final Processor processor;
+    private final IngestMetric processorMetric = new IngestMetric();
 
     ForEachProcessor(String tag, String field, Processor processor) {
         super(tag);
@@ -61,7 +64,7 @@ public final class ForEachProcessor extends AbstractProcessor {
         for (Object value : values) {
             Object previousValue = ingestDocument.getIngestMetadata().put("_value", value);
             try {
-                processor.execute(ingestDocument);
+                processorMetric.execute(processor, ingestDocument);
             } finally {
                 newValues.add(ingestDocument.getIngestMetadata().put("_value", previousValue));
             }
@@ -82,6 +85,16 @@ public final class ForEachProcessor extends AbstractProcessor {
         return processor;
     }
 
+    @Override
+    public Processor getInnerProcessor() {
+        return processor;
+    }
+
+    @Override
+    public IngestMetric getInnerProcessorMetric() {
+        return processorMetric;
+    }
+
     public static final class Factory implements Processor.Factory {
         @Override
         public ForEachProcessor create(Map<String, Processor.Factory> factories, String tag,
@@ -126,6 +126,13 @@ final class Grok {
         return grokPattern;
     }
 
+    /**
+     * @return the regular expression that the grok expression was converted to
+     */
+    String getExpression() {
+        return expression;
+    }
+
     /**
      * Checks whether a specific text matches the defined grok expression.
      *
@@ -146,7 +153,13 @@ final class Grok {
      * @return a map containing field names and their respective coerced values that matched.
      */
     public Map<String, Object> captures(String text) {
-        byte[] textAsBytes = text.getBytes(StandardCharsets.UTF_8);
+        return captures(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same as {@link #captures(String)} for text that is already encoded as UTF-8.
+     */
+    Map<String, Object> captures(byte[] textAsBytes) {
         Map<String, Object> fields = new HashMap<>();
         Matcher matcher = compiledExpression.matcher(textAsBytes);
         int result = matcher.search(0, textAsBytes.length, Option.DEFAULT);
@@ -0,0 +1,498 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects the patterns of a grok processor that can possibly match a text before any of them is run. Each pattern is reduced
+ * to the literal strings that every text it matches must contain, and a single Aho-Corasick scan of the text finds which of
+ * these literals it contains. Patterns that require a literal that isn't in the text can not match it.
+ */
+final class GrokPrefilter {
+
+    /** Literals shorter than this occur in almost every text and are not worth looking for */
+    static final int MIN_LITERAL_LENGTH = 2;
+
+    private final int numPatterns;
+    /** The ids of the literals that each pattern requires */
+    private final int[][] requiredLiterals;
+    /** The patterns that don't require any literal, they are candidates for every text */
+    private final BitSet alwaysCandidates;
+    private final int numLiterals;
+
+    // the Aho-Corasick automaton, state 0 is the root
+    private final byte[][] edgeLabels;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    /** The ids of the literals that end in each state, including the ones that are suffixes of the path to the state */
+    private final int[][] outputs;
+
+    private GrokPrefilter(int numPatterns, int[][] requiredLiterals, List<byte[]> literals) {
+        this.numPatterns = numPatterns;
+        this.requiredLiterals = requiredLiterals;
+        this.numLiterals = literals.size();
+        this.alwaysCandidates = new BitSet(numPatterns);
+        for (int i = 0; i < numPatterns; i++) {
+            if (requiredLiterals[i].length == 0) {
+                alwaysCandidates.set(i);
+            }
+        }
+
+        // build the trie
+        List<byte[]> labels = new ArrayList<>();
+        List<int[]> targets = new ArrayList<>();
+        List<int[]> stateOutputs = new ArrayList<>();
+        labels.add(new byte[0]);
+        targets.add(new int[0]);
+        stateOutputs.add(new int[0]);
+        for (int id = 0; id < literals.size(); id++) {
+            int state = 0;
+            for (byte b : literals.get(id)) {
+                int next = transition(labels.get(state), targets.get(state), b);
+                if (next == -1) {
+                    next = labels.size();
+                    labels.add(new byte[0]);
+                    targets.add(new int[0]);
+                    stateOutputs.add(new int[0]);
+                    byte[] stateLabels = Arrays.copyOf(labels.get(state), labels.get(state).length + 1);
+                    int[] stateTargets = Arrays.copyOf(targets.get(state), targets.get(state).length + 1);
+                    stateLabels[stateLabels.length - 1] = b;
+                    stateTargets[stateTargets.length - 1] = next;
+                    labels.set(state, stateLabels);
+                    targets.set(state, stateTargets);
+                }
+                state = next;
+            }
+            stateOutputs.set(state, append(stateOutputs.get(state), id));
+        }
+        this.edgeLabels = labels.toArray(new byte[labels.size()][]);
+        this.edgeTargets = targets.toArray(new int[targets.size()][]);
+        this.outputs = stateOutputs.toArray(new int[stateOutputs.size()][]);
+
+        // compute the failure links breadth first, so that the failure link of the parent is known when a state is visited
+        this.failure = new int[edgeLabels.length];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[0]) {
+            queue.add(child);
+        }
+        while (queue.isEmpty() == false) {
+            int state = queue.poll();
+            for (int i = 0; i < edgeLabels[state].length; i++) {
+                byte b = edgeLabels[state][i];
+                int child = edgeTargets[state][i];
+                int fallback = failure[state];
+                int next;
+                while ((next = transition(edgeLabels[fallback], edgeTargets[fallback], b)) == -1 && fallback != 0) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = next == -1 ? 0 : next;
+                for (int id : outputs[failure[child]]) {
+                    outputs[child] = append(outputs[child], id);
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Builds a prefilter for the given regular expressions, or returns <code>null</code> if none of them requires a literal,
+     * in which case every pattern would always be a candidate.
+     */
+    static GrokPrefilter build(List<String> expressions) {
+        Map<String, Integer> literalIds = new HashMap<>();
+        List<byte[]> literals = new ArrayList<>();
+        int[][] requiredLiterals = new int[expressions.size()][];
+        boolean anyLiterals = false;
+        for (int i = 0; i < expressions.size(); i++) {
+            List<String> patternLiterals = requiredLiterals(expressions.get(i));
+            requiredLiterals[i] = new int[patternLiterals.size()];
+            for (int j = 0; j < patternLiterals.size(); j++) {
+                String literal = patternLiterals.get(j);
+                Integer id = literalIds.get(literal);
+                if (id == null) {
+                    id = literals.size();
+                    literalIds.put(literal, id);
+                    literals.add(literal.getBytes(StandardCharsets.UTF_8));
+                }
+                requiredLiterals[i][j] = id;
+                anyLiterals = true;
+            }
+        }
+        return anyLiterals ? new GrokPrefilter(expressions.size(), requiredLiterals, literals) : null;
+    }
+
+    /**
+     * Returns the patterns that may match the UTF-8 encoded text.
+     */
+    BitSet candidates(byte[] text) {
+        boolean[] found = new boolean[numLiterals];
+        int state = 0;
+        for (byte b : text) {
+            int next;
+            while ((next = transition(edgeLabels[state], edgeTargets[state], b)) == -1 && state != 0) {
+                state = failure[state];
+            }
+            state = next == -1 ? 0 : next;
+            for (int id : outputs[state]) {
+                found[id] = true;
+            }
+        }
+        BitSet candidates = (BitSet) alwaysCandidates.clone();
+        patterns:
+        for (int i = 0; i < numPatterns; i++) {
+            for (int id : requiredLiterals[i]) {
+                if (found[id] == false) {
+                    continue patterns;
+                }
+            }
+            candidates.set(i);
+        }
+        return candidates;
+    }
+
+    private static int transition(byte[] labels, int[] targets, byte b) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] == b) {
+                return targets[i];
+            }
+        }
+        return -1;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] copy = Arrays.copyOf(array, array.length + 1);
+        copy[array.length] = value;
+        return copy;
+    }
+
+    /**
+     * Extracts literal strings that any text matching the regular expression must contain. This is conservative: parts of the
+     * expression that it doesn't understand yield no literals, and an expression that changes matching options, like case
+     * insensitivity, yields none at all.
+     */
+    static List<String> requiredLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+        if (new LiteralExtractor(regex, literals).sequence(0, regex.length()) == false) {
+            return new ArrayList<>();
+        }
+        return literals;
+    }
+
+    private static final class LiteralExtractor {
+        /** Returned instead of an index by the methods that parse a part of the expression that isn't understood */
+        private static final int UNSUPPORTED = -1;
+
+        private final String regex;
+        private final List<String> literals;
+        private final StringBuilder current = new StringBuilder();
+
+        LiteralExtractor(String regex, List<String> literals) {
+            this.regex = regex;
+            this.literals = literals;
+        }
+
+        /**
+         * Collects the literals of <code>regex[from, to)</code>, which is a sequence of atoms, or an alternation, in which case
+         * no literal is required. Returns <code>false</code> if the sequence contains a construct that isn't understood, in which
+         * case the collected literals must not be used.
+         */
+        boolean sequence(int from, int to) {
+            flush();
+            if (hasAlternation(from, to)) {
+                return true;
+            }
+            int i = from;
+            while (i < to) {
+                char c = regex.charAt(i);
+                switch (c) {
+                    case '\\': {
+                        if (i + 1 >= to) {
+                            return false;
+                        }
+                        char escaped = regex.charAt(i + 1);
+                        if (Character.isLetterOrDigit(escaped)) {
+                            // a character class, anchor, back reference or a character given by its code
+                            flush();
+                            i = skipQuantifier(skipEscape(i, to), to);
+                        } else {
+                            i = literal(String.valueOf(escaped), i + 2, to);
+                        }
+                        break;
+                    }
+                    case '[':
+                        flush();
+                        i = skipQuantifier(skipCharacterClass(i, to), to);
+                        break;
+                    case '(':
+                        i = group(i, to);
+                        break;
+                    case '.':
+                    case '^':
+                    case '$':
+                    case '*':
+                    case '+':
+                    case '?':
+                    case ')':
+                        flush();
+                        i = skipQuantifier(i + 1, to);
+                        break;
+                    default: {
+                        int end = i + Character.charCount(regex.codePointAt(i));
+                        i = literal(regex.substring(i, end), end, to);
+                        break;
+                    }
+                }
+                if (i == UNSUPPORTED) {
+                    return false;
+                }
+            }
+            flush();
+            return true;
+        }
+
+        /** Handles a literal atom that ends before <code>i</code>, and the quantifier that may follow it */
+        private int literal(String atom, int i, int to) {
+            if (i < to) {
+                char next = regex.charAt(i);
+                if (next == '?' || next == '*' || (next == '{' && isQuantifier(i, to) && minRepetitions(i) == 0)) {
+                    // the atom is optional
+                    flush();
+                    return skipQuantifier(i, to);
+                } else if (next == '+' || (next == '{' && isQuantifier(i, to))) {
+                    // the atom occurs at least once, but what follows doesn't have to directly follow it
+                    current.append(atom);
+                    flush();
+                    return skipQuantifier(i, to);
+                }
+            }
+            current.append(atom);
+            return i;
+        }
+
+        private int group(int start, int to) {
+            flush();
+            int end = closingParenthesis(start, to);
+            if (end == UNSUPPORTED) {
+                return UNSUPPORTED;
+            }
+            int contentStart;
+            boolean required = true;
+            if (regex.startsWith("(?", start)) {
+                if (start + 2 >= end) {
+                    return UNSUPPORTED;
+                }
+                char kind = regex.charAt(start + 2);
+                if (kind == ':' || kind == '>') {
+                    contentStart = start + 3;
+                } else if (kind == '<' && regex.startsWith("(?<=", start) == false && regex.startsWith("(?<!", start) == false) {
+                    contentStart = regex.indexOf('>', start) + 1;
+                    if (contentStart <= 0 || contentStart > end) {
+                        return UNSUPPORTED;
+                    }
+                } else if (kind == '=' || kind == '!' || kind == '<' || kind == '#') {
+                    // look arounds and comments don't consume any text
+                    contentStart = end;
+                    required = false;
+                } else {
+                    // options, like (?i) or (?m:...)
+                    return UNSUPPORTED;
+                }
+            } else {
+                contentStart = start + 1;
+            }
+            int next = end + 1;
+            if (next < to) {
+                char c = regex.charAt(next);
+                if (c == '?' || c == '*' || (c == '{' && isQuantifier(next, to) && minRepetitions(next) == 0)) {
+                    required = false;
+                }
+            }
+            if (required && sequence(contentStart, end) == false) {
+                return UNSUPPORTED;
+            }
+            return skipQuantifier(next, to);
+        }
+
+        private void flush() {
+            if (current.length() >= MIN_LITERAL_LENGTH) {
+                literals.add(current.toString());
+            }
+            current.setLength(0);
+        }
+
+        private boolean hasAlternation(int from, int to) {
+            int depth = 0;
+            int i = from;
+            while (i < to) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                    continue;
+                } else if (c == '[') {
+                    i = skipCharacterClass(i, to);
+                    if (i == UNSUPPORTED) {
+                        // the unterminated class is rejected when the sequence is parsed
+                        return false;
+                    }
+                    continue;
+                } else if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                } else if (c == '|' && depth == 0) {
+                    return true;
+                }
+                i++;
+            }
+            return false;
+        }
+
+        private int closingParenthesis(int start, int to) {
+            int depth = 0;
+            int i = start;
+            while (i < to) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                    continue;
+                } else if (c == '[') {
+                    i = skipCharacterClass(i, to);
+                    if (i == UNSUPPORTED) {
+                        return UNSUPPORTED;
+                    }
+                    continue;
+                } else if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                    if (depth == 0) {
+                        return i;
+                    }
+                }
+                i++;
+            }
+            return UNSUPPORTED;
+        }
+
+        /**
+         * Returns the index after the character class that starts at <code>start</code>, character classes may be nested, or
+         * {@link #UNSUPPORTED} if the class isn't closed
+         */
+        private int skipCharacterClass(int start, int to) {
+            int depth = 0;
+            int i = start;
+            while (i < to) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                    continue;
+                } else if (c == '[') {
+                    depth++;
+                    i++;
+                    // a closing bracket right at the start of a class is a literal
+                    if (i < to && regex.charAt(i) == '^') {
+                        i++;
+                    }
+                    if (i < to && regex.charAt(i) == ']') {
+                        i++;
+                    }
+                    continue;
+                } else if (c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                }
+                i++;
+            }
+            return UNSUPPORTED;
+        }
+
+        /** Returns the index after the escape sequence that starts at <code>start</code>, or {@link #UNSUPPORTED} if it isn't closed */
+        private int skipEscape(int start, int to) {
+            int i = start + 2;
+            if (i < to) {
+                char c = regex.charAt(i);
+                if (c == '{' || c == '<' || c == '\'') {
+                    // \x{...}, \p{...}, \k<...>, \g<...>, \k'...'
+                    char closing = c == '{' ? '}' : c == '<' ? '>' : '\'';
+                    int end = regex.indexOf(closing, i + 1);
+                    if (end == -1 || end >= to) {
+                        return UNSUPPORTED;
+                    }
+                    return end + 1;
+                }
+            }
+            return i;
+        }
+
+        private boolean isQuantifier(int i, int to) {
+            int end = regex.indexOf('}', i);
+            if (end == -1 || end >= to || end == i + 1) {
+                return false;
+            }
+            for (int j = i + 1; j < end; j++) {
+                char c = regex.charAt(j);
+                if ((c < '0' || c > '9') && c != ',') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int minRepetitions(int i) {
+            int j = i + 1;
+            int min = 0;
+            while (Character.isDigit(regex.charAt(j))) {
+                min = Math.min(1000, 10 * min + (regex.charAt(j) - '0'));
+                j++;
+            }
+            return min;
+        }
+
+        /** Returns the index after the quantifier at <code>i</code>, including a lazy or possessive suffix, if there is one */
+        private int skipQuantifier(int i, int to) {
+            if (i == UNSUPPORTED || i >= to) {
+                return i;
+            }
+            char c = regex.charAt(i);
+            if (c == '?' || c == '*' || c == '+') {
+                i++;
+            } else if (c == '{' && isQuantifier(i, to)) {
+                i = regex.indexOf('}', i) + 1;
+            } else {
+                return i;
+            }
+            if (i < to && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
@@ -19,37 +19,94 @@
 
 package org.elasticsearch.ingest.common;
 
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
+import org.elasticsearch.ingest.CountingProcessor;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.Processor;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.elasticsearch.ingest.ConfigurationUtils.newConfigurationException;
 
-public final class GrokProcessor extends AbstractProcessor {
+public final class GrokProcessor extends AbstractProcessor implements CountingProcessor {
 
     public static final String TYPE = "grok";
     private static final String PATTERN_MATCH_KEY = "_ingest._grok_match_index";
+    private static final String PATTERN_MATCH_PREFIX = PATTERN_MATCH_KEY + ".";
+
+    /** The number of combinations of candidate patterns that a regular expression is compiled and kept for */
+    static final int MAX_CACHED_COMBINATIONS = 32;
 
     private final String matchField;
     private final List<String> matchPatterns;
+    private final Map<String, String> patternBank;
     private final Grok grok;
     private final boolean traceMatch;
     private final boolean ignoreMissing;
 
+    /** One grok per pattern, or <code>null</code> if the patterns can't be told apart in the matches of {@link #grok} */
+    private final Grok[] patternGroks;
+    /** Selects the patterns that may match a text, <code>null</code> if no pattern requires any literal */
+    private final GrokPrefilter prefilter;
+    private final ConcurrentMap<BitSet, Grok> combinedGroks = ConcurrentCollections.newConcurrentMap();
+
+    private final CounterMetric[] patternMatches;
+    private final CounterMetric noMatch = new CounterMetric();
+    private final CounterMetric skippedByPrefilter = new CounterMetric();
+
     public GrokProcessor(String tag, Map<String, String> patternBank, List<String> matchPatterns, String matchField,
                          boolean traceMatch, boolean ignoreMissing) {
         super(tag);
         this.matchField = matchField;
         this.matchPatterns = matchPatterns;
-        this.grok = new Grok(patternBank, combinePatterns(matchPatterns, traceMatch));
+        this.patternBank = patternBank;
         this.traceMatch = traceMatch;
         this.ignoreMissing = ignoreMissing;
+        this.patternMatches = new CounterMetric[matchPatterns.size()];
+        for (int i = 0; i < patternMatches.length; i++) {
+            patternMatches[i] = new CounterMetric();
+        }
+
+        Grok[] patternGroks = new Grok[matchPatterns.size()];
+        if (matchPatterns.size() == 1) {
+            patternGroks[0] = new Grok(patternBank, matchPatterns.get(0));
+        } else {
+            // every pattern is wrapped in a named group, even without trace_match, so that the pattern that matched is known
+            try {
+                for (int i = 0; i < patternGroks.length; i++) {
+                    patternGroks[i] = new Grok(patternBank, wrapPattern(matchPatterns.get(i), i, true));
+                }
+            } catch (RuntimeException e) {
+                if (traceMatch) {
+                    throw e;
+                }
+                // e.g. numbered back references aren't allowed next to named groups, fall back to running the plain patterns
+                patternGroks = null;
+            }
+        }
+        this.patternGroks = patternGroks;
+        if (patternGroks == null) {
+            this.grok = new Grok(patternBank, combinePatterns(matchPatterns, false));
+            this.prefilter = null;
+        } else {
+            List<String> expressions = new ArrayList<>(patternGroks.length);
+            for (Grok patternGrok : patternGroks) {
+                expressions.add(patternGrok.getExpression());
+            }
+            this.grok = patternGroks.length == 1 ? patternGroks[0] : new Grok(patternBank, String.join("|", expressions));
+            this.prefilter = GrokPrefilter.build(expressions);
+        }
     }
 
     @Override
@@ -62,25 +119,92 @@ public final class GrokProcessor extends AbstractProcessor {
             throw new IllegalArgumentException("field [" + matchField + "] is null, cannot process it.");
         }
 
-        Map<String, Object> matches = grok.captures(fieldValue);
+        byte[] text = fieldValue.getBytes(StandardCharsets.UTF_8);
+        Grok candidates = selectCandidates(text);
+        Map<String, Object> matches = candidates == null ? null : candidates.captures(text);
         if (matches == null) {
+            noMatch.inc();
+            if (candidates == null) {
+                skippedByPrefilter.inc();
+            }
             throw new IllegalArgumentException("Provided Grok expressions do not match field value: [" + fieldValue + "]");
         }
 
+        int matchedPattern = removePatternMatchIndex(matches);
+        if (matchedPattern >= 0) {
+            patternMatches[matchedPattern].inc();
+        }
+
         matches.entrySet().stream()
             .forEach((e) -> ingestDocument.setFieldValue(e.getKey(), e.getValue()));
 
         if (traceMatch) {
-            if (matchPatterns.size() > 1) {
-                @SuppressWarnings("unchecked")
-                HashMap<String, String> matchMap = (HashMap<String, String>) ingestDocument.getFieldValue(PATTERN_MATCH_KEY, Object.class);
-                matchMap.keySet().stream().findFirst().ifPresent((index) -> {
-                    ingestDocument.setFieldValue(PATTERN_MATCH_KEY, index);
-                });
-            } else {
-                ingestDocument.setFieldValue(PATTERN_MATCH_KEY, "0");
+            ingestDocument.setFieldValue(PATTERN_MATCH_KEY, String.valueOf(matchedPattern));
+        }
+    }
+
+    /**
+     * Returns a grok of the patterns that may match the text, or <code>null</code> if none of them can.
+     */
+    private Grok selectCandidates(byte[] text) {
+        if (prefilter == null) {
+            return grok;
+        }
+        BitSet candidates = prefilter.candidates(text);
+        int numCandidates = candidates.cardinality();
+        if (numCandidates == 0) {
+            return null;
+        } else if (numCandidates == 1) {
+            return patternGroks[candidates.nextSetBit(0)];
+        } else if (numCandidates == patternGroks.length) {
+            return grok;
+        }
+        Grok combined = combinedGroks.get(candidates);
+        if (combined == null) {
+            if (combinedGroks.size() >= MAX_CACHED_COMBINATIONS) {
+                return grok;
+            }
+            StringBuilder expression = new StringBuilder();
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                if (expression.length() > 0) {
+                    expression.append('|');
+                }
+                expression.append(patternGroks[i].getExpression());
+            }
+            combined = new Grok(patternBank, expression.toString());
+            combinedGroks.putIfAbsent(candidates, combined);
+        }
+        return combined;
+    }
+
+    /**
+     * Removes the named groups that the patterns are wrapped in from the matches and returns the index of the pattern that
+     * matched, or <code>-1</code> if it isn't known.
+     */
+    private int removePatternMatchIndex(Map<String, Object> matches) {
+        if (matchPatterns.size() == 1) {
+            return 0;
+        }
+        int matchedPattern = -1;
+        for (Iterator<String> keys = matches.keySet().iterator(); keys.hasNext();) {
+            String key = keys.next();
+            if (key.startsWith(PATTERN_MATCH_PREFIX)) {
+                matchedPattern = Integer.parseInt(key.substring(PATTERN_MATCH_PREFIX.length()));
+                keys.remove();
             }
         }
+        return matchedPattern;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        for (int i = 0; i < patternMatches.length; i++) {
+            counters.put("pattern_" + i + "_matches", patternMatches[i].count());
+        }
+        counters.put("no_match", noMatch.count());
+        counters.put("skipped_by_prefilter", skippedByPrefilter.count());
+        return counters;
     }
 
     @Override
@@ -109,13 +233,7 @@ public final class GrokProcessor extends AbstractProcessor {
         if (patterns.size() > 1) {
             combinedPattern = "";
             for (int i = 0; i < patterns.size(); i++) {
-                String pattern = patterns.get(i);
-                String valueWrap;
-                if (traceMatch) {
-                    valueWrap = "(?<" + PATTERN_MATCH_KEY + "." + i + ">" + pattern + ")";
-                } else {
-                    valueWrap = "(?:" + patterns.get(i) + ")";
-                }
+                String valueWrap = wrapPattern(patterns.get(i), i, traceMatch);
                 if (combinedPattern.equals("")) {
                     combinedPattern = valueWrap;
                 } else {
@@ -129,6 +247,14 @@ public final class GrokProcessor extends AbstractProcessor {
         return combinedPattern;
     }
 
+    private static String wrapPattern(String pattern, int index, boolean traceMatch) {
+        if (traceMatch) {
+            return "(?<" + PATTERN_MATCH_PREFIX + index + ">" + pattern + ")";
+        } else {
+            return "(?:" + pattern + ")";
+        }
+    }
+
     public static final class Factory implements Processor.Factory {
 
         private final Map<String, String> builtinPatterns;
@@ -22,6 +22,7 @@ package org.elasticsearch.ingest.common;
 import org.elasticsearch.test.ESTestCase;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.format.ISODateTimeFormat;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -55,6 +56,18 @@ public class DateFormatTests extends ESTestCase {
                 equalTo(978336000000L));
     }
 
+    public void testParseISO8601SameAsJoda() {
+        DateTimeZone timezone = randomFrom(DateTimeZone.UTC, DateTimeZone.forOffsetHours(randomIntBetween(-12, 12)),
+            DateTimeZone.forID("Europe/Amsterdam"));
+        Function<String, DateTime> function = DateFormat.Iso8601.getFunction(null, timezone, null);
+        org.joda.time.format.DateTimeFormatter parser = ISODateTimeFormat.dateTimeParser().withZone(timezone);
+        String[] dates = new String[] {"2016", "2016-05-24", "2016-05-24T17:06", "2016-05-24T17:06:51.123", "2016-05-24T17:06:51,1Z",
+            "2016-05-24T17:06:51.123456+02:00", "2016-02-29T00:00:00-08:00", "2016-05-24T17:06:51-0800", "20160524", "2016-5-4"};
+        for (String date : dates) {
+            assertThat(date, function.apply(date), equalTo(parser.parseDateTime(date)));
+        }
+    }
+
     public void testParseISO8601Failure() {
         Function<String, DateTime> function = DateFormat.Iso8601.getFunction(null, DateTimeZone.UTC, null);
         try {
@@ -0,0 +1,167 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.ingest.common;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class GrokPrefilterTests extends ESTestCase {
+
+    public void testRequiredLiterals() {
+        assertThat(GrokPrefilter.requiredLiterals("foo"), equalTo(Collections.singletonList("foo")));
+        assertThat(GrokPrefilter.requiredLiterals("foo\\d+bar"), equalTo(Arrays.asList("foo", "bar")));
+        assertThat(GrokPrefilter.requiredLiterals("foo.bar"), equalTo(Arrays.asList("foo", "bar")));
+        assertThat(GrokPrefilter.requiredLiterals("^foo\\.bar$"), equalTo(Collections.singletonList("foo.bar")));
+        // quantified characters
+        assertThat(GrokPrefilter.requiredLiterals("abcd?ef"), equalTo(Arrays.asList("abc", "ef")));
+        assertThat(GrokPrefilter.requiredLiterals("abcd*ef"), equalTo(Arrays.asList("abc", "ef")));
+        assertThat(GrokPrefilter.requiredLiterals("abcd+ef"), equalTo(Arrays.asList("abcd", "ef")));
+        assertThat(GrokPrefilter.requiredLiterals("abcd{0,2}ef"), equalTo(Arrays.asList("abc", "ef")));
+        assertThat(GrokPrefilter.requiredLiterals("abcd{2}ef"), equalTo(Arrays.asList("abcd", "ef")));
+        assertThat(GrokPrefilter.requiredLiterals("abcd+?ef"), equalTo(Arrays.asList("abcd", "ef")));
+        assertThat(GrokPrefilter.requiredLiterals("ab{x}"), equalTo(Collections.singletonList("ab{x}")));
+        // groups
+        assertThat(GrokPrefilter.requiredLiterals("(?<name>foo)-(bar)"), equalTo(Arrays.asList("foo", "bar")));
+        assertThat(GrokPrefilter.requiredLiterals("(?:foo)?bar"), equalTo(Collections.singletonList("bar")));
+        assertThat(GrokPrefilter.requiredLiterals("(?:foo)*bar"), equalTo(Collections.singletonList("bar")));
+        assertThat(GrokPrefilter.requiredLiterals("(?:foo)+bar"), equalTo(Arrays.asList("foo", "bar")));
+        assertThat(GrokPrefilter.requiredLiterals("(?:foo|baz)bar"), equalTo(Collections.singletonList("bar")));
+        assertThat(GrokPrefilter.requiredLiterals("(?:a(?:foo|baz)b)bar"), equalTo(Collections.singletonList("bar")));
+        assertThat(GrokPrefilter.requiredLiterals("(?<![0-9])foo(?=bar)"), equalTo(Collections.singletonList("foo")));
+        assertThat(GrokPrefilter.requiredLiterals("foo|bar"), empty());
+        // character classes and escapes
+        assertThat(GrokPrefilter.requiredLiterals("foo[a-z|)]+bar"), equalTo(Arrays.asList("foo", "bar")));
+        assertThat(GrokPrefilter.requiredLiterals("foo[]x]bar"), equalTo(Arrays.asList("foo", "bar")));
+        assertThat(GrokPrefilter.requiredLiterals("foo[[:alpha:]]bar"), equalTo(Arrays.asList("foo", "bar")));
+        assertThat(GrokPrefilter.requiredLiterals("foo\\x{41}bar\\k<name>baz"), equalTo(Arrays.asList("foo", "bar", "baz")));
+        assertThat(GrokPrefilter.requiredLiterals("foo\\|bar"), equalTo(Collections.singletonList("foo|bar")));
+        // options may make the literals case insensitive
+        assertThat(GrokPrefilter.requiredLiterals("foo(?i)bar"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("foo(?i:bar)"), empty());
+        // expressions that can't be parsed yield no literals
+        assertThat(GrokPrefilter.requiredLiterals("foo(bar"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("foo[a-z"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("foo\\x{41bar"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("foo\\"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("foo(?<namebar)"), empty());
+        // too short
+        assertThat(GrokPrefilter.requiredLiterals("a.b"), empty());
+    }
+
+    public void testCandidates() {
+        GrokPrefilter prefilter = GrokPrefilter.build(Arrays.asList("he.*she", "hers", "his|her", "\\d+ ushers"));
+        assertThat(candidates(prefilter, "ushers"), equalTo(bits(0, 1, 2)));
+        assertThat(candidates(prefilter, "she said he"), equalTo(bits(0, 2)));
+        assertThat(candidates(prefilter, "he said she"), equalTo(bits(0, 2)));
+        assertThat(candidates(prefilter, "12 ushers and hers"), equalTo(bits(0, 1, 2, 3)));
+        assertThat(candidates(prefilter, ""), equalTo(bits(2)));
+    }
+
+    public void testNoLiterals() {
+        assertThat(GrokPrefilter.build(Arrays.asList("\\d+", "a|b")), nullValue());
+    }
+
+    public void testMatchingPatternsAreCandidates() throws IOException {
+        Map<String, String> patternBank = IngestCommonPlugin.loadBuiltinPatterns();
+        List<String> patterns = Arrays.asList("%{COMBINEDAPACHELOG}", "%{SYSLOGLINE}", "%{SYSLOG5424LINE}",
+            "%{IP:client} %{WORD:method} %{URIPATHPARAM:request} %{NUMBER:bytes} %{NUMBER:duration}",
+            "%{MONTHDAY}[.-/]%{MONTHNUM}[.-/]%{YEAR}");
+        List<String> lines = Arrays.asList(
+            "83.149.9.216 - - [19/Jul/2015:08:13:42 +0000] \"GET /presentations/logstash-monitorama-2013/images/kibana-dashboard3.png " +
+                "HTTP/1.1\" 200 171717 \"http://semicomplete.com/presentations/logstash-monitorama-2013/\" \"Mozilla" +
+                "/5.0 (Macintosh; Intel Mac OS X 10_9_1) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/32.0.1700.77 Safari/537.36\"",
+            "Mar 16 00:01:25 evita postfix/smtpd[1713]: connect from camomile.cloud9.net[168.100.1.3]",
+            "<191>1 2009-06-30T18:30:00+02:00 paxton.local grokdebug 4123 - [id1 foo=\"bar\"][id2 baz=\"something\"] Hello",
+            "55.3.244.1 GET /index.html 15824 0.043",
+            "22.11.2016");
+        Grok[] groks = new Grok[patterns.size()];
+        String[] expressions = new String[patterns.size()];
+        for (int i = 0; i < patterns.size(); i++) {
+            groks[i] = new Grok(patternBank, patterns.get(i));
+            expressions[i] = groks[i].getExpression();
+        }
+        GrokPrefilter prefilter = GrokPrefilter.build(Arrays.asList(expressions));
+        for (String line : lines) {
+            BitSet candidates = candidates(prefilter, line);
+            for (int i = 0; i < groks.length; i++) {
+                if (groks[i].match(line)) {
+                    assertTrue("pattern [" + patterns.get(i) + "] matches [" + line + "] but isn't a candidate", candidates.get(i));
+                }
+            }
+        }
+        // the apache log pattern requires brackets and quotes
+        assertThat(GrokPrefilter.requiredLiterals(expressions[0]), equalTo(Arrays.asList(" [", "] \"", "\" ")));
+        for (String line : lines.subList(1, lines.size())) {
+            assertFalse(candidates(prefilter, line).get(0));
+        }
+    }
+
+    public void testRandomTexts() {
+        List<String> literals = Arrays.asList("GET", "POST", "HTTP/1.1", "deny", "allow", "src=", "dst=");
+        String[] expressions = new String[randomIntBetween(1, 10)];
+        for (int i = 0; i < expressions.length; i++) {
+            StringBuilder expression = new StringBuilder();
+            int numParts = randomIntBetween(1, 4);
+            for (int j = 0; j < numParts; j++) {
+                expression.append(randomFrom("\\d+", " ", ".*", "\\s"));
+                expression.append(randomFrom(literals));
+            }
+            expressions[i] = expression.toString();
+        }
+        GrokPrefilter prefilter = GrokPrefilter.build(Arrays.asList(expressions));
+        Map<String, String> noPatterns = Collections.emptyMap();
+        for (int i = 0; i < 100; i++) {
+            StringBuilder text = new StringBuilder();
+            int numParts = randomIntBetween(0, 6);
+            for (int j = 0; j < numParts; j++) {
+                text.append(randomFrom(" ", "1", " 42 ", "x"));
+                text.append(randomBoolean() ? randomFrom(literals) : randomAsciiOfLength(3));
+            }
+            BitSet candidates = candidates(prefilter, text.toString());
+            for (int j = 0; j < expressions.length; j++) {
+                if (new Grok(noPatterns, expressions[j]).match(text.toString())) {
+                    assertTrue("[" + expressions[j] + "] matches [" + text + "] but isn't a candidate", candidates.get(j));
+                }
+            }
+        }
+    }
+
+    private static BitSet candidates(GrokPrefilter prefilter, String text) {
+        return prefilter.candidates(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BitSet bits(int... indices) {
+        BitSet bits = new BitSet();
+        for (int index : indices) {
+            bits.set(index);
+        }
+        return bits;
+    }
+}
@@ -26,6 +26,7 @@ import org.elasticsearch.test.ESTestCase;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.elasticsearch.ingest.IngestDocumentMatcher.assertIngestDocument;
@@ -171,6 +172,67 @@ public class GrokProcessorTests extends ESTestCase {
         assertThat(doc.getFieldValue("_ingest._grok_match_index", String.class), equalTo("0"));
     }
 
+    public void testPatternCounters() throws Exception {
+        Map<String, String> patternBank = new HashMap<>();
+        patternBank.put("ONE", "1");
+        patternBank.put("TWO", "2");
+        GrokProcessor processor = new GrokProcessor(randomAsciiOfLength(10), patternBank,
+            Arrays.asList("action=deny %{ONE:one}", "action=allow %{TWO:two}", "id=%{ONE:one}%{TWO:two}"), "field", randomBoolean(), false);
+        String[] values = new String[] {"action=allow 2", "action=deny 1", "action=allow 2", "id=12", "action=deny 3", "nothing"};
+        for (String value : values) {
+            IngestDocument doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+            doc.setFieldValue("field", value);
+            try {
+                processor.execute(doc);
+                // the groups that the patterns are wrapped in don't leak into the document
+                assertThat(doc.hasField("_ingest._grok_match_index.0"), equalTo(false));
+                assertThat(doc.hasField("_ingest._grok_match_index.1"), equalTo(false));
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), equalTo("Provided Grok expressions do not match field value: [" + value + "]"));
+            }
+        }
+        Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("pattern_0_matches", 1L);
+        expected.put("pattern_1_matches", 2L);
+        expected.put("pattern_2_matches", 1L);
+        expected.put("no_match", 2L);
+        // "nothing" contains none of the literals, "action=deny 3" still has to be run against the first pattern
+        expected.put("skipped_by_prefilter", 1L);
+        assertThat(processor.getCounters(), equalTo(expected));
+    }
+
+    public void testPrefilterKeepsFirstMatchingPattern() throws Exception {
+        Map<String, String> patternBank = new HashMap<>();
+        patternBank.put("WORD", "\\w+");
+        GrokProcessor processor = new GrokProcessor(randomAsciiOfLength(10), patternBank,
+            Arrays.asList("src=%{WORD:src}", "dst=%{WORD:dst}", "src=%{WORD:src} dst=%{WORD:dst}", "deny"), "field", true, false);
+        IngestDocument doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        doc.setFieldValue("field", "src=a dst=b");
+        processor.execute(doc);
+        assertThat(doc.getFieldValue("src", String.class), equalTo("a"));
+        assertThat(doc.hasField("dst"), equalTo(false));
+        assertThat(doc.getFieldValue("_ingest._grok_match_index", String.class), equalTo("0"));
+
+        doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        doc.setFieldValue("field", "dst=b");
+        processor.execute(doc);
+        assertThat(doc.getFieldValue("dst", String.class), equalTo("b"));
+        assertThat(doc.getFieldValue("_ingest._grok_match_index", String.class), equalTo("1"));
+    }
+
+    public void testNumberedBackReferences() throws Exception {
+        // numbered back references can't be used next to named groups, so the patterns can't be told apart
+        GrokProcessor processor = new GrokProcessor(randomAsciiOfLength(10), Collections.emptyMap(),
+            Arrays.asList("(a)\\1", "b"), "field", false, false);
+        IngestDocument doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        doc.setFieldValue("field", "aa");
+        processor.execute(doc);
+        assertThat(processor.getCounters().get("pattern_0_matches"), equalTo(0L));
+        doc.setFieldValue("field", "c");
+        expectThrows(IllegalArgumentException.class, () -> processor.execute(doc));
+        assertThat(processor.getCounters().get("no_match"), equalTo(1L));
+    }
+
     public void testCombinedPatterns() {
         String combined;
         combined = GrokProcessor.combinePatterns(Arrays.asList(""), false);
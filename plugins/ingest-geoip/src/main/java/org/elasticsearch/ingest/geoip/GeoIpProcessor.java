@@ -65,15 +65,19 @@ public final class GeoIpProcessor extends AbstractProcessor {
     private final DatabaseReader dbReader;
     private final Set<Property> properties;
     private final boolean ignoreMissing;
+    private final String databaseFile;
+    private final GeoIpResultCache resultCache;
 
     GeoIpProcessor(String tag, String field, DatabaseReader dbReader, String targetField, Set<Property> properties,
-                   boolean ignoreMissing) throws IOException {
+                   boolean ignoreMissing, String databaseFile, GeoIpResultCache resultCache) throws IOException {
         super(tag);
         this.field = field;
         this.targetField = targetField;
         this.dbReader = dbReader;
         this.properties = properties;
         this.ignoreMissing = ignoreMissing;
+        this.databaseFile = databaseFile;
+        this.resultCache = resultCache;
     }
 
     boolean isIgnoreMissing() {
@@ -90,6 +94,13 @@ public final class GeoIpProcessor extends AbstractProcessor {
             throw new IllegalArgumentException("field [" + field + "] is null, cannot extract geoip information.");
         }
 
+        Map<String, Object> geoData = resultCache.get(databaseFile, ip, properties, this::lookup);
+        if (geoData.isEmpty() == false) {
+            ingestDocument.setFieldValue(targetField, geoData);
+        }
+    }
+
+    private Map<String, Object> lookup(String ip) {
         final InetAddress ipAddress = InetAddresses.forString(ip);
 
         Map<String, Object> geoData;
@@ -112,9 +123,7 @@ public final class GeoIpProcessor extends AbstractProcessor {
                 throw new ElasticsearchParseException("Unsupported database type [" + dbReader.getMetadata().getDatabaseType()
                         + "]", new IllegalStateException());
         }
-        if (geoData.isEmpty() == false) {
-            ingestDocument.setFieldValue(targetField, geoData);
-        }
+        return geoData;
     }
 
     @Override
@@ -138,6 +147,10 @@ public final class GeoIpProcessor extends AbstractProcessor {
         return properties;
     }
 
+    String getDatabaseFile() {
+        return databaseFile;
+    }
+
     private Map<String, Object> retrieveCityGeoData(InetAddress ipAddress) {
         SecurityManager sm = System.getSecurityManager();
         if (sm != null) {
@@ -271,9 +284,11 @@ public final class GeoIpProcessor extends AbstractProcessor {
         static final Set<Property> DEFAULT_COUNTRY_PROPERTIES = EnumSet.of(Property.CONTINENT_NAME, Property.COUNTRY_ISO_CODE);
 
         private final Map<String, DatabaseReaderLazyLoader> databaseReaders;
+        private final GeoIpResultCache resultCache;
 
-        public Factory(Map<String, DatabaseReaderLazyLoader> databaseReaders) {
+        public Factory(Map<String, DatabaseReaderLazyLoader> databaseReaders, GeoIpResultCache resultCache) {
             this.databaseReaders = databaseReaders;
+            this.resultCache = resultCache;
         }
 
         @Override
@@ -315,7 +330,8 @@ public final class GeoIpProcessor extends AbstractProcessor {
                 }
             }
 
-            return new GeoIpProcessor(processorTag, ipField, databaseReader, targetField, properties, ignoreMissing);
+            return new GeoIpProcessor(processorTag, ipField, databaseReader, targetField, properties, ignoreMissing, databaseFile,
+                resultCache);
         }
     }
 
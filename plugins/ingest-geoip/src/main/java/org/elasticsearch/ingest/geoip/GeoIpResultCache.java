@@ -0,0 +1,199 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest.geoip;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.ingest.geoip.GeoIpProcessor.Property;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * A node wide cache of the final results of geoip lookups, keyed by database file, ip and the requested properties. Unlike
+ * {@link GeoIpCache}, which only saves decoding the nodes of the database, a hit skips parsing the ip, walking the database
+ * and building the result. Lookups that found nothing are cached as well.
+ */
+public final class GeoIpResultCache {
+
+    private final Cache<CacheKey, Map<String, Object>> cache;
+
+    /**
+     * @param maxSize the maximum number of results to keep, <code>0</code> disables the cache
+     */
+    GeoIpResultCache(long maxSize) {
+        if (maxSize > 0) {
+            this.cache = CacheBuilder.<CacheKey, Map<String, Object>>builder().setMaximumWeight(maxSize).build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Returns the result of looking up the ip in the database, computing it with the loader if it isn't cached yet. The returned
+     * map is owned by the caller.
+     */
+    Map<String, Object> get(String databaseFile, String ip, Set<Property> properties, Function<String, Map<String, Object>> loader) {
+        if (cache == null) {
+            return loader.apply(ip);
+        }
+        final Map<String, Object> result;
+        try {
+            result = cache.computeIfAbsent(new CacheKey(databaseFile, ip, properties), key -> {
+                Map<String, Object> geoData = loader.apply(key.ip);
+                return geoData.isEmpty() ? Collections.emptyMap() : geoData;
+            });
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ElasticsearchException(cause);
+        }
+        return copy(result);
+    }
+
+    /**
+     * Cached results are shared by all documents with the same ip, so every document gets its own copy of the result and of
+     * the nested objects in it (the location), which later processors may modify.
+     */
+    private static Map<String, Object> copy(Map<String, Object> result) {
+        if (result.isEmpty()) {
+            return result;
+        }
+        Map<String, Object> copy = new HashMap<>(result);
+        for (Map.Entry<String, Object> entry : copy.entrySet()) {
+            if (entry.getValue() instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> value = (Map<String, Object>) entry.getValue();
+                entry.setValue(new HashMap<>(value));
+            }
+        }
+        return copy;
+    }
+
+    public Stats stats() {
+        if (cache == null) {
+            return new Stats(0, 0, 0, 0);
+        }
+        Cache.CacheStats stats = cache.stats();
+        return new Stats(cache.count(), stats.getHits(), stats.getMisses(), stats.getEvictions());
+    }
+
+    static final class CacheKey {
+        private final String databaseFile;
+        private final String ip;
+        private final Set<Property> properties;
+        private final int hashCode;
+
+        CacheKey(String databaseFile, String ip, Set<Property> properties) {
+            this.databaseFile = databaseFile;
+            this.ip = ip;
+            this.properties = properties;
+            this.hashCode = 31 * (31 * databaseFile.hashCode() + ip.hashCode()) + properties.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return hashCode == other.hashCode && ip.equals(other.ip) && databaseFile.equals(other.databaseFile)
+                && properties.equals(other.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    public static final class Stats implements Writeable, ToXContent {
+        private final long count;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        public Stats(long count, long hits, long misses, long evictions) {
+            this.count = count;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public Stats(StreamInput in) throws IOException {
+            count = in.readVLong();
+            hits = in.readVLong();
+            misses = in.readVLong();
+            evictions = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(count);
+            out.writeVLong(hits);
+            out.writeVLong(misses);
+            out.writeVLong(evictions);
+        }
+
+        /** The number of cached results */
+        public long getCount() {
+            return count;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject("result_cache");
+            builder.field("count", count);
+            builder.field("hits", hits);
+            builder.field("misses", misses);
+            builder.field("evictions", evictions);
+            builder.endObject();
+            return builder;
+        }
+    }
+}
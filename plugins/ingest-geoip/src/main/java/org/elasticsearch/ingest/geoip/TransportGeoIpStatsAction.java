@@ -0,0 +1,75 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest.geoip;
+
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.ingest.geoip.GeoIpStatsAction.NodeRequest;
+import org.elasticsearch.ingest.geoip.GeoIpStatsAction.NodeResponse;
+import org.elasticsearch.ingest.geoip.GeoIpStatsAction.Request;
+import org.elasticsearch.ingest.geoip.GeoIpStatsAction.Response;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.List;
+
+public class TransportGeoIpStatsAction extends TransportNodesAction<Request, Response, NodeRequest, NodeResponse> {
+
+    private final GeoIpResultCache resultCache;
+
+    @Inject
+    public TransportGeoIpStatsAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
+                                     TransportService transportService, ActionFilters actionFilters,
+                                     IndexNameExpressionResolver indexNameExpressionResolver, GeoIpResultCache resultCache) {
+        super(settings, GeoIpStatsAction.NAME, threadPool, clusterService, transportService, actionFilters,
+            indexNameExpressionResolver, Request::new, NodeRequest::new, ThreadPool.Names.MANAGEMENT, NodeResponse.class);
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    protected Response newResponse(Request request, List<NodeResponse> responses, List<FailedNodeException> failures) {
+        return new Response(clusterService.getClusterName(), responses, failures);
+    }
+
+    @Override
+    protected NodeRequest newNodeRequest(String nodeId, Request request) {
+        return new NodeRequest(nodeId);
+    }
+
+    @Override
+    protected NodeResponse newNodeResponse() {
+        return new NodeResponse();
+    }
+
+    @Override
+    protected NodeResponse nodeOperation(NodeRequest request) {
+        return new NodeResponse(clusterService.localNode(), resultCache.stats());
+    }
+
+    @Override
+    protected boolean accumulateExceptions() {
+        return false;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest.geoip;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.ingest.geoip.GeoIpProcessor.Property;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class GeoIpResultCacheTests extends ESTestCase {
+
+    private static final Set<Property> PROPERTIES = EnumSet.of(Property.CITY_NAME, Property.LOCATION);
+
+    public void testCachesResultsByDatabaseIpAndProperties() {
+        GeoIpResultCache cache = new GeoIpResultCache(10);
+        AtomicInteger lookups = new AtomicInteger();
+        Function<String, Map<String, Object>> loader = ip -> {
+            lookups.incrementAndGet();
+            return result(ip);
+        };
+
+        assertThat(cache.get("City.mmdb.gz", "1.2.3.4", PROPERTIES, loader), equalTo(result("1.2.3.4")));
+        assertThat(cache.get("City.mmdb.gz", "1.2.3.4", EnumSet.copyOf(PROPERTIES), loader), equalTo(result("1.2.3.4")));
+        assertThat(lookups.get(), equalTo(1));
+
+        cache.get("City.mmdb.gz", "4.3.2.1", PROPERTIES, loader);
+        cache.get("Country.mmdb.gz", "1.2.3.4", PROPERTIES, loader);
+        cache.get("City.mmdb.gz", "1.2.3.4", EnumSet.of(Property.CITY_NAME), loader);
+        assertThat(lookups.get(), equalTo(4));
+
+        GeoIpResultCache.Stats stats = cache.stats();
+        assertThat(stats.getCount(), equalTo(4L));
+        assertThat(stats.getHits(), equalTo(1L));
+        assertThat(stats.getMisses(), equalTo(4L));
+        assertThat(stats.getEvictions(), equalTo(0L));
+    }
+
+    public void testCachesEmptyResults() {
+        GeoIpResultCache cache = new GeoIpResultCache(10);
+        AtomicInteger lookups = new AtomicInteger();
+        Function<String, Map<String, Object>> loader = ip -> {
+            lookups.incrementAndGet();
+            return new HashMap<>();
+        };
+        assertTrue(cache.get("City.mmdb.gz", "127.0.0.1", PROPERTIES, loader).isEmpty());
+        assertTrue(cache.get("City.mmdb.gz", "127.0.0.1", PROPERTIES, loader).isEmpty());
+        assertThat(lookups.get(), equalTo(1));
+    }
+
+    public void testReturnsCopies() {
+        GeoIpResultCache cache = new GeoIpResultCache(10);
+        Map<String, Object> first = cache.get("City.mmdb.gz", "1.2.3.4", PROPERTIES, GeoIpResultCacheTests::result);
+        first.put("city_name", "Springfield");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> location = (Map<String, Object>) first.get("location");
+        location.put("lat", 0d);
+
+        Map<String, Object> second = cache.get("City.mmdb.gz", "1.2.3.4", PROPERTIES, GeoIpResultCacheTests::result);
+        assertThat(second, not(sameInstance(first)));
+        assertThat(second, equalTo(result("1.2.3.4")));
+    }
+
+    public void testEvicts() {
+        GeoIpResultCache cache = new GeoIpResultCache(1);
+        AtomicInteger lookups = new AtomicInteger();
+        Function<String, Map<String, Object>> loader = ip -> {
+            lookups.incrementAndGet();
+            return result(ip);
+        };
+        cache.get("City.mmdb.gz", "1.2.3.4", PROPERTIES, loader);
+        cache.get("City.mmdb.gz", "4.3.2.1", PROPERTIES, loader);
+        cache.get("City.mmdb.gz", "1.2.3.4", PROPERTIES, loader);
+        assertThat(lookups.get(), equalTo(3));
+
+        GeoIpResultCache.Stats stats = cache.stats();
+        assertThat(stats.getCount(), equalTo(1L));
+        assertThat(stats.getEvictions(), equalTo(2L));
+    }
+
+    public void testDisabled() {
+        GeoIpResultCache cache = new GeoIpResultCache(0);
+        AtomicInteger lookups = new AtomicInteger();
+        Function<String, Map<String, Object>> loader = ip -> {
+            lookups.incrementAndGet();
+            return result(ip);
+        };
+        cache.get("City.mmdb.gz", "1.2.3.4", PROPERTIES, loader);
+        cache.get("City.mmdb.gz", "1.2.3.4", PROPERTIES, loader);
+        assertThat(lookups.get(), equalTo(2));
+        assertThat(cache.stats().getHits(), equalTo(0L));
+    }
+
+    public void testRethrowsLoaderExceptions() {
+        GeoIpResultCache cache = new GeoIpResultCache(10);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> cache.get("City.mmdb.gz", "www.google.com", PROPERTIES, ip -> {
+                throw new IllegalArgumentException("'" + ip + "' is not an IP string literal.");
+            }));
+        assertThat(e.getMessage(), equalTo("'www.google.com' is not an IP string literal."));
+        // failures are not cached
+        assertThat(cache.get("City.mmdb.gz", "www.google.com", PROPERTIES, GeoIpResultCacheTests::result),
+            equalTo(result("www.google.com")));
+    }
+
+    public void testStatsSerialization() throws Exception {
+        GeoIpResultCache.Stats stats = new GeoIpResultCache.Stats(randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong());
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        StreamInput in = out.bytes().streamInput();
+        GeoIpResultCache.Stats read = new GeoIpResultCache.Stats(in);
+        assertThat(read.getCount(), equalTo(stats.getCount()));
+        assertThat(read.getHits(), equalTo(stats.getHits()));
+        assertThat(read.getMisses(), equalTo(stats.getMisses()));
+        assertThat(read.getEvictions(), equalTo(stats.getEvictions()));
+    }
+
+    private static Map<String, Object> result(String ip) {
+        Map<String, Object> location = new HashMap<>();
+        location.put("lat", 37.386d);
+        location.put("lon", -122.0838d);
+        Map<String, Object> result = new HashMap<>();
+        result.put("city_name", "Mountain View " + ip);
+        result.put("location", location);
+        return result;
+    }
+}
@@ -25,8 +25,10 @@ import org.elasticsearch.common.blobstore.BlobMetaData;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.BlobStore;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.test.ESTestCase;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
@@ -64,6 +66,23 @@ public abstract class ESBlobStoreContainerTestCase extends ESTestCase {
         }
     }
 
+    public void testReadRange() throws IOException {
+        try(BlobStore store = newBlobStore()) {
+            final BlobContainer container = store.blobContainer(new BlobPath());
+            byte[] data = randomBytes(randomIntBetween(10, scaledRandomIntBetween(1024, 1 << 16)));
+            writeBlob(container, "foobar", new BytesArray(data));
+            for (int i = 0; i < 10; i++) {
+                final int position = randomIntBetween(0, data.length);
+                final int length = randomIntBetween(0, data.length - position);
+                final ByteArrayOutputStream target = new ByteArrayOutputStream();
+                try (InputStream stream = container.readBlob("foobar", position, length)) {
+                    Streams.copy(stream, target);
+                }
+                assertArrayEquals(Arrays.copyOfRange(data, position, position + length), target.toByteArray());
+            }
+        }
+    }
+
     public void testMoveAndList() throws IOException {
         try(BlobStore store = newBlobStore()) {
             final BlobContainer container = store.blobContainer(new BlobPath());